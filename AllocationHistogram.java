@@ -0,0 +1,190 @@
+import java.util.Arrays;
+
+/**
+ * Maintains the distribution of the match allocations of the referees of a MatchSchedule
+ * as the number of referees holding each number of allocations, together with the running
+ * totals from which the mean and variance are derived. The schedule updates the histogram
+ * as each referee is added or removed and as each allocation is made or released, so the
+ * fewest, most and mean allocations and their variance are always available without
+ * examining any referee.
+ *
+ * Allocations change by one match at a time, so the fewest and most allocations are
+ * maintained in constant time: a referee leaving the extreme value moves to the adjacent
+ * value. Only the removal of the last referee holding an extreme value searches the
+ * histogram for the next value held.
+ */
+public class AllocationHistogram {
+
+	private int[] counts; // the number of referees holding each number of allocations
+	private int numberOfReferees; // the number of referees counted
+	private long totalAllocations; // the sum of the allocations of every referee
+	private long totalSquaredAllocations; // the sum of the squares of the allocations of every referee
+	private int minimum; // the fewest allocations held by any referee
+	private int maximum; // the most allocations held by any referee
+
+	/**
+	 * Constructor for an empty AllocationHistogram
+	 */
+	public AllocationHistogram(){
+		counts = new int[16];
+		numberOfReferees = 0;
+		totalAllocations = 0;
+		totalSquaredAllocations = 0;
+		minimum = 0;
+		maximum = 0;
+	}
+
+	/**
+	 * Method to count a referee holding a number of allocations
+	 * @param allocations an int containing the referee's match allocations
+	 * @throws IllegalArgumentException if the allocations are negative
+	 */
+	void add(int allocations){
+		if (allocations<0){
+			throw new IllegalArgumentException("The number of allocations cannot be negative");
+		}
+		if (allocations>=counts.length){
+			counts = Arrays.copyOf(counts, Math.max(2*counts.length, allocations+1));
+		}
+		counts[allocations]++;
+		if (numberOfReferees==0||allocations<minimum){
+			minimum = allocations;
+		}
+		if (numberOfReferees==0||allocations>maximum){
+			maximum = allocations;
+		}
+		numberOfReferees++;
+		totalAllocations += allocations;
+		totalSquaredAllocations += (long) allocations*allocations;
+	}
+
+	/**
+	 * Method to stop counting a referee holding a number of allocations
+	 * @param allocations an int containing the referee's match allocations
+	 * @throws IllegalArgumentException if no referee counted holds the allocations
+	 */
+	void remove(int allocations){
+		if (allocations<0||allocations>=counts.length||counts[allocations]==0){
+			throw new IllegalArgumentException("No referee holds "+allocations+" allocations");
+		}
+		counts[allocations]--;
+		numberOfReferees--;
+		totalAllocations -= allocations;
+		totalSquaredAllocations -= (long) allocations*allocations;
+		if (numberOfReferees==0){
+			minimum = 0;
+			maximum = 0;
+			return;
+		}
+		// the extremes are only searched for when the last referee holding one is removed
+		while (counts[minimum]==0){
+			minimum++;
+		}
+		while (counts[maximum]==0){
+			maximum--;
+		}
+	}
+
+	/**
+	 * Method to move a referee from one number of allocations to another. The new value is
+	 * counted before the old is removed, so a change of one allocation takes constant time.
+	 * @param previousAllocations an int containing the referee's match allocations before the change
+	 * @param allocations an int containing the referee's match allocations after the change
+	 */
+	void move(int previousAllocations, int allocations){
+		if (previousAllocations!=allocations){
+			this.add(allocations);
+			this.remove(previousAllocations);
+		}
+	}
+
+	/**
+	 * Accessor method for the number of referees counted
+	 * @return numberOfReferees an int containing the number of referees
+	 */
+	public int getNumberOfReferees(){
+		return numberOfReferees;
+	}
+
+	/**
+	 * Accessor method for the number of referees holding a number of allocations
+	 * @param allocations an int containing a number of match allocations
+	 * @return an int containing the number of referees holding exactly that many allocations
+	 */
+	public int getCount(int allocations){
+		return allocations>=0&&allocations<counts.length ? counts[allocations] : 0;
+	}
+
+	/**
+	 * Accessor method for the total match allocations of every referee
+	 * @return totalAllocations a long containing the sum of the allocations
+	 */
+	public long getTotalAllocations(){
+		return totalAllocations;
+	}
+
+	/**
+	 * Accessor method for the fewest allocations held by any referee
+	 * @return minimum an int containing the allocations, or 0 if there are no referees
+	 */
+	public int getMinimum(){
+		return minimum;
+	}
+
+	/**
+	 * Accessor method for the most allocations held by any referee
+	 * @return maximum an int containing the allocations, or 0 if there are no referees
+	 */
+	public int getMaximum(){
+		return maximum;
+	}
+
+	/**
+	 * Accessor method for the difference between the most and fewest allocations
+	 * @return an int containing the spread of the allocations
+	 */
+	public int getSpread(){
+		return maximum-minimum;
+	}
+
+	/**
+	 * Accessor method for the mean allocations of the referees
+	 * @return a double containing the mean, or 0 if there are no referees
+	 */
+	public double getMean(){
+		return numberOfReferees>0 ? (double) totalAllocations/numberOfReferees : 0;
+	}
+
+	/**
+	 * Accessor method for the population variance of the allocations of the referees
+	 * @return a double containing the variance, or 0 if there are no referees
+	 */
+	public double getVariance(){
+		if (numberOfReferees==0){
+			return 0;
+		}
+		// the totals are whole numbers, so the difference is exact until it is divided
+		double squaredDeviations = totalSquaredAllocations-(double) totalAllocations*totalAllocations/numberOfReferees;
+		return Math.max(0, squaredDeviations/numberOfReferees);
+	}
+
+	/**
+	 * Method to determine a percentile of the allocations by the nearest rank. The histogram
+	 * is examined from the fewest to the most allocations held, so the time taken depends on
+	 * the spread of the allocations rather than the number of referees.
+	 * @param percentile an int between 1 and 100
+	 * @return allocations an int containing the allocations of the referee at the rank, or 0 if there are no referees
+	 */
+	public int getPercentile(int percentile){
+		if (numberOfReferees==0){
+			return 0;
+		}
+		long rank = Math.max(1, ((long) percentile*numberOfReferees+99)/100);
+		int allocations = minimum;
+		long referees = counts[allocations];
+		while (referees<rank&&allocations<maximum){
+			referees += counts[++allocations];
+		}
+		return allocations;
+	}
+}
@@ -0,0 +1,386 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes every allocation of a referee to a match, and every release of a referee
+ * from a match, as a stream of AllocationRecords, e.g. for payroll, travel booking or
+ * notifications. Records are produced from the change events of a MatchSchedule once
+ * each operation is complete, so abandoned and undone changes are published as the
+ * releases and allocations they amount to.
+ *
+ * Each subscriber receives records only as it requests them, and no record is ever dropped
+ * for a slow subscriber. Instead, the records waiting for each subscriber are coalesced per
+ * official of each match: a release cancels an allocation the subscriber has not yet
+ * received, and allocating the official the subscriber last received cancels the release
+ * waiting for them. The records waiting for a subscriber therefore describe only how the
+ * crews it last received differ from the current crews. There are at most two for each
+ * official of each match, however far the subscriber falls behind, and the crews a
+ * subscriber builds from the records it receives always become those of the schedule.
+ */
+public class AllocationPublisher implements Flow.Publisher<AllocationRecord>, ScheduleListener {
+
+	private final MatchSchedule schedule; // the schedule whose allocations are published
+	private final Executor executor; // delivers records to each subscriber on demand
+	private final List<CoalescingSubscription> subscriptions; // the current subscriptions
+	private final Map<Match, Referee[]> publishedCrews; // the officials of each scheduled match as last published
+	private volatile long nextSequence; // the number of the next record, written only on the schedule's thread
+	private final AtomicLong coalescedRecords; // the number of records cancelled before they were delivered
+	private volatile boolean closed; // whether publishing has stopped
+
+	/**
+	 * Defines a record waiting for a subscriber and the official of the match it concerns
+	 */
+	private static class PendingRecord {
+
+		private final AllocationRecord record; // the record to be delivered
+		private final Match fixture; // the match the record concerns
+		private final int slot; // twice the position of the official in the crew, plus one for an allocation
+
+		/**
+		 * Constructor for the PendingRecord
+		 * @param record an AllocationRecord to be delivered
+		 * @param fixture a Match object the record concerns
+		 * @param slot an int containing the slot of the record among the match's pending records
+		 */
+		private PendingRecord(AllocationRecord record, Match fixture, int slot){
+			this.record = record;
+			this.fixture = fixture;
+			this.slot = slot;
+		}
+	}
+
+	/**
+	 * Defines the subscription of a single subscriber, holding the records waiting for it.
+	 * Records are added on the schedule's thread and delivered on the executor, one task
+	 * delivering at a time so that the subscriber is never called concurrently.
+	 */
+	private class CoalescingSubscription implements Flow.Subscription, Runnable {
+
+		private final Flow.Subscriber<? super AllocationRecord> subscriber; // receives the records
+		private final TreeMap<Long, PendingRecord> pendingRecords; // the records waiting, by sequence number
+		private final Map<Match, PendingRecord[]> pendingSlots; // the records waiting for each official of each match
+		private long demand; // the number of records requested but not yet delivered
+		private boolean subscribed; // whether the subscriber has been given the subscription
+		private boolean delivering; // whether a task delivering to the subscriber is running or queued
+		private boolean finished; // whether the subscription was cancelled or the subscriber told the stream is complete
+
+		/**
+		 * Constructor for the CoalescingSubscription
+		 * @param subscriber a Flow.Subscriber of AllocationRecords
+		 */
+		private CoalescingSubscription(Flow.Subscriber<? super AllocationRecord> subscriber){
+			this.subscriber = subscriber;
+			pendingRecords = new TreeMap<Long, PendingRecord>();
+			pendingSlots = new HashMap<Match, PendingRecord[]>();
+			demand = 0;
+			subscribed = false;
+			// the first task gives the subscriber its subscription
+			delivering = true;
+			finished = false;
+		}
+
+		/**
+		 * Method to add a record for the subscriber, cancelling the record it undoes if the
+		 * subscriber has not yet received it. Called on the schedule's thread.
+		 * @param record an AllocationRecord
+		 * @param fixture a Match object the record concerns
+		 * @param position an int containing the position of the official in the crew
+		 */
+		private synchronized void offer(AllocationRecord record, Match fixture, int position){
+			if (finished){
+				return;
+			}
+			PendingRecord[] slots = pendingSlots.get(fixture);
+			if (slots==null){
+				slots = new PendingRecord[2*fixture.getCrewSize()];
+				pendingSlots.put(fixture, slots);
+			}
+			int releaseSlot = 2*position;
+			int allocationSlot = releaseSlot+1;
+			if (record.getType()==AllocationRecord.Type.DEALLOCATED&&slots[allocationSlot]!=null){
+				// the subscriber never received the allocation now released
+				this.withdraw(slots, allocationSlot);
+			}
+			else if (record.getType()==AllocationRecord.Type.ALLOCATED&&slots[releaseSlot]!=null
+					&&slots[releaseSlot].record.getRefID().equals(record.getRefID())){
+				// the official the subscriber last received is allocated again
+				this.withdraw(slots, releaseSlot);
+			}
+			else{
+				int slot = record.getType()==AllocationRecord.Type.DEALLOCATED ? releaseSlot : allocationSlot;
+				slots[slot] = new PendingRecord(record, fixture, slot);
+				pendingRecords.put(record.getSequence(), slots[slot]);
+				this.startDelivering();
+				return;
+			}
+			coalescedRecords.addAndGet(2);
+			this.forgetIfSettled(fixture, slots);
+		}
+
+		/**
+		 * Method to remove a waiting record which a later record has undone
+		 * @param slots the PendingRecords of a match
+		 * @param slot an int containing the slot of the record
+		 */
+		private void withdraw(PendingRecord[] slots, int slot){
+			pendingRecords.remove(slots[slot].record.getSequence());
+			slots[slot] = null;
+		}
+
+		/**
+		 * Method to forget a match once no record concerning it is waiting
+		 * @param fixture a Match object
+		 * @param slots the PendingRecords of the match
+		 */
+		private void forgetIfSettled(Match fixture, PendingRecord[] slots){
+			for (PendingRecord pending: slots){
+				if (pending!=null){
+					return;
+				}
+			}
+			pendingSlots.remove(fixture);
+		}
+
+		/**
+		 * Method to request further records
+		 * @param number a long containing the number of records requested
+		 */
+		public void request(long number){
+			if (number<=0){
+				synchronized (this){
+					if (finished){
+						return;
+					}
+					this.finish();
+				}
+				subscriber.onError(new IllegalArgumentException("The number of records requested must be positive"));
+				return;
+			}
+			synchronized (this){
+				// the demand never overflows, as Long.MAX_VALUE denotes an unbounded demand
+				demand = demand+number<0 ? Long.MAX_VALUE : demand+number;
+				this.startDelivering();
+			}
+		}
+
+		/**
+		 * Method to stop receiving records
+		 */
+		public synchronized void cancel(){
+			this.finish();
+		}
+
+		/**
+		 * Method to end the subscription, discarding the records waiting for it
+		 */
+		private synchronized void finish(){
+			finished = true;
+			pendingRecords.clear();
+			pendingSlots.clear();
+			subscriptions.remove(this);
+		}
+
+		/**
+		 * Method to queue a task delivering to the subscriber, unless one is already
+		 * running or queued or there is nothing to deliver. Called while synchronised.
+		 */
+		private void startDelivering(){
+			if (!delivering&&!finished&&((demand>0&&!pendingRecords.isEmpty())||(closed&&pendingRecords.isEmpty()))){
+				delivering = true;
+				executor.execute(this);
+			}
+		}
+
+		/**
+		 * Method to deliver records to the subscriber until it has received every record
+		 * requested or none is waiting, and to tell it the stream is complete once publishing
+		 * has stopped and every record has been delivered. Called on the executor.
+		 */
+		public void run(){
+			try{
+				if (!subscribed){
+					subscribed = true;
+					subscriber.onSubscribe(this);
+				}
+				while (true){
+					AllocationRecord next = null;
+					synchronized (this){
+						if (finished){
+							delivering = false;
+							return;
+						}
+						if (closed&&pendingRecords.isEmpty()){
+							this.finish();
+						}
+						else if (demand==0||pendingRecords.isEmpty()){
+							delivering = false;
+							return;
+						}
+						else{
+							PendingRecord pending = pendingRecords.pollFirstEntry().getValue();
+							PendingRecord[] slots = pendingSlots.get(pending.fixture);
+							slots[pending.slot] = null;
+							this.forgetIfSettled(pending.fixture, slots);
+							if (demand!=Long.MAX_VALUE){
+								demand--;
+							}
+							next = pending.record;
+						}
+					}
+					if (next==null){
+						subscriber.onComplete();
+						return;
+					}
+					subscriber.onNext(next);
+				}
+			}
+			catch (RuntimeException e){
+				// A subscriber which fails is no longer sent records
+				synchronized (this){
+					delivering = false;
+					this.finish();
+				}
+				subscriber.onError(e);
+			}
+		}
+	}
+
+	/**
+	 * Constructor for an AllocationPublisher delivering records on the common pool
+	 * @param matchSchedule a MatchSchedule object whose allocations are published
+	 */
+	public AllocationPublisher(MatchSchedule matchSchedule){
+		this(matchSchedule, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for the AllocationPublisher. Only allocations made after construction are published.
+	 * @param matchSchedule a MatchSchedule object whose allocations are published
+	 * @param executor an Executor on which records are delivered to subscribers
+	 */
+	public AllocationPublisher(MatchSchedule matchSchedule, Executor executor){
+		schedule = matchSchedule;
+		this.executor = executor;
+		subscriptions = new CopyOnWriteArrayList<CoalescingSubscription>();
+		publishedCrews = new HashMap<Match, Referee[]>();
+		for (Match fixture: schedule.getMatchSchedule()){
+			publishedCrews.put(fixture, crewOf(fixture));
+		}
+		nextSequence = 0;
+		coalescedRecords = new AtomicLong();
+		closed = false;
+		schedule.addScheduleListener(this);
+	}
+
+	/**
+	 * Method to add a subscriber, which receives the records published from now on
+	 * @param subscriber a Flow.Subscriber of AllocationRecords
+	 */
+	public void subscribe(Flow.Subscriber<? super AllocationRecord> subscriber){
+		CoalescingSubscription subscription = new CoalescingSubscription(subscriber);
+		subscriptions.add(subscription);
+		executor.execute(subscription);
+	}
+
+	/**
+	 * Method to publish the allocations and releases made by a completed operation.
+	 * Called on the thread which altered the schedule.
+	 * @param events a List of the ScheduleEvents describing the changes
+	 */
+	public void scheduleChanged(List<ScheduleEvent> events){
+		long timestamp = System.currentTimeMillis();
+		for (ScheduleEvent event: events){
+			Match fixture = event.getMatch();
+			if (fixture==null){
+				continue;
+			}
+			Referee[] previousCrew = publishedCrews.get(fixture);
+			Referee[] currentCrew = null;
+			if (event.getType()==ScheduleEvent.Type.MATCH_REMOVED){
+				publishedCrews.remove(fixture);
+			}
+			else{
+				currentCrew = crewOf(fixture);
+				publishedCrews.put(fixture, currentCrew);
+			}
+			// Only the officials who differ from those last published are reported
+			for (int position = 0; position<fixture.getCrewSize(); position++){
+				Referee previousRef = previousCrew!=null ? previousCrew[position] : null;
+				Referee currentRef = currentCrew!=null ? currentCrew[position] : null;
+				if (previousRef!=currentRef){
+					if (previousRef!=null){
+						this.publish(AllocationRecord.Type.DEALLOCATED, previousRef, fixture, position, timestamp);
+					}
+					if (currentRef!=null){
+						this.publish(AllocationRecord.Type.ALLOCATED, currentRef, fixture, position, timestamp);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to offer a record to every subscriber without waiting for any of them
+	 * @param type a Type denoting whether the referee was allocated or released
+	 * @param ref a Referee object
+	 * @param fixture a Match object
+	 * @param position an int containing the position of the referee in the crew
+	 * @param timestamp a long containing the time in milliseconds of the change
+	 */
+	private void publish(AllocationRecord.Type type, Referee ref, Match fixture, int position, long timestamp){
+		AllocationRecord record = new AllocationRecord(nextSequence, type, ref, fixture, timestamp);
+		nextSequence = nextSequence+1;
+		for (CoalescingSubscription subscription: subscriptions){
+			subscription.offer(record, fixture, position);
+		}
+	}
+
+	/**
+	 * Method to determine the officials of a match
+	 * @param fixture a Match object
+	 * @return an array containing the official of each position in the crew, any of which may be null
+	 */
+	private static Referee[] crewOf(Match fixture){
+		return fixture.getOfficials();
+	}
+
+	/**
+	 * Accessor method for the number of records cancelled by a later record before a
+	 * subscriber received them
+	 * @return a long containing the number of records cancelled, counted once for each subscriber
+	 */
+	public long getCoalescedRecords(){
+		return coalescedRecords.get();
+	}
+
+	/**
+	 * Accessor method for the number of records published. May be called on any thread.
+	 * @return nextSequence a long containing the number of records
+	 */
+	public long getPublishedRecords(){
+		return nextSequence;
+	}
+
+	/**
+	 * Accessor method for the number of subscribers
+	 * @return an int containing the number of current subscribers
+	 */
+	public int getNumberOfSubscribers(){
+		return subscriptions.size();
+	}
+
+	/**
+	 * Method to stop publishing. Each subscriber may still request the records waiting for
+	 * it and is told the stream is complete once it has received them.
+	 */
+	public void close(){
+		schedule.removeScheduleListener(this);
+		closed = true;
+		for (CoalescingSubscription subscription: subscriptions){
+			synchronized (subscription){
+				subscription.startDelivering();
+			}
+		}
+	}
+}
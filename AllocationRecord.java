@@ -0,0 +1,117 @@
+/**
+ * Defines a single allocation of a referee to a match, or the release of a referee from
+ * a match, as published by an AllocationPublisher. Records hold the details as they were
+ * when the change was made, so they remain accurate however the schedule changes later.
+ */
+public class AllocationRecord {
+
+	/**
+	 * Defines the kinds of record
+	 */
+	public enum Type {
+		ALLOCATED, // the referee now officiates the match
+		DEALLOCATED // the referee no longer officiates the match
+	}
+
+	private final long sequence; // the position of the record among those published, starting from 0
+	private final Type type; // whether the referee was allocated or released
+	private final String refID; // the ID of the referee
+	private final String refName; // the full name of the referee
+	private final int week; // the week of the match
+	private final String location; // the venue of the match
+	private final String matchLevel; // the level of the match (Junior/Senior)
+	private final long timestamp; // the time in milliseconds the change was published
+
+	/**
+	 * Constructor for the AllocationRecord
+	 * @param sequence a long containing the position of the record among those published
+	 * @param type a Type denoting whether the referee was allocated or released
+	 * @param ref a Referee object allocated to or released from the match
+	 * @param fixture a Match object
+	 * @param timestamp a long containing the time in milliseconds the change was published
+	 */
+	AllocationRecord(long sequence, Type type, Referee ref, Match fixture, long timestamp){
+		this.sequence = sequence;
+		this.type = type;
+		this.refID = ref.getRefID();
+		this.refName = ref.getFullName();
+		this.week = fixture.getWeekNo();
+		this.location = fixture.getLocation();
+		this.matchLevel = fixture.getMatchLevel();
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * Accessor method for the position of the record among those published. The numbers
+	 * increase from one record to the next, skipping records that a later record cancelled
+	 * before they were delivered.
+	 * @return sequence a long starting from 0
+	 */
+	public long getSequence(){
+		return sequence;
+	}
+
+	/**
+	 * Accessor method for the kind of record
+	 * @return type a Type
+	 */
+	public Type getType(){
+		return type;
+	}
+
+	/**
+	 * Accessor method for the ID of the referee
+	 * @return refID a String
+	 */
+	public String getRefID(){
+		return refID;
+	}
+
+	/**
+	 * Accessor method for the full name of the referee
+	 * @return refName a String containing the first name and surname
+	 */
+	public String getRefName(){
+		return refName;
+	}
+
+	/**
+	 * Accessor method for the week of the match
+	 * @return week an int
+	 */
+	public int getWeek(){
+		return week;
+	}
+
+	/**
+	 * Accessor method for the venue of the match
+	 * @return location a String
+	 */
+	public String getLocation(){
+		return location;
+	}
+
+	/**
+	 * Accessor method for the level of the match
+	 * @return matchLevel a String (Junior/Senior)
+	 */
+	public String getMatchLevel(){
+		return matchLevel;
+	}
+
+	/**
+	 * Accessor method for the time the change was published
+	 * @return timestamp a long containing the time in milliseconds
+	 */
+	public long getTimestamp(){
+		return timestamp;
+	}
+
+	/**
+	 * Method to describe the record
+	 * @return a String of the form "12 ALLOCATED JS1 week 3 Senior North"
+	 */
+	public String toString(){
+		return sequence+" "+type+" "+refID+" week "+week+" "+matchLevel+" "+location;
+	}
+}
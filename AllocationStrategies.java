@@ -0,0 +1,209 @@
+import java.util.*;
+
+/**
+ * Creates the allocation strategies provided with the schedule:
+ *
+ *  greedy-current  the nearest referees by proximity tier, or band of travel distance where
+ *                  the regions have coordinates, then those with the fewest allocations.
+ *                  This is the strategy of a new schedule.
+ *  load-first      the referees with the fewest allocations, wherever they live.
+ *  distance-first  the referees who travel the shortest distance, then those with the
+ *                  fewest allocations.
+ *  optimized       the referees adding least to the cost minimised by ScheduleRebalancer,
+ *                  i.e. the fewest allocations then the shortest distance, keeping referees
+ *                  qualified for senior matches for those matches where others are equally
+ *                  suitable.
+ *
+ * Each strategy other than greedy-current selects a crew of k from the n eligible referees
+ * free in the week of the match in O(n log k) time, ranking by its own keys and finally by
+ * the position of the referee in the list of referees.
+ */
+public final class AllocationStrategies {
+
+	/**
+	 * Constructor for the AllocationStrategies, which is never created
+	 */
+	private AllocationStrategies(){
+	}
+
+	/**
+	 * Method to create the strategy allocating officials as the schedule always has
+	 * @return an AllocationStrategy named "greedy-current"
+	 */
+	public static AllocationStrategy greedy(){
+		return new AllocationStrategy(){
+			public String getName(){
+				return "greedy-current";
+			}
+			public Referee[] selectOfficials(MatchSchedule schedule, String matchVenue, String matchLevel,
+					int matchWeek, int crewSize){
+				return schedule.selectSuitableRefs(matchVenue, matchLevel, matchWeek, crewSize);
+			}
+		};
+	}
+
+	/**
+	 * Method to create the strategy favouring the referees with the fewest allocations
+	 * @return an AllocationStrategy named "load-first"
+	 */
+	public static AllocationStrategy loadFirst(){
+		return new RankingStrategy("load-first"){
+			void rank(Referee ref, String matchLevel, double distance, double[] keys){
+				keys[0] = ref.getMatchAllocations();
+			}
+		};
+	}
+
+	/**
+	 * Method to create the strategy favouring the referees travelling the shortest distance
+	 * @return an AllocationStrategy named "distance-first"
+	 */
+	public static AllocationStrategy distanceFirst(){
+		return new RankingStrategy("distance-first"){
+			void rank(Referee ref, String matchLevel, double distance, double[] keys){
+				keys[0] = distance;
+				keys[1] = ref.getMatchAllocations();
+			}
+		};
+	}
+
+	/**
+	 * Method to create the strategy adding least to the cost minimised by the rebalancer
+	 * @return an AllocationStrategy named "optimized"
+	 */
+	public static AllocationStrategy optimized(){
+		return new RankingStrategy("optimized"){
+			void rank(Referee ref, String matchLevel, double distance, double[] keys){
+				// The rebalancer ranks allocations by the sum of squared allocations before
+				// the total distance travelled, and an allocation raises the sum by 2a+1,
+				// so the fewest allocations come first
+				keys[0] = ref.getMatchAllocations();
+				keys[1] = distance;
+				// Referees qualified for senior matches are scarce, so are kept for them
+				keys[2] = !matchLevel.equals("Senior")&&ref.canRefereeSeniors() ? 1 : 0;
+			}
+		};
+	}
+
+	/**
+	 * Method to create every strategy provided, in the order they are described
+	 * @return a List of the AllocationStrategy objects
+	 */
+	public static List<AllocationStrategy> all(){
+		return Arrays.asList(greedy(), loadFirst(), distanceFirst(), optimized());
+	}
+
+	/**
+	 * Method to determine whether a strategy is one of those provided, so that it can be
+	 * recreated from its name
+	 * @param strategy an AllocationStrategy
+	 * @return provided a boolean denoting whether the strategy was created by this class
+	 */
+	static boolean isProvided(AllocationStrategy strategy){
+		boolean provided = false;
+		for (AllocationStrategy candidate: all()){
+			provided |= candidate.getClass()==strategy.getClass();
+		}
+		return provided;
+	}
+
+	/**
+	 * Method to create a strategy provided from its name
+	 * @param name a String containing the name of the strategy, e.g. "load-first"
+	 * @return an AllocationStrategy
+	 * @throws IllegalArgumentException if no strategy has the name
+	 */
+	public static AllocationStrategy named(String name){
+		for (AllocationStrategy strategy: all()){
+			if (strategy.getName().equals(name)){
+				return strategy;
+			}
+		}
+		throw new IllegalArgumentException("Unknown allocation strategy "+name);
+	}
+
+	/**
+	 * Defines a strategy selecting the referees with the lowest keys, compared in order
+	 */
+	private abstract static class RankingStrategy implements AllocationStrategy {
+
+		private static final int NUMBER_OF_KEYS = 3; // the number of keys each referee is ranked by
+
+		private final String name; // the name of the strategy
+
+		/**
+		 * Constructor for the RankingStrategy
+		 * @param strategyName a String containing the name of the strategy
+		 */
+		private RankingStrategy(String strategyName){
+			name = strategyName;
+		}
+
+		/**
+		 * Method to determine the keys a referee is ranked by, lower keys being preferred
+		 * @param ref a Referee object eligible and free to officiate the match
+		 * @param matchLevel a String containing the level of the match (i.e. Junior or Senior)
+		 * @param distance a double containing the distance the referee travels to the match
+		 * @param keys an array of zeros in which the keys are placed
+		 */
+		abstract void rank(Referee ref, String matchLevel, double distance, double[] keys);
+
+		/**
+		 * Accessor method for the name of the strategy
+		 * @return name a String containing the name of the strategy
+		 */
+		public String getName(){
+			return name;
+		}
+
+		/**
+		 * Method to choose the officials of a match, keeping the best referees seen so far
+		 * in a heap whose worst member is replaced whenever a better referee is found
+		 * @param schedule a MatchSchedule object the match is to be added to
+		 * @param matchVenue a String containing the location of the match
+		 * @param matchLevel a String containing the level of the match (i.e. Junior or Senior)
+		 * @param matchWeek an int containing the week of the match
+		 * @param crewSize an int containing the number of officials required
+		 * @return selectedRefs an array of at most crewSize referees, the most preferred first
+		 */
+		public Referee[] selectOfficials(MatchSchedule schedule, String matchVenue, String matchLevel,
+				int matchWeek, int crewSize){
+			final List<Referee> candidates = schedule.findCandidateRefs(matchVenue, matchLevel, matchWeek);
+			final double[][] keys = new double[candidates.size()][NUMBER_OF_KEYS];
+			Comparator<Integer> worstFirst = new Comparator<Integer>(){
+				public int compare(Integer candidate1, Integer candidate2){
+					for (int key = 0; key<NUMBER_OF_KEYS; key++){
+						int order = Double.compare(keys[candidate2][key], keys[candidate1][key]);
+						if (order!=0){
+							return order;
+						}
+					}
+					return candidate2-candidate1;
+				}
+			};
+			PriorityQueue<Integer> bestCandidates = new PriorityQueue<Integer>(crewSize+1, worstFirst);
+			for (int candidate = 0; candidate<candidates.size()&&crewSize>0; candidate++){
+				Referee ref = candidates.get(candidate);
+				double distance = schedule.getTravelDistance(ref, matchVenue);
+				if (distance<0){
+					// no referee is sent from an unknown region
+					continue;
+				}
+				this.rank(ref, matchLevel, distance, keys[candidate]);
+				if (bestCandidates.size()<crewSize){
+					bestCandidates.add(candidate);
+				}
+				else if (worstFirst.compare(candidate, bestCandidates.peek())>0){
+					bestCandidates.poll();
+					bestCandidates.add(candidate);
+				}
+			}
+			// The heap yields the worst candidate first, so the selection is filled from the back
+			Referee[] selectedRefs = new Referee[bestCandidates.size()];
+			for (int position = selectedRefs.length-1; position>=0; position--){
+				selectedRefs[position] = candidates.get(bestCandidates.poll());
+			}
+			return selectedRefs;
+		}
+	}
+}
@@ -0,0 +1,30 @@
+/**
+ * Defines a policy for choosing the officials of each match added to a MatchSchedule.
+ * The schedule asks its strategy for a crew whenever a match is added without named
+ * officials and checks the crew returned against the same rules as any other allocation,
+ * so a strategy only decides which of the eligible referees are preferred. The strategies
+ * provided are created by AllocationStrategies, and others may be supplied through
+ * MatchSchedule.setAllocationStrategy.
+ */
+public interface AllocationStrategy {
+
+	/**
+	 * Accessor method for the name the strategy is selected and reported by
+	 * @return a String containing the name of the strategy, e.g. "greedy-current"
+	 */
+	String getName();
+
+	/**
+	 * Method to choose the officials of a match about to be added to a schedule. Called on
+	 * the thread which alters the schedule, which must not be altered by the strategy.
+	 * @param schedule a MatchSchedule object the match is to be added to
+	 * @param matchVenue a String containing the location of the match
+	 * @param matchLevel a String containing the level of the match (i.e. Junior or Senior)
+	 * @param matchWeek an int containing the week of the match
+	 * @param crewSize an int containing the number of officials required
+	 * @return an array of the referees chosen for each role of the crew in order, or fewer
+	 * referees if the crew cannot be completed
+	 */
+	Referee[] selectOfficials(MatchSchedule schedule, String matchVenue, String matchLevel, int matchWeek,
+			int crewSize);
+}
@@ -1,17 +1,19 @@
 import java.awt.*;
-import java.awt.event.WindowEvent;
-import java.awt.event.WindowFocusListener;
 import java.awt.geom.AffineTransform;
 import java.util.Collection;
 import javax.swing.*;
 
 /**
- * A Frame for the Bar Chart to be displayed in
+ * A Frame for the Bar Chart to be displayed in. The chart listens to the schedule
+ * and only the bars of referees whose allocations change are repainted.
  */
-public class BarChart extends JFrame implements WindowFocusListener{
+public class BarChart extends JFrame implements ScheduleListener{
 	
 	/**The Chart displayed in the JFrame*/
 	private final Chart bars;
+
+	/**The schedule whose referees are charted*/
+	private final MatchSchedule schedule;
 	
 	/**The dimensions of the frame*/
 	private final int CHART_WIDTH = 700;
@@ -23,35 +25,47 @@ public class BarChart extends JFrame implements WindowFocusListener{
 	 * The constructor for the BarChart
 	 * @param schedule a MatchSchedule object which manages the list of referees
 	 */
-	public BarChart(MatchSchedule schedule){
+	public BarChart(MatchSchedule matchSchedule){
         setDefaultCloseOperation(DISPOSE_ON_CLOSE);
         setTitle("Number of Referee Allocations");
         setSize(CHART_WIDTH, CHART_HEIGHT);
         setLocation(CHART_LOCATION_X_AXIS, CHART_LOCATION_Y_AXIS);
         this.setResizable(false);
-        // WindowFocusListener added to update the chart when focus is returned
-        addWindowFocusListener(this);
+        schedule = matchSchedule;
         // Create a new Bar Chart and add it to the JFrame
         bars = new Chart(schedule);
         this.add(bars);
+        // The chart is updated as the referees change
+        schedule.addScheduleListener(this);
 	}
-	
-	@Override
+
 	/**
-	 * Method to handle WindowEvents
+	 * Method to update the chart following changes to the schedule
+	 * @param events a List of the ScheduleEvents describing the changes
 	 */
-	public void windowGainedFocus(WindowEvent e) {
-		// Repaint the Bar Chart when focus is returned
-		bars.repaint();
+	public void scheduleChanged(java.util.List<ScheduleEvent> events) {
+		for (ScheduleEvent event: events){
+			if (event.getType()==ScheduleEvent.Type.REFEREE_ADDED
+					||event.getType()==ScheduleEvent.Type.REFEREE_REMOVED){
+				// Every bar is moved or resized
+				bars.refresh();
+				return;
+			}
+		}
+		for (ScheduleEvent event: events){
+			if (event.getType()==ScheduleEvent.Type.ALLOCATIONS_CHANGED){
+				bars.repaintBar(event.getReferee());
+			}
+		}
 	}
 
-	@Override
 	/**
-	 * Method to handle WindowEvents
+	 * Method to stop listening to the schedule once the chart is closed
 	 */
-	public void windowLostFocus(WindowEvent e) {
-		// Do nothing when the focus is lost from the window
-	} 
+	public void dispose() {
+		schedule.removeScheduleListener(this);
+		super.dispose();
+	}
 	
 	/**
 	 * Class to draw the Bar Chart reflecting the number of match
@@ -61,6 +75,14 @@ public class BarChart extends JFrame implements WindowFocusListener{
 		
 		/** The referees to be displayed*/
 		private Collection<Referee> referees;
+
+		/** The schedule whose referees are displayed*/
+		private final MatchSchedule schedule;
+
+		/** The layout of the bars when the chart was last painted*/
+		private int paintedMaximumAllocations;
+		private int paintedBarWidth;
+		private int paintedBorderWidth;
 		
 		/**The dimensions associated with the bar chart*/
 		private final int LABEL_FONT_SIZE = 12;
@@ -70,9 +92,42 @@ public class BarChart extends JFrame implements WindowFocusListener{
 		 * The constructor for the Chart
 		 * @param schedule a MatchSchedule object which manages the list of referees
 		 */
-		private Chart(MatchSchedule schedule) {
+		private Chart(MatchSchedule matchSchedule) {
+			schedule = matchSchedule;
 			referees = schedule.sortRefsByID();
 		}
+
+		/**
+		 * Method to repaint every bar, placing the referees in order of ID
+		 */
+		private void refresh() {
+			referees = schedule.sortRefsByID();
+			this.repaint();
+		}
+
+		/**
+		 * Method to repaint the bar of a single referee. If the scale of the chart changes
+		 * every bar is repainted.
+		 * @param changedRef a Referee object whose match allocations changed
+		 */
+		private void repaintBar(Referee changedRef) {
+			int maxNumberOfMatchAllocations = schedule.getAllocationHistogram().getMaximum();
+			if (maxNumberOfMatchAllocations!=paintedMaximumAllocations||paintedBarWidth==0) {
+				this.repaint();
+				return;
+			}
+			int barIndex = -1;
+			int refereeIndex = 0;
+			for (Referee ref: referees) {
+				if (ref==changedRef)
+					barIndex = refereeIndex;
+				refereeIndex++;
+			}
+			if (barIndex>=0) {
+				// The bar and its labels lie within its column of the chart
+				this.repaint(barIndex*paintedBarWidth+paintedBorderWidth, 0, paintedBarWidth+1, this.getHeight());
+			}
+		}
 		
 		/**
 		 * Method to draw the graphical components of the chart
@@ -80,12 +135,9 @@ public class BarChart extends JFrame implements WindowFocusListener{
 		public void paintComponent(Graphics g) {
 			Graphics2D g2 = (Graphics2D) g;
 			
-			//In order to scale the bars of the chart determine the maximum number of match allocations 
-			int maxNumberOfMatchAllocations = 0;
-			for (Referee ref: referees) {
-				if (ref.getMatchAllocations() > maxNumberOfMatchAllocations)
-					maxNumberOfMatchAllocations = ref.getMatchAllocations();
-			}
+			//In order to scale the bars of the chart determine the maximum number of match allocations,
+			//which the schedule maintains as allocations change
+			int maxNumberOfMatchAllocations = schedule.getAllocationHistogram().getMaximum();
 			
 			// Generate a new font for displaying the details of each referee
 			Font refFont = new Font("Sans Serif",Font.PLAIN, LABEL_FONT_SIZE);
@@ -102,9 +154,13 @@ public class BarChart extends JFrame implements WindowFocusListener{
 			int chartHeight = this.getHeight()-(2*borderHeight);
 			int chartBaseline = this.getHeight() - borderHeight;
 			
+			paintedMaximumAllocations = maxNumberOfMatchAllocations;
+			paintedBorderWidth = borderWidth;
+			paintedBarWidth = 0;
 			if (referees.size()!=0){
 				// The size of each bar is the width of the chart divided by the number of referees to be displayed
 				int widthOfEachBar = chartWidth / referees.size();
+				paintedBarWidth = widthOfEachBar;
 				// Determine the height of one match allocation 
 				double scaleOneMatchAllocation = chartHeight / maxNumberOfMatchAllocations;
 				// The bars of the chart and referee detail labels are generated from left to right
@@ -0,0 +1,454 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Estimates how likely each region is to run short of referees during a season, so that
+ * the number of referees to recruit can be planned before the season begins. Each trial
+ * simulates a whole season: the referees are loaded into a new MatchSchedule, some are
+ * lost for the season and the others block out random weeks, then each week's fixtures
+ * are drawn at random venues and levels and added through MatchSchedule.addMatchToSchedule,
+ * exactly as they are when the schedule is in use. A match the schedule cannot give a
+ * full crew is one for which the user would be told there are insufficient referees.
+ * Unlike the schedule managed by the user interface, the simulated schedule has no limit
+ * on its number of referees, so every referee available for the season takes part in it.
+ *
+ * Trials share nothing, so they are divided between one task per core and the counts of
+ * each task are added together once every trial has run. Each trial draws from its own
+ * random sequence derived from the seed and its number, so a study gives the same result
+ * whatever the number of cores.
+ *
+ * Run from the command line as
+ *
+ *     java CapacityPlanner [refereesFile [regionsFile [trials]]]
+ */
+public class CapacityPlanner {
+
+	public static final int DEFAULT_TRIALS = 10000; // the number of seasons simulated from the command line
+	public static final String[] MATCH_LEVELS = {"Junior", "Senior"}; // the levels of the matches simulated
+	private static final ColumnFormatter REPORT_LAYOUT =
+			new ColumnFormatter("%-12s%-8s%12s%14s%14s\n"); // the columns of the report
+
+	/**
+	 * Defines the outcome of a study: for each region and level, the number of seasons in
+	 * which at least one match could not be given a full crew and the number of such matches
+	 */
+	public static class Report {
+
+		private final List<String> regionNames; // the regions matches were played in
+		private final int trials; // the number of seasons simulated
+		private final long[][] shortSeasons; // the seasons with a refused match, by region then level
+		private final long[][] refusedMatches; // the matches refused, by region then level
+		private final long[][] attemptedMatches; // the matches attempted, by region then level
+
+		/**
+		 * Constructor for the Report
+		 * @param regionNames a List of the names of the regions
+		 * @param trials an int containing the number of seasons simulated
+		 * @param shortSeasons the seasons with a refused match, by region then level
+		 * @param refusedMatches the matches refused, by region then level
+		 * @param attemptedMatches the matches attempted, by region then level
+		 */
+		private Report(List<String> regionNames, int trials, long[][] shortSeasons, long[][] refusedMatches,
+				long[][] attemptedMatches){
+			this.regionNames = regionNames;
+			this.trials = trials;
+			this.shortSeasons = shortSeasons;
+			this.refusedMatches = refusedMatches;
+			this.attemptedMatches = attemptedMatches;
+		}
+
+		/**
+		 * Accessor method for the number of seasons simulated
+		 * @return trials an int containing the number of seasons
+		 */
+		public int getTrials(){
+			return trials;
+		}
+
+		/**
+		 * Method to determine the probability of a season in which a match in a region at a
+		 * level cannot be given a full crew
+		 * @param region a String containing the name of the region
+		 * @param level a String containing the level of the match (i.e. Junior or Senior)
+		 * @return a double between 0 and 1
+		 * @throws IllegalArgumentException if the region or level is unknown
+		 */
+		public double getShortageProbability(String region, String level){
+			return (double) shortSeasons[this.regionIndex(region)][levelIndex(level)]/trials;
+		}
+
+		/**
+		 * Method to determine the proportion of matches in a region at a level which could not
+		 * be given a full crew
+		 * @param region a String containing the name of the region
+		 * @param level a String containing the level of the match (i.e. Junior or Senior)
+		 * @return a double between 0 and 1, or 0 if no such match was attempted
+		 * @throws IllegalArgumentException if the region or level is unknown
+		 */
+		public double getRefusedFraction(String region, String level){
+			int regionIndex = this.regionIndex(region);
+			int levelIndex = levelIndex(level);
+			long attempted = attemptedMatches[regionIndex][levelIndex];
+			return attempted>0 ? (double) refusedMatches[regionIndex][levelIndex]/attempted : 0;
+		}
+
+		/**
+		 * Method to locate a region of the study
+		 * @param region a String containing the name of the region
+		 * @return index an int containing the position of the region
+		 * @throws IllegalArgumentException if the region is unknown
+		 */
+		private int regionIndex(String region){
+			int index = regionNames.indexOf(region);
+			if (index<0){
+				throw new IllegalArgumentException("Unknown region "+region);
+			}
+			return index;
+		}
+
+		/**
+		 * Method to return the study as a table, the region and level most likely to run short first
+		 * @return a String containing a heading and one row for each region and level
+		 */
+		public String toString(){
+			List<int[]> rows = new ArrayList<int[]>();
+			for (int region = 0; region<regionNames.size(); region++){
+				for (int level = 0; level<MATCH_LEVELS.length; level++){
+					rows.add(new int[]{region, level});
+				}
+			}
+			Collections.sort(rows, new Comparator<int[]>(){
+				public int compare(int[] row1, int[] row2){
+					return Long.compare(shortSeasons[row2[0]][row2[1]], shortSeasons[row1[0]][row1[1]]);
+				}
+			});
+			StringBuilder builder = new StringBuilder(REPORT_LAYOUT.format("Region", "Level", "P(short)",
+					"Refused", "Matches"));
+			for (int[] row: rows){
+				long attempted = attemptedMatches[row[0]][row[1]];
+				builder.append(REPORT_LAYOUT.format(regionNames.get(row[0]), MATCH_LEVELS[row[1]],
+						String.format("%.4f", (double) shortSeasons[row[0]][row[1]]/trials),
+						String.format("%.4f", attempted>0 ? (double) refusedMatches[row[0]][row[1]]/attempted : 0),
+						Long.toString(attempted)));
+			}
+			return builder.append(trials).append(" seasons simulated\n").toString();
+		}
+	}
+
+	private final RegionTopology regions; // the regions of each simulated schedule
+	private final List<String> refereeLines; // the details of each referee in the format of the referees input file
+	private final Map<String, String[]> crewRoles; // the roles of the officials at each level
+	private int matchesPerWeek; // the number of matches drawn each week
+	private double seniorProportion; // the probability that a match drawn is a senior match
+	private double[] venueWeights; // the relative number of matches drawn at each region
+	private double weekAbsenceProbability; // the probability that a referee blocks out a given week
+	private double seasonAbsenceProbability; // the probability that a referee is lost for the whole season
+	private int numberOfThreads; // the number of trials run at once
+
+	/**
+	 * Constructor for the CapacityPlanner
+	 * @param topology a RegionTopology defining the regions of the season
+	 * @param refereeDetails a List of Strings describing each referee in the format of the referees input file
+	 */
+	public CapacityPlanner(RegionTopology topology, List<String> refereeDetails){
+		regions = topology;
+		refereeLines = new ArrayList<String>(refereeDetails);
+		crewRoles = new HashMap<String, String[]>();
+		matchesPerWeek = 1;
+		seniorProportion = 0.5;
+		venueWeights = new double[regions.getNumberOfRegions()];
+		Arrays.fill(venueWeights, 1);
+		weekAbsenceProbability = 0.1;
+		seasonAbsenceProbability = 0.05;
+		numberOfThreads = Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * Method to create a planner for the referees, regions, crews and weekly capacity of a
+	 * schedule. Must be called on the thread which alters the schedule.
+	 * @param schedule a MatchSchedule object whose referees are to be studied
+	 * @return planner a new CapacityPlanner
+	 */
+	public static CapacityPlanner forSchedule(MatchSchedule schedule){
+		List<String> refereeDetails = new ArrayList<String>();
+		// the report of the referees is in the format of the referees input file
+		for (String line: schedule.refereeReportWriter().split("\n")){
+			if (!line.trim().isEmpty()){
+				refereeDetails.add(line);
+			}
+		}
+		CapacityPlanner planner = new CapacityPlanner(schedule.getRegionTopology(), refereeDetails);
+		for (String level: MATCH_LEVELS){
+			planner.setCrewRoles(level, schedule.getCrewRoles(level));
+		}
+		planner.setMatchesPerWeek(schedule.getMaximumMatchesPerWeek());
+		return planner;
+	}
+
+	/**
+	 * Mutator method for the roles of the officials of matches at a level
+	 * @param matchLevel a String containing the level of the matches (i.e. Junior or Senior)
+	 * @param roles the names of the roles of the crew, at least two
+	 * @throws IllegalArgumentException if the level is unknown or fewer than two roles are given
+	 */
+	public void setCrewRoles(String matchLevel, String... roles){
+		levelIndex(matchLevel);
+		if (roles.length<2){
+			throw new IllegalArgumentException("A match requires at least two officials");
+		}
+		crewRoles.put(matchLevel, roles.clone());
+	}
+
+	/**
+	 * Mutator method for the number of matches drawn each week
+	 * @param numberOfMatches an int containing the matches each week, at least one
+	 * @throws IllegalArgumentException if the number is not positive
+	 */
+	public void setMatchesPerWeek(int numberOfMatches){
+		if (numberOfMatches<1){
+			throw new IllegalArgumentException("At least one match must be played each week");
+		}
+		matchesPerWeek = numberOfMatches;
+	}
+
+	/**
+	 * Mutator method for the proportion of senior matches
+	 * @param proportion a double between 0 and 1 containing the probability a match drawn is a senior match
+	 * @throws IllegalArgumentException if the proportion is not between 0 and 1
+	 */
+	public void setSeniorProportion(double proportion){
+		seniorProportion = checkProbability(proportion);
+	}
+
+	/**
+	 * Mutator method for the relative number of matches drawn at each region
+	 * @param weights the weight of each region, in the order the regions are defined
+	 * @throws IllegalArgumentException if a weight is negative or no region has a positive weight
+	 */
+	public void setVenueWeights(double... weights){
+		if (weights.length!=regions.getNumberOfRegions()){
+			throw new IllegalArgumentException("One weight is required for each of the "
+					+regions.getNumberOfRegions()+" regions");
+		}
+		double totalWeight = 0;
+		for (double weight: weights){
+			if (!(weight>=0)){
+				throw new IllegalArgumentException("Invalid weight "+weight);
+			}
+			totalWeight += weight;
+		}
+		if (totalWeight<=0){
+			throw new IllegalArgumentException("At least one region must host matches");
+		}
+		venueWeights = weights.clone();
+	}
+
+	/**
+	 * Mutator method for the probability that a referee blocks out a given week
+	 * @param probability a double between 0 and 1
+	 * @throws IllegalArgumentException if the probability is not between 0 and 1
+	 */
+	public void setWeekAbsenceProbability(double probability){
+		weekAbsenceProbability = checkProbability(probability);
+	}
+
+	/**
+	 * Mutator method for the probability that a referee is lost for the whole season
+	 * @param probability a double between 0 and 1
+	 * @throws IllegalArgumentException if the probability is not between 0 and 1
+	 */
+	public void setSeasonAbsenceProbability(double probability){
+		seasonAbsenceProbability = checkProbability(probability);
+	}
+
+	/**
+	 * Mutator method for the number of trials run at once
+	 * @param threads an int containing the number of threads, by default the number of cores
+	 * @throws IllegalArgumentException if the number is not positive
+	 */
+	public void setNumberOfThreads(int threads){
+		if (threads<1){
+			throw new IllegalArgumentException("At least one thread is required");
+		}
+		numberOfThreads = threads;
+	}
+
+	/**
+	 * Method to simulate a number of seasons and report how often each region ran short
+	 * @param trials an int containing the number of seasons to simulate
+	 * @param seed a long containing the seed of the random choices, so a study can be repeated
+	 * @return a Report of the shortages found
+	 * @throws IllegalArgumentException if the trials are not positive or a referee cannot be read or added
+	 * @throws InterruptedException if the thread is interrupted while waiting for the trials
+	 */
+	public Report plan(int trials, final long seed) throws InterruptedException{
+		if (trials<1){
+			throw new IllegalArgumentException("At least one trial is required");
+		}
+		final int numberOfRegions = regions.getNumberOfRegions();
+		// Each task runs a contiguous range of trials and keeps its own counts
+		int numberOfTasks = Math.min(numberOfThreads, trials);
+		List<Callable<long[][][]>> tasks = new ArrayList<Callable<long[][][]>>();
+		for (int task = 0; task<numberOfTasks; task++){
+			final int firstTrial = (int) ((long) trials*task/numberOfTasks);
+			final int lastTrial = (int) ((long) trials*(task+1)/numberOfTasks);
+			tasks.add(new Callable<long[][][]>(){
+				public long[][][] call(){
+					long[][][] counts = new long[3][numberOfRegions][MATCH_LEVELS.length];
+					for (int trial = firstTrial; trial<lastTrial; trial++){
+						simulateSeason(new SplittableRandom(seed+trial*0x9E3779B97F4A7C15L), counts);
+					}
+					return counts;
+				}
+			});
+		}
+		long[][][] totals = new long[3][numberOfRegions][MATCH_LEVELS.length];
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfTasks);
+		try{
+			for (Future<long[][][]> result: executor.invokeAll(tasks)){
+				long[][][] counts = result.get();
+				for (int count = 0; count<totals.length; count++){
+					for (int region = 0; region<numberOfRegions; region++){
+						for (int level = 0; level<MATCH_LEVELS.length; level++){
+							totals[count][region][level] += counts[count][region][level];
+						}
+					}
+				}
+			}
+		}
+		catch (ExecutionException ex){
+			if (ex.getCause() instanceof IllegalArgumentException){
+				throw (IllegalArgumentException) ex.getCause();
+			}
+			throw new IllegalStateException("Simulation failed", ex.getCause());
+		}
+		finally{
+			executor.shutdownNow();
+		}
+		return new Report(regions.getRegionNames(), trials, totals[0], totals[1], totals[2]);
+	}
+
+	/**
+	 * Method to simulate one season, adding the outcome to the counts of the task running it
+	 * @param random a SplittableRandom used only by this season
+	 * @param counts the seasons with a refused match, the matches refused and the matches
+	 * attempted, each by region then level
+	 */
+	private void simulateSeason(SplittableRandom random, long[][][] counts){
+		MatchSchedule schedule = new MatchSchedule(regions);
+		// every referee is simulated, however many the user interface can manage
+		schedule.setMaximumNumberOfReferees(Math.max(1, refereeLines.size()));
+		schedule.setMaximumMatchesPerWeek(matchesPerWeek);
+		for (Map.Entry<String, String[]> roles: crewRoles.entrySet()){
+			schedule.setCrewRoles(roles.getKey(), roles.getValue());
+		}
+		for (String line: refereeLines){
+			if (random.nextDouble()<seasonAbsenceProbability){
+				continue;
+			}
+			Referee ref = schedule.parseReferee(line);
+			long unavailableWeeks = ref.getUnavailableWeeks();
+			for (int week = 1; week<=schedule.WEEKS_IN_A_SEASON; week++){
+				if (random.nextDouble()<weekAbsenceProbability){
+					unavailableWeeks |= Referee.weekBit(week);
+				}
+			}
+			ref.setUnavailableWeeks(unavailableWeeks);
+			if (!schedule.addReferee(ref)){
+				throw new IllegalArgumentException("Referee "+ref.getRefID()+" could not be added to the schedule");
+			}
+		}
+		List<String> regionNames = regions.getRegionNames();
+		boolean[][] ranShort = new boolean[regionNames.size()][MATCH_LEVELS.length];
+		for (int week = 1; week<=schedule.WEEKS_IN_A_SEASON; week++){
+			for (int match = 0; match<matchesPerWeek; match++){
+				int region = this.drawVenue(random);
+				int level = random.nextDouble()<seniorProportion ? 1 : 0;
+				counts[2][region][level]++;
+				if (!schedule.addMatchToSchedule(regionNames.get(region), MATCH_LEVELS[level], week)){
+					// the week has room for the match, so only the referees are insufficient
+					counts[1][region][level]++;
+					ranShort[region][level] = true;
+				}
+			}
+		}
+		for (int region = 0; region<regionNames.size(); region++){
+			for (int level = 0; level<MATCH_LEVELS.length; level++){
+				if (ranShort[region][level]){
+					counts[0][region][level]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method to draw the region of a match in proportion to the weights of the regions
+	 * @param random a SplittableRandom
+	 * @return region an int containing the position of the region
+	 */
+	private int drawVenue(SplittableRandom random){
+		double totalWeight = 0;
+		for (double weight: venueWeights){
+			totalWeight += weight;
+		}
+		double point = random.nextDouble()*totalWeight;
+		int region = 0;
+		while (region<venueWeights.length-1&&(point -= venueWeights[region])>=0){
+			region++;
+		}
+		return region;
+	}
+
+	/**
+	 * Method to locate a level of match
+	 * @param level a String containing the level (i.e. Junior or Senior)
+	 * @return an int containing the position of the level in MATCH_LEVELS
+	 * @throws IllegalArgumentException if the level is unknown
+	 */
+	private static int levelIndex(String level){
+		int index = Arrays.asList(MATCH_LEVELS).indexOf(level);
+		if (index<0){
+			throw new IllegalArgumentException("Invalid match level "+level);
+		}
+		return index;
+	}
+
+	/**
+	 * Method to check that a probability lies between 0 and 1
+	 * @param probability a double
+	 * @return probability the same double
+	 * @throws IllegalArgumentException if it does not lie between 0 and 1
+	 */
+	private static double checkProbability(double probability){
+		if (!(probability>=0&&probability<=1)){
+			throw new IllegalArgumentException("Invalid probability "+probability);
+		}
+		return probability;
+	}
+
+	/**
+	 * The main method, simulating seasons of the referees input file
+	 * @param args the optional names of the referees and regions files and the number of trials
+	 * @throws IOException if a file cannot be read
+	 * @throws InterruptedException if the thread is interrupted while waiting for the trials
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException{
+		String refereesFile = args.length>0 ? args[0] : "RefereesIn.txt";
+		String regionsFile = args.length>1 ? args[1] : "Regions.txt";
+		int trials = args.length>2 ? Integer.parseInt(args[2]) : DEFAULT_TRIALS;
+		RegionTopology topology = new java.io.File(regionsFile).exists()
+				? RegionTopology.fromFile(regionsFile) : RegionTopology.defaultTopology();
+		List<String> refereeDetails = new ArrayList<String>();
+		for (String line: Files.readAllLines(Paths.get(refereesFile))){
+			if (!line.trim().isEmpty()){
+				refereeDetails.add(line);
+			}
+		}
+		long start = System.nanoTime();
+		Report report = new CapacityPlanner(topology, refereeDetails).plan(trials, 0);
+		System.out.print(report);
+		System.out.println(String.format("%.2f", (System.nanoTime()-start)/1e9)+" seconds");
+	}
+}
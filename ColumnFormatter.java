@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formats rows of fixed-width columns. The layout of a row is given once as a format
+ * string in the style of String.format, e.g. " %-7s%-12s%4d\n", and is compiled into the
+ * text preceding each column and the width and alignment of each column. Rows are then
+ * written field by field straight into a StringBuilder supplied by the caller, which may
+ * be reused from row to row, so no format string is parsed, no number is boxed and no
+ * intermediate String is created for each row. The text produced is identical to that
+ * of String.format with the same layout.
+ *
+ * Only the conversions %s and %d are supported, each with an optional '-' flag for left
+ * alignment and an optional width. A formatter holds no state between calls, so it may be
+ * shared between threads.
+ */
+public class ColumnFormatter {
+
+	private final String[] leadingText; // the text written before each column
+	private final String trailingText; // the text written after the last column
+	private final int[] widths; // the minimum width of each column, or 0
+	private final boolean[] leftAligned; // whether each column is padded on the right
+	private final boolean[] numeric; // whether each column holds only whole numbers
+
+	/**
+	 * Constructor for the ColumnFormatter
+	 * @param layout a String containing the layout of a row in the style of String.format
+	 * @throws IllegalArgumentException if the layout uses a conversion other than %s or %d
+	 */
+	public ColumnFormatter(String layout){
+		List<String> texts = new ArrayList<String>();
+		List<int[]> columns = new ArrayList<int[]>();
+		StringBuilder text = new StringBuilder();
+		int index = 0;
+		while (index<layout.length()){
+			char character = layout.charAt(index++);
+			if (character!='%'){
+				text.append(character);
+				continue;
+			}
+			// Read the flag, width and conversion of the column
+			boolean left = index<layout.length()&&layout.charAt(index)=='-';
+			if (left){
+				index++;
+			}
+			int width = 0;
+			while (index<layout.length()&&Character.isDigit(layout.charAt(index))){
+				width = 10*width+(layout.charAt(index++)-'0');
+			}
+			if (index>=layout.length()||(layout.charAt(index)!='s'&&layout.charAt(index)!='d')){
+				throw new IllegalArgumentException("Unsupported column in layout "+layout);
+			}
+			if (left&&width==0){
+				throw new IllegalArgumentException("Left alignment requires a width in layout "+layout);
+			}
+			boolean isNumeric = layout.charAt(index++)=='d';
+			texts.add(text.toString());
+			text.setLength(0);
+			columns.add(new int[]{width, left ? 1 : 0, isNumeric ? 1 : 0});
+		}
+		leadingText = texts.toArray(new String[texts.size()]);
+		trailingText = text.toString();
+		widths = new int[columns.size()];
+		leftAligned = new boolean[columns.size()];
+		numeric = new boolean[columns.size()];
+		for (int column = 0; column<columns.size(); column++){
+			widths[column] = columns.get(column)[0];
+			leftAligned[column] = columns.get(column)[1]==1;
+			numeric[column] = columns.get(column)[2]==1;
+		}
+	}
+
+	/**
+	 * Accessor method for the number of columns in a row
+	 * @return an int containing the number of columns
+	 */
+	public int getNumberOfColumns(){
+		return widths.length;
+	}
+
+	/**
+	 * Method to write a text column, preceded by the text of the layout before it
+	 * @param out a StringBuilder the row is written to
+	 * @param column an int containing the position of the column, starting from 0
+	 * @param value a String to be written in the column, or null
+	 * @throws IllegalArgumentException if the column holds only whole numbers
+	 */
+	public void appendField(StringBuilder out, int column, String value){
+		if (numeric[column]){
+			throw new IllegalArgumentException("Column "+column+" holds only whole numbers");
+		}
+		// String.format writes null as "null"
+		String text = value!=null ? value : "null";
+		out.append(leadingText[column]);
+		if (!leftAligned[column]){
+			pad(out, widths[column]-text.length());
+		}
+		out.append(text);
+		if (leftAligned[column]){
+			pad(out, widths[column]-text.length());
+		}
+	}
+
+	/**
+	 * Method to write a text column made of two parts separated by a space, e.g. a first
+	 * name and surname, without joining the parts into a new String
+	 * @param out a StringBuilder the row is written to
+	 * @param column an int containing the position of the column, starting from 0
+	 * @param firstPart a String containing the text before the space
+	 * @param secondPart a String containing the text after the space
+	 * @throws IllegalArgumentException if the column holds only whole numbers
+	 */
+	public void appendField(StringBuilder out, int column, String firstPart, String secondPart){
+		if (numeric[column]){
+			throw new IllegalArgumentException("Column "+column+" holds only whole numbers");
+		}
+		int length = firstPart.length()+1+secondPart.length();
+		out.append(leadingText[column]);
+		if (!leftAligned[column]){
+			pad(out, widths[column]-length);
+		}
+		out.append(firstPart).append(' ').append(secondPart);
+		if (leftAligned[column]){
+			pad(out, widths[column]-length);
+		}
+	}
+
+	/**
+	 * Method to write a whole number column, preceded by the text of the layout before it
+	 * @param out a StringBuilder the row is written to
+	 * @param column an int containing the position of the column, starting from 0
+	 * @param value an int to be written in the column
+	 */
+	public void appendField(StringBuilder out, int column, int value){
+		out.append(leadingText[column]);
+		int length = numberOfCharacters(value);
+		if (!leftAligned[column]){
+			pad(out, widths[column]-length);
+		}
+		out.append(value);
+		if (leftAligned[column]){
+			pad(out, widths[column]-length);
+		}
+	}
+
+	/**
+	 * Method to write the text of the layout after the last column, completing the row
+	 * @param out a StringBuilder the row is written to
+	 */
+	public void appendEnd(StringBuilder out){
+		out.append(trailingText);
+	}
+
+	/**
+	 * Method to format a complete row of text columns, e.g. the headings of a table
+	 * @param values the Strings to be written in each column
+	 * @return a String containing the row
+	 */
+	public String format(String... values){
+		StringBuilder out = new StringBuilder();
+		for (int column = 0; column<values.length; column++){
+			this.appendField(out, column, values[column]);
+		}
+		this.appendEnd(out);
+		return out.toString();
+	}
+
+	/**
+	 * Method to write a number of spaces
+	 * @param out a StringBuilder
+	 * @param spaces an int containing the number of spaces, which may be zero or negative
+	 */
+	private static void pad(StringBuilder out, int spaces){
+		for (int space = 0; space<spaces; space++){
+			out.append(' ');
+		}
+	}
+
+	/**
+	 * Method to determine the number of characters in the decimal form of a number
+	 * @param value an int
+	 * @return length an int containing the number of characters, including any minus sign
+	 */
+	private static int numberOfCharacters(int value){
+		int length = value<0 ? 2 : 1;
+		// Work with the negative value so that the smallest int is handled
+		int remaining = value<0 ? value : -value;
+		while (remaining<=-10){
+			remaining /= 10;
+			length++;
+		}
+		return length;
+	}
+}
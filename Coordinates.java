@@ -0,0 +1,111 @@
+/**
+ * Defines the position of a venue or a referee's home on a flat map, as the number of
+ * kilometres east and north of a fixed origin. Coordinates are written in the input
+ * files as the two distances separated by a comma, e.g. "12.5,-40".
+ */
+public final class Coordinates {
+
+	private final double east; // the distance in kilometres east of the origin
+	private final double north; // the distance in kilometres north of the origin
+
+	/**
+	 * Constructor for the Coordinates
+	 * @param kilometresEast a double containing the distance east of the origin, negative for west
+	 * @param kilometresNorth a double containing the distance north of the origin, negative for south
+	 * @throws IllegalArgumentException if either distance is not a finite number
+	 */
+	public Coordinates(double kilometresEast, double kilometresNorth){
+		if (Double.isNaN(kilometresEast)||Double.isInfinite(kilometresEast)
+				||Double.isNaN(kilometresNorth)||Double.isInfinite(kilometresNorth)){
+			throw new IllegalArgumentException("Coordinates must be finite numbers");
+		}
+		east = kilometresEast;
+		north = kilometresNorth;
+	}
+
+	/**
+	 * Method to create coordinates from their form in the input files
+	 * @param text a String containing the distances east and north separated by a comma, e.g. "12.5,-40"
+	 * @return a new Coordinates object
+	 * @throws IllegalArgumentException if the text is not in the expected form
+	 */
+	public static Coordinates parse(String text){
+		int comma = text.indexOf(',');
+		if (comma<0){
+			throw new IllegalArgumentException("Invalid coordinates "+text);
+		}
+		try{
+			return new Coordinates(Double.parseDouble(text.substring(0, comma)),
+					Double.parseDouble(text.substring(comma+1)));
+		}
+		catch (NumberFormatException nfx){
+			throw new IllegalArgumentException("Invalid coordinates "+text);
+		}
+	}
+
+	/**
+	 * Accessor method for the distance east of the origin
+	 * @return east a double containing the distance in kilometres
+	 */
+	public double getEast(){
+		return east;
+	}
+
+	/**
+	 * Accessor method for the distance north of the origin
+	 * @return north a double containing the distance in kilometres
+	 */
+	public double getNorth(){
+		return north;
+	}
+
+	/**
+	 * Method to determine the straight line distance to another position
+	 * @param other a Coordinates object
+	 * @return a double containing the distance in kilometres
+	 */
+	public double distanceTo(Coordinates other){
+		return Math.hypot(east-other.east, north-other.north);
+	}
+
+	/**
+	 * Method to compare the coordinates with another object
+	 * @param other an Object
+	 * @return a boolean denoting whether the object is at the same position
+	 */
+	public boolean equals(Object other){
+		if (!(other instanceof Coordinates)){
+			return false;
+		}
+		Coordinates coordinates = (Coordinates) other;
+		return Double.compare(east, coordinates.east)==0&&Double.compare(north, coordinates.north)==0;
+	}
+
+	/**
+	 * Method to generate a hash code consistent with equals
+	 * @return an int containing the hash code
+	 */
+	public int hashCode(){
+		return 31*Double.hashCode(east)+Double.hashCode(north);
+	}
+
+	/**
+	 * Method to return the coordinates in the form of the input files
+	 * @return a String containing the distances east and north separated by a comma
+	 */
+	public String toString(){
+		return formatDistance(east)+","+formatDistance(north);
+	}
+
+	/**
+	 * Method to format a distance, omitting the fraction of whole numbers of kilometres
+	 * @param distance a double containing a distance in kilometres
+	 * @return a String containing the distance
+	 */
+	private static String formatDistance(double distance){
+		if (distance==Math.rint(distance)&&Math.abs(distance)<1e15){
+			return Long.toString((long) distance);
+		}
+		return Double.toString(distance);
+	}
+}
@@ -0,0 +1,417 @@
+import java.util.*;
+
+/**
+ * Determines whether a batch of proposed fixtures could all be given full crews before
+ * any of them is added to a schedule. Scheduling matches one at a time only discovers
+ * that there are insufficient referees at the failing fixture, after the earlier fixtures
+ * have taken their officials.
+ *
+ * A referee officiates at most one match in any week, so the weeks of a season are
+ * independent and each is analysed on its own as a flow network: every proposed fixture
+ * of the week requires one unit of flow for each official of its crew, and every referee
+ * free in the week may supply one unit to any fixture they are eligible for. The batch is
+ * feasible exactly when the maximum flow of every week meets the demand of its fixtures.
+ * Where it does not, the fixtures still reachable from the source once the flow is
+ * maximal form a group which needs more officials than the referees eligible for any
+ * of them can supply. Each such group is reported as a Bottleneck naming the
+ * fixtures which cannot all be staffed and the referees whose capacity limits them.
+ *
+ * The analysis uses the rules by which the schedule allocates officials, but not its
+ * ranking, so a feasible batch may still need its fixtures adding in a suitable order
+ * or rebalancing afterwards. The schedule is read but never altered.
+ */
+public class FeasibilityAnalyzer {
+
+	/**
+	 * Defines a group of proposed fixtures which cannot all be given full crews
+	 */
+	public static class Bottleneck {
+
+		private final int week; // the week of the fixtures
+		private final List<Match> fixtures; // the fixtures competing for the same referees
+		private final List<Referee> referees; // the only referees eligible for the fixtures, each fully used
+		private final int officialsRequired; // the number of officials the fixtures require
+		private final int officialsAvailable; // the number of officials the fixtures can be given at most
+		private final String description; // a description of the shortage for display to the user
+
+		/**
+		 * Constructor for the Bottleneck
+		 * @param week an int containing the week of the fixtures
+		 * @param fixtures a List of the proposed Match objects
+		 * @param referees a List of the Referee objects whose capacity is exhausted
+		 * @param officialsRequired an int containing the number of officials required
+		 * @param officialsAvailable an int containing the number of officials which can be supplied
+		 * @param description a String describing the shortage
+		 */
+		private Bottleneck(int week, List<Match> fixtures, List<Referee> referees, int officialsRequired,
+				int officialsAvailable, String description){
+			this.week = week;
+			this.fixtures = Collections.unmodifiableList(fixtures);
+			this.referees = Collections.unmodifiableList(referees);
+			this.officialsRequired = officialsRequired;
+			this.officialsAvailable = officialsAvailable;
+			this.description = description;
+		}
+
+		/**
+		 * Accessor method for the week of the fixtures
+		 * @return week an int containing the week
+		 */
+		public int getWeek(){
+			return week;
+		}
+
+		/**
+		 * Accessor method for the fixtures which cannot all be given full crews
+		 * @return fixtures an unmodifiable List of the proposed Match objects
+		 */
+		public List<Match> getFixtures(){
+			return fixtures;
+		}
+
+		/**
+		 * Accessor method for the referees eligible for the fixtures, every one of whom
+		 * would already be officiating one of them
+		 * @return referees an unmodifiable List of Referee objects, empty if the week itself is full
+		 */
+		public List<Referee> getReferees(){
+			return referees;
+		}
+
+		/**
+		 * Accessor method for the number of officials the fixtures require
+		 * @return officialsRequired an int containing the number of officials
+		 */
+		public int getOfficialsRequired(){
+			return officialsRequired;
+		}
+
+		/**
+		 * Accessor method for the greatest number of officials the fixtures can be given
+		 * @return officialsAvailable an int containing the number of officials
+		 */
+		public int getOfficialsAvailable(){
+			return officialsAvailable;
+		}
+
+		/**
+		 * Method to describe the shortage for display to the user
+		 * @return description a String describing the shortage
+		 */
+		public String toString(){
+			return description;
+		}
+	}
+
+	/**
+	 * Defines the outcome of the analysis of a batch of fixtures
+	 */
+	public static class Report {
+
+		private final List<Match> infeasibleFixtures; // the fixtures belonging to any bottleneck
+		private final List<Bottleneck> bottlenecks; // each group of fixtures which cannot all be staffed
+
+		/**
+		 * Constructor for the Report
+		 * @param infeasibleFixtures a List of the proposed Match objects which cannot all be staffed
+		 * @param bottlenecks a List of the Bottlenecks found
+		 */
+		private Report(List<Match> infeasibleFixtures, List<Bottleneck> bottlenecks){
+			this.infeasibleFixtures = Collections.unmodifiableList(infeasibleFixtures);
+			this.bottlenecks = Collections.unmodifiableList(bottlenecks);
+		}
+
+		/**
+		 * Method to determine whether every fixture of the batch can be given a full crew
+		 * @return a boolean denoting whether the batch is feasible
+		 */
+		public boolean isFeasible(){
+			return bottlenecks.isEmpty();
+		}
+
+		/**
+		 * Accessor method for the fixtures which cannot all be given full crews, in the
+		 * order they were proposed. Adding any one of them may succeed, but not all of them.
+		 * @return infeasibleFixtures an unmodifiable List of the proposed Match objects
+		 */
+		public List<Match> getInfeasibleFixtures(){
+			return infeasibleFixtures;
+		}
+
+		/**
+		 * Accessor method for the shortages found
+		 * @return bottlenecks an unmodifiable List of Bottlenecks, empty if the batch is feasible
+		 */
+		public List<Bottleneck> getBottlenecks(){
+			return bottlenecks;
+		}
+	}
+
+	/**
+	 * Defines a flow network solved by Dinic's algorithm. Edges are stored in arrays, each
+	 * followed by its reverse edge, so that the network of a full week is built and solved
+	 * without creating an object for each edge.
+	 */
+	private static class FlowNetwork {
+
+		private final int[] firstEdge; // the most recently added edge leaving each node, or -1
+		private int[] edgeTarget; // the node each edge enters
+		private int[] edgeCapacity; // the remaining capacity of each edge
+		private int[] nextEdge; // the next edge leaving the same node, or -1
+		private int numberOfEdges; // the number of edges, including reverse edges
+		private final int[] levels; // the distance of each node from the source in the residual network
+		private final int[] currentEdge; // the next edge of each node to be explored for a blocking flow
+
+		/**
+		 * Constructor for the FlowNetwork
+		 * @param numberOfNodes an int containing the number of nodes
+		 */
+		private FlowNetwork(int numberOfNodes){
+			firstEdge = new int[numberOfNodes];
+			Arrays.fill(firstEdge, -1);
+			edgeTarget = new int[16];
+			edgeCapacity = new int[16];
+			nextEdge = new int[16];
+			numberOfEdges = 0;
+			levels = new int[numberOfNodes];
+			currentEdge = new int[numberOfNodes];
+		}
+
+		/**
+		 * Method to add an edge and its reverse edge
+		 * @param from an int containing the node the edge leaves
+		 * @param to an int containing the node the edge enters
+		 * @param capacity an int containing the capacity of the edge
+		 */
+		private void addEdge(int from, int to, int capacity){
+			if (numberOfEdges+2>edgeTarget.length){
+				edgeTarget = Arrays.copyOf(edgeTarget, 2*edgeTarget.length);
+				edgeCapacity = Arrays.copyOf(edgeCapacity, 2*edgeCapacity.length);
+				nextEdge = Arrays.copyOf(nextEdge, 2*nextEdge.length);
+			}
+			this.link(from, to, capacity);
+			this.link(to, from, 0);
+		}
+
+		/**
+		 * Method to add a single edge
+		 * @param from an int containing the node the edge leaves
+		 * @param to an int containing the node the edge enters
+		 * @param capacity an int containing the capacity of the edge
+		 */
+		private void link(int from, int to, int capacity){
+			edgeTarget[numberOfEdges] = to;
+			edgeCapacity[numberOfEdges] = capacity;
+			nextEdge[numberOfEdges] = firstEdge[from];
+			firstEdge[from] = numberOfEdges++;
+		}
+
+		/**
+		 * Method to find the maximum flow from the source to the sink
+		 * @param source an int containing the source node
+		 * @param sink an int containing the sink node
+		 * @return flow an int containing the maximum flow
+		 */
+		private int maximumFlow(int source, int sink){
+			int flow = 0;
+			this.levelNodes(source);
+			while (levels[sink]>=0){
+				System.arraycopy(firstEdge, 0, currentEdge, 0, firstEdge.length);
+				int pushed;
+				while ((pushed = this.push(source, sink, Integer.MAX_VALUE))>0){
+					flow += pushed;
+				}
+				this.levelNodes(source);
+			}
+			return flow;
+		}
+
+		/**
+		 * Method to label every node with its distance from the source over edges with
+		 * remaining capacity, or -1 if it cannot be reached. After the maximum flow has been
+		 * found, the nodes reached form the source side of a minimum cut.
+		 * @param source an int containing the source node
+		 */
+		private void levelNodes(int source){
+			Arrays.fill(levels, -1);
+			int[] queue = new int[levels.length];
+			int head = 0;
+			int tail = 0;
+			levels[source] = 0;
+			queue[tail++] = source;
+			while (head<tail){
+				int node = queue[head++];
+				for (int edge = firstEdge[node]; edge>=0; edge = nextEdge[edge]){
+					if (edgeCapacity[edge]>0&&levels[edgeTarget[edge]]<0){
+						levels[edgeTarget[edge]] = levels[node]+1;
+						queue[tail++] = edgeTarget[edge];
+					}
+				}
+			}
+		}
+
+		/**
+		 * Method to push flow along a path of increasing level from a node to the sink
+		 * @param node an int containing the node the flow has reached
+		 * @param sink an int containing the sink node
+		 * @param limit an int containing the most flow which can reach the node
+		 * @return an int containing the flow pushed, 0 if the sink cannot be reached
+		 */
+		private int push(int node, int sink, int limit){
+			if (node==sink){
+				return limit;
+			}
+			for (; currentEdge[node]>=0; currentEdge[node] = nextEdge[currentEdge[node]]){
+				int edge = currentEdge[node];
+				int target = edgeTarget[edge];
+				if (edgeCapacity[edge]>0&&levels[target]==levels[node]+1){
+					int pushed = this.push(target, sink, Math.min(limit, edgeCapacity[edge]));
+					if (pushed>0){
+						edgeCapacity[edge] -= pushed;
+						// the reverse edge always follows or precedes its edge
+						edgeCapacity[edge^1] += pushed;
+						return pushed;
+					}
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Method to determine whether a node lies on the source side of the minimum cut.
+		 * Valid only once the maximum flow has been found.
+		 * @param node an int containing the node
+		 * @return a boolean denoting whether the node can still be reached from the source
+		 */
+		private boolean reachable(int node){
+			return levels[node]>=0;
+		}
+	}
+
+	private final MatchSchedule schedule; // the schedule the fixtures are proposed for
+
+	/**
+	 * Constructor for the FeasibilityAnalyzer
+	 * @param matchSchedule a MatchSchedule object the fixtures are proposed for
+	 */
+	public FeasibilityAnalyzer(MatchSchedule matchSchedule){
+		schedule = matchSchedule;
+	}
+
+	/**
+	 * Method to determine whether a batch of fixtures could all be added to the schedule
+	 * with full crews, alongside the matches already scheduled
+	 * @param fixtures a List of Match objects describing the proposed fixtures, whose officials are ignored
+	 * @return a Report of the fixtures which cannot all be staffed and the reasons
+	 */
+	public Report analyze(List<Match> fixtures){
+		List<Bottleneck> bottlenecks = new ArrayList<Bottleneck>();
+		Set<Match> infeasible = new HashSet<Match>();
+		// Fixtures outside the season or the known regions can never be added
+		Map<Integer, List<Match>> fixturesByWeek = new TreeMap<Integer, List<Match>>();
+		for (Match fixture: fixtures){
+			int week = fixture.getWeekNo();
+			if (week<1||week>schedule.WEEKS_IN_A_SEASON
+					||schedule.getRegionTopology().getRegionIndex(fixture.getLocation())<0){
+				int crewSize = schedule.getCrewRoles(fixture.getMatchLevel()).length;
+				bottlenecks.add(new Bottleneck(week, Collections.singletonList(fixture), new ArrayList<Referee>(),
+						crewSize, 0, "The "+fixture.getMatchLevel()+" match in "+fixture.getLocation()+" in week "
+						+week+" is outside the season or the known regions"));
+				infeasible.add(fixture);
+				continue;
+			}
+			List<Match> weekFixtures = fixturesByWeek.get(week);
+			if (weekFixtures==null){
+				weekFixtures = new ArrayList<Match>();
+				fixturesByWeek.put(week, weekFixtures);
+			}
+			weekFixtures.add(fixture);
+		}
+		for (Map.Entry<Integer, List<Match>> weekFixtures: fixturesByWeek.entrySet()){
+			this.analyzeWeek(weekFixtures.getKey(), weekFixtures.getValue(), bottlenecks, infeasible);
+		}
+		List<Match> infeasibleFixtures = new ArrayList<Match>();
+		for (Match fixture: fixtures){
+			if (infeasible.contains(fixture)){
+				infeasibleFixtures.add(fixture);
+			}
+		}
+		return new Report(infeasibleFixtures, bottlenecks);
+	}
+
+	/**
+	 * Method to analyse the proposed fixtures of a single week
+	 * @param week an int containing the week
+	 * @param fixtures a List of the proposed Match objects of the week
+	 * @param bottlenecks a List to which any Bottlenecks found are added
+	 * @param infeasible a Set to which the fixtures of any Bottlenecks found are added
+	 */
+	private void analyzeWeek(int week, List<Match> fixtures, List<Bottleneck> bottlenecks, Set<Match> infeasible){
+		int freeSlots = schedule.getMaximumMatchesPerWeek()-schedule.getMatchesByWeek(week).size();
+		if (fixtures.size()>freeSlots){
+			bottlenecks.add(new Bottleneck(week, new ArrayList<Match>(fixtures), new ArrayList<Referee>(), 0, 0,
+					fixtures.size()+" matches are proposed for week "+week+" which has room for "
+					+Math.max(freeSlots, 0)+" more"));
+			infeasible.addAll(fixtures);
+		}
+		// Only referees not already officiating a match of the week can be used
+		long weekBit = Referee.weekBit(week);
+		List<Referee> freeRefs = new ArrayList<Referee>();
+		for (Referee ref: schedule.getOfficials()){
+			if ((ref.getIneligibleWeeks()&weekBit)==0){
+				freeRefs.add(ref);
+			}
+		}
+		// Nodes: the source, each fixture, each free referee and the sink
+		int source = 0;
+		int firstRefNode = 1+fixtures.size();
+		int sink = firstRefNode+freeRefs.size();
+		FlowNetwork network = new FlowNetwork(sink+1);
+		int[] crewSizes = new int[fixtures.size()];
+		int demand = 0;
+		for (int fixture = 0; fixture<fixtures.size(); fixture++){
+			Match match = fixtures.get(fixture);
+			crewSizes[fixture] = schedule.getCrewRoles(match.getMatchLevel()).length;
+			demand += crewSizes[fixture];
+			network.addEdge(source, 1+fixture, crewSizes[fixture]);
+			for (int ref = 0; ref<freeRefs.size(); ref++){
+				if (schedule.canOfficiate(freeRefs.get(ref), match)){
+					network.addEdge(1+fixture, firstRefNode+ref, 1);
+				}
+			}
+		}
+		for (int ref = 0; ref<freeRefs.size(); ref++){
+			network.addEdge(firstRefNode+ref, sink, 1);
+		}
+		int flow = network.maximumFlow(source, sink);
+		if (flow==demand){
+			return;
+		}
+		// The fixtures still reachable from the source include every fixture short of
+		// officials, and every referee eligible for any of them already officiates one
+		// of them, so these referees are the bottleneck
+		List<Match> shortFixtures = new ArrayList<Match>();
+		int required = 0;
+		for (int fixture = 0; fixture<fixtures.size(); fixture++){
+			if (network.reachable(1+fixture)){
+				shortFixtures.add(fixtures.get(fixture));
+				required += crewSizes[fixture];
+			}
+		}
+		List<Referee> saturatedRefs = new ArrayList<Referee>();
+		for (Referee ref: freeRefs){
+			for (Match fixture: shortFixtures){
+				if (schedule.canOfficiate(ref, fixture)){
+					saturatedRefs.add(ref);
+					break;
+				}
+			}
+		}
+		int available = required-(demand-flow);
+		bottlenecks.add(new Bottleneck(week, shortFixtures, saturatedRefs, required, available,
+				"In week "+week+", "+shortFixtures.size()+" proposed matches need "+required
+				+" officials but only "+saturatedRefs.size()+" eligible referees are free, "
+				+(demand-flow)+" short"));
+		infeasible.addAll(shortFixtures);
+	}
+}
@@ -0,0 +1,365 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Imports records from a text file, one record per line, in stages. A reader divides
+ * the file into chunks of lines, several parser threads convert the chunks into records
+ * at once, and the records are inserted one at a time on the thread which runs the
+ * import, in the order they appear in the file. The stages are connected by bounded
+ * queues and only a fixed number of chunks may be in progress at any time, so the
+ * reader waits for the later stages rather than holding the whole file in memory.
+ * Lines which cannot be parsed or inserted are reported with their line numbers and
+ * the import continues with the next line.
+ * @param <T> the type of the records imported
+ */
+public class ImportPipeline<T> {
+
+	/**
+	 * Defines the conversion of a line into a record. Called on several threads at once.
+	 * @param <T> the type of the records
+	 */
+	public interface Parser<T> {
+
+		/**
+		 * Method to convert a line of the file into a record
+		 * @param line a String containing one non-blank line of the file
+		 * @return a record
+		 * @throws IllegalArgumentException describing why the line is invalid
+		 */
+		T parse(String line);
+	}
+
+	/**
+	 * Defines the insertion of a record. Only ever called on the thread running the import.
+	 * @param <T> the type of the records
+	 */
+	public interface Inserter<T> {
+
+		/**
+		 * Method to insert a record
+		 * @param record a record parsed from the file
+		 * @throws IllegalArgumentException describing why the record cannot be inserted
+		 */
+		void insert(T record);
+	}
+
+	/**
+	 * Defines the outcome of an import
+	 */
+	public static class Report {
+
+		public final int MAXIMUM_REPORTED_ERRORS = 100; // the number of errors described in full
+
+		private int recordsImported; // the number of records inserted
+		private int numberOfErrors; // the number of lines which could not be imported
+		private final List<String> errors; // a description of each of the first errors
+
+		/**
+		 * Constructor for the Report
+		 */
+		private Report(){
+			errors = new ArrayList<String>();
+		}
+
+		/**
+		 * Method to record a line which could not be imported
+		 * @param lineNumber a long containing the number of the line, starting from 1
+		 * @param message a String describing the error
+		 */
+		private void addError(long lineNumber, String message){
+			numberOfErrors++;
+			if (errors.size()<MAXIMUM_REPORTED_ERRORS){
+				errors.add("Line "+lineNumber+": "+message);
+			}
+		}
+
+		/**
+		 * Accessor method for the number of records inserted
+		 * @return recordsImported an int containing the number of records
+		 */
+		public int getRecordsImported(){
+			return recordsImported;
+		}
+
+		/**
+		 * Accessor method for the number of lines which could not be imported
+		 * @return numberOfErrors an int containing the number of lines
+		 */
+		public int getNumberOfErrors(){
+			return numberOfErrors;
+		}
+
+		/**
+		 * Accessor method for descriptions of the first errors in order of line number
+		 * @return an unmodifiable list of Strings of the form "Line 12: message"
+		 */
+		public List<String> getErrors(){
+			return Collections.unmodifiableList(errors);
+		}
+	}
+
+	/**
+	 * Defines a consecutive group of lines of the file and, once parsed, their records
+	 */
+	private static class Chunk {
+
+		private final int sequence; // the position of the chunk in the file, starting from 0
+		private final long firstLineNumber; // the number of the first line of the chunk
+		private final List<String> lines; // the lines of the chunk, or null for the end of the file
+		private Object[] results; // the record or error message of each line once parsed
+
+		/**
+		 * Constructor for the Chunk
+		 * @param sequence an int containing the position of the chunk in the file
+		 * @param firstLineNumber a long containing the number of the first line of the chunk
+		 * @param lines a list of the lines of the chunk, or null to mark the end of the file
+		 */
+		private Chunk(int sequence, long firstLineNumber, List<String> lines){
+			this.sequence = sequence;
+			this.firstLineNumber = firstLineNumber;
+			this.lines = lines;
+		}
+	}
+
+	/**
+	 * Defines the failure to parse a line
+	 */
+	private static class ParseError {
+
+		private final String message; // a description of the error
+
+		/**
+		 * Constructor for the ParseError
+		 * @param message a String describing the error
+		 */
+		private ParseError(String message){
+			this.message = message;
+		}
+	}
+
+	private final Parser<T> parser; // converts lines into records
+	private final Inserter<T> inserter; // inserts each record
+	private final int numberOfParsers; // the number of threads parsing chunks
+	private final int linesPerChunk; // the number of lines read into each chunk
+	private final int chunksInProgress; // the number of chunks which may be read but not yet inserted
+
+	/**
+	 * Constructor for an ImportPipeline with a parser thread for each core
+	 * @param lineParser a Parser converting lines into records
+	 * @param recordInserter an Inserter inserting each record
+	 */
+	public ImportPipeline(Parser<T> lineParser, Inserter<T> recordInserter){
+		this(lineParser, recordInserter, Runtime.getRuntime().availableProcessors(), 1024,
+				4*Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructor for the ImportPipeline
+	 * @param lineParser a Parser converting lines into records
+	 * @param recordInserter an Inserter inserting each record
+	 * @param parsers an int containing the number of threads parsing chunks
+	 * @param chunkLines an int containing the number of lines in each chunk
+	 * @param chunksInFlight an int containing the number of chunks which may be in progress at once
+	 */
+	public ImportPipeline(Parser<T> lineParser, Inserter<T> recordInserter, int parsers, int chunkLines,
+			int chunksInFlight){
+		if (parsers<1||chunkLines<1||chunksInFlight<1){
+			throw new IllegalArgumentException("The pipeline sizes must be positive");
+		}
+		parser = lineParser;
+		inserter = recordInserter;
+		numberOfParsers = parsers;
+		linesPerChunk = chunkLines;
+		chunksInProgress = chunksInFlight;
+	}
+
+	/**
+	 * Method to import every line of a file. Blank lines are ignored.
+	 * @param fileName a String containing the name of the file
+	 * @return report a Report of the records imported and the lines which could not be imported
+	 * @throws IOException if the file cannot be read
+	 */
+	public Report importFile(String fileName) throws IOException{
+		Reader input = new FileReader(fileName);
+		try{
+			return this.importLines(input);
+		}
+		finally{
+			input.close();
+		}
+	}
+
+	/**
+	 * Method to import every line read from a Reader. Blank lines are ignored.
+	 * @param input a Reader supplying the lines
+	 * @return report a Report of the records imported and the lines which could not be imported
+	 * @throws IOException if the lines cannot be read
+	 */
+	public Report importLines(Reader input) throws IOException{
+		final BufferedReader reader = new BufferedReader(input);
+		final Semaphore permits = new Semaphore(chunksInProgress);
+		final BlockingQueue<Chunk> readChunks = new ArrayBlockingQueue<Chunk>(chunksInProgress+1);
+		final BlockingQueue<Chunk> parsedChunks = new ArrayBlockingQueue<Chunk>(chunksInProgress+1);
+		final IOException[] readFailure = new IOException[1];
+		ExecutorService stages = Executors.newFixedThreadPool(numberOfParsers+1);
+		try{
+			// The reader divides the file into chunks, waiting while too many are in progress
+			stages.execute(new Runnable(){
+				public void run(){
+					readChunks(reader, permits, readChunks, parsedChunks, readFailure);
+				}
+			});
+			for (int index = 0; index<numberOfParsers; index++){
+				stages.execute(new Runnable(){
+					public void run(){
+						parseChunks(readChunks, parsedChunks);
+					}
+				});
+			}
+			Report report = this.insertChunks(permits, parsedChunks);
+			synchronized (readFailure){
+				if (readFailure[0]!=null){
+					throw readFailure[0];
+				}
+			}
+			return report;
+		}
+		catch (InterruptedException ix){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("The import was interrupted");
+		}
+		finally{
+			stages.shutdownNow();
+		}
+	}
+
+	/**
+	 * Method run by the reader to divide the lines into chunks. Once every line has been
+	 * read, or reading fails, a chunk without lines marks the end for both later stages.
+	 * @param reader a BufferedReader supplying the lines
+	 * @param permits a Semaphore limiting the number of chunks in progress
+	 * @param readChunks a BlockingQueue of chunks awaiting parsing
+	 * @param parsedChunks a BlockingQueue of chunks awaiting insertion
+	 * @param readFailure an array holding the failure to read the lines, if any
+	 */
+	private void readChunks(BufferedReader reader, Semaphore permits, BlockingQueue<Chunk> readChunks,
+			BlockingQueue<Chunk> parsedChunks, IOException[] readFailure){
+		int sequence = 0;
+		long lineNumber = 0;
+		try{
+			try{
+				String line = reader.readLine();
+				while (line!=null){
+					permits.acquire();
+					List<String> lines = new ArrayList<String>(linesPerChunk);
+					long firstLineNumber = lineNumber+1;
+					while (line!=null&&lines.size()<linesPerChunk){
+						lines.add(line);
+						lineNumber++;
+						line = reader.readLine();
+					}
+					readChunks.put(new Chunk(sequence++, firstLineNumber, lines));
+				}
+			}
+			catch (IOException iox){
+				synchronized (readFailure){
+					readFailure[0] = iox;
+				}
+			}
+			// The end is marked for each parser and for the inserter
+			Chunk end = new Chunk(sequence, lineNumber+1, null);
+			readChunks.put(end);
+			parsedChunks.put(end);
+		}
+		catch (InterruptedException ix){
+			// the import has been abandoned
+		}
+	}
+
+	/**
+	 * Method run by each parser to convert the lines of chunks into records
+	 * @param readChunks a BlockingQueue of chunks awaiting parsing
+	 * @param parsedChunks a BlockingQueue of chunks awaiting insertion
+	 */
+	private void parseChunks(BlockingQueue<Chunk> readChunks, BlockingQueue<Chunk> parsedChunks){
+		try{
+			Chunk chunk = readChunks.take();
+			while (chunk.lines!=null){
+				Object[] results = new Object[chunk.lines.size()];
+				for (int index = 0; index<results.length; index++){
+					String line = chunk.lines.get(index);
+					if (line.trim().isEmpty()){
+						// blank lines are ignored
+						continue;
+					}
+					try{
+						results[index] = parser.parse(line);
+					}
+					catch (RuntimeException rx){
+						// e.g. missing or malformed details
+						results[index] = new ParseError(rx.getMessage()!=null ? rx.getMessage() : rx.toString());
+					}
+				}
+				chunk.results = results;
+				parsedChunks.put(chunk);
+				chunk = readChunks.take();
+			}
+			// The end marker is returned for the remaining parsers
+			readChunks.put(chunk);
+		}
+		catch (InterruptedException ix){
+			// the import has been abandoned
+		}
+	}
+
+	/**
+	 * Method run on the importing thread to insert the records in the order of the file.
+	 * Chunks parsed out of order are held until the preceding chunks have been inserted.
+	 * @param permits a Semaphore limiting the number of chunks in progress
+	 * @param parsedChunks a BlockingQueue of chunks awaiting insertion
+	 * @return report a Report of the records imported and the lines which could not be imported
+	 * @throws InterruptedException if the importing thread is interrupted
+	 */
+	@SuppressWarnings("unchecked")
+	private Report insertChunks(Semaphore permits, BlockingQueue<Chunk> parsedChunks) throws InterruptedException{
+		Report report = new Report();
+		Map<Integer, Chunk> waitingChunks = new HashMap<Integer, Chunk>();
+		int nextSequence = 0;
+		boolean finished = false;
+		while (!finished){
+			Chunk chunk = waitingChunks.remove(nextSequence);
+			if (chunk==null){
+				chunk = parsedChunks.take();
+				if (chunk.sequence!=nextSequence){
+					waitingChunks.put(chunk.sequence, chunk);
+					continue;
+				}
+			}
+			if (chunk.lines==null){
+				finished = true;
+				continue;
+			}
+			for (int index = 0; index<chunk.results.length; index++){
+				long lineNumber = chunk.firstLineNumber+index;
+				Object result = chunk.results[index];
+				if (result instanceof ParseError){
+					report.addError(lineNumber, ((ParseError) result).message);
+				}
+				else if (result!=null){
+					try{
+						inserter.insert((T) result);
+						report.recordsImported++;
+					}
+					catch (IllegalArgumentException iax){
+						report.addError(lineNumber, iax.getMessage());
+					}
+				}
+			}
+			nextSequence++;
+			// The reader may now read another chunk
+			permits.release();
+		}
+		return report;
+	}
+}
@@ -2,6 +2,9 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Defines a GUI that displays the details of an individual
@@ -19,22 +22,27 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 	/** GUI JComboBoxes */
 	private JComboBox<String> qualificationBox, homeLocationBox;
 
-	/**GUI JCheckBox */
-	private JCheckBox northCB, centralCB, southCB;
+	/**GUI JCheckBox for the availability of the referee in each region */
+	private JCheckBox[] availabilityCBs;
+	
+	/**GUI JTextArea listing the matches the referee officiates */
+	private JTextArea fixturesArea;
 	
 	/**GUI Component Dimension*/
 	private final int INTERFACE_WIDTH = 400;
-	private final int INTERFACE_HEIGHT = 300;
+	private final int INTERFACE_HEIGHT = 420;
 	private final int LOCATION_X_AXIS = 500;
 	private final int LOCATION_Y_AXIS = 350;
 	private final int GRID_LAYOUT_NORTH_ROWS = 5;
 	private final int GRID_LAYOUT_NORTH_COLUMNS = 2;
 	private final int GRID_LAYOUT_CENTRAL_ROWS = 1;
-	private final int GRID_LAYOUT_CENTRAL_COLUMNS = 6;
+	private final int GRID_LAYOUT_CENTRAL_COLUMNS_PER_REGION = 2;
 	private final int GRID_LAYOUT_SOUTH_ROWS = 1;
 	private final int GRID_LAYOUT_SOUTH_COLUMNS = 2;
 	private final int FONT_SIZE = 14;
 	private final int TEXTFEILD_WIDTH = 35;
+	private final int FIXTURES_AREA_HEIGHT = 5;
+	private static final ColumnFormatter FIXTURE_LAYOUT = new ColumnFormatter(" Week %-4d%-8s%s\n");
 	
 	/**Controller class reference*/
 	private MatchSchedule matchSchedule;
@@ -46,8 +54,8 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 	 */
 	public IndividualRefGUI(String refName, MatchSchedule schedule) {
 
-		this.displayIndividualRefGUI();
 		matchSchedule = schedule;
+		this.displayIndividualRefGUI();
 		updateDisplayForNewRef(refName);
 	}
 	
@@ -58,8 +66,8 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 	 */
 	public IndividualRefGUI(Referee ref, MatchSchedule schedule) {
 
-		this.displayIndividualRefGUI();
 		matchSchedule = schedule;
+		this.displayIndividualRefGUI();
 		updateDisplayForExistingRef(ref);
 		// the number of match allocations cannot be edited for an existing referee
 		matchAllocationField.setEnabled(false);
@@ -95,9 +103,20 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 		matchAllocationField.setText(Integer.toString(ref.getMatchAllocations()));
 		qualificationBox.setSelectedItem(ref.getQualification());
 		homeLocationBox.setSelectedItem(ref.getHomeLocation());
-		northCB.setSelected(ref.isAvailableNorth());
-		centralCB.setSelected(ref.isAvailableCentral());
-		southCB.setSelected(ref.isAvailableSouth());
+		List<String> regionNames = matchSchedule.getRegionTopology().getRegionNames();
+		for (int region = 0; region<regionNames.size(); region++){
+			availabilityCBs[region].setSelected(ref.isAvailableIn(regionNames.get(region)));
+		}
+		// List the matches the referee officiates, found directly from the schedule's index
+		fixturesArea.setText("");
+		for (Match fixture: matchSchedule.getMatchesForReferee(ref)){
+			StringBuilder row = new StringBuilder();
+			FIXTURE_LAYOUT.appendField(row, 0, fixture.getWeekNo());
+			FIXTURE_LAYOUT.appendField(row, 1, fixture.getMatchLevel());
+			FIXTURE_LAYOUT.appendField(row, 2, fixture.getLocation());
+			FIXTURE_LAYOUT.appendEnd(row);
+			fixturesArea.append(row.toString());
+		}
 	}
 
 	/**
@@ -115,9 +134,9 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 		matchAllocationField.setText("");
 		// By default, the availability of the referee is set to false
 		// for each geographical area
-		northCB.setSelected(false);
-		centralCB.setSelected(false);
-		southCB.setSelected(false);
+		for (JCheckBox availabilityCB: availabilityCBs){
+			availabilityCB.setSelected(false);
+		}
 	}
 	
 	/**
@@ -165,8 +184,7 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 		}
 		
 		//Populate the homeLocation comboBox
-		String [] geographicalAreas = {"North", "Central", "South"};
-		for (String location: geographicalAreas){
+		for (String location: matchSchedule.getRegionTopology().getRegionNames()){
 			homeLocationBox.addItem(location);
 		}
 		
@@ -185,24 +203,29 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 	 */
 	public void layoutCenter(){
 		
-		JPanel centerPanel = new JPanel(new GridLayout(GRID_LAYOUT_CENTRAL_ROWS,GRID_LAYOUT_CENTRAL_COLUMNS));
-		centerPanel.setBorder(new TitledBorder("Match Availability"));
-		
-		//Generate JCheckBoxes and associated labels for referee availability
-		JLabel northLabel = new JLabel("North");
-		northCB = new JCheckBox();
-		centerPanel.add(northLabel);
-		centerPanel.add(northCB);
-		
-		JLabel centralLabel = new JLabel("Central");
-		centralCB = new JCheckBox();
-		centerPanel.add(centralLabel);
-		centerPanel.add(centralCB);
-		
-		JLabel southLabel = new JLabel("South");
-		southCB = new JCheckBox();
-		centerPanel.add(southLabel);
-		centerPanel.add(southCB);
+		List<String> regionNames = matchSchedule.getRegionTopology().getRegionNames();
+		JPanel centerPanel = new JPanel(new BorderLayout());
+		JPanel availabilityPanel = new JPanel(new GridLayout(GRID_LAYOUT_CENTRAL_ROWS,
+				GRID_LAYOUT_CENTRAL_COLUMNS_PER_REGION*regionNames.size()));
+		availabilityPanel.setBorder(new TitledBorder("Match Availability"));
+		
+		//Generate JCheckBoxes and associated labels for referee availability in each region
+		availabilityCBs = new JCheckBox[regionNames.size()];
+		for (int region = 0; region<regionNames.size(); region++){
+			JLabel regionLabel = new JLabel(regionNames.get(region));
+			availabilityCBs[region] = new JCheckBox();
+			availabilityPanel.add(regionLabel);
+			availabilityPanel.add(availabilityCBs[region]);
+		}
+		centerPanel.add(availabilityPanel, BorderLayout.NORTH);
+		
+		//Generate a text area listing the matches the referee officiates
+		fixturesArea = new JTextArea(FIXTURES_AREA_HEIGHT, TEXTFEILD_WIDTH);
+		fixturesArea.setFont(new Font("Courier", Font.PLAIN, FONT_SIZE));
+		fixturesArea.setEditable(false);
+		JScrollPane fixturesPane = new JScrollPane(fixturesArea);
+		fixturesPane.setBorder(new TitledBorder("Scheduled Matches"));
+		centerPanel.add(fixturesPane, BorderLayout.CENTER);
 	
 		//Add the central panel to GUI
 		add(centerPanel, BorderLayout.CENTER);
@@ -241,9 +264,13 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 		int allocation = Integer.parseInt(matchAllocationField.getText().trim());
 		String refQualification = (String) qualificationBox.getSelectedItem();
 		String refHome = (String) homeLocationBox.getSelectedItem();
-		boolean isAvailableNorth = northCB.isSelected();
-		boolean isAvailableCentral = centralCB.isSelected();
-		boolean isAvailableSouth = southCB.isSelected();
+		Set<String> availableAreas = new HashSet<String>();
+		List<String> regionNames = matchSchedule.getRegionTopology().getRegionNames();
+		for (int region = 0; region<regionNames.size(); region++){
+			if (availabilityCBs[region].isSelected()){
+				availableAreas.add(regionNames.get(region));
+			}
+		}
 		
 		// Split the name into first and surnames
 		String [] names = refName.split(" +");
@@ -253,18 +280,26 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 		
 		// Determine whether this is the addition of a new referee
 		// or an update to an existing referee 
+		boolean saved = true;
 		if (matchSchedule.getRefereeByID(uniqueID)==null){
 			// Add the referee to the list of available referees
 			matchSchedule.addReferee(uniqueID, refFirstName, refSurname, refQualification, allocation, 
-					refHome, isAvailableNorth, isAvailableCentral, isAvailableSouth);
+					refHome, availableAreas);
 		}
 		else {
-			// Edit the details of the existing referee
-			matchSchedule.editReferee(uniqueID, refQualification, refHome, isAvailableNorth, 
-					isAvailableCentral, isAvailableSouth);
+			// Edit the details of the existing referee. Matches the referee may no longer
+			// officiate are reallocated, which fails if no other referee is free.
+			saved = matchSchedule.editReferee(uniqueID, refQualification, refHome, availableAreas);
+		}
+		if (saved){
+			// Upon completion, remove the display
+			this.dispose();
+		}
+		else{
+			// The display remains so that the user may choose different details
+			JOptionPane.showMessageDialog(null, "The referee's matches could not be reallocated",
+					"Error", JOptionPane.ERROR_MESSAGE);
 		}
-		// Upon completion, remove the display
-		this.dispose();
 	}
 
 	/**
@@ -281,7 +316,11 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 			String existingName = existingRef.getFullName();
 			// Ensure that the name associated with the id is correct
 			if (nameField.getText().trim().equals(existingName)){
-				matchSchedule.removeReferee(uniqueID);
+				// The referee's matches are reallocated, which fails if no other referee is free
+				if (!matchSchedule.removeReferee(uniqueID)){
+					JOptionPane.showMessageDialog(null, "The referee's matches could not be reallocated",
+							"Error", JOptionPane.ERROR_MESSAGE);
+				}
 			}
 			// else - a name may not be correctly associated with a referee ID
 			// if the user attempts to create two referees with identical initials
@@ -327,17 +366,10 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 		String refHome = (String) homeLocationBox.getSelectedItem();
 		boolean availableHome = true;
 		// Check that the check box corresponding to the home location is selected
-		if (refHome.equals("North")&&!northCB.isSelected()){
+		int homeRegion = matchSchedule.getRegionTopology().getRegionIndex(refHome);
+		if (!availabilityCBs[homeRegion].isSelected()){
 			// If not, then select the corresponding check box for the user
-			northCB.setSelected(true);
-			availableHome = false;
-		}
-		else if (refHome.equals("Central")&&!centralCB.isSelected()){
-			centralCB.setSelected(true);
-			availableHome = false;
-		}
-		else if (refHome.equals("South")&&!southCB.isSelected()){
-			southCB.setSelected(true);
+			availabilityCBs[homeRegion].setSelected(true);
 			availableHome = false;
 		}
 		
@@ -350,7 +382,7 @@ public class IndividualRefGUI extends JFrame implements ActionListener {
 		}
 		
 		// Ensure that the maximum number of officials hasn't been exceeded
-		if (matchSchedule.getNumberOfReferees()>=matchSchedule.MAXIMUM_NUMBER_OF_OFFICIALS){
+		if (matchSchedule.getNumberOfReferees()>=matchSchedule.getMaximumNumberOfReferees()){
 			JOptionPane.showMessageDialog(null, "Maximum number of Referees reached",
 					"Error", JOptionPane.ERROR_MESSAGE);
 			valid = false;
@@ -0,0 +1,484 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves the schedules of many leagues from one program. Each league, or tenant, is a
+ * directory beneath a common root holding its own referees input file and, optionally, its
+ * own regions file, and is given its own MatchSchedule, or shard, which shares no referees,
+ * matches, caches or listeners with the shard of any other tenant.
+ *
+ * A shard is loaded only when a task first uses it. On the first use of a tenant its
+ * referees input file is imported into a record store file in the tenant's directory, and
+ * from then on the shard is loaded from that store. After each task which changes a shard
+ * the store is synchronised with it, so a shard left unused for the configured time is
+ * unloaded without further work, leaving only its name, directory and lock on the heap
+ * until it is next used. The store holds the referees, including the positions of their
+ * homes, the matches, the number of matches each week and the allocation strategy. Each
+ * new store has records for a configured number of referees, by default
+ * DEFAULT_REFEREE_CAPACITY rather than the MAXIMUM_NUMBER_OF_OFFICIALS the user interface
+ * manages, and a shard holds as many referees as its store has records for. A store
+ * already created keeps its capacity. A shard
+ * whose schedule has settings the store cannot hold, such as named crew roles or a strategy
+ * not created by AllocationStrategies, or whose changes could not be stored, stays loaded
+ * until the registry is closed so that nothing is lost when it is next used.
+ *
+ * Each shard has its own lock, so the tasks of one tenant run one at a time as the schedule
+ * requires, while the tasks of different tenants run at the same time, either on the
+ * threads of their callers or on a pool of threads shared by every tenant.
+ */
+public class LeagueRegistry {
+
+	public static final String REFEREES_FILE = "RefereesIn.txt"; // the referees input file of each tenant
+	public static final String REGIONS_FILE = "Regions.txt"; // the optional regions file of each tenant
+	public static final String STORE_FILE = "Schedule.store"; // the record store holding each tenant's shard
+	public static final int DEFAULT_REFEREE_CAPACITY = 1000; // the number of referee records in each new store unless configured otherwise
+	private static final String TENANT_NAME_PATTERN = "[A-Za-z0-9_-]+"; // names which cannot leave the root directory
+
+	/**
+	 * Defines the work done with the schedule of a single tenant
+	 */
+	public interface Task<T> {
+
+		/**
+		 * Method called while the lock of the tenant's shard is held. The schedule must not be
+		 * kept once the method returns, as the shard may then be unloaded.
+		 * @param schedule a MatchSchedule object holding the tenant's referees and matches
+		 * @return the result of the task
+		 * @throws Exception if the task cannot be completed
+		 */
+		T run(MatchSchedule schedule) throws Exception;
+	}
+
+	/**
+	 * Defines the shard of a single tenant, which is all that is held while it is unloaded
+	 */
+	private static class Shard {
+
+		private final Path directory; // the directory holding the tenant's files
+		private final ReentrantLock lock; // held while the schedule is loaded, used or unloaded
+		private MatchSchedule schedule; // the loaded schedule, or null while unloaded
+		private long savedModificationCount; // the modification count of the schedule when last synchronised
+		private List<String> importProblems; // the lines of the referees file which could not be imported, or null
+		private String saveError; // why the most recent changes could not be stored, or null
+		private volatile long lastUsed; // the time in milliseconds the most recent task finished
+
+		/**
+		 * Constructor for the Shard
+		 * @param directory a Path to the directory holding the tenant's files
+		 */
+		private Shard(Path directory){
+			this.directory = directory;
+			lock = new ReentrantLock();
+			schedule = null;
+			importProblems = null;
+			saveError = null;
+			lastUsed = 0;
+		}
+	}
+
+	private final Path root; // the directory holding the directory of each tenant
+	private final ConcurrentMap<String, Shard> shards; // the shard of each tenant keyed by name
+	private final ScheduledExecutorService pool; // the threads shared by every tenant
+	private final AtomicInteger loadedShards; // the number of shards currently loaded
+	private final int refereeCapacity; // the number of referee records in each new store
+	private final int matchCapacity; // the number of match records in each new store
+	private volatile boolean closed; // whether the registry has been closed
+
+	/**
+	 * Constructor for the LeagueRegistry whose new stores hold DEFAULT_REFEREE_CAPACITY referees.
+	 * The tenants already present beneath the root directory are discovered, but none is loaded.
+	 * @param rootDirectory a String containing the name of the directory holding each tenant's directory
+	 * @param numberOfThreads an int containing the number of threads shared by every tenant
+	 * @param idleMillis a long containing the number of milliseconds a shard may go unused before it is unloaded
+	 * @throws IOException if the root directory cannot be read
+	 */
+	public LeagueRegistry(String rootDirectory, int numberOfThreads, long idleMillis) throws IOException{
+		this(rootDirectory, numberOfThreads, idleMillis, DEFAULT_REFEREE_CAPACITY);
+	}
+
+	/**
+	 * Constructor for a LeagueRegistry whose new stores hold a given number of referees.
+	 * The tenants already present beneath the root directory are discovered, but none is loaded.
+	 * @param rootDirectory a String containing the name of the directory holding each tenant's directory
+	 * @param numberOfThreads an int containing the number of threads shared by every tenant
+	 * @param idleMillis a long containing the number of milliseconds a shard may go unused before it is unloaded
+	 * @param refereesPerTenant an int containing the number of referees the store of each new tenant holds
+	 * @throws IOException if the root directory cannot be read
+	 */
+	public LeagueRegistry(String rootDirectory, int numberOfThreads, long idleMillis, int refereesPerTenant)
+			throws IOException{
+		if (numberOfThreads<1||idleMillis<=0||refereesPerTenant<1){
+			throw new IllegalArgumentException("The number of threads, idle time and number of referees must be positive");
+		}
+		root = Paths.get(rootDirectory).toAbsolutePath();
+		if (!Files.isDirectory(root)){
+			throw new FileNotFoundException("No such directory: "+root);
+		}
+		shards = new ConcurrentHashMap<String, Shard>();
+		loadedShards = new AtomicInteger();
+		// Every referee of a season may officiate once each week in a crew of two, which bounds each store
+		MatchSchedule bounds = new MatchSchedule();
+		refereeCapacity = refereesPerTenant;
+		matchCapacity = bounds.WEEKS_IN_A_SEASON*Math.max(1, refereesPerTenant/bounds.REFEREES_PER_MATCH);
+		closed = false;
+		this.discoverTenants();
+		final AtomicInteger threadNumber = new AtomicInteger();
+		pool = Executors.newScheduledThreadPool(numberOfThreads, new ThreadFactory(){
+			public Thread newThread(Runnable task){
+				Thread thread = new Thread(task, "LeagueRegistry-"+threadNumber.incrementAndGet());
+				// The program may exit without waiting for the pool
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// A shard is unloaded between one and two idle periods after it was last used
+		final long idlePeriod = idleMillis;
+		pool.scheduleWithFixedDelay(new Runnable(){
+			public void run(){
+				evictIdle(idlePeriod);
+			}
+		}, idleMillis, idleMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Method to add each directory beneath the root holding a referees input file or a
+	 * store as a tenant, so that leagues may be added while the program runs
+	 * @return added an int containing the number of tenants not previously known
+	 * @throws IOException if the root directory cannot be read
+	 */
+	public int discoverTenants() throws IOException{
+		int added = 0;
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)){
+			for (Path entry: entries){
+				String tenant = entry.getFileName().toString();
+				if (Files.isDirectory(entry)&&tenant.matches(TENANT_NAME_PATTERN)
+						&&(Files.exists(entry.resolve(REFEREES_FILE))||Files.exists(entry.resolve(STORE_FILE)))
+						&&shards.putIfAbsent(tenant, new Shard(entry))==null){
+					added++;
+				}
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Method to add a tenant, creating its directory if it does not exist. A tenant without
+	 * a referees input file begins with no referees.
+	 * @param tenant a String containing the name of the tenant, made of letters, digits, '_' and '-'
+	 * @return added a boolean denoting whether the tenant was not previously known
+	 * @throws IOException if the directory cannot be created
+	 */
+	public boolean addTenant(String tenant) throws IOException{
+		if (tenant==null||!tenant.matches(TENANT_NAME_PATTERN)){
+			throw new IllegalArgumentException("Invalid tenant name "+tenant);
+		}
+		Path directory = Files.createDirectories(root.resolve(tenant));
+		return shards.putIfAbsent(tenant, new Shard(directory))==null;
+	}
+
+	/**
+	 * Accessor method for the names of the tenants
+	 * @return a sorted Set of Strings containing the name of each tenant
+	 */
+	public Set<String> getTenants(){
+		return Collections.unmodifiableSet(new TreeSet<String>(shards.keySet()));
+	}
+
+	/**
+	 * Accessor method for the number of tenants
+	 * @return an int containing the number of tenants, loaded or not
+	 */
+	public int getNumberOfTenants(){
+		return shards.size();
+	}
+
+	/**
+	 * Accessor method for the number of shards loaded
+	 * @return an int containing the number of tenants whose schedules are held in memory
+	 */
+	public int getNumberOfLoadedShards(){
+		return loadedShards.get();
+	}
+
+	/**
+	 * Accessor method for the lines of a tenant's referees input file which could not be
+	 * imported when its store was created
+	 * @param tenant a String containing the name of the tenant
+	 * @return a List of Strings describing each line, empty if every line was imported or
+	 * the store was created before the program started
+	 */
+	public List<String> getImportProblems(String tenant){
+		Shard shard = this.getShard(tenant);
+		shard.lock.lock();
+		try{
+			return shard.importProblems==null ? Collections.<String>emptyList()
+					: Collections.unmodifiableList(shard.importProblems);
+		}
+		finally{
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * Accessor method for the reason the most recent changes to a tenant's schedule could not
+	 * be stored. Until they are stored the tenant's shard is not unloaded.
+	 * @param tenant a String containing the name of the tenant
+	 * @return a String describing the failure, or null if every change has been stored
+	 */
+	public String getSaveError(String tenant){
+		Shard shard = this.getShard(tenant);
+		shard.lock.lock();
+		try{
+			return shard.saveError;
+		}
+		finally{
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * Method to run a task with the schedule of a tenant on the calling thread, waiting for
+	 * any other task of the same tenant to finish first
+	 * @param tenant a String containing the name of the tenant
+	 * @param task a Task to be run with the tenant's schedule
+	 * @return the result of the task
+	 * @throws ExecutionException if the shard cannot be loaded or saved or the task fails
+	 * @throws InterruptedException if the thread is interrupted while waiting for the shard
+	 */
+	public <T> T execute(String tenant, Task<T> task) throws ExecutionException, InterruptedException{
+		Shard shard = this.getShard(tenant);
+		try{
+			return this.runTask(shard, task);
+		}
+		catch (InterruptedException ix){
+			throw ix;
+		}
+		catch (Exception e){
+			throw new ExecutionException(e);
+		}
+	}
+
+	/**
+	 * Method to run a task with the schedule of a tenant on the shared threads
+	 * @param tenant a String containing the name of the tenant
+	 * @param task a Task to be run with the tenant's schedule
+	 * @return a Future holding the result of the task once it has run
+	 */
+	public <T> Future<T> submit(String tenant, final Task<T> task){
+		final Shard shard = this.getShard(tenant);
+		return pool.submit(new Callable<T>(){
+			public T call() throws Exception{
+				return runTask(shard, task);
+			}
+		});
+	}
+
+	/**
+	 * Method to locate the shard of a tenant
+	 * @param tenant a String containing the name of the tenant
+	 * @return shard the Shard of the tenant
+	 * @throws IllegalArgumentException if the tenant is not known
+	 * @throws IllegalStateException if the registry has been closed
+	 */
+	private Shard getShard(String tenant){
+		if (closed){
+			throw new IllegalStateException("The registry has been closed");
+		}
+		Shard shard = tenant==null ? null : shards.get(tenant);
+		if (shard==null){
+			throw new IllegalArgumentException("Unknown tenant "+tenant);
+		}
+		return shard;
+	}
+
+	/**
+	 * Method to run a task while holding the lock of its shard, loading the shard first if
+	 * required and synchronising its store afterwards, even when the task fails part way.
+	 * Changes which cannot be stored never hide the outcome of the task, but are reported
+	 * by getSaveError and keep the shard loaded.
+	 * @param shard the Shard of the tenant
+	 * @param task a Task to be run with the tenant's schedule
+	 * @return the result of the task
+	 * @throws Exception if the shard cannot be loaded or the task fails
+	 */
+	private <T> T runTask(Shard shard, Task<T> task) throws Exception{
+		shard.lock.lockInterruptibly();
+		try{
+			if (closed){
+				throw new IllegalStateException("The registry has been closed");
+			}
+			MatchSchedule schedule = this.load(shard);
+			try{
+				return task.run(schedule);
+			}
+			finally{
+				this.save(shard);
+				shard.lastUsed = System.currentTimeMillis();
+			}
+		}
+		finally{
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * Method to load the schedule of a shard if it is not already loaded. The store is
+	 * created from the referees input file the first time the tenant is used.
+	 * Called while the lock of the shard is held.
+	 * @param shard the Shard of the tenant
+	 * @return schedule the MatchSchedule of the tenant
+	 * @throws IOException if the files of the tenant cannot be read
+	 */
+	private MatchSchedule load(Shard shard) throws IOException{
+		if (shard.schedule!=null){
+			return shard.schedule;
+		}
+		Path regionsFile = shard.directory.resolve(REGIONS_FILE);
+		RegionTopology regions = Files.exists(regionsFile)
+				? RegionTopology.fromFile(regionsFile.toString()) : RegionTopology.defaultTopology();
+		Path storeFile = shard.directory.resolve(STORE_FILE);
+		boolean newStore = !Files.exists(storeFile)||Files.size(storeFile)==0;
+		RecordStore store = RecordStore.openFile(storeFile.toString(), refereeCapacity, matchCapacity);
+		MatchSchedule schedule;
+		try{
+			schedule = new MatchSchedule(regions, store);
+			Path refereesFile = shard.directory.resolve(REFEREES_FILE);
+			if (newStore&&Files.exists(refereesFile)){
+				// As in the application, the lines which can be read are imported and the rest reported
+				ImportPipeline.Report report = new ScheduleImporter(schedule).importReferees(refereesFile.toString());
+				shard.importProblems = report.getNumberOfErrors()>0 ? report.getErrors() : null;
+				schedule.synchroniseStore();
+			}
+		}
+		catch (IOException|RuntimeException e){
+			store.close();
+			if (newStore){
+				// The next use of the tenant imports the referees input file again
+				Files.deleteIfExists(storeFile);
+			}
+			throw e;
+		}
+		shard.schedule = schedule;
+		shard.savedModificationCount = schedule.getModificationCount();
+		loadedShards.incrementAndGet();
+		return schedule;
+	}
+
+	/**
+	 * Method to synchronise the store of a shard with its schedule if the records or settings
+	 * of the schedule have changed since it was loaded or last synchronised. The records are
+	 * written as the schedule changes, so only the order of the records and the settings are
+	 * written here. Called while the lock of the shard is held.
+	 * @param shard the Shard of the tenant
+	 * @return saved a boolean denoting whether the store holds every change to the schedule
+	 */
+	private boolean save(Shard shard){
+		boolean saved = true;
+		MatchSchedule schedule = shard.schedule;
+		if (schedule!=null&&(schedule.getModificationCount()!=shard.savedModificationCount
+				||schedule.haveStoredSettingsChanged())){
+			try{
+				schedule.synchroniseStore();
+				shard.savedModificationCount = schedule.getModificationCount();
+				shard.saveError = null;
+			}
+			catch (IllegalArgumentException iax){
+				shard.saveError = iax.getMessage();
+				saved = false;
+			}
+		}
+		return saved;
+	}
+
+	/**
+	 * Method to unload the schedule of a shard, leaving its store to be loaded on next use.
+	 * A shard whose store cannot hold its whole schedule is only unloaded when forced.
+	 * Called while the lock of the shard is held.
+	 * @param shard the Shard of the tenant
+	 * @param force a boolean denoting whether the shard is unloaded even if state would be lost
+	 * @return unloaded a boolean denoting whether the shard was unloaded
+	 */
+	private boolean unload(Shard shard, boolean force){
+		boolean unloaded = false;
+		if (shard.schedule!=null&&(this.save(shard)&&shard.schedule.isRestorableFromStore()||force)){
+			RecordStore store = shard.schedule.getRecordStore();
+			shard.schedule = null;
+			loadedShards.decrementAndGet();
+			try{
+				store.close();
+			}
+			catch (IOException e){
+				// The records have already been forced to the file, which is reopened on next use
+			}
+			unloaded = true;
+		}
+		return unloaded;
+	}
+
+	/**
+	 * Method to unload the schedule of a tenant, waiting for any task of the tenant to finish
+	 * @param tenant a String containing the name of the tenant
+	 * @return a boolean denoting whether the tenant's shard was unloaded, which it is not if it
+	 * was not loaded or its store cannot hold its whole schedule
+	 */
+	public boolean unload(String tenant){
+		Shard shard = this.getShard(tenant);
+		shard.lock.lock();
+		try{
+			return this.unload(shard, false);
+		}
+		finally{
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * Method to unload every shard which has not been used for a given time. Shards with a
+	 * task running or waiting, or whose store cannot hold the whole schedule, are left loaded.
+	 * @param idleMillis a long containing the number of milliseconds a shard must have gone unused
+	 * @return evicted an int containing the number of shards unloaded
+	 */
+	public int evictIdle(long idleMillis){
+		int evicted = 0;
+		long now = System.currentTimeMillis();
+		for (Shard shard: shards.values()){
+			if (now-shard.lastUsed>=idleMillis&&shard.lock.tryLock()){
+				try{
+					// Another task may have finished since the time was read
+					if (now-shard.lastUsed>=idleMillis&&!shard.lock.hasQueuedThreads()&&this.unload(shard, false)){
+						evicted++;
+					}
+				}
+				finally{
+					shard.lock.unlock();
+				}
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Method to stop the shared threads and unload every shard once its running task has
+	 * finished, storing all that its store can hold. The registry must not be used afterwards.
+	 * @throws InterruptedException if the thread is interrupted while waiting for the tasks
+	 */
+	public void close() throws InterruptedException{
+		closed = true;
+		// Running tasks finish and those still waiting are refused before the shards are unloaded
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		for (Shard shard: shards.values()){
+			shard.lock.lock();
+			try{
+				this.unload(shard, true);
+			}
+			finally{
+				shard.lock.unlock();
+			}
+		}
+	}
+}
@@ -1,35 +1,119 @@
 /** 
  * Defines an object representing a single JavaBall match
+ *
+ * The venue, level and week of a match of a schedule backed by a RecordStore are held
+ * in the match's record rather than on the heap, and the officials are written to the
+ * record whenever they change.
  */
 public class Match {
     
 	private String location; // The geographical location of the match
 	private String matchLevel; // The level allocated to the match i.e. Junior or Senior
-	private Referee ref1; // The first referee allocated to the match
-	private Referee ref2; // The second referee allocated to the match
+	private String[] roles; // The role of each official of the match's crew, e.g. Referee or Fourth Official
+	private Referee[] officials; // The official allocated to each role of the crew
 	private int weekNo;	// The week the match has been allocated to
+	private RecordStore store; // The store holding the match's record, or null if the match is held on the heap
+	private int storeSlot; // The position of the match's record in the store
+	
+	private static final String[] DEFAULT_ROLES = {"Referee", "Referee"}; // The crew of a match unless configured otherwise
+	private static final ColumnFormatter ROW_LAYOUT =
+			new ColumnFormatter(" %-10d %-12s %-12s %-20s %-20s"); // The columns of the match's row in reports
+	private static final ColumnFormatter EXTRA_OFFICIAL_LAYOUT =
+			new ColumnFormatter(" %-20s"); // The column of each official after the first two
 	
 	/**
-	 * Constructor
+	 * Constructor for a match officiated by two referees
 	 * @param area a String representing the geographical area hosting the match
 	 * @param level a String representing the level of the participating teams
 	 * @param week an integer representing the scheduled week of the match
 	 */
 	public Match (String area, String level, int week){
+		this(area, level, week, DEFAULT_ROLES);
+	}
+	
+	/**
+	 * Constructor for a match officiated by a crew of a given size and role mix
+	 * @param area a String representing the geographical area hosting the match
+	 * @param level a String representing the level of the participating teams
+	 * @param week an integer representing the scheduled week of the match
+	 * @param crewRoles an array containing the role of each official of the crew, at least two
+	 * @throws IllegalArgumentException if the crew has fewer than two officials
+	 */
+	public Match (String area, String level, int week, String[] crewRoles){
+		if (crewRoles.length<DEFAULT_ROLES.length){
+			throw new IllegalArgumentException("A match requires at least "+DEFAULT_ROLES.length+" officials");
+		}
 		location = area;
 		matchLevel = level;
 		weekNo = week;
-		ref1 = null; 
-		ref2 = null;
+		roles = crewRoles.clone();
+		officials = new Referee[roles.length];
 		// By default, no referees are allocated to the match
 	}
+
+	/**
+	 * Constructor for a match already held in a record of a store
+	 * @param recordStore a RecordStore holding the match's record
+	 * @param slot an int containing the position of the record
+	 * @param crew an array containing the officials named by the record, in order
+	 */
+	Match (RecordStore recordStore, int slot, Referee[] crew){
+		store = recordStore;
+		storeSlot = slot;
+		roles = DEFAULT_ROLES;
+		officials = crew.clone();
+	}
+
+	/**
+	 * Method to move the venue, level and week of the match into a record of a store, after
+	 * which they are read from the record and the officials are written to it as they change
+	 * @param recordStore a RecordStore to hold the match's record
+	 * @param slot an int containing the position of the record
+	 * @throws IllegalArgumentException if a detail of the match does not fit the record
+	 */
+	void moveToStore(RecordStore recordStore, int slot){
+		recordStore.writeMatch(slot, this);
+		store = recordStore;
+		storeSlot = slot;
+		location = null;
+		matchLevel = null;
+	}
+
+	/**
+	 * Method to move the details of the match from its record back onto the heap, e.g. when
+	 * the match is removed from a schedule backed by a store
+	 */
+	void moveFromStore(){
+		if (store!=null){
+			location = store.readMatchLocation(storeSlot);
+			matchLevel = store.readMatchLevel(storeSlot);
+			weekNo = store.readMatchWeek(storeSlot);
+			store = null;
+		}
+	}
+
+	/**
+	 * Accessor method for the position of the match's record in the store holding it
+	 * @return storeSlot an int containing the position of the record
+	 */
+	int getStoreSlot(){
+		return storeSlot;
+	}
+
+	/**
+	 * Mutator method for the position of the match's record, once the store has moved it
+	 * @param slot an int containing the new position of the record
+	 */
+	void setStoreSlot(int slot){
+		storeSlot = slot;
+	}
 	
 	/**
 	 * Accessor method for the match venue
 	 * @return location a String representing the geographical location of the host stadium
 	 */
 	public String getLocation (){
-		return location;
+		return store!=null ? store.readMatchLocation(storeSlot) : location;
 	}
 	
 	/**
@@ -37,7 +121,7 @@ public class Match {
 	 * @return matchLevel a String representing the level of the participants (Junior/Senior)
 	 */
 	public String getMatchLevel(){
-		return matchLevel;
+		return store!=null ? store.readMatchLevel(storeSlot) : matchLevel;
 	}
 	
 	/**
@@ -45,26 +129,85 @@ public class Match {
 	 * @return weekNo an integer representing the week the match is scheduled for
 	 */
 	public int getWeekNo (){
-		return weekNo;
+		return store!=null ? store.readMatchWeek(storeSlot) : weekNo;
 	}
 	
-	// Note, there are no mutator methods for the location, matchLevel or weekNo as these cannot be
-	// edited once a match has been scheduled.
+	// Note, there are no mutator methods for the location, matchLevel, weekNo or crew roles as
+	// these cannot be edited once a match has been scheduled.
+	
+	/**
+	 * Accessor method for the number of officials the match requires
+	 * @return an int containing the size of the crew
+	 */
+	public int getCrewSize (){
+		return officials.length;
+	}
+	
+	/**
+	 * Accessor method for the role of a position in the crew
+	 * @param position an int containing the position in the crew, starting from 0
+	 * @return a String containing the role, e.g. Referee or Assistant Referee
+	 */
+	public String getRole (int position){
+		return roles[position];
+	}
+	
+	/**
+	 * Accessor method for the official allocated to a position in the crew
+	 * @param position an int containing the position in the crew, starting from 0
+	 * @return a Referee object, or null if no official has been allocated
+	 */
+	public Referee getOfficial (int position){
+		return officials[position];
+	}
+	
+	/**
+	 * Mutator method to set the official allocated to a position in the crew
+	 * @param position an int containing the position in the crew, starting from 0
+	 * @param ref a Referee object representing the official, or null
+	 */
+	public void setOfficial (int position, Referee ref){
+		if (store!=null){
+			store.writeMatchOfficial(storeSlot, position, ref);
+		}
+		officials[position] = ref;
+	}
+	
+	/**
+	 * Accessor method for every official allocated to the match
+	 * @return an array containing the official of each position in the crew, any of which may be null
+	 */
+	public Referee[] getOfficials (){
+		return officials.clone();
+	}
+	
+	/**
+	 * Method to find the position of an official in the crew
+	 * @param ref a Referee object
+	 * @return position an int containing the position of the official, or -1 if they do not officiate the match
+	 */
+	public int getPositionOf (Referee ref){
+		int position = officials.length-1;
+		while (position>=0&&officials[position]!=ref){
+			position--;
+		}
+		return position;
+	}
 	
 	/**
 	 * Accessor method for the first referee allocated to the match
-	 * @return ref1 a Referee object representing the first official allocated to a match
+	 * @return a Referee object representing the first official allocated to a match
 	 */
 	public Referee getReferee1 (){
-		return ref1;
+		return officials[0];
 	}
 	
 	/**
 	 * Accessor method for the second referee allocated to the match
-	 * @return ref2 a Referee object representing the second official allocated to a match
+	 * @return a Referee object representing the second official allocated to a match
 	 */
 	public Referee getReferee2(){
-		return ref2;
+		return officials[1];
 	}
 	
 	/**
@@ -72,7 +215,7 @@ public class Match {
 	 * @param ref a Referee object representing the first official allocated to the match
 	 */
 	public void setReferee1 (Referee ref){
-		ref1 = ref;
+		this.setOfficial(0, ref);
 	}
 	
 	/** 	
@@ -80,7 +223,7 @@ public class Match {
 	 * @param ref a Referee object representing the second official allocated to the match 
 	 */
 	public void setReferee2 (Referee ref){
-		ref2 = ref;
+		this.setOfficial(1, ref);
 	}
 	
 	/**
@@ -90,11 +233,35 @@ public class Match {
 	 * presentation in the user interface
 	 */
 	public String toString (){
-		String matchDescription = "";
-		if (ref1!=null&&ref2!=null){
-			matchDescription = String.format(" %-10d %-12s %-12s %-20s %-20s\n", weekNo, matchLevel,
-					location, ref1.getFullName(), ref2.getFullName());
-		}
+		StringBuilder row = new StringBuilder();
+		this.appendRow(row);
+		String matchDescription = row.toString();
 		return matchDescription;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Method to write the details of the match, as returned by toString, without creating
+	 * any intermediate String. Officials after the first two are written in further columns.
+	 * Nothing is written until the whole crew is allocated.
+	 * @param out a StringBuilder the details are appended to
+	 */
+	public void appendRow(StringBuilder out){
+		for (Referee ref: officials){
+			if (ref==null){
+				return;
+			}
+		}
+		ROW_LAYOUT.appendField(out, 0, this.getWeekNo());
+		ROW_LAYOUT.appendField(out, 1, this.getMatchLevel());
+		ROW_LAYOUT.appendField(out, 2, this.getLocation());
+		ROW_LAYOUT.appendField(out, 3, officials[0].getRefFirstName(), officials[0].getRefSurname());
+		ROW_LAYOUT.appendField(out, 4, officials[1].getRefFirstName(), officials[1].getRefSurname());
+		ROW_LAYOUT.appendEnd(out);
+		for (int position = 2; position<officials.length; position++){
+			EXTRA_OFFICIAL_LAYOUT.appendField(out, 0, officials[position].getRefFirstName(),
+					officials[position].getRefSurname());
+			EXTRA_OFFICIAL_LAYOUT.appendEnd(out);
+		}
+		out.append('\n');
+	}
+}
@@ -12,7 +12,7 @@ import java.util.*;
 public class MatchGUI extends JFrame implements ActionListener {
 	
 	//GUI instance variables
-	private JButton addMatchButton, removeMatchButton;
+	private JButton addMatchButton, removeMatchButton, undoButton, redoButton, rebalanceButton;
 	private JTextArea mathchViewArea, existingRefereesArea;
 	private JComboBox<Integer> weekNumberBox;
 	private JComboBox<String> levelBox, locationBox; 
@@ -29,9 +29,14 @@ public class MatchGUI extends JFrame implements ActionListener {
 	private final int MATCHES_AREA_HEIGHT = 8;
 	private final int TEXTAREA_WIDTH = 95;
 	private final int FONT_SIZE = 14;
-	private final int SOUTH_GRID_ROWS = 4;
+	private final int SOUTH_GRID_ROWS = 6;
+	private final long REBALANCE_TIME_BUDGET = 2000; // the milliseconds spent searching for a better allocation
 	private final int SOUTH_GRID_COLUMNS = 2;
 	
+	/** Layouts of the headings of the displays **/
+	private static final ColumnFormatter AVAILABILITY_HEADING = new ColumnFormatter("%84s\n");
+	private static final ColumnFormatter MATCH_HEADINGS = new ColumnFormatter(" %-10s %-12s %-12s %-20s %-20s\n");
+	
 	/**
 	 * Constructor for the MatchGUI
 	 * @param schedule a MatchSchedule object which manages a list of matches and referees
@@ -132,9 +137,9 @@ public class MatchGUI extends JFrame implements ActionListener {
 		
 		//Create comboBox for different match locations
 		locationBox = new JComboBox<String>();
-		locationBox.addItem("North");
-		locationBox.addItem("Central");
-		locationBox.addItem("South");
+		for (String region: matchSchedule.getRegionTopology().getRegionNames()){
+			locationBox.addItem(region);
+		}
 		south.add(locationBox);
 
 		//creating add and remove match buttons for panel
@@ -144,6 +149,19 @@ public class MatchGUI extends JFrame implements ActionListener {
 		removeMatchButton = new JButton("Remove Match");
 		removeMatchButton.addActionListener(this);//adding action listener to button
 		south.add(removeMatchButton);
+		
+		//creating undo and redo buttons to reverse mistaken changes to the schedule
+		undoButton = new JButton("Undo");
+		undoButton.addActionListener(this);
+		south.add(undoButton);
+		redoButton = new JButton("Redo");
+		redoButton.addActionListener(this);
+		south.add(redoButton);
+		
+		//creating a button to even out the match allocations of the referees
+		rebalanceButton = new JButton("Rebalance Allocations");
+		rebalanceButton.addActionListener(this);
+		south.add(rebalanceButton);
 
 		//Add south panel to GUI
 		add(south, BorderLayout.SOUTH);	
@@ -165,13 +183,12 @@ public class MatchGUI extends JFrame implements ActionListener {
 			//Add the headers to the display of referee details
 			String heading = "";
 			// The first line consists of the "Availability" heading
-			heading = String.format("%84s\n", "Availability");
+			heading = AVAILABILITY_HEADING.format("Availability");
 			existingRefereesArea.append(heading);
 			// The second line of the heading aligns the names of the referee attributes
-			// into distinct columns
-			heading = String.format(" %-5s%-13s%-10s%-15s%-14s%-8s%5s%11s%9s\n", 
-					"ID", "First Name", "Surname", "Qualification", "Allocations", 
-					"Home", "North", "Central", "South");
+			// and the regions of the schedule into distinct columns
+			java.util.List<String> regionNames = matchSchedule.getRegionTopology().getRegionNames();
+			heading = Referee.formatHeadings(regionNames);
 			existingRefereesArea.append(heading);
 			//add a line break between the heading and the data set
 			for (int index = 0; index<TEXTAREA_WIDTH; index++){
@@ -194,10 +211,12 @@ public class MatchGUI extends JFrame implements ActionListener {
 			// Retrieve the list of referees sorted by suitability for the match.
 			// For each referee display their attributes in columns
 			Referee[] display = matchSchedule.determineSuitableRefs(matchLocation, matchLevel);
+			ColumnFormatter rowLayout = Referee.rowLayout(regionNames);
+			StringBuilder rows = new StringBuilder();
 			for (Referee ref: display) {
-				String existingMatch = ref.toString();
-				existingRefereesArea.append(existingMatch);
+				ref.appendRow(rows, rowLayout, regionNames);
 			}
+			existingRefereesArea.append(rows.toString());
 			
 		}
 		else{
@@ -207,40 +226,120 @@ public class MatchGUI extends JFrame implements ActionListener {
 	}
 	
 	/**
-	 * Method to determine whether the selected week has a matched scheduled
+	 * Method to determine whether another match may be scheduled in the selected week
 	 * @return available a boolean denoting the availability of the slot for scheduling
 	 */
 	public boolean availableWeek(){
 		boolean available = false;
 		// Determine which week the user wishes to schedule/remove a match
 		int matchWeek = (Integer) weekNumberBox.getSelectedItem();
-		// Check whether a match has been scheduled for the selected week
-		if (matchSchedule.getMatchByWeek(matchWeek)==null){
+		// Check whether the selected week has room for another match
+		if (matchSchedule.getMatchesByWeek(matchWeek).size()<matchSchedule.getMaximumMatchesPerWeek()){
 			available = true;
 		}
 		return available;
 	}
 	
 	/**
-	 * Method to remove a match from the existing schedule
+	 * Method to remove a match from the existing schedule. Where several matches are
+	 * scheduled in the selected week, the match at the selected venue and level is removed.
 	 */
 	public void removeMatch(){
+		//Get the match details the user has selected from the comboBoxes
+		int matchWeek = (Integer) weekNumberBox.getSelectedItem();
+		String matchLevel = (String) levelBox.getSelectedItem();
+		String matchLocation = (String) locationBox.getSelectedItem();
+		java.util.List<Match> weekMatches = matchSchedule.getMatchesByWeek(matchWeek);
 		
-		// Determine whether a match has been scheduled for the week selected
-		if (!availableWeek()){
-			//Get the week number the user has selected from comboBox
-			int matchWeek = (Integer) weekNumberBox.getSelectedItem();
+		// Determine which of the matches scheduled for the week selected is to be removed
+		Match fixture = null;
+		if (weekMatches.size()==1){
+			fixture = weekMatches.get(0);
+		}
+		for (Match weekMatch: weekMatches){
+			if (weekMatch.getMatchLevel().equals(matchLevel)&&weekMatch.getLocation().equals(matchLocation)){
+				fixture = weekMatch;
+			}
+		}
+		if (weekMatches.isEmpty()){
+			JOptionPane.showMessageDialog(null, "No match has been scheduled for this week", 
+					"Scheduling Error", JOptionPane.ERROR_MESSAGE);
+		}
+		else if (fixture==null){
+			JOptionPane.showMessageDialog(null, "No match at the selected venue and level has been scheduled for this week", 
+					"Scheduling Error", JOptionPane.ERROR_MESSAGE);
+		}
+		else {
 			//Remove the match from the schedule
-			matchSchedule.removeMatchFromSchedule(matchWeek);
+			matchSchedule.removeMatch(fixture);
 			// Update the display of matches to reflect the removal of a match
 			updateMatchDisplay();
 		}
-		else {
-			JOptionPane.showMessageDialog(null, "No match has been scheduled for this week", 
+	}
+	
+	/**
+	 * Method to undo or redo the most recent change to the schedule
+	 * @param undo a boolean denoting whether the change is to be undone rather than redone
+	 */
+	public void undoOrRedo(boolean undo){
+		boolean applied;
+		if (undo){
+			applied = matchSchedule.undo();
+		}
+		else{
+			applied = matchSchedule.redo();
+		}
+		if (applied){
+			// Update the display of matches to reflect the restored schedule
+			updateMatchDisplay();
+		}
+		else{
+			JOptionPane.showMessageDialog(null, "There are no changes to "+(undo ? "undo" : "redo"), 
 					"Scheduling Error", JOptionPane.ERROR_MESSAGE);
 		}
 	}
 	
+	/**
+	 * Method to move officials between the scheduled matches so that the referees'
+	 * match allocations are spread more evenly. The search runs in the background and
+	 * its result is applied on the event dispatch thread once it finishes.
+	 */
+	public void rebalanceAllocations(){
+		final ScheduleRebalancer rebalancer = new ScheduleRebalancer(matchSchedule);
+		rebalancer.prepare();
+		// Only one search runs at a time
+		rebalanceButton.setEnabled(false);
+		new SwingWorker<Boolean, Void>(){
+			protected Boolean doInBackground(){
+				return rebalancer.search(REBALANCE_TIME_BUDGET);
+			}
+			protected void done(){
+				rebalanceButton.setEnabled(true);
+				boolean rebalanced = false;
+				try{
+					// The allocation is not applied if the schedule was altered during the search
+					rebalanced = this.get()&&rebalancer.apply();
+				}
+				catch (InterruptedException ix){
+					Thread.currentThread().interrupt();
+				}
+				catch (java.util.concurrent.ExecutionException ex){
+					JOptionPane.showMessageDialog(null, "Rebalancing failed: "+ex.getCause().getMessage(), 
+							"Rebalancing", JOptionPane.ERROR_MESSAGE);
+					return;
+				}
+				if (rebalanced){
+					// Update the display of matches to reflect the new officials
+					updateMatchDisplay();
+				}
+				else{
+					JOptionPane.showMessageDialog(null, "No better allocation of referees was found", 
+							"Rebalancing", JOptionPane.INFORMATION_MESSAGE);
+				}
+			}
+		}.execute();
+	}
+	
 	/**
 	 * Method to update the display of matches scheduled
 	 */
@@ -253,8 +352,7 @@ public class MatchGUI extends JFrame implements ActionListener {
 		String heading = "";
 		mathchViewArea.setText(heading);
 		// The first line of the heading reflect the attributes stored about each match
-		heading = String.format(" %-10s %-12s %-12s %-20s %-20s\n", 
-				"Week", "Level", "Area", "Referee 1", "Referee 2");
+		heading = MATCH_HEADINGS.format("Week", "Level", "Area", "Referee 1", "Referee 2");
 		mathchViewArea.append(heading);
 		//adding a line break between the heading and the data set
 		for (int index = 0; index<TEXTAREA_WIDTH; index++){
@@ -284,5 +382,16 @@ public class MatchGUI extends JFrame implements ActionListener {
 		else if (e.getSource() == removeMatchButton){
 			removeMatch();
 		}
+		//if undo or redo is pressed the most recent change is reversed or reapplied
+		else if (e.getSource() == undoButton){
+			undoOrRedo(true);
+		}
+		else if (e.getSource() == redoButton){
+			undoOrRedo(false);
+		}
+		//if rebalance is pressed the officials are moved between matches to even out allocations
+		else if (e.getSource() == rebalanceButton){
+			rebalanceAllocations();
+		}
 	}
 }
\ No newline at end of file
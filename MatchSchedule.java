@@ -1,4 +1,6 @@
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
  * Maintains a list of Referee and Match objects for the 
@@ -8,17 +10,293 @@ public class MatchSchedule{
 	
 	private List<Match> matchSchedule; // a list of matches in the season
 	private List<Referee> officials; // a list of all potential referees for matches
+	private RecordStore store; // an optional off-heap store holding the details of the referees and matches, or null
+	private List<Referee> storedReferees; // the referees in the order of their records in the store, or null
+	private List<Match> storedMatches; // the matches in the order of their records in the store, or null
+	private RegionTopology regions; // the geographical regions matches are played in and their proximity
+	private Map<String, Map<String, Referee[]>> suitableRefsCache; // rankings of suitable referees keyed by match level, then venue
+	private long modificationCount; // the number of changes made to the referees and matches
+	private ScheduleHistory history; // the changes made to the schedule which may be undone
+	private Map<Integer, List<Match>> matchesByWeek; // the matches scheduled in each week
+	private Map<Referee, List<Match>> matchesByReferee; // the scheduled matches each referee officiates
+	private RefereeIndex refereeIndex; // the referees indexed by qualification, region and allocations
+	private PrefixTrie<Referee> refereeNames; // the referees indexed by first name, surname, full name and ID
+	private int maximumMatchesPerWeek; // the number of matches which may be scheduled in a single week
+	private int maximumNumberOfReferees; // the number of referees which may be added to the schedule
+	private ScheduleEventDispatcher events; // delivers the changes made to the schedule to its listeners
+	private Map<String, String[]> crewRoles; // the roles of the officials of matches at each level
+	private RefereeLocator refereeLocator; // the referees indexed by the position of their homes, or null until next needed
+	private Map<Referee, Integer> refereePositions; // the position of each referee in the list of referees, or null until next needed
+	private AllocationStrategy allocationStrategy; // chooses the officials of each match added
+	private AllocationHistogram allocationHistogram; // the number of referees holding each number of match allocations
+	private final AtomicLong rankingCacheHits; // the number of selections served from a cached ranking
+	private final AtomicLong rankingCacheMisses; // the number of selections for which no ranking was cached
 	
-	public final int MAXIMUM_NUMBER_OF_OFFICIALS = 12; // the maximum number of officials that can be stored
-	private final int REFEREES_PER_MATCH = 2; // the number of officials required to schedule a match
+	public final int MAXIMUM_NUMBER_OF_OFFICIALS = 12; // the number of officials the user interface manages, the limit of a schedule unless configured otherwise
+	final int REFEREES_PER_MATCH = 2; // the number of officials required to schedule a match unless configured otherwise
 	public final int WEEKS_IN_A_SEASON = 52; // the number of available weeks in a season
+	public final int TRAVEL_BAND_KILOMETRES = 20; // referees whose journeys to a venue fall in the same band of this width are equally near
+	private static final ColumnFormatter REPORT_LAYOUT =
+			new ColumnFormatter("%s %s %s %s %d %s "); // the columns of each referee's line of the report
 
 	/**
 	 * Constructor for the MatchSchedule
 	 */
 	public MatchSchedule (){
+		this(RegionTopology.defaultTopology());
+	}
+
+	/**
+	 * Constructor for a MatchSchedule covering a configured set of regions
+	 * @param topology a RegionTopology defining the regions and the distances between them
+	 */
+	public MatchSchedule (RegionTopology topology){
 		matchSchedule = new ArrayList<Match>();
 		officials = new ArrayList<Referee>();
+		store = null;
+		storedReferees = null;
+		storedMatches = null;
+		regions = topology;
+		suitableRefsCache = new HashMap<String, Map<String, Referee[]>>();
+		history = new ScheduleHistory();
+		matchesByWeek = new HashMap<Integer, List<Match>>();
+		matchesByReferee = new HashMap<Referee, List<Match>>();
+		refereeIndex = new RefereeIndex();
+		refereeNames = new PrefixTrie<Referee>();
+		maximumMatchesPerWeek = 1;
+		maximumNumberOfReferees = MAXIMUM_NUMBER_OF_OFFICIALS;
+		events = new ScheduleEventDispatcher();
+		crewRoles = new HashMap<String, String[]>();
+		refereeLocator = null;
+		allocationStrategy = AllocationStrategies.greedy();
+		allocationHistogram = new AllocationHistogram();
+		rankingCacheHits = new AtomicLong();
+		rankingCacheMisses = new AtomicLong();
+	}
+
+	/**
+	 * Constructor for a MatchSchedule backed by an off-heap store. The details of the
+	 * referees and matches are read from and written to their records in the store, so
+	 * only a handle for each record and the indexes of the schedule are held on the heap.
+	 * @param recordStore a RecordStore containing the referees and matches of the season
+	 */
+	public MatchSchedule (RecordStore recordStore){
+		this(RegionTopology.defaultTopology(), recordStore);
+	}
+
+	/**
+	 * Constructor for a MatchSchedule covering a configured set of regions and backed by
+	 * an off-heap store. The details of the referees and matches are read from and written
+	 * to their records in the store, and referees and matches added to the schedule are
+	 * moved into the store, so only a handle for each record and the indexes of the schedule
+	 * are held on the heap. The records are in use as soon as they are written, although
+	 * synchroniseStore must be called before the store is closed to keep the order of the
+	 * referees and matches and the settings of the schedule.
+	 * @param topology a RegionTopology defining the regions and the distances between them
+	 * @param recordStore a RecordStore containing the referees and matches of the season
+	 */
+	public MatchSchedule (RegionTopology topology, RecordStore recordStore){
+		this(topology);
+		store = recordStore;
+		storedReferees = new ArrayList<Referee>();
+		storedMatches = new ArrayList<Match>();
+		// The settings of the schedule are restored before its records
+		maximumMatchesPerWeek = Math.max(1, store.getMaximumMatchesPerWeek());
+		// a schedule backed by a store holds as many referees as the store has records for
+		maximumNumberOfReferees = store.getRefereeCapacity();
+		if (!store.getAllocationStrategyName().isEmpty()){
+			allocationStrategy = AllocationStrategies.named(store.getAllocationStrategyName());
+		}
+		// The referees must be indexed first so that the officials of each match can be located
+		for (int slot = 0; slot<store.getRefereeCount(); slot++){
+			Referee ref = new Referee(store, slot, regions);
+			storedReferees.add(ref);
+			officials.add(ref);
+			refereeIndex.add(ref);
+			allocationHistogram.add(ref.getMatchAllocations());
+			this.indexNames(ref, true);
+		}
+		// The match allocations and booked weeks of each referee are stored with the
+		// referee so the matches are not allocated a second time
+		for (int slot = 0; slot<store.getMatchCount(); slot++){
+			Referee[] crew = new Referee[REFEREES_PER_MATCH];
+			for (int position = 0; position<crew.length; position++){
+				crew[position] = this.getRefereeByID(store.readMatchOfficialID(slot, position));
+			}
+			Match fixture = new Match(store, slot, crew);
+			storedMatches.add(fixture);
+			matchSchedule.add(fixture);
+			this.getMatchesByWeek(fixture.getWeekNo(), true).add(fixture);
+			for (int position = 0; position<fixture.getCrewSize(); position++){
+				this.indexOfficial(fixture, fixture.getOfficial(position), true);
+			}
+		}
+	}
+
+	/**
+	 * Accessor method for the off-heap store backing the schedule
+	 * @return store a RecordStore or null if the schedule is held only on the heap
+	 */
+	public RecordStore getRecordStore(){
+		return store;
+	}
+
+	/**
+	 * Method to bring the off-heap store up to date with the schedule and force it to the
+	 * disk. The details of the referees and matches are written to their records as they
+	 * change, so only the order of the records and the settings of the schedule are written:
+	 * the records are put in the order of the lists of referees and matches, so that a
+	 * schedule loaded from the store ranks equally suitable referees in the same order, and
+	 * the number of matches each week and the allocation strategy are stored, although a
+	 * strategy not created by AllocationStrategies is stored as the strategy of a new schedule.
+	 * @return synchronised a boolean denoting whether the schedule is backed by a store
+	 * @throws IllegalArgumentException if the name of the allocation strategy does not fit the store
+	 */
+	public boolean synchroniseStore(){
+		boolean synchronised = false;
+		if (store!=null){
+			String strategyName = this.getStoredStrategyName();
+			String problem = store.describeStrategyProblem(strategyName);
+			if (problem!=null){
+				throw new IllegalArgumentException("The schedule cannot be stored: "+problem);
+			}
+			// Each record is exchanged with the one in its position, so every record moves at most once
+			for (int position = 0; position<officials.size(); position++){
+				Referee ref = officials.get(position);
+				if (ref.getStoreSlot()!=position){
+					Referee displacedRef = storedReferees.get(position);
+					store.swapReferees(position, ref.getStoreSlot());
+					displacedRef.setStoreSlot(ref.getStoreSlot());
+					storedReferees.set(ref.getStoreSlot(), displacedRef);
+					ref.setStoreSlot(position);
+					storedReferees.set(position, ref);
+				}
+			}
+			for (int position = 0; position<matchSchedule.size(); position++){
+				Match fixture = matchSchedule.get(position);
+				if (fixture.getStoreSlot()!=position){
+					Match displacedFixture = storedMatches.get(position);
+					store.swapMatches(position, fixture.getStoreSlot());
+					displacedFixture.setStoreSlot(fixture.getStoreSlot());
+					storedMatches.set(fixture.getStoreSlot(), displacedFixture);
+					fixture.setStoreSlot(position);
+					storedMatches.set(position, fixture);
+				}
+			}
+			store.setMaximumMatchesPerWeek(maximumMatchesPerWeek);
+			store.setAllocationStrategyName(strategyName);
+			store.force();
+			synchronised = true;
+		}
+		return synchronised;
+	}
+
+	/**
+	 * Method to move a referee added to the schedule into the next free record of the store
+	 * @param ref a Referee object which fits the store
+	 */
+	private void storeReferee(Referee ref){
+		int slot = storedReferees.size();
+		ref.moveToStore(store, slot, regions);
+		storedReferees.add(ref);
+		store.setRefereeCount(slot+1);
+	}
+
+	/**
+	 * Method to move a referee removed from the schedule out of the store. The record in the
+	 * last slot in use takes the place of the referee's record, so the records stay contiguous.
+	 * @param ref a Referee object held in the store
+	 */
+	private void releaseReferee(Referee ref){
+		int slot = ref.getStoreSlot();
+		int lastSlot = storedReferees.size()-1;
+		ref.moveFromStore();
+		if (slot!=lastSlot){
+			Referee movedRef = storedReferees.get(lastSlot);
+			store.copyReferee(lastSlot, slot);
+			movedRef.setStoreSlot(slot);
+			storedReferees.set(slot, movedRef);
+		}
+		storedReferees.remove(lastSlot);
+		store.setRefereeCount(lastSlot);
+	}
+
+	/**
+	 * Method to move a match added to the schedule into the next free record of the store
+	 * @param fixture a Match object which fits the store
+	 */
+	private void storeMatch(Match fixture){
+		int slot = storedMatches.size();
+		fixture.moveToStore(store, slot);
+		storedMatches.add(fixture);
+		store.setMatchCount(slot+1);
+	}
+
+	/**
+	 * Method to move a match removed from the schedule out of the store, filling the gap
+	 * with the record in the last slot in use
+	 * @param fixture a Match object held in the store
+	 */
+	private void releaseMatch(Match fixture){
+		int slot = fixture.getStoreSlot();
+		int lastSlot = storedMatches.size()-1;
+		fixture.moveFromStore();
+		if (slot!=lastSlot){
+			Match movedFixture = storedMatches.get(lastSlot);
+			store.copyMatch(lastSlot, slot);
+			movedFixture.setStoreSlot(slot);
+			storedMatches.set(slot, movedFixture);
+		}
+		storedMatches.remove(lastSlot);
+		store.setMatchCount(lastSlot);
+	}
+
+	/**
+	 * Method to determine whether matches not yet scheduled fit the store backing the schedule
+	 * @param fixtures a Collection of Match objects to be added
+	 * @param removedMatches an int containing the number of scheduled matches removed before they are added
+	 * @return fits a boolean denoting whether the schedule is held only on the heap or every match fits the store
+	 */
+	boolean canStore(Collection<Match> fixtures, int removedMatches){
+		if (store==null){
+			return true;
+		}
+		boolean fits = storedMatches.size()-removedMatches+fixtures.size()<=store.getMatchCapacity();
+		for (Match fixture: fixtures){
+			if (store.describeMatchProblem(fixture)!=null){
+				fits = false;
+			}
+		}
+		return fits;
+	}
+
+	/**
+	 * Method to determine the name the allocation strategy is stored under
+	 * @return a String containing the name of the strategy, or an empty String for a strategy
+	 * not created by AllocationStrategies
+	 */
+	private String getStoredStrategyName(){
+		return AllocationStrategies.isProvided(allocationStrategy) ? allocationStrategy.getName() : "";
+	}
+
+	/**
+	 * Method to determine whether the settings of the schedule have changed since the store
+	 * was last synchronised. Changes to the settings do not alter the modification count.
+	 * @return a boolean denoting whether the store holds settings other than those of the schedule
+	 */
+	public boolean haveStoredSettingsChanged(){
+		return store!=null&&(store.getMaximumMatchesPerWeek()!=maximumMatchesPerWeek
+				||!store.getAllocationStrategyName().equals(this.getStoredStrategyName()));
+	}
+
+	/**
+	 * Method to determine whether the store holds every setting of the schedule, so that
+	 * a schedule loaded from the store once it has been synchronised is the same as this one
+	 * @return a boolean denoting whether the schedule is backed by a store which can hold its settings
+	 */
+	public boolean isRestorableFromStore(){
+		// The names of the roles of each crew and strategies created elsewhere are not stored
+		return store!=null&&crewRoles.isEmpty()&&AllocationStrategies.isProvided(allocationStrategy);
 	}
 
 	/**
@@ -31,405 +309,2109 @@ public class MatchSchedule{
 	}
 
 	/**
-	 * Accessor method for the number of referees currently in the system
-	 * @return officials.size() an integer containing the number of stored referees
+	 * Accessor method for the number of referees currently in the system
+	 * @return officials.size() an integer containing the number of stored referees
+	 */
+	public int getNumberOfReferees(){
+		return officials.size();
+	}
+	
+	/**
+	 * Accessor method for the regions in which matches are played
+	 * @return regions a RegionTopology defining the regions and the distances between them
+	 */
+	public RegionTopology getRegionTopology(){
+		return regions;
+	}
+
+	/**
+	 * Accessor method for the number of matches which may be scheduled in a single week
+	 * @return maximumMatchesPerWeek an int containing the number of matches per week
+	 */
+	public int getMaximumMatchesPerWeek(){
+		return maximumMatchesPerWeek;
+	}
+
+	/**
+	 * Mutator method for the number of matches which may be scheduled in a single week.
+	 * A referee may still officiate only one match in any week.
+	 * @param matchesPerWeek an int containing the number of matches per week
+	 */
+	public void setMaximumMatchesPerWeek(int matchesPerWeek){
+		if (matchesPerWeek<1){
+			throw new IllegalArgumentException("At least one match must be permitted each week");
+		}
+		maximumMatchesPerWeek = matchesPerWeek;
+	}
+
+	/**
+	 * Accessor method for the number of referees which may be added to the schedule
+	 * @return maximumNumberOfReferees an int containing the number of referees
+	 */
+	public int getMaximumNumberOfReferees(){
+		return maximumNumberOfReferees;
+	}
+
+	/**
+	 * Mutator method for the number of referees which may be added to the schedule. A new
+	 * schedule holds MAXIMUM_NUMBER_OF_OFFICIALS referees, as managed by the user interface,
+	 * while a schedule backed by a store holds as many as the store has records for. Referees
+	 * beyond a lowered limit are kept, but no more are added until there is room.
+	 * @param numberOfReferees an int containing the number of referees
+	 */
+	public void setMaximumNumberOfReferees(int numberOfReferees){
+		if (numberOfReferees<1){
+			throw new IllegalArgumentException("At least one referee must be permitted");
+		}
+		maximumNumberOfReferees = numberOfReferees;
+	}
+
+	/**
+	 * Accessor method for the roles of the officials of matches at a given level
+	 * @param matchLevel a String containing the level of the match (i.e. Junior or Senior)
+	 * @return an array containing the role of each position in the crew, two referees unless configured otherwise
+	 */
+	public String[] getCrewRoles(String matchLevel){
+		String[] roles = crewRoles.get(matchLevel);
+		if (roles==null){
+			roles = new String[REFEREES_PER_MATCH];
+			Arrays.fill(roles, "Referee");
+		}
+		return roles.clone();
+	}
+
+	/**
+	 * Mutator method for the size and role mix of the crew officiating matches at a given
+	 * level, e.g. "Referee", "Assistant Referee", "Assistant Referee", "Fourth Official".
+	 * Matches already scheduled keep their crews. The off-heap store holds two officials
+	 * for each match, so a schedule backed by a store keeps crews of two.
+	 * @param matchLevel a String containing the level of the match (i.e. Junior or Senior)
+	 * @param roles the role of each position in the crew, the most suitable official taking the first
+	 */
+	public void setCrewRoles(String matchLevel, String... roles){
+		if (roles.length<REFEREES_PER_MATCH){
+			throw new IllegalArgumentException("A match requires at least "+REFEREES_PER_MATCH+" officials");
+		}
+		if (store!=null&&roles.length!=REFEREES_PER_MATCH){
+			throw new IllegalArgumentException("The record store holds "+REFEREES_PER_MATCH+" officials for each match");
+		}
+		crewRoles.put(matchLevel, roles.clone());
+	}
+
+	/**
+	 * Method to begin a query for the referees matching a combination of conditions,
+	 * which is answered from indexes maintained by the schedule
+	 * @return a new RefereeQuery matching every referee until conditions are added
+	 */
+	public RefereeQuery queryReferees(){
+		return new RefereeQuery(this);
+	}
+
+	/**
+	 * Method to register a listener to be notified of each change to the referees and matches
+	 * @param listener a ScheduleListener
+	 */
+	public void addScheduleListener(ScheduleListener listener){
+		events.addListener(listener);
+	}
+
+	/**
+	 * Method to deregister a listener
+	 * @param listener a ScheduleListener previously registered
+	 */
+	public void removeScheduleListener(ScheduleListener listener){
+		events.removeListener(listener);
+	}
+
+	/**
+	 * Method to begin publishing every allocation of a referee to a match, and every
+	 * release, to subscribers which request records at their own pace
+	 * @return a new AllocationPublisher, which should be closed once no longer required
+	 */
+	public AllocationPublisher publishAllocations(){
+		return new AllocationPublisher(this);
+	}
+
+	/**
+	 * Method to begin a batch of operations, e.g. a bulk import, whose changes are delivered
+	 * to the listeners together once the batch ends. Every call must be matched by a call to
+	 * endBatch, which should be made in a finally block.
+	 */
+	public void beginBatch(){
+		events.beginBatch();
+	}
+
+	/**
+	 * Method to end a batch of operations, delivering their changes to the listeners once
+	 * the outermost batch ends
+	 */
+	public void endBatch(){
+		events.endBatch();
+	}
+
+	/**
+	 * Method to begin an operation made up of several changes, which are undone together
+	 * and delivered to the listeners together
+	 */
+	private void beginStep(){
+		history.beginStep();
+		events.beginBatch();
+	}
+
+	/**
+	 * Method to complete an operation made up of several changes
+	 */
+	private void endStep(){
+		try{
+			history.endStep();
+		}
+		finally{
+			events.endBatch();
+		}
+	}
+
+	/**
+	 * Accessor method for the strategy choosing the officials of each match added
+	 * @return allocationStrategy the AllocationStrategy of the schedule
+	 */
+	public AllocationStrategy getAllocationStrategy(){
+		return allocationStrategy;
+	}
+
+	/**
+	 * Mutator method for the strategy choosing the officials of each match added. Matches
+	 * already scheduled keep their officials. Forks of the schedule rank referees by their
+	 * own match allocations and always use the strategy of a new schedule.
+	 * @param strategy an AllocationStrategy, e.g. one created by AllocationStrategies
+	 * @throws IllegalArgumentException if the strategy is null
+	 */
+	public void setAllocationStrategy(AllocationStrategy strategy){
+		if (strategy==null){
+			throw new IllegalArgumentException("An allocation strategy is required");
+		}
+		allocationStrategy = strategy;
+	}
+
+	/**
+	 * Accessor method for the distribution of the match allocations of the referees, which
+	 * is kept up to date as referees and matches change. The histogram must only be read
+	 * on the thread which alters the schedule.
+	 * @return allocationHistogram an AllocationHistogram of the current match allocations
+	 */
+	public AllocationHistogram getAllocationHistogram(){
+		return allocationHistogram;
+	}
+
+	/**
+	 * Accessor method for the indexes of the referees
+	 * @return refereeIndex the RefereeIndex of the schedule
+	 */
+	RefereeIndex getRefereeIndex(){
+		return refereeIndex;
+	}
+
+	/**
+	 * Accessor method for the referees in the order they are stored
+	 * @return an unmodifiable list of the referees
+	 */
+	List<Referee> getOfficials(){
+		return Collections.unmodifiableList(officials);
+	}
+
+	/**
+	 * Accessor method for the matches allocated to the match schedule
+	 * @return matchSchedule an ArrayList of matches allocated to the schedule
+	 */
+	public List<Match> getMatchSchedule(){
+		return matchSchedule;
+	}
+
+	/**
+	 * Method to add a referee to the list of referees from a file input.
+	 * @param details a String that contains all the information for one referee in the format of the input file
+	 * @return refereeAdded a boolean denoting if the referee was added successfully
+	 * @throws IllegalArgumentException if the details are not in the format of the input file
+	 */
+	public boolean addReferee(String details){
+		boolean refereeAdded = false;
+		if (this.getNumberOfReferees()<maximumNumberOfReferees){
+			refereeAdded = this.addReferee(this.parseReferee(details));
+		}
+		return refereeAdded;
+	}
+
+	/**
+	 * Method to create a referee from one line of the input file. The schedule is not
+	 * altered, so lines may be parsed on several threads at once.
+	 * @param details a String that contains all the information for one referee in the format of the input file
+	 * @return ref a new Referee object containing the details
+	 * @throws IllegalArgumentException describing the first detail which is missing or invalid
+	 */
+	public Referee parseReferee(String details){
+		//Tokenise the details for the official from the String input
+		String [] tokens = details.trim().split(" +");
+		if (tokens.length<7||tokens.length>9){
+			throw new IllegalArgumentException("Expected 7 to 9 details but found "+tokens.length);
+		}
+		int tokenIndex = 0;
+		// The details of the referee are stored in a specified format in the string
+		String refID = tokens[tokenIndex++];
+		String refFirstName = tokens[tokenIndex++];
+		String refSurname = tokens[tokenIndex++];
+		String refQualification = tokens[tokenIndex++];
+		if (!refQualification.matches("[NI]JB[1-4]")){
+			throw new IllegalArgumentException("Invalid qualification "+refQualification);
+		}
+		// the number of matches allocated to the official must be parsed
+		// to an integer
+		int refAllocations;
+		try{
+			refAllocations = Integer.parseInt(tokens[tokenIndex++]);
+		}
+		catch (NumberFormatException nfx){
+			throw new IllegalArgumentException("Invalid number of allocations "+tokens[tokenIndex-1]);
+		}
+		if (refAllocations<0){
+			throw new IllegalArgumentException("The number of allocations cannot be negative");
+		}
+		String refHomeArea = tokens[tokenIndex++];
+		if (regions.getRegionIndex(refHomeArea)<0){
+			throw new IllegalArgumentException("Unknown home region "+refHomeArea);
+		}
+		// the availability of the referee is stored as a String of chars
+		// which are not seperated by whitespace (e.g. "YNN"), one for each
+		// region in the order the regions are defined
+		String availability = tokens[tokenIndex++];
+		if (!availability.matches("[YN]*")||availability.length()>regions.getNumberOfRegions()){
+			throw new IllegalArgumentException("Invalid availability "+availability);
+		}
+		Set<String> availableAreas = new HashSet<String>();
+		List<String> regionNames = regions.getRegionNames();
+		for (int availabilityIndex = 0; availabilityIndex<availability.length(); availabilityIndex++){
+			if (availability.charAt(availabilityIndex)=='Y'){
+				availableAreas.add(regionNames.get(availabilityIndex));
+			}
+		}
+		Referee ref = new Referee(refID, refFirstName, refSurname, refQualification,
+				refAllocations, refHomeArea, availableAreas);
+		// In the extended format optional final tokens list the weeks the referee is
+		// unavailable as week numbers and ranges (e.g. "3,4,10-12") and give the position
+		// of the referee's home following '@' (e.g. "@12.5,140")
+		while (tokenIndex<tokens.length){
+			String token = tokens[tokenIndex++];
+			if (token.startsWith("@")&&ref.getHomeCoordinates()==null){
+				ref.setHomeCoordinates(Coordinates.parse(token.substring(1)));
+			}
+			else if (!token.startsWith("@")&&ref.getUnavailableWeeks()==0){
+				ref.setUnavailableWeeks(Referee.parseWeeks(token, WEEKS_IN_A_SEASON));
+			}
+			else{
+				throw new IllegalArgumentException("Unexpected detail "+token);
+			}
+		}
+		return ref;
+	}
+
+	/**
+	 * Method to add a referee created elsewhere to the list of referees. No referee is added
+	 * once the schedule holds its maximum number of referees. A referee with a negative
+	 * number of match allocations is not added, nor is a referee whose details do not fit
+	 * the record store backing the schedule or who would exceed its capacity.
+	 * @param ref a Referee object
+	 * @return refereeAdded a boolean denoting if the referee was added successfully
+	 */
+	public boolean addReferee(Referee ref){
+		boolean refereeAdded = false;
+		if (this.getNumberOfReferees()<maximumNumberOfReferees&&ref.getMatchAllocations()>=0
+				&&(store==null||(storedReferees.size()<store.getRefereeCapacity()
+						&&store.describeRefereeProblem(ref, regions)==null))){
+			this.insertReferee(officials.size(), ref);
+			refereeAdded = true;
+		}
+		return refereeAdded;
+	}
+
+	/**
+	 * Method to add a referee to the list of referees from the GUI.
+	 * @param refID a String containing the ID of the referee
+	 * @param refFirstName a String containing the first name of the referee
+	 * @param refSurname a String containing the surname of the referee
+	 * @param refQualification a String containing the qualification of the referee
+	 * @param refAllocations an integer containing the number of matches a referee has already been allocated
+	 * @param refHomeArea a String containing the geographical location of the referee's home
+	 * @param isAvailableNorth a boolean representing the availability of the official for matches in the northern area
+	 * @param isAvailableCentral a boolean representing the availability of the official for matches in the central area
+	 * @param isAvailableSouth a boolean representing the availability of the official for matches in the southern area
+	 * @return a boolean denoting if the referee was added successfully, which a negative
+	 * number of match allocations prevents
+	 */
+	public boolean addReferee(String refID, String refFirstName, String refSurname, String refQualification, 
+			int refAllocations, String refHomeArea, boolean isAvailableNorth, boolean isAvailableCentral,
+			boolean isAvailableSouth){
+		// Create a new instance of Referee class and add it to the list of available referees,
+		// as long as the number of referees does not exceed the maximum
+		return this.addReferee(new Referee(refID, refFirstName, refSurname, refQualification, 
+				refAllocations, refHomeArea, isAvailableNorth, isAvailableCentral, isAvailableSouth));
+	}
+
+	/**
+	 * Method to add a referee available in any of the configured regions to the list of referees.
+	 * @param refID a String containing the ID of the referee
+	 * @param refFirstName a String containing the first name of the referee
+	 * @param refSurname a String containing the surname of the referee
+	 * @param refQualification a String containing the qualification of the referee
+	 * @param refAllocations an integer containing the number of matches a referee has already been allocated
+	 * @param refHomeArea a String containing the geographical location of the referee's home
+	 * @param availableAreas a Set of Strings containing the regions the official is available to officiate matches in
+	 * @return a boolean denoting if the referee was added successfully, which a negative
+	 * number of match allocations prevents
+	 */
+	public boolean addReferee(String refID, String refFirstName, String refSurname, String refQualification, 
+			int refAllocations, String refHomeArea, Set<String> availableAreas){
+		return this.addReferee(new Referee(refID, refFirstName, refSurname, refQualification, 
+				refAllocations, refHomeArea, availableAreas));
+	}
+
+	/**
+	 * Method to remove a referee object from the list of referees.
+	 * @param refID a String containing the ID of the referee
+	 * @return refereeRemoved a boolean denoting that the referee was successfully removed
+	 */
+	public boolean removeReferee(String refID){
+		Boolean refereeRemoved = false;
+		Referee ref = this.getRefereeByID(refID);
+		if (ref!=null){
+			// The referee and the reallocation of their matches are undone together
+			this.beginStep();
+			try{
+				int stepSize = history.getStepSize();
+				// if a referee exists with a matching refID
+				// then remove the official from the list of available referees
+				this.deleteReferee(ref);
+				// Only the matches the referee officiated are given a new official
+				boolean reallocated = true;
+				for (Match fixture: new ArrayList<Match>(this.getMatchesForReferee(ref))){
+					if (!this.reallocateOfficial(fixture, ref)){
+						reallocated = false;
+						break;
+					}
+				}
+				if (reallocated){
+					refereeRemoved = true;
+				}
+				else{
+					// A match would be left without a full crew, so the referee is kept
+					history.rollbackStep(stepSize);
+				}
+			}
+			finally{
+				this.endStep();
+			}
+		}
+		return refereeRemoved;
+	}
+
+	/**
+	 * Method to replace an official of a scheduled match with the most suitable free referee
+	 * @param fixture a scheduled Match object
+	 * @param ref a Referee object officiating the match who is to be replaced
+	 * @return reallocated a boolean denoting whether a replacement official was found
+	 */
+	private boolean reallocateOfficial(Match fixture, Referee ref){
+		boolean reallocated = false;
+		// The current officials are booked in the week of the match, so none is suggested
+		Referee[] suitableRefs = this.selectSuitableRefs(fixture.getLocation(), fixture.getMatchLevel(),
+				fixture.getWeekNo(), 1);
+		if (suitableRefs.length>0){
+			Referee[] crew = fixture.getOfficials();
+			crew[fixture.getPositionOf(ref)] = suitableRefs[0];
+			this.reassignOfficials(Collections.singletonList(fixture), new Referee[][]{crew});
+			reallocated = true;
+		}
+		return reallocated;
+	}
+
+	/**
+	 * Method to replace a referee in each of their matches they may no longer officiate
+	 * following a change to their details
+	 * @param ref a Referee object
+	 * @return reallocated a boolean denoting whether every such match was given a new official
+	 */
+	private boolean reallocateIneligibleMatches(Referee ref){
+		boolean reallocated = true;
+		for (Match fixture: new ArrayList<Match>(this.getMatchesForReferee(ref))){
+			if (!this.canOfficiate(ref, fixture)&&!this.reallocateOfficial(fixture, ref)){
+				reallocated = false;
+				break;
+			}
+		}
+		return reallocated;
+	}
+
+	/**
+	 * Method to determine whether a referee may officiate a match
+	 * @param ref a Referee object
+	 * @param fixture a Match object
+	 * @return a boolean denoting whether the referee is qualified for the match and available in its region and week
+	 */
+	boolean canOfficiate(Referee ref, Match fixture){
+		return (!fixture.getMatchLevel().equals("Senior")||ref.canRefereeSeniors())
+				&&ref.isAvailableIn(fixture.getLocation())&&ref.isAvailableInWeek(fixture.getWeekNo());
+	}
+
+	/**
+	 * Method to add a referee object to the list of referees, discarding any cached
+	 * rankings the referee now belongs in.
+	 * @param index an int containing the position in the list of referees to add the referee at
+	 * @param ref a Referee object to be added
+	 * @throws IllegalArgumentException if the referee has a negative number of match allocations
+	 */
+	private void insertReferee(final int index, final Referee ref){
+		// The referee is checked before any index is altered so a refused referee leaves no trace
+		if (ref.getMatchAllocations()<0){
+			throw new IllegalArgumentException("Referee "+ref.getRefID()+" has negative match allocations");
+		}
+		if (store!=null){
+			this.storeReferee(ref);
+		}
+		officials.add(index, ref);
+		refereeIndex.add(ref);
+		allocationHistogram.add(ref.getMatchAllocations());
+		this.indexNames(ref, true);
+		this.invalidateSuitableRefs(ref);
+		this.relocateReferee(ref);
+		refereePositions = null;
+		modificationCount++;
+		events.refereeChanged(ScheduleEvent.Type.REFEREE_ADDED, ref);
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				deleteReferee(ref);
+			}
+			public void redo(){
+				insertReferee(index, ref);
+			}
+		});
+	}
+
+	/**
+	 * Method to remove a referee object from the list of referees, discarding any cached
+	 * rankings the referee appeared in.
+	 * @param ref a Referee object to be removed
+	 */
+	private void deleteReferee(final Referee ref){
+		this.invalidateSuitableRefs(ref);
+		final int index = officials.indexOf(ref);
+		officials.remove(index);
+		refereeIndex.remove(ref);
+		allocationHistogram.remove(ref.getMatchAllocations());
+		this.indexNames(ref, false);
+		if (store!=null){
+			// a removed referee may still be released from their matches, so is held on the heap
+			this.releaseReferee(ref);
+		}
+		if (refereeLocator!=null){
+			refereeLocator.remove(ref);
+		}
+		refereePositions = null;
+		modificationCount++;
+		events.refereeChanged(ScheduleEvent.Type.REFEREE_REMOVED, ref);
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				// the list of referees may have been sorted since the referee was removed
+				insertReferee(Math.min(index, officials.size()), ref);
+			}
+			public void redo(){
+				deleteReferee(ref);
+			}
+		});
+	}
+
+	/**
+	 * Method to alter the editable details of a referee, discarding any cached rankings
+	 * the referee leaves or joins.
+	 * @param ref a Referee object to be altered
+	 * @param refQualification a String containing the new qualification of the referee
+	 * @param refHomeArea a String containing the new home location of the referee
+	 * @param availableAreas a Set of Strings containing the regions the referee is now available in
+	 */
+	private void applyRefereeEdit(final Referee ref, final String refQualification, final String refHomeArea,
+			final Set<String> availableAreas){
+		final String previousQualification = ref.getQualification();
+		final String previousHomeArea = ref.getHomeLocation();
+		final Set<String> previousAreas = new HashSet<String>(ref.getAvailableAreas());
+		// The referee may leave the rankings they appeared in and join others
+		this.invalidateSuitableRefs(ref);
+		refereeIndex.unindexDetails(ref);
+		ref.setQualification(refQualification);
+		ref.setHomeLocation(refHomeArea);
+		ref.setAvailableAreas(availableAreas);
+		refereeIndex.indexDetails(ref);
+		this.invalidateSuitableRefs(ref);
+		if (ref.getHomeCoordinates()==null&&!refHomeArea.equals(previousHomeArea)){
+			// a referee without coordinates is located at the venue of their home region
+			this.relocateReferee(ref);
+		}
+		modificationCount++;
+		events.refereeChanged(ScheduleEvent.Type.REFEREE_EDITED, ref);
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				applyRefereeEdit(ref, previousQualification, previousHomeArea, previousAreas);
+			}
+			public void redo(){
+				applyRefereeEdit(ref, refQualification, refHomeArea, availableAreas);
+			}
+		});
+	}
+
+	/**
+	 * Method to alter the number of matches allocated to a referee, moving the referee
+	 * within the cached rankings in which their position depends on their match allocations.
+	 * @param ref a Referee object whose match allocations are to be altered
+	 * @param change an int containing the number of matches to add to the referee's allocations
+	 */
+	private void changeMatchAllocations(final Referee ref, final int change){
+		int previousAllocations = ref.getMatchAllocations();
+		refereeIndex.unindexDetails(ref);
+		ref.setMatchAllocations(previousAllocations+change);
+		refereeIndex.indexDetails(ref);
+		// the referee remains eligible for the same rankings, only their position changes
+		this.repositionSuitableRefs(ref, previousAllocations);
+		if (refereeIndex.contains(ref)){
+			// a removed referee may still be released from their matches
+			allocationHistogram.move(ref.getMatchAllocations()-change, ref.getMatchAllocations());
+		}
+		modificationCount++;
+		events.refereeChanged(ScheduleEvent.Type.ALLOCATIONS_CHANGED, ref);
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				changeMatchAllocations(ref, -change);
+			}
+			public void redo(){
+				changeMatchAllocations(ref, change);
+			}
+		});
+	}
+
+	/**
+	 * Method to add a match to the list of matches without altering any match allocations
+	 * @param index an int containing the position in the list of matches to add the match at
+	 * @param fixture a Match object to be added
+	 */
+	private void insertFixture(final int index, final Match fixture){
+		if (store!=null){
+			this.storeMatch(fixture);
+		}
+		matchSchedule.add(index, fixture);
+		this.getMatchesByWeek(fixture.getWeekNo(), true).add(fixture);
+		for (int position = 0; position<fixture.getCrewSize(); position++){
+			this.indexOfficial(fixture, fixture.getOfficial(position), true);
+		}
+		modificationCount++;
+		events.matchChanged(ScheduleEvent.Type.MATCH_ADDED, fixture);
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				deleteFixture(fixture);
+			}
+			public void redo(){
+				insertFixture(index, fixture);
+			}
+		});
+	}
+
+	/**
+	 * Method to remove a match from the list of matches without altering any match allocations
+	 * @param fixture a Match object to be removed
+	 */
+	private void deleteFixture(final Match fixture){
+		final int index = matchSchedule.indexOf(fixture);
+		matchSchedule.remove(index);
+		List<Match> weekMatches = this.getMatchesByWeek(fixture.getWeekNo(), false);
+		weekMatches.remove(fixture);
+		if (weekMatches.isEmpty()){
+			matchesByWeek.remove(fixture.getWeekNo());
+		}
+		for (int position = 0; position<fixture.getCrewSize(); position++){
+			this.indexOfficial(fixture, fixture.getOfficial(position), false);
+		}
+		if (store!=null){
+			this.releaseMatch(fixture);
+		}
+		modificationCount++;
+		events.matchChanged(ScheduleEvent.Type.MATCH_REMOVED, fixture);
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				insertFixture(index, fixture);
+			}
+			public void redo(){
+				deleteFixture(fixture);
+			}
+		});
+	}
+
+	/**
+	 * Method to record the scheduled match an official is allocated to, or to forget it
+	 * @param fixture a scheduled Match object
+	 * @param ref a Referee object officiating the match, or null if no official is allocated
+	 * @param add a boolean denoting whether the match is recorded rather than forgotten
+	 */
+	private void indexOfficial(Match fixture, Referee ref, boolean add){
+		if (ref==null){
+			return;
+		}
+		List<Match> refMatches = matchesByReferee.get(ref);
+		if (add){
+			if (refMatches==null){
+				refMatches = new ArrayList<Match>();
+				matchesByReferee.put(ref, refMatches);
+			}
+			refMatches.add(fixture);
+		}
+		else if (refMatches!=null){
+			refMatches.remove(fixture);
+			if (refMatches.isEmpty()){
+				matchesByReferee.remove(ref);
+			}
+		}
+	}
+
+	/**
+	 * Method to return the scheduled matches a referee officiates without searching the schedule
+	 * @param ref a Referee object
+	 * @return an unmodifiable list of the referee's matches in the order they were allocated
+	 */
+	public List<Match> getMatchesForReferee(Referee ref){
+		List<Match> refMatches = matchesByReferee.get(ref);
+		if (refMatches==null){
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(refMatches);
+	}
+
+	/**
+	 * Method to replace the weeks a referee has blocked out. Any of the referee's matches
+	 * in weeks they are now unavailable are given a new official.
+	 * @param refID a String containing the ID of the referee
+	 * @param unavailableWeeks a long in which the bit for each unavailable week is set
+	 * @return refereeEdited a boolean denoting whether the referee was found and their affected
+	 * matches could be reallocated
+	 */
+	public boolean setUnavailableWeeks(String refID, long unavailableWeeks){
+		boolean refereeEdited = false;
+		Referee ref = this.getRefereeByID(refID);
+		if (ref!=null){
+			this.beginStep();
+			try{
+				int stepSize = history.getStepSize();
+				this.changeUnavailableWeeks(ref, unavailableWeeks);
+				if (this.reallocateIneligibleMatches(ref)){
+					refereeEdited = true;
+				}
+				else{
+					history.rollbackStep(stepSize);
+				}
+			}
+			finally{
+				this.endStep();
+			}
+		}
+		return refereeEdited;
+	}
+
+	/**
+	 * Method to record the position of a referee's home. The referee's eligibility is
+	 * unaltered, so none of their matches is reallocated.
+	 * @param refID a String containing the ID of the referee
+	 * @param homeCoordinates a Coordinates object, or null if only the home region is known
+	 * @return refereeEdited a boolean denoting whether the referee was found
+	 */
+	public boolean setHomeCoordinates(String refID, Coordinates homeCoordinates){
+		boolean refereeEdited = false;
+		Referee ref = this.getRefereeByID(refID);
+		if (ref!=null){
+			this.beginStep();
+			try{
+				this.changeHomeCoordinates(ref, homeCoordinates);
+				refereeEdited = true;
+			}
+			finally{
+				this.endStep();
+			}
+		}
+		return refereeEdited;
+	}
+
+	/**
+	 * Method to replace the position of a referee's home, discarding any cached rankings
+	 * in which the position of the referee depends on the distance they travel
+	 * @param ref a Referee object
+	 * @param homeCoordinates a Coordinates object, or null if only the home region is known
+	 */
+	private void changeHomeCoordinates(final Referee ref, final Coordinates homeCoordinates){
+		final Coordinates previousCoordinates = ref.getHomeCoordinates();
+		Coordinates previousOrigin = this.getTravelOrigin(ref);
+		this.invalidateSuitableRefs(ref);
+		ref.setHomeCoordinates(homeCoordinates);
+		if (!Objects.equals(previousOrigin, this.getTravelOrigin(ref))){
+			this.relocateReferee(ref);
+		}
+		modificationCount++;
+		events.refereeChanged(ScheduleEvent.Type.REFEREE_EDITED, ref);
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				changeHomeCoordinates(ref, previousCoordinates);
+			}
+			public void redo(){
+				changeHomeCoordinates(ref, homeCoordinates);
+			}
+		});
+	}
+
+	/**
+	 * Method to determine where a referee travels to matches from
+	 * @param ref a Referee object
+	 * @return a Coordinates object containing the position of the referee's home if known, and
+	 * otherwise that of the venue of their home region, or null if neither is known
+	 */
+	Coordinates getTravelOrigin(Referee ref){
+		if (ref.getHomeCoordinates()!=null){
+			return ref.getHomeCoordinates();
+		}
+		int home = regions.getRegionIndex(ref.getHomeLocation());
+		return home>=0 ? regions.getCoordinates(home) : null;
+	}
+
+	/**
+	 * Method to move a referee of the schedule to where they now travel from in the spatial
+	 * index of the referees' homes, if it has been built
+	 * @param ref a Referee object in the list of referees
+	 */
+	private void relocateReferee(Referee ref){
+		if (refereeLocator!=null){
+			Coordinates origin = this.getTravelOrigin(ref);
+			if (origin!=null){
+				refereeLocator.add(ref, origin);
+			}
+			else{
+				refereeLocator.remove(ref);
+			}
+		}
+	}
+
+	/**
+	 * Method to locate the spatial index of the referees' homes, building it when
+	 * needed. The index is kept up to date as referees are added, removed or move home.
+	 * @return refereeLocator a RefereeLocator containing every referee of the schedule
+	 */
+	private RefereeLocator locateReferees(){
+		if (refereeLocator==null){
+			List<Referee> locatedRefs = new ArrayList<Referee>();
+			List<Coordinates> homes = new ArrayList<Coordinates>();
+			for (Referee ref: officials){
+				Coordinates home = this.getTravelOrigin(ref);
+				if (home!=null){
+					locatedRefs.add(ref);
+					homes.add(home);
+				}
+			}
+			refereeLocator = new RefereeLocator(locatedRefs, homes);
+		}
+		return refereeLocator;
+	}
+
+	/**
+	 * Method to replace the weeks a referee has blocked out
+	 * @param ref a Referee object
+	 * @param unavailableWeeks a long in which the bit for each unavailable week is set
+	 */
+	private void changeUnavailableWeeks(final Referee ref, final long unavailableWeeks){
+		final long previousWeeks = ref.getUnavailableWeeks();
+		ref.setUnavailableWeeks(unavailableWeeks);
+		modificationCount++;
+		events.refereeChanged(ScheduleEvent.Type.REFEREE_EDITED, ref);
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				changeUnavailableWeeks(ref, previousWeeks);
+			}
+			public void redo(){
+				changeUnavailableWeeks(ref, unavailableWeeks);
+			}
+		});
+	}
+
+	/**
+	 * Method to replace one of the officials allocated to a match without altering any
+	 * match allocations
+	 * @param fixture a Match object
+	 * @param position an int containing the position of the official in the crew
+	 * @param ref a Referee object to officiate the match
+	 */
+	private void assignOfficial(final Match fixture, final int position, final Referee ref){
+		final Referee previousRef = fixture.getOfficial(position);
+		// Only scheduled matches are recorded against their officials
+		boolean scheduled = this.getMatchesByWeek(fixture.getWeekNo(), false).contains(fixture);
+		if (scheduled){
+			this.indexOfficial(fixture, previousRef, false);
+			this.indexOfficial(fixture, ref, true);
+		}
+		fixture.setOfficial(position, ref);
+		modificationCount++;
+		if (scheduled){
+			events.matchChanged(ScheduleEvent.Type.OFFICIALS_CHANGED, fixture);
+		}
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				assignOfficial(fixture, position, previousRef);
+			}
+			public void redo(){
+				assignOfficial(fixture, position, ref);
+			}
+		});
+	}
+
+	/**
+	 * Method to record whether a referee officiates a match in a given week
+	 * @param ref a Referee object
+	 * @param week an int containing the week of the match
+	 * @param booked a boolean denoting whether the referee now officiates a match in the week
+	 */
+	private void bookOfficial(final Referee ref, final int week, final boolean booked){
+		ref.setBookedInWeek(week, booked);
+		modificationCount++;
+		history.record(new ScheduleHistory.Change(){
+			public void undo(){
+				bookOfficial(ref, week, !booked);
+			}
+			public void redo(){
+				bookOfficial(ref, week, booked);
+			}
+		});
+	}
+
+	/**
+	 * Method to reverse the most recent operation that changed the schedule, restoring
+	 * the referees, matches and match allocations exactly as they were before it
+	 * @return undone a boolean denoting whether an operation was undone
+	 */
+	public boolean undo(){
+		events.beginBatch();
+		try{
+			return history.undo();
+		}
+		finally{
+			events.endBatch();
+		}
+	}
+
+	/**
+	 * Method to reapply the most recently undone operation
+	 * @return redone a boolean denoting whether an operation was redone
+	 */
+	public boolean redo(){
+		events.beginBatch();
+		try{
+			return history.redo();
+		}
+		finally{
+			events.endBatch();
+		}
+	}
+
+	/**
+	 * Method to determine whether there is an operation to undo
+	 * @return a boolean denoting whether an operation can be undone
+	 */
+	public boolean canUndo(){
+		return history.canUndo();
+	}
+
+	/**
+	 * Method to determine whether there is an operation to redo
+	 * @return a boolean denoting whether an operation can be redone
+	 */
+	public boolean canRedo(){
+		return history.canRedo();
+	}
+
+	/**
+	 * Accessor method for the number of changes made to the referees and matches of the schedule.
+	 * The count increases with every change, so an unchanged count denotes an unchanged schedule.
+	 * @return modificationCount a long containing the number of changes made
+	 */
+	public long getModificationCount(){
+		return modificationCount;
+	}
+
+	/**
+	 * Method to alter the details of a particular referee.
+	 * @param refID a String containing the ID of the referee
+	 * @param refQualification a String containing the qualification of the referee
+	 * @param refHomeArea refHomeArea a String containing the geographical location of the referee's home
+	 * @param isAvailableNorth a boolean representing the availability of the official for matches in the northern area
+	 * @param isAvailableCentral a boolean representing the availability of the official for matches in the central area
+	 * @param isAvailableSouth a boolean representing the availability of the official for matches in the southern area
+	 * @return refereeEdited a boolean denoting whether or not the referee was successfully edited 
+	 */
+	public boolean editReferee(String refID, String refQualification, String refHomeArea, boolean isAvailableNorth,
+			boolean isAvailableCentral, boolean isAvailableSouth){
+		boolean refereeEdited = false;
+		Referee ref = this.getRefereeByID(refID);
+		// ensure the changes apply to an existing referee
+		if (ref!=null){
+			// Update the all editable fields for the referee, leaving the
+			// availability in any other regions unchanged
+			Set<String> availableAreas = new HashSet<String>(ref.getAvailableAreas());
+			String[] areas = {"North", "Central", "South"};
+			boolean[] isAvailable = {isAvailableNorth, isAvailableCentral, isAvailableSouth};
+			for (int index = 0; index<areas.length; index++){
+				if (isAvailable[index]){
+					availableAreas.add(areas[index]);
+				}
+				else{
+					availableAreas.remove(areas[index]);
+				}
+			}
+			// store the new changes to the referee's details
+			refereeEdited = this.editReferee(refID, refQualification, refHomeArea, availableAreas);
+		}
+		return refereeEdited;
+	}
+
+	/**
+	 * Method to alter the details of a referee available in any of the configured regions.
+	 * @param refID a String containing the ID of the referee
+	 * @param refQualification a String containing the qualification of the referee
+	 * @param refHomeArea refHomeArea a String containing the geographical location of the referee's home
+	 * @param availableAreas a Set of Strings containing the regions the official is available to officiate matches in
+	 * @return refereeEdited a boolean denoting whether or not the referee was successfully edited. A referee
+	 * is not edited if a match they may no longer officiate cannot be given another official, nor if the
+	 * new details do not fit the record store backing the schedule.
+	 */
+	public boolean editReferee(String refID, String refQualification, String refHomeArea,
+			Set<String> availableAreas){
+		boolean refereeEdited = false;
+		Referee ref = this.getRefereeByID(refID);
+		if (ref!=null&&(store==null||store.describeEditProblem(refQualification, refHomeArea, regions)==null)){
+			// The edit and the reallocation of the affected matches are undone together
+			this.beginStep();
+			try{
+				int stepSize = history.getStepSize();
+				this.applyRefereeEdit(ref, refQualification, refHomeArea, new HashSet<String>(availableAreas));
+				// Only the matches the referee is no longer eligible for are reallocated
+				if (this.reallocateIneligibleMatches(ref)){
+					refereeEdited = true;
+				}
+				else{
+					history.rollbackStep(stepSize);
+				}
+			}
+			finally{
+				this.endStep();
+			}
+		}
+		return refereeEdited;
+	}
+
+	/**
+	 * Method to bring the referees of the schedule into line with a new list of referees, e.g.
+	 * when an updated referees input file is received. Referees are matched by ID and only
+	 * the differences are applied: new referees are added, referees no longer listed are
+	 * removed and the qualification, home, availability and calendar of the remaining
+	 * referees are edited, reallocating their matches as when each change is made individually.
+	 * The match allocations of existing referees are kept, and new referees are only added
+	 * while the schedule holds fewer than its maximum number of referees. The whole reload
+	 * is undone together.
+	 * @param latestRefs a List of Referee objects created from the new list, e.g. by parseReferee
+	 * @return problems a List of Strings describing each change which could not be applied
+	 */
+	public List<String> reloadReferees(List<Referee> latestRefs){
+		List<String> problems = new ArrayList<String>();
+		Map<String, Referee> latestByID = new LinkedHashMap<String, Referee>();
+		for (Referee latest: latestRefs){
+			if (latestByID.containsKey(latest.getRefID())){
+				problems.add("Duplicate referee ID "+latest.getRefID()+" ignored");
+			}
+			else{
+				latestByID.put(latest.getRefID(), latest);
+			}
+		}
+		this.beginStep();
+		try{
+			// New referees are added while there is room, so they may take over the matches of
+			// edited and removed referees, and the rest once the removed referees have made room
+			List<Referee> additions = new ArrayList<Referee>();
+			for (Referee latest: latestByID.values()){
+				if (this.getRefereeByID(latest.getRefID())==null
+						&&!(this.getNumberOfReferees()<maximumNumberOfReferees&&this.addReferee(latest))){
+					additions.add(latest);
+				}
+			}
+			for (Referee latest: latestByID.values()){
+				Referee ref = this.getRefereeByID(latest.getRefID());
+				if (ref==null||ref==latest){
+					// the referee is new
+					continue;
+				}
+				if (!ref.getFullName().equals(latest.getFullName())){
+					problems.add("The name of referee "+ref.getRefID()+" cannot be changed");
+				}
+				else{
+					if ((!ref.getQualification().equals(latest.getQualification())
+							||!ref.getHomeLocation().equals(latest.getHomeLocation())
+							||!ref.getAvailableAreas().equals(latest.getAvailableAreas()))
+							&&!this.editReferee(ref.getRefID(), latest.getQualification(), latest.getHomeLocation(),
+									latest.getAvailableAreas())){
+						problems.add("The matches of referee "+ref.getRefID()+" could not be reallocated after editing");
+					}
+					if (ref.getUnavailableWeeks()!=latest.getUnavailableWeeks()
+							&&!this.setUnavailableWeeks(ref.getRefID(), latest.getUnavailableWeeks())){
+						problems.add("The matches of referee "+ref.getRefID()+" could not be reallocated around their calendar");
+					}
+					if (!Objects.equals(ref.getHomeCoordinates(), latest.getHomeCoordinates())){
+						this.setHomeCoordinates(ref.getRefID(), latest.getHomeCoordinates());
+					}
+				}
+			}
+			for (Referee ref: new ArrayList<Referee>(officials)){
+				if (!latestByID.containsKey(ref.getRefID())&&!this.removeReferee(ref.getRefID())){
+					problems.add("Referee "+ref.getRefID()+" was kept as their matches could not be reallocated");
+				}
+			}
+			for (Referee latest: additions){
+				if (!this.addReferee(latest)){
+					problems.add("Referee "+latest.getRefID()+" was not added as the maximum number of referees has been reached");
+				}
+			}
+		}
+		finally{
+			this.endStep();
+		}
+		return problems;
+	}
+
+	/**
+	 * Method to return a referee object based upon a unique name
+	 * @param refName a String containing the first and surname of the referee
+	 * @return ref a Referee object which corresponds to the name searched for
+	 */
+	public Referee getRefereeByName(String refName){
+		Referee ref = null;
+		// The index ignores case, so the referees found are checked for an exact match
+		for (Referee official: refereeNames.findExact(refName)){
+			if (official.hasFullName(refName)){
+				ref = official;
+				break;
+			}
+		}
+		// return null if no corresponding referee is identified
+		return ref;
+	}
+
+	/**
+	 * Method to find the referees whose first name, surname, full name or ID begins with the
+	 * text entered so far, in time proportional to the length of the text
+	 * @param prefix a String containing the start of a name or ID
+	 * @return an unmodifiable collection of the matching referees
+	 */
+	public Collection<Referee> findRefereesByPrefix(String prefix){
+		return refereeNames.find(prefix);
+	}
+
+	/**
+	 * Method to add a referee to the index of names and IDs, or to remove them. The names
+	 * and ID of a referee cannot be altered, so the keys remain the same.
+	 * @param ref a Referee object
+	 * @param add a boolean denoting whether the referee is added rather than removed
+	 */
+	private void indexNames(Referee ref, boolean add){
+		String[] keys = {ref.getRefFirstName(), ref.getRefSurname(), ref.getFullName(), ref.getRefID()};
+		for (String key: keys){
+			if (add){
+				refereeNames.add(key, ref);
+			}
+			else{
+				refereeNames.remove(key, ref);
+			}
+		}
+	}
+
+	/**
+	 * Method to search for a referee by ID.
+	 * @param refID a String containing the ID of the referee
+	 * @return ref a Referee object containing the details for the matched official 
+	 * or null if no referee exists with that name
+	 */
+	public Referee getRefereeByID(String refID){
+		Referee ref = null;
+		// Search for an the unique ID in the index of names and IDs
+		for (Referee official: refereeNames.findExact(refID)){
+			if (official.getRefID().equals(refID)){
+				ref = official;
+				break;
+			}
+		}
+		// if no match is located return null
+		return ref;
+	}
+
+	/**
+	 * Method to add a new match to the match schedule
+	 * @param area a String corresponding to the venue of the match
+	 * @param level a String corresponding to the level of the match (Junior/Senior)
+	 * @param week an int corresponding to the week the match is scheduled for
+	 * @return matchAddedSuccessfully a boolean denoting whether the match was added successfully
+	 */
+	public boolean addMatchToSchedule(String matchLocation, String matchLevel, int matchWeek){
+		boolean matchAddedSuccessfully = false;
+		// Ensure the maximum number of matches isn't exceeded and the
+		// specific week is available for scheduling
+		if (matchWeek>=1&&matchWeek<=WEEKS_IN_A_SEASON
+				&&this.getNumberOfMatches()<WEEKS_IN_A_SEASON*maximumMatchesPerWeek
+				&&this.getMatchesByWeek(matchWeek).size()<maximumMatchesPerWeek){
+			// Referees already officiating a match in the same week are not suitable, and
+			// only as many referees as the crew requires are selected
+			String[] roles = this.getCrewRoles(matchLevel);
+			Referee[] suitableRefs = allocationStrategy.selectOfficials(this, matchLocation, matchLevel,
+					matchWeek, roles.length);
+			Match fixture = new Match (matchLocation, matchLevel, matchWeek, roles);
+			if (this.canStaff(fixture, suitableRefs)&&this.canStore(Collections.singleton(fixture), 0)){
+				// if there are sufficient suitable referees to officiate the match
+				// The addition and allocation are undone together
+				this.beginStep();
+				try{
+					// Add the match to the schedule of matches
+					this.insertFixture(matchSchedule.size(), fixture);
+					allocateOfficials (suitableRefs, fixture);
+					// allocate suitable officials to the match
+				}
+				finally{
+					this.endStep();
+				}
+				matchAddedSuccessfully = true;
+			}
+		}
+		return matchAddedSuccessfully;
+	}
+
+	/**
+	 * Method to remove a match from the schedule of matches. Where several matches are
+	 * scheduled in the week only the most recently scheduled is removed, so removeMatch
+	 * should be used to remove any other match of the week.
+	 * @param week an integer denoting the week the match is scheduled for
+	 * @return matchRemovedSuccessfully a boolean denoting whether the match was removed successfully
+	 */
+	public boolean removeMatchFromSchedule(int week){
+		return this.removeMatch(this.getMatchByWeek(week));
+	}
+
+	/**
+	 * Method to remove a given match from the schedule of matches, e.g. one of several
+	 * matches scheduled in the same week
+	 * @param fixture a Match object, as returned by getMatchesByWeek
+	 * @return matchRemovedSuccessfully a boolean denoting whether the match was scheduled and has been removed
+	 */
+	public boolean removeMatch(Match fixture){
+		boolean matchRemovedSuccessfully = false;
+		// Identify the match from within the schedule
+		if (fixture!=null&&this.getMatchesByWeek(fixture.getWeekNo()).contains(fixture)){
+			this.deleteMatch(fixture);
+			matchRemovedSuccessfully = true;
+		}
+		return matchRemovedSuccessfully;
+	}
+
+	/**
+	 * Method to add a match whose officials have already been chosen, e.g. when importing
+	 * fixtures, following the same rules as when officials are chosen by the schedule
+	 * @param matchLocation a String corresponding to the venue of the match
+	 * @param matchLevel a String corresponding to the level of the match (Junior/Senior)
+	 * @param matchWeek an int corresponding to the week the match is scheduled for
+	 * @param crew the different Referee objects of the schedule to officiate each role of the
+	 * crew of a match at the level, in order
+	 * @return matchAddedSuccessfully a boolean denoting whether the match was added successfully
+	 */
+	public boolean addAllocatedMatch(String matchLocation, String matchLevel, int matchWeek,
+			Referee... crew){
+		boolean matchAddedSuccessfully = false;
+		String[] roles = this.getCrewRoles(matchLevel);
+		if (matchWeek>=1&&matchWeek<=WEEKS_IN_A_SEASON
+				&&this.getNumberOfMatches()<WEEKS_IN_A_SEASON*maximumMatchesPerWeek
+				&&this.getMatchesByWeek(matchWeek).size()<maximumMatchesPerWeek){
+			Match fixture = new Match(matchLocation, matchLevel, matchWeek, roles);
+			if (this.canStaff(fixture, crew)&&this.canStore(Collections.singleton(fixture), 0)){
+				for (int position = 0; position<crew.length; position++){
+					fixture.setOfficial(position, crew[position]);
+				}
+				this.insertMatch(fixture);
+				matchAddedSuccessfully = true;
+			}
+		}
+		return matchAddedSuccessfully;
+	}
+
+	/**
+	 * Method to determine whether a crew may officiate a match: one different referee of
+	 * the schedule for each role, each eligible for the match and free in its week
+	 * @param fixture a Match object not yet scheduled
+	 * @param crew an array containing the referee for each role of the crew, in order
+	 * @return a boolean denoting whether the crew is complete and available
+	 */
+	private boolean canStaff(Match fixture, Referee[] crew){
+		if (crew.length!=fixture.getCrewSize()||new HashSet<Referee>(Arrays.asList(crew)).size()!=crew.length){
+			return false;
+		}
+		long weekBit = Referee.weekBit(fixture.getWeekNo());
+		for (Referee ref: crew){
+			if (ref==null||!refereeIndex.contains(ref)||!this.canOfficiate(ref, fixture)
+					||(ref.getBookedWeeks()&weekBit)!=0){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Method to add a match whose officials have already been chosen to the schedule,
+	 * increasing the match allocations of each official.
+	 * @param fixture a Match object with its whole crew allocated
+	 */
+	void insertMatch(Match fixture){
+		this.beginStep();
+		try{
+			this.insertFixture(matchSchedule.size(), fixture);
+			for (int position = 0; position<fixture.getCrewSize(); position++){
+				this.changeMatchAllocations(fixture.getOfficial(position), 1);
+				this.bookOfficial(fixture.getOfficial(position), fixture.getWeekNo(), true);
+			}
+		}
+		finally{
+			this.endStep();
+		}
+	}
+
+	/**
+	 * Method to remove a match from the schedule, decreasing the match allocations
+	 * of each official allocated to it.
+	 * @param fixture a Match object within the schedule
+	 */
+	void deleteMatch(Match fixture){
+		this.beginStep();
+		try{
+			for (int position = 0; position<fixture.getCrewSize(); position++){
+				// decrease the number of match allocations for each official and
+				// release them for other matches in the same week
+				this.changeMatchAllocations(fixture.getOfficial(position), -1);
+				this.bookOfficial(fixture.getOfficial(position), fixture.getWeekNo(), false);
+			}
+			this.deleteFixture(fixture);
+			// remove the match from the match schedule
+		}
+		finally{
+			this.endStep();
+		}
+	}
+
+	/**
+	 * Method to apply the matches removed and added in a fork of the schedule as
+	 * a single operation, so that they are undone together
+	 * @param removedMatches the matches of the schedule removed in the fork
+	 * @param addedMatches the matches scheduled in the fork, with their officials allocated
+	 */
+	void applyFork(Collection<Match> removedMatches, Collection<Match> addedMatches){
+		this.beginStep();
+		try{
+			for (Match fixture: removedMatches){
+				this.deleteMatch(fixture);
+			}
+			for (Match fixture: addedMatches){
+				this.insertMatch(fixture);
+			}
+		}
+		finally{
+			this.endStep();
+		}
+	}
+
+	/**
+	 * Method to replace the officials of scheduled matches as a single operation which may
+	 * be undone. Every official being replaced is released before any new official is
+	 * allocated, so referees may be exchanged between matches of the same week.
+	 * @param fixtures a list of scheduled Match objects
+	 * @param crews an array containing the new officials of each match, in the same order as fixtures
+	 */
+	void reassignOfficials(List<Match> fixtures, Referee[][] crews){
+		this.beginStep();
+		try{
+			// Release each official who is being replaced
+			for (int index = 0; index<fixtures.size(); index++){
+				Match fixture = fixtures.get(index);
+				for (int position = 0; position<fixture.getCrewSize(); position++){
+					Referee currentRef = fixture.getOfficial(position);
+					if (currentRef!=crews[index][position]){
+						this.changeMatchAllocations(currentRef, -1);
+						this.bookOfficial(currentRef, fixture.getWeekNo(), false);
+					}
+				}
+			}
+			// Allocate each replacement official
+			for (int index = 0; index<fixtures.size(); index++){
+				Match fixture = fixtures.get(index);
+				for (int position = 0; position<fixture.getCrewSize(); position++){
+					if (fixture.getOfficial(position)!=crews[index][position]){
+						this.changeMatchAllocations(crews[index][position], 1);
+						this.bookOfficial(crews[index][position], fixture.getWeekNo(), true);
+						this.assignOfficial(fixture, position, crews[index][position]);
+					}
+				}
+			}
+		}
+		finally{
+			this.endStep();
+		}
+	}
+
+	/**
+	 * Method to create a fork of the schedule in which alternative matches may be
+	 * scheduled without altering the schedule. The fork shares the referees and matches
+	 * of the schedule, so it is created in constant time.
+	 * @return fork a ScheduleFork based upon the current state of the schedule
+	 */
+	public ScheduleFork fork(){
+		return new ScheduleFork(this);
+	}
+
+	/**
+	 * Method to determine whether a batch of fixtures could all be added to the schedule
+	 * with full crews, before any of them is added
+	 * @param fixtures a List of Match objects describing the proposed fixtures
+	 * @return a Report of the fixtures which cannot all be staffed and the referees limiting them
+	 */
+	public FeasibilityAnalyzer.Report checkFeasibility(List<Match> fixtures){
+		return new FeasibilityAnalyzer(this).analyze(fixtures);
+	}
+
+	/**
+	 * Accessor method for the number of selections of referees served from a cached ranking.
+	 * May be called on any thread.
+	 * @return a long containing the number of cache hits since the schedule was created
+	 */
+	public long getRankingCacheHits(){
+		return rankingCacheHits.get();
+	}
+
+	/**
+	 * Accessor method for the number of selections of referees for which no ranking was
+	 * cached. May be called on any thread.
+	 * @return a long containing the number of cache misses since the schedule was created
+	 */
+	public long getRankingCacheMisses(){
+		return rankingCacheMisses.get();
+	}
+
+	/**
+	 * Accessor method for the number of rankings of suitable referees currently cached
+	 * @return numberOfRankings an int containing the number of venue and level pairs ranked
+	 */
+	public int getNumberOfCachedRankings(){
+		int numberOfRankings = 0;
+		for (Map<String, Referee[]> rankingsForLevel: suitableRefsCache.values()){
+			numberOfRankings += rankingsForLevel.size();
+		}
+		return numberOfRankings;
+	}
+
+	/**
+	 * Accessor method for the number of referees in the spatial index of their homes
+	 * @return an int containing the number of referees located, or 0 if the index is not built
+	 */
+	public int getNumberOfLocatedReferees(){
+		return refereeLocator!=null ? refereeLocator.size() : 0;
+	}
+
+	/**
+	 * Accessor method for the number of weeks in which at least one match is scheduled
+	 * @return an int containing the number of weeks indexed
+	 */
+	public int getNumberOfScheduledWeeks(){
+		return matchesByWeek.size();
+	}
+
+	/**
+	 * Accessor method for the number of operations which may be undone
+	 * @return an int containing the number of steps retained by the history
+	 */
+	public int getNumberOfUndoSteps(){
+		return history.getNumberOfSteps();
+	}
+
+	/**
+	 * Method to release the memory held by the caches and indexes of the schedule which
+	 * can be rebuilt when next needed. Every cached ranking and the spatial index of the
+	 * referees' homes are discarded, and the lists and slots left unused by removed
+	 * referees and matches are trimmed. The referees, matches and history are not altered.
+	 */
+	public void compact(){
+		suitableRefsCache.clear();
+		refereeLocator = null;
+		refereePositions = null;
+		refereeIndex.compact();
+		((ArrayList<Referee>) officials).trimToSize();
+		((ArrayList<Match>) matchSchedule).trimToSize();
+		if (store!=null){
+			((ArrayList<Referee>) storedReferees).trimToSize();
+			((ArrayList<Match>) storedMatches).trimToSize();
+		}
+	}
+
+	/**
+	 * Method to return a Match object scheduled for a given week. Where several matches are
+	 * scheduled in the week only the most recently scheduled is returned, so getMatchesByWeek
+	 * should be used to reach every match of the week.
+	 * @param week an integer containing the week the match has been scheduled for
+	 * @return game a Match object corresponding to the week searched for
+	 */
+	public Match getMatchByWeek(int week){
+		Match fixture = null;
+		List<Match> weekMatches = this.getMatchesByWeek(week);
+		if (!weekMatches.isEmpty()){
+			// the most recently scheduled match of the week
+			fixture = weekMatches.get(weekMatches.size()-1);
+		}
+		// return the match object or "null" if no match has been allocated to that week
+		return fixture;
+	}
+
+	/**
+	 * Method to return every Match object scheduled for a given week
+	 * @param week an integer containing the week searched for
+	 * @return an unmodifiable list of the matches scheduled in the week, in the order they were scheduled
+	 */
+	public List<Match> getMatchesByWeek(int week){
+		return Collections.unmodifiableList(this.getMatchesByWeek(week, false));
+	}
+
+	/**
+	 * Method to locate the list of matches scheduled for a given week
+	 * @param week an integer containing the week searched for
+	 * @param create a boolean denoting whether an empty list should be stored for a week without matches
+	 * @return weekMatches the list of matches scheduled in the week
 	 */
-	public int getNumberOfReferees(){
-		return officials.size();
+	private List<Match> getMatchesByWeek(int week, boolean create){
+		List<Match> weekMatches = matchesByWeek.get(week);
+		if (weekMatches==null){
+			weekMatches = new ArrayList<Match>();
+			if (create){
+				matchesByWeek.put(week, weekMatches);
+			}
+		}
+		return weekMatches;
 	}
-	
+
 	/**
-	 * Accessor method for the matches allocated to the match schedule
-	 * @return matchSchedule an ArrayList of matches allocated to the schedule
+	 * Method to create an ordered array of referees suitable for a match. The ranking for
+	 * each venue and level is cached until the eligibility or home of a referee it depends
+	 * upon changes, and is reordered in place as match allocations change.
+	 * @param matchVenue a String containing the location of the match to be scheduled
+	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
+	 * @return refsAvailable an array of referees ordered by suitability for a given match
 	 */
-	public List<Match> getMatchSchedule(){
-		return matchSchedule;
+	public Referee[] determineSuitableRefs (String matchVenue, String matchLevel){
+		// A copy is returned so that the cached ranking cannot be altered by the caller
+		return this.cachedSuitableRefs(matchVenue, matchLevel).clone();
 	}
 
 	/**
-	 * Method to add a referee to the list of referees from a file input.
-	 * @param details a String that contains all the information for one referee in the format of the input file
-	 * @return refereeAdded a boolean denoting if the referee was added successfully
+	 * Method to create an ordered array of referees suitable for a match in a given week.
+	 * Referees already officiating a match in that week or who have blocked the week out
+	 * are excluded with a single bit test each.
+	 * @param matchVenue a String containing the location of the match to be scheduled
+	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
+	 * @param matchWeek an int containing the week of the match to be scheduled
+	 * @return freeRefs an array of unbooked referees ordered by suitability for the match
 	 */
-	public boolean addReferee(String details){
-		boolean refereeAdded = false;
-		if (this.getNumberOfReferees()<this.MAXIMUM_NUMBER_OF_OFFICIALS){
-			//Tokenise the details for the official from the String input
-			//Assumes the format of the input file is correct
-			String [] tokens = details.trim().split(" +");
-			int tokenIndex = 0;
-			// The details of the referee are stored in a specified format in the string
-			String refID = tokens[tokenIndex++];
-			String refFirstName = tokens[tokenIndex++];
-			String refSurname = tokens[tokenIndex++];
-			String refQualification = tokens[tokenIndex++];
-			// the number of matches allocated to the official must be parsed
-			// to an integer
-			int refAllocations = Integer.parseInt(tokens[tokenIndex++].trim());
-			String refHomeArea = tokens[tokenIndex++];
-			// the availability of the referee is stored as a String of chars
-			// which are not seperated by whitespace (e.g. "YNN")
-			String availability = tokens[tokenIndex++];
-			int availabilityIndex = 0;
-			char isAvailableNorth = availability.charAt(availabilityIndex++);
-			char isAvailableCentral = availability.charAt(availabilityIndex++);
-			char isAvailableSouth = availability.charAt(availabilityIndex++);
-			// generate a new referee object and add it to the list of referees
-			Referee ref = new Referee(refID, refFirstName, refSurname, refQualification,
-					refAllocations, refHomeArea, isAvailableNorth, isAvailableCentral,
-					isAvailableSouth);
-			officials.add(ref);
-			refereeAdded = true;
+	public Referee[] determineSuitableRefs (String matchVenue, String matchLevel, int matchWeek){
+		Referee[] suitableRefs = this.cachedSuitableRefs(matchVenue, matchLevel);
+		long weekBit = Referee.weekBit(matchWeek);
+		Referee[] freeRefs = new Referee[suitableRefs.length];
+		int numberOfFreeRefs = 0;
+		for (Referee ref: suitableRefs){
+			if ((ref.getIneligibleWeeks()&weekBit)==0){
+				freeRefs[numberOfFreeRefs++] = ref;
+			}
 		}
-		return refereeAdded;
+		return Arrays.copyOf(freeRefs, numberOfFreeRefs);
 	}
 
 	/**
-	 * Method to add a referee to the list of referees from the GUI.
-	 * @param refID a String containing the ID of the referee
-	 * @param refFirstName a String containing the first name of the referee
-	 * @param refSurname a String containing the surname of the referee
-	 * @param refQualification a String containing the qualification of the referee
-	 * @param refAllocations an integer containing the number of matches a referee has already been allocated
-	 * @param refHomeArea a String containing the geographical location of the referee's home
-	 * @param isAvailableNorth a boolean representing the availability of the official for matches in the northern area
-	 * @param isAvailableCentral a boolean representing the availability of the official for matches in the central area
-	 * @param isAvailableSouth a boolean representing the availability of the official for matches in the southern area
-	 * @return refereeAdded a boolean denoting if the referee was added successfully
+	 * Method to select the most suitable referees free to officiate a match in a given week,
+	 * in the order they appear in the ranking. The cached ranking is read only as far as is
+	 * needed, and is ranked and cached first if it is not yet cached, as a cached ranking is
+	 * kept up to date as matches are allocated rather than being ranked again.
+	 * @param matchVenue a String containing the location of the match to be scheduled
+	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
+	 * @param matchWeek an int containing the week of the match to be scheduled
+	 * @param numberOfRefs an int containing the number of referees required
+	 * @return an array of at most numberOfRefs unbooked referees ordered by suitability for the match
 	 */
-	public boolean addReferee(String refID, String refFirstName, String refSurname, String refQualification, 
-			int refAllocations, String refHomeArea, boolean isAvailableNorth, boolean isAvailableCentral,
-			boolean isAvailableSouth){
-		boolean refereeAdded = false;
-		if (this.getNumberOfReferees()<this.MAXIMUM_NUMBER_OF_OFFICIALS){
-			// As long as the number of referees does not exceed the maximum
-			// Create a new instance of Referee class
-			Referee ref = new Referee(refID, refFirstName, refSurname, refQualification, 
-					refAllocations, refHomeArea, isAvailableNorth, isAvailableCentral, isAvailableSouth);
-			// Add the referee object to the list of available referees
-			officials.add(ref);
-			refereeAdded = true;
+	Referee[] selectSuitableRefs (String matchVenue, String matchLevel, int matchWeek, int numberOfRefs){
+		final long weekBit = Referee.weekBit(matchWeek);
+		Predicate<Referee> free = new Predicate<Referee>(){
+			public boolean test(Referee ref){
+				return (ref.getIneligibleWeeks()&weekBit)==0;
+			}
+		};
+		Referee[] suitableRefs = this.cachedSuitableRefs(matchVenue, matchLevel);
+		Referee[] selectedRefs = new Referee[numberOfRefs];
+		int numberSelected = 0;
+		for (int index = 0; index<suitableRefs.length&&numberSelected<numberOfRefs; index++){
+			if (free.test(suitableRefs[index])){
+				selectedRefs[numberSelected++] = suitableRefs[index];
+			}
 		}
-		return refereeAdded;
+		return Arrays.copyOf(selectedRefs, numberSelected);
 	}
 
 	/**
-	 * Method to remove a referee object from the list of referees.
-	 * @param refID a String containing the ID of the referee
-	 * @return refereeRemoved a boolean denoting that the referee was successfully removed
+	 * Method to select the most suitable referees for a match without ranking every suitable
+	 * referee. The referees selected, and their order, are those at the front of the ranking
+	 * produced by rankSuitableRefs once referees who are not free are removed. The selection
+	 * keeps the best referees seen so far in a heap whose worst member is replaced whenever a
+	 * better referee is found, so selecting a crew of k from n referees takes O(n log k) time.
+	 * @param matchVenue a String containing the location of the match to be scheduled
+	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
+	 * @param numberOfRefs an int containing the number of referees required
+	 * @param allocationChanges a map of the change to each referee's match allocations to be
+	 * used for the selection, or null to use the match allocations of the schedule
+	 * @param free a Predicate denoting whether a referee is free to officiate the match
+	 * @return selectedRefs an array of at most numberOfRefs referees ordered by suitability for the match
 	 */
-	public boolean removeReferee(String refID){
-		Boolean refereeRemoved = false;
-		Referee ref = this.getRefereeByID(refID);
-		if (ref!=null){
-			// if a referee exists with a matching refID
-			// then remove the official from the list of available referees
-			officials.remove(ref);
-			refereeRemoved = true;
+	Referee[] selectSuitableRefs (String matchVenue, String matchLevel, int numberOfRefs,
+			Map<Referee, Integer> allocationChanges, Predicate<Referee> free){
+		int venue = regions.getRegionIndex(matchVenue);
+		if (venue<0||numberOfRefs<1){
+			return new Referee[0];
 		}
-		return refereeRemoved;
+		if (regions.hasCoordinates()){
+			return this.selectNearestRefs(matchVenue, matchLevel, numberOfRefs, allocationChanges, free);
+		}
+		// Determine the tier of each region and its position within the tier, which decide
+		// the order of referees from the same tier with equal match allocations
+		int[] tierOfRegion = new int[regions.getNumberOfRegions()];
+		int[] positionInTier = new int[regions.getNumberOfRegions()];
+		Arrays.fill(tierOfRegion, -1);
+		int[][] tiers = regions.getProximityTiers(venue);
+		for (int tier = 0; tier<tiers.length; tier++){
+			for (int position = 0; position<tiers[tier].length; position++){
+				tierOfRegion[tiers[tier][position]] = tier;
+				positionInTier[tiers[tier][position]] = position;
+			}
+		}
+		// Each candidate is ranked by tier, then match allocations, then the position of their
+		// region within the tier and finally their position in the list of referees
+		List<Referee> availableRefs = this.getAvailableRefs(matchLevel, matchVenue);
+		final long[] rankKeys = new long[availableRefs.size()];
+		final int[] regionPositions = new int[availableRefs.size()];
+		Comparator<Integer> worstFirst = new Comparator<Integer>(){
+			public int compare(Integer candidate1, Integer candidate2){
+				if (rankKeys[candidate1]!=rankKeys[candidate2]){
+					return rankKeys[candidate1]<rankKeys[candidate2] ? 1 : -1;
+				}
+				if (regionPositions[candidate1]!=regionPositions[candidate2]){
+					return regionPositions[candidate2]-regionPositions[candidate1];
+				}
+				return candidate2-candidate1;
+			}
+		};
+		PriorityQueue<Integer> bestCandidates = new PriorityQueue<Integer>(numberOfRefs+1, worstFirst);
+		for (int candidate = 0; candidate<availableRefs.size(); candidate++){
+			Referee ref = availableRefs.get(candidate);
+			int home = regions.getRegionIndex(ref.getHomeLocation());
+			if (home<0||tierOfRegion[home]<0||!free.test(ref)){
+				continue;
+			}
+			rankKeys[candidate] = ((long) tierOfRegion[home]<<32)
+					+((long) this.allocationsOf(ref, allocationChanges)-Integer.MIN_VALUE);
+			regionPositions[candidate] = positionInTier[home];
+			if (bestCandidates.size()<numberOfRefs){
+				bestCandidates.add(candidate);
+			}
+			else if (worstFirst.compare(candidate, bestCandidates.peek())>0){
+				// the candidate is better than the worst referee selected so far
+				bestCandidates.poll();
+				bestCandidates.add(candidate);
+			}
+		}
+		// The heap yields the worst candidate first, so the selection is filled from the back
+		Referee[] selectedRefs = new Referee[bestCandidates.size()];
+		for (int position = selectedRefs.length-1; position>=0; position--){
+			selectedRefs[position] = availableRefs.get(bestCandidates.poll());
+		}
+		return selectedRefs;
 	}
 
 	/**
-	 * Method to alter the details of a particular referee.
-	 * @param refID a String containing the ID of the referee
-	 * @param refQualification a String containing the qualification of the referee
-	 * @param refHomeArea refHomeArea a String containing the geographical location of the referee's home
-	 * @param isAvailableNorth a boolean representing the availability of the official for matches in the northern area
-	 * @param isAvailableCentral a boolean representing the availability of the official for matches in the central area
-	 * @param isAvailableSouth a boolean representing the availability of the official for matches in the southern area
-	 * @return refereeEdited a boolean denoting whether or not the referee was successfully edited 
+	 * Method to locate the cached ranking of referees suitable for a match, ranking the
+	 * referees if the ranking is not cached. The returned array must not be altered.
+	 * @param matchVenue a String containing the location of the match to be scheduled
+	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
+	 * @return suitableRefs the cached array of referees ordered by suitability for the match
 	 */
-	public boolean editReferee(String refID, String refQualification, String refHomeArea, boolean isAvailableNorth,
-			boolean isAvailableCentral, boolean isAvailableSouth){
-		boolean refereeEdited = false;
-		Referee ref = this.getRefereeByID(refID);
-		// ensure the changes apply to an existing referee
-		if (ref!=null){
-			// Update the all editable fields for the referee
-			ref.setQualification(refQualification);
-			ref.setHomeLocation(refHomeArea);
-			ref.setAvailableNorth(isAvailableNorth);
-			ref.setAvailableCentral(isAvailableCentral);
-			ref.setAvailableSouth(isAvailableSouth);
-			// store the new changes to the referee's details
-			refereeEdited = true;
+	private Referee[] cachedSuitableRefs (String matchVenue, String matchLevel){
+		Map<String, Referee[]> rankingsForLevel = suitableRefsCache.get(matchLevel);
+		if (rankingsForLevel==null){
+			rankingsForLevel = new HashMap<String, Referee[]>();
+			suitableRefsCache.put(matchLevel, rankingsForLevel);
 		}
-		return refereeEdited;
+		Referee[] suitableRefs = rankingsForLevel.get(matchVenue);
+		if (suitableRefs==null){
+			// the ranking has not been determined since it was last affected by a change
+			rankingCacheMisses.incrementAndGet();
+			suitableRefs = this.rankSuitableRefs(matchVenue, matchLevel, null);
+			rankingsForLevel.put(matchVenue, suitableRefs);
+		}
+		else{
+			rankingCacheHits.incrementAndGet();
+		}
+		return suitableRefs;
 	}
 
 	/**
-	 * Method to return a referee object based upon a unique name
-	 * @param refName a String containing the first and surname of the referee
-	 * @return ref a Referee object which corresponds to the name searched for
+	 * Method to discard every cached ranking that the referee is eligible to appear in.
+	 * This must be called before and after any change to the referee affecting their eligibility
+	 * or their position within a ranking, other than a change to their match allocations.
+	 * @param ref a Referee object which is about to change or has changed
 	 */
-	public Referee getRefereeByName(String refName){
-		Referee ref = null;
-		// Search for a match to the first and surnames entered
-		for (Referee official: officials){
-			if (official.getFullName().equals(refName)){
-				ref = official;
-				break;
+	private void invalidateSuitableRefs(Referee ref){
+		for (Map.Entry<String, Map<String, Referee[]>> rankingsForLevel: suitableRefsCache.entrySet()){
+			if (!rankingsForLevel.getKey().equals("Senior")||ref.canRefereeSeniors()){
+				// the referee is qualified for matches at this level, so appears
+				// in the ranking of every venue they are available in
+				Iterator<String> venues = rankingsForLevel.getValue().keySet().iterator();
+				while (venues.hasNext()){
+					if (ref.isAvailableIn(venues.next())){
+						venues.remove();
+					}
+				}
 			}
 		}
-		// return null if no corresponding referee is identified
-		return ref;
 	}
 
 	/**
-	 * Method to search for a referee by ID.
-	 * @param refID a String containing the ID of the referee
-	 * @return ref a Referee object containing the details for the matched official 
-	 * or null if no referee exists with that name
+	 * Method to move a referee within every cached ranking they appear in once their match
+	 * allocations have changed. Each ranking is otherwise unaltered, so the referee is found
+	 * by a binary search using their previous match allocations and is then moved past only
+	 * the k referees they overtake or fall behind, taking O(log n + k) time rather than the
+	 * O(n log n) time of ranking every suitable referee again. A ranking in which the referee
+	 * cannot be found is discarded.
+	 * @param ref a Referee object whose match allocations have changed
+	 * @param previousAllocations an int containing the referee's match allocations before the change
 	 */
-	public Referee getRefereeByID(String refID){
-		Referee ref = null;
-		// Search for an the unique ID in the list of referees
-		for (Referee official: officials){
-			if (official.getRefID().equals(refID)){
-				ref = official;
-				break;
+	private void repositionSuitableRefs(Referee ref, int previousAllocations){
+		if (!refereeIndex.contains(ref)){
+			// a removed referee appears in no ranking
+			return;
+		}
+		for (Map.Entry<String, Map<String, Referee[]>> rankingsForLevel: suitableRefsCache.entrySet()){
+			if (!rankingsForLevel.getKey().equals("Senior")||ref.canRefereeSeniors()){
+				Iterator<Map.Entry<String, Referee[]>> rankings = rankingsForLevel.getValue().entrySet().iterator();
+				while (rankings.hasNext()){
+					Map.Entry<String, Referee[]> ranking = rankings.next();
+					if (ref.isAvailableIn(ranking.getKey())&&!this.moveWithinRanking(ranking.getValue(),
+							new RankingOrder(ranking.getKey()), ref, previousAllocations)){
+						rankings.remove();
+					}
+				}
 			}
 		}
-		// if no match is located return null
-		return ref;
 	}
 
 	/**
-	 * Method to add a new match to the match schedule
-	 * @param area a String corresponding to the venue of the match
-	 * @param level a String corresponding to the level of the match (Junior/Senior)
-	 * @param week an int corresponding to the week the match is scheduled for
-	 * @return matchAddedSuccessfully a boolean denoting whether the match was added successfully
+	 * Method to move a referee within a ranking to the position given by their current match
+	 * allocations, shifting the referees between their previous and new positions by one
+	 * @param ranking an array of referees ordered by suitability for a match
+	 * @param order a RankingOrder for the venue of the ranking
+	 * @param ref a Referee object whose match allocations have changed
+	 * @param previousAllocations an int containing the referee's match allocations before the change
+	 * @return a boolean denoting whether the referee was found in the ranking or cannot appear in it
 	 */
-	public boolean addMatchToSchedule(String matchLocation, String matchLevel, int matchWeek){
-		boolean matchAddedSuccessfully = false;
-		// Ensure the maximum number of matches isn't exceeded and the
-		// specific week is available for scheduling
-		if (this.getNumberOfMatches()<WEEKS_IN_A_SEASON&&this.getMatchByWeek(matchWeek)==null){
-			Referee[] suitableRefs = determineSuitableRefs(matchLocation, matchLevel);
-			if (suitableRefs.length>=REFEREES_PER_MATCH){
-				// if there are sufficient suitable referees to officiate the match
-				Match fixture = new Match (matchLocation, matchLevel, matchWeek);
-				// Add the match to the schedule of matches
-				matchSchedule.add(fixture);
-				allocateOfficials (suitableRefs, fixture);
-				// allocate suitable officials to the match
-				matchAddedSuccessfully = true;
+	private boolean moveWithinRanking(Referee[] ranking, RankingOrder order, Referee ref, int previousAllocations){
+		if (!order.ranks(ref)){
+			return true;
+		}
+		// Every other referee holds the match allocations the ranking was ordered by
+		int position = -1;
+		int low = 0;
+		int high = ranking.length-1;
+		while (low<=high&&position<0){
+			int middle = (low+high)>>>1;
+			if (ranking[middle]==ref){
+				position = middle;
+			}
+			else{
+				int comparison = order.compare(ranking[middle], ranking[middle].getMatchAllocations(),
+						ref, previousAllocations);
+				if (comparison<0){
+					low = middle+1;
+				}
+				else{
+					high = middle-1;
+				}
 			}
 		}
-		return matchAddedSuccessfully;
+		if (position<0){
+			return false;
+		}
+		int allocations = ref.getMatchAllocations();
+		while (position+1<ranking.length
+				&&order.compare(ranking[position+1], ranking[position+1].getMatchAllocations(), ref, allocations)<0){
+			ranking[position] = ranking[position+1];
+			position++;
+		}
+		while (position>0
+				&&order.compare(ranking[position-1], ranking[position-1].getMatchAllocations(), ref, allocations)>0){
+			ranking[position] = ranking[position-1];
+			position--;
+		}
+		ranking[position] = ref;
+		return true;
 	}
 
 	/**
-	 * Method to remove a match from the schedule of matches
-	 * @param week an integer denoting the week the match is scheduled for
-	 * @return matchRemovedSuccessfully a boolean denoting whether the match was removed successfully
+	 * Method to determine the position of a referee in the list of referees, which decides
+	 * the order of referees who are otherwise equally suitable for a match
+	 * @param ref a Referee object of the schedule
+	 * @return an int containing the position of the referee in the list of referees
 	 */
-	public boolean removeMatchFromSchedule(int week){
-		boolean matchRemovedSuccessfully = false;
-		Match fixture = this.getMatchByWeek(week);
-		// Identify the match from within the schedule
-		if (fixture!=null){
-			// if there is an existing match allocated to a given week
-			Referee ref1 = fixture.getReferee1();
-			ref1.setMatchAllocations(ref1.getMatchAllocations()-1);
-			// decrease the number of match allocations for referee 1
-			Referee ref2 = fixture.getReferee2();
-			ref2.setMatchAllocations(ref2.getMatchAllocations()-1);
-			// decrease the number of match allocation for referee 2
-			matchSchedule.remove(fixture);
-			// remove the match from the match schedule
-			matchRemovedSuccessfully = true;
+	private int getListPosition(Referee ref){
+		if (refereePositions==null){
+			refereePositions = new IdentityHashMap<Referee, Integer>();
+			for (int position = 0; position<officials.size(); position++){
+				refereePositions.put(officials.get(position), position);
+			}
 		}
-		return matchRemovedSuccessfully;
+		return refereePositions.get(ref);
 	}
 
 	/**
-	 * Method to return a Match object scheduled for a given week
-	 * @param week an integer containing the week the match has been scheduled for
-	 * @return game a Match object corresponding to the week searched for
+	 * The order in which rankSuitableRefs ranks the referees suitable for a match at a venue,
+	 * given the match allocations of each referee compared
 	 */
-	public Match getMatchByWeek(int week){
-		Match fixture = null;
-		for (Match game: matchSchedule){
-			if (game.getWeekNo()==week){
-				fixture = game;
+	private class RankingOrder {
+
+		private final Coordinates venueCoordinates; // the position of the venue, or null if the regions have no coordinates
+		private final int[] tierOfRegion; // the proximity tier of each region, or -1 if it is in no tier
+		private final int[] positionInTier; // the position of each region within its tier
+
+		/**
+		 * Constructor for the RankingOrder
+		 * @param matchVenue a String containing the location of the match, one of the regions
+		 */
+		RankingOrder(String matchVenue){
+			int venue = regions.getRegionIndex(matchVenue);
+			venueCoordinates = regions.hasCoordinates() ? regions.getCoordinates(venue) : null;
+			tierOfRegion = new int[regions.getNumberOfRegions()];
+			positionInTier = new int[regions.getNumberOfRegions()];
+			Arrays.fill(tierOfRegion, -1);
+			int[][] tiers = regions.getProximityTiers(venue);
+			for (int tier = 0; tier<tiers.length; tier++){
+				for (int position = 0; position<tiers[tier].length; position++){
+					tierOfRegion[tiers[tier][position]] = tier;
+					positionInTier[tiers[tier][position]] = position;
+				}
 			}
 		}
-		// return the match object or "null" if no match has been allocated to that week
-		return fixture;
+
+		/**
+		 * Method to determine whether a referee eligible for the match appears in the ranking
+		 * @param ref a Referee object qualified and available for the match
+		 * @return a boolean denoting whether the referee's home is known
+		 */
+		boolean ranks(Referee ref){
+			if (venueCoordinates!=null){
+				return getTravelOrigin(ref)!=null;
+			}
+			int home = regions.getRegionIndex(ref.getHomeLocation());
+			return home>=0&&tierOfRegion[home]>=0;
+		}
+
+		/**
+		 * Method to compare the positions of two referees in the ranking
+		 * @param ref1 a Referee object appearing in the ranking
+		 * @param allocations1 an int containing the match allocations of the first referee
+		 * @param ref2 another Referee object appearing in the ranking
+		 * @param allocations2 an int containing the match allocations of the second referee
+		 * @return order an int which is negative if the first referee is ranked first
+		 */
+		int compare(Referee ref1, int allocations1, Referee ref2, int allocations2){
+			int order;
+			if (venueCoordinates!=null){
+				// ranked as by rankNearestRefs
+				double distance1 = getTravelOrigin(ref1).distanceTo(venueCoordinates);
+				double distance2 = getTravelOrigin(ref2).distanceTo(venueCoordinates);
+				order = travelBand(distance1)-travelBand(distance2);
+				if (order==0){
+					order = Integer.compare(allocations1, allocations2);
+				}
+				if (order==0){
+					order = Double.compare(distance1, distance2);
+				}
+			}
+			else{
+				// ranked as by merging the buckets of each tier
+				int home1 = regions.getRegionIndex(ref1.getHomeLocation());
+				int home2 = regions.getRegionIndex(ref2.getHomeLocation());
+				order = tierOfRegion[home1]-tierOfRegion[home2];
+				if (order==0){
+					order = Integer.compare(allocations1, allocations2);
+				}
+				if (order==0){
+					order = positionInTier[home1]-positionInTier[home2];
+				}
+			}
+			if (order==0){
+				order = getListPosition(ref1)-getListPosition(ref2);
+			}
+			return order;
+		}
 	}
 
 	/**
-	 * Method to create an ordered array of referees suitable for a match
+	 * Method to rank every referee suitable for a match by proximity and match allocations.
+	 * The ranking is not cached, and the schedule is not altered, so forks of the schedule
+	 * may rank referees using their own match allocations.
 	 * @param matchVenue a String containing the location of the match to be scheduled
 	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
-	 * @return refsAvailable an array of referees ordered by suitability for a given match
+	 * @param allocationChanges a map of the change to each referee's match allocations to be
+	 * used for the ranking, or null to use the match allocations of the schedule
+	 * @return suitableRefs an array of referees ordered by suitability for a given match
 	 */
-	public Referee[] determineSuitableRefs (String matchVenue, String matchLevel){
+	Referee[] rankSuitableRefs (String matchVenue, String matchLevel, Map<Referee, Integer> allocationChanges){
+		int venue = regions.getRegionIndex(matchVenue);
+		if (venue<0){
+			// No referees can be suitable for a venue outside of the known regions
+			return new Referee[0];
+		}
+		if (regions.hasCoordinates()){
+			List<Referee> rankedRefs = this.rankNearestRefs(matchVenue, matchLevel, Integer.MAX_VALUE,
+					allocationChanges, null);
+			return rankedRefs.toArray(new Referee[rankedRefs.size()]);
+		}
 		// Determine the referees qualified and available referees for the proposed match
 		List<Referee> availableRefs = this.getAvailableRefs(matchLevel, matchVenue);
-		// Divide the referees by geographical location
-		List<Referee> northRefs = this.getAvailableRefsByLocation(availableRefs, "North");			
-		List<Referee> centralRefs = this.getAvailableRefsByLocation(availableRefs, "Central");
-		List<Referee> southRefs = this.getAvailableRefsByLocation(availableRefs, "South");
-		// Sort the list of referees arrange by location based upon the number of match allocations
-		northRefs = this.sortByAllocations(northRefs);
-		centralRefs = this.sortByAllocations(centralRefs);
-		southRefs = this.sortByAllocations(southRefs);
-		// Create an array of referees ordered by proximity based upon the venue of the proposed match
-		Referee[] suitableRefs = this.generateSuitableRefs (northRefs, centralRefs, southRefs, matchVenue);
+		// Divide the referees by geographical location, a single pass placing each
+		// referee in the bucket of their home region
+		List<List<Referee>> regionBuckets = new ArrayList<List<Referee>>();
+		for (int region = 0; region<regions.getNumberOfRegions(); region++){
+			regionBuckets.add(new ArrayList<Referee>());
+		}
+		int totalSuitableRefs = 0;
+		for (Referee ref: availableRefs){
+			int home = regions.getRegionIndex(ref.getHomeLocation());
+			if (home>=0){
+				regionBuckets.get(home).add(ref);
+				totalSuitableRefs++;
+			}
+		}
+		// Sort each bucket of referees based upon the number of match allocations
+		for (List<Referee> bucket: regionBuckets){
+			this.sortByAllocations(bucket, allocationChanges);
+		}
+		// Create an array of referees ordered by proximity based upon the venue of the proposed match.
+		// Regions an equal distance from the venue are given equal priority, so their
+		// buckets are merged by match allocations.
+		Referee[] suitableRefs = new Referee[totalSuitableRefs];
+		int nextPosition = 0;
+		for (int[] tier: regions.getProximityTiers(venue)){
+			nextPosition = this.mergeRegionBuckets(suitableRefs, nextPosition, regionBuckets, tier,
+					allocationChanges);
+		}
 		return suitableRefs;
 	}
 
 	/**
-	 * Method to generate a list of referees eligible and available to referee a proposed match
-	 * @param matchLevel a String representing whether the match has Junior or Senior participants
-	 * @param matchVenue a String representing the venue of the proposed match
-	 * @return qualifiedRefs an ArrayList of Referees qualified and available to officiate the match
+	 * Method to select the most suitable referees for a match from the referees nearest its
+	 * venue. The referees selected, and their order, are those at the front of the ranking
+	 * by travel.
+	 * @param matchVenue a String containing the location of the match to be scheduled
+	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
+	 * @param numberOfRefs an int containing the number of referees required
+	 * @param allocationChanges a map of the change to each referee's match allocations, or null
+	 * @param free a Predicate denoting whether a referee is free to officiate the match
+	 * @return an array of at most numberOfRefs referees ordered by suitability for the match
 	 */
-	private List<Referee> getAvailableRefs(String matchLevel, String matchVenue){
-		List<Referee> qualifiedReferees = new ArrayList<Referee>();
-		if (matchLevel.equals("Senior")){
-			for (Referee ref: officials){
-				if (ref.canRefereeSeniors()){
-					qualifiedReferees.add(ref);
-					// add the officials qualified to referee Senior matches
+	private Referee[] selectNearestRefs (String matchVenue, String matchLevel, int numberOfRefs,
+			Map<Referee, Integer> allocationChanges, Predicate<Referee> free){
+		List<Referee> rankedRefs = this.rankNearestRefs(matchVenue, matchLevel, numberOfRefs,
+				allocationChanges, free);
+		return rankedRefs.subList(0, Math.min(numberOfRefs, rankedRefs.size())).toArray(new Referee[0]);
+	}
+
+	/**
+	 * Method to rank the referees eligible for a match by the band of the distance they travel
+	 * to its venue, then by their match allocations, then by the distance itself and then by
+	 * their position in the list of referees. The spatial index yields the referees in order
+	 * of increasing distance, so each band is ranked on its own once the search leaves it, and
+	 * the search stops after the band in which the referees required are reached, as no
+	 * referee from a further band can outrank them.
+	 * @param matchVenue a String containing the location of the match to be scheduled
+	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
+	 * @param numberOfRefs an int containing the number of referees required
+	 * @param allocationChanges a map of the change to each referee's match allocations, or null
+	 * @param free a Predicate denoting whether a referee is free to officiate the match, or null
+	 * if every eligible referee is ranked
+	 * @return rankedRefs a List of the referees of the bands ranked, ordered by suitability for the match
+	 */
+	private List<Referee> rankNearestRefs (String matchVenue, String matchLevel, int numberOfRefs,
+			final Map<Referee, Integer> allocationChanges, Predicate<Referee> free){
+		Coordinates venue = regions.getCoordinates(regions.getRegionIndex(matchVenue));
+		boolean seniorMatch = matchLevel.equals("Senior");
+		RefereeLocator.NearestSearch search = this.locateReferees().nearest(venue);
+		final Map<Referee, Double> distances = new HashMap<Referee, Double>();
+		Comparator<Referee> bandOrder = new Comparator<Referee>(){
+			public int compare(Referee ref1, Referee ref2){
+				int order = allocationsOf(ref1, allocationChanges)-allocationsOf(ref2, allocationChanges);
+				if (order==0){
+					order = Double.compare(distances.get(ref1), distances.get(ref2));
 				}
-			}
-		}
-		else{ // if the match level is Junior then all referees are eligible to officiate
-			qualifiedReferees = officials;
-			
-		}
-		List<Referee> availableReferees = new ArrayList<Referee>();
-		if (matchVenue.equals("North")){
-			// if the match being scheduled for the northern area
-			for (Referee ref: qualifiedReferees){
-				if (ref.isAvailableNorth()){
-					// if the referee is available to officiate matches in
-					// the north then add to the list
-					availableReferees.add(ref);
+				if (order==0){
+					order = getListPosition(ref1)-getListPosition(ref2);
 				}
+				return order;
 			}
-		}
-		else if (matchVenue.equals("Central")){
-			// if the match being scheduled for the central area
-			for (Referee ref: qualifiedReferees){
-				if (ref.isAvailableCentral()){
-					// Add the referee if they are available to officiate
-					// matches in the central area
-					availableReferees.add(ref);
+		};
+		List<Referee> rankedRefs = new ArrayList<Referee>();
+		List<Referee> bandRefs = new ArrayList<Referee>();
+		int band = -1;
+		while (rankedRefs.size()<numberOfRefs){
+			boolean found = search.next();
+			if (!found||this.travelBand(search.getDistance())!=band){
+				// every referee of the band has been found, as they are all nearer than the next
+				Collections.sort(bandRefs, bandOrder);
+				rankedRefs.addAll(bandRefs);
+				bandRefs.clear();
+				if (!found){
+					break;
 				}
+				band = this.travelBand(search.getDistance());
+			}
+			Referee ref = search.getReferee();
+			// The same rules apply as when the referees are listed by getAvailableRefs
+			if ((!seniorMatch||ref.canRefereeSeniors())&&ref.isAvailableIn(matchVenue)
+					&&(free==null||free.test(ref))){
+				bandRefs.add(ref);
+				distances.put(ref, search.getDistance());
 			}
 		}
-		else { // ie. match venue equals "South"
-			for (Referee ref: qualifiedReferees){
-				if (ref.isAvailableSouth()){
-					// Add the officials available to referee matches in the south
-					availableReferees.add(ref);
-				}
+		return rankedRefs;
+	}
+
+	/**
+	 * Method to determine the travel band of a journey
+	 * @param distance a double containing the distance travelled in kilometres
+	 * @return an int containing the band, 0 for the nearest
+	 */
+	private int travelBand(double distance){
+		return (int) (distance/TRAVEL_BAND_KILOMETRES);
+	}
+
+	/**
+	 * Method to generate a list of referees eligible and available to referee a proposed match
+	 * @param matchLevel a String representing whether the match has Junior or Senior participants
+	 * @param matchVenue a String representing the venue of the proposed match
+	 * @return qualifiedRefs an ArrayList of Referees qualified and available to officiate the match
+	 */
+	private List<Referee> getAvailableRefs(String matchLevel, String matchVenue){
+		List<Referee> availableReferees = new ArrayList<Referee>();
+		boolean seniorMatch = matchLevel.equals("Senior");
+		for (Referee ref: officials){
+			// Junior matches may be officiated by all referees, whereas senior matches
+			// require a suitable qualification
+			if ((!seniorMatch||ref.canRefereeSeniors())&&ref.isAvailableIn(matchVenue)){
+				availableReferees.add(ref);
 			}
 		}
 		return availableReferees;
 	}
 
+	/**
+	 * Method to list the referees eligible for a match and free in its week, in the order
+	 * of the list of referees, for strategies ranking the candidates themselves
+	 * @param matchVenue a String containing the location of the match
+	 * @param matchLevel a String containing the level of the match (i.e. Junior or Senior)
+	 * @param matchWeek an int containing the week of the match
+	 * @return candidates a new List of the Referee objects
+	 */
+	List<Referee> findCandidateRefs(String matchVenue, String matchLevel, int matchWeek){
+		long weekBit = Referee.weekBit(matchWeek);
+		List<Referee> candidates = new ArrayList<Referee>();
+		for (Referee ref: this.getAvailableRefs(matchLevel, matchVenue)){
+			if ((ref.getIneligibleWeeks()&weekBit)==0){
+				candidates.add(ref);
+			}
+		}
+		return candidates;
+	}
 
 	/**
-	 * A method to divide the referees available for a match by their home location	
-	 * @param availableRefs a list of qualified and available referees to officiate the match
-	 * @param home a String representing the home location to be searched for
-	 * @return homeRefs a list of referees which are based in the same geographical region
+	 * Method to determine the distance a referee travels to a venue, in kilometres where the
+	 * regions have coordinates and otherwise as the distance between their regions
+	 * @param ref a Referee object
+	 * @param matchVenue a String containing the location of the match
+	 * @return a double containing the distance, or -1 if the referee's home or the venue is not known
 	 */
-	private List<Referee> getAvailableRefsByLocation(List<Referee> availableRefs, String home){
-		List<Referee> refsFromArea = new ArrayList<Referee>();
-		for (Referee ref: availableRefs){
-			if (ref.getHomeLocation().equals(home)){
-				// if the location of the referee matches the location to be searched for
-				// add the referee to the list of available referees from the area
-				refsFromArea.add(ref);
-			}
-		}
-		return refsFromArea;
-	}
-
-	/**
-	 * Method to order the eligible and available officials based upon
-	 * their proximity to the proposed venue of the match and number of match allocations
-	 * @param refsNorth a list of available referees based in the Northern area
-	 * @param refsCentral a list of available referees based in the Central area
-	 * @param refsSouth a list of available referees based in the Southern area
-	 * @param venue a String containing the proposed match venue
-	 * @return suitableRefs an array of officials grouped by proximity to the match venue
-	 */
-	private Referee[] generateSuitableRefs(List<Referee> refsNorth, List<Referee> refsCentral, 
-			List<Referee> refsSouth, String venue){	
-		int totalSuitableRefs = refsNorth.size()+refsCentral.size()+refsSouth.size();
-		// Determine the total number of qualified and available referees for a match
-		Referee [] suitableRefs = new Referee[totalSuitableRefs];
-		if (venue.equals("Central")){
-			// if the venue of the match is in the Central area
-			List<Referee> refsNorthAndSouth = new ArrayList<Referee>();
-			// generate a list of available referees from both the northern and southern
-			// areas, as both the north and south are given equal priority when the match
-			// venue is in the central area
-			for (Referee ref: refsNorth){
-				refsNorthAndSouth.add(ref);
-			}
-			for (Referee ref: refsSouth){
-				refsNorthAndSouth.add(ref);
-			}
-			refsNorthAndSouth=this.sortByAllocations(refsNorthAndSouth);
-			// the list of north and south based referees must be sorted by match allocations
-			suitableRefs=this.insertRefereesToArray(suitableRefs, refsCentral);
-			suitableRefs=this.insertRefereesToArray(suitableRefs, refsNorthAndSouth);
-			// Insert the central, then remaining officials into the ordered array
-			return suitableRefs;
-		}	
-		else if (venue.equals("North")){
-			// if the venue of the match is in the Northern area
-			suitableRefs=this.insertRefereesToArray(suitableRefs, refsNorth);
-			suitableRefs=this.insertRefereesToArray(suitableRefs, refsCentral);
-			suitableRefs=this.insertRefereesToArray(suitableRefs, refsSouth);
-			// insert the groups of officials in order of north, central and then southern areas
-			return suitableRefs;
-		}
-		else {//venue.equals("South")
-			// if the venue of the match is in the Southern area
-			suitableRefs=this.insertRefereesToArray(suitableRefs, refsSouth);
-			suitableRefs=this.insertRefereesToArray(suitableRefs, refsCentral);
-			suitableRefs=this.insertRefereesToArray(suitableRefs, refsNorth);
-			// insert the groups of officials in order of the south, central and northern areas
-			return suitableRefs;
-		}		
-	}
-
-	/**
-	 * Method to insert a list of officials from one geographical area into a larger, ordered array
-	 * containing all the qualified and available referees.
+	double getTravelDistance(Referee ref, String matchVenue){
+		int venue = regions.getRegionIndex(matchVenue);
+		if (venue<0){
+			return -1;
+		}
+		if (regions.hasCoordinates()){
+			Coordinates origin = this.getTravelOrigin(ref);
+			return origin!=null ? origin.distanceTo(regions.getCoordinates(venue)) : -1;
+		}
+		int home = regions.getRegionIndex(ref.getHomeLocation());
+		return home>=0 ? regions.getDistance(home, venue) : -1;
+	}
+
+	/**
+	 * Method to merge the sorted buckets of referees from regions an equal distance from the venue
+	 * into a larger, ordered array containing all the qualified and available referees.
+	 * Where referees have the same number of match allocations, those from the region defined
+	 * first are placed first.
 	 * @param totalArray an array for storing a composite list of all available referees from multiple geographical areas
-	 * @param insertList a list of available referees from a single geographical region
-	 * @return totalArray an array for storing a composite list of all available referees from multiple geographical areas
-	 */
-	private Referee[] insertRefereesToArray (Referee[] totalArray, List<Referee> insertList){
-		int startPosition = 0;
-		// denotes the index where the array is to be inserted
-		for (int index = 0; index<totalArray.length; index++){
-			if (totalArray[index]==null){
-				// locate the first null element in the composite array
-				startPosition = index;
-				break;
+	 * @param startPosition an int containing the position of the first free element of totalArray
+	 * @param regionBuckets a list of referees from each region, sorted by match allocations
+	 * @param tier an array containing the indexes of the regions to be merged
+	 * @param allocationChanges a map of the change to each referee's match allocations, or null
+	 * @return nextPosition an int containing the position of the first free element after the merge
+	 */
+	private int mergeRegionBuckets (Referee[] totalArray, int startPosition,
+			List<List<Referee>> regionBuckets, int[] tier, Map<Referee, Integer> allocationChanges){
+		int nextPosition = startPosition;
+		int[] bucketPositions = new int[tier.length];
+		// the position reached in each bucket
+		boolean merging = true;
+		while (merging){
+			// Select the referee with the fewest match allocations from the front of the buckets
+			int selectedBucket = -1;
+			int fewestAllocations = Integer.MAX_VALUE;
+			for (int index = 0; index<tier.length; index++){
+				List<Referee> bucket = regionBuckets.get(tier[index]);
+				if (bucketPositions[index]<bucket.size()){
+					int allocations = this.allocationsOf(bucket.get(bucketPositions[index]), allocationChanges);
+					if (allocations<fewestAllocations){
+						selectedBucket = index;
+						fewestAllocations = allocations;
+					}
+				}
+			}
+			if (selectedBucket<0){
+				// every bucket in the tier has been exhausted
+				merging = false;
+			}
+			else{
+				totalArray[nextPosition++] = regionBuckets.get(tier[selectedBucket]).get(bucketPositions[selectedBucket]++);
 			}
 		}
-		// insert the inserted array from the first null 1element
-		int arrayIndex = startPosition;
-		for (Referee ref: insertList){
-			totalArray[arrayIndex]=ref;
-			arrayIndex++;
-			// increment the index of the composite array
-		}
-		return totalArray;	
+		return nextPosition;
 	}
 
 	/**
@@ -438,12 +2420,23 @@ public class MatchSchedule{
 	 * @return toSort a list of referee objects sorted by match allocations
 	 */
 	public List<Referee> sortByAllocations (List<Referee> toSort){
+		return this.sortByAllocations(toSort, null);
+	}
+
+	/**
+	 * Method to sort a list of referee objects in order of match allocations, allowing for
+	 * changes to the allocations which have not been applied to the referees
+	 * @param toSort a list of referee objects to be sorted
+	 * @param allocationChanges a map of the change to each referee's match allocations, or null
+	 * @return toSort a list of referee objects sorted by match allocations
+	 */
+	private List<Referee> sortByAllocations (List<Referee> toSort, final Map<Referee, Integer> allocationChanges){
 		// Create a new comparator object and override the compare method
 		Comparator<Referee> allocationComparitor = new Comparator<Referee>(){
 			@Override
 			public int compare(Referee ref1, Referee ref2) {
-				int ref1Matches = ref1.getMatchAllocations();
-				int ref2Matches = ref2.getMatchAllocations();
+				int ref1Matches = allocationsOf(ref1, allocationChanges);
+				int ref2Matches = allocationsOf(ref2, allocationChanges);
 				// Determine the match allocations for each referee object
 				if (ref1Matches>ref2Matches){
 					return 1;
@@ -461,24 +2454,41 @@ public class MatchSchedule{
 		return toSort;
 	}
 
+	/**
+	 * Method to determine the match allocations of a referee, allowing for changes which
+	 * have not been applied to the referee
+	 * @param ref a Referee object
+	 * @param allocationChanges a map of the change to each referee's match allocations, or null
+	 * @return allocations an int containing the number of matches allocated to the referee
+	 */
+	private int allocationsOf(Referee ref, Map<Referee, Integer> allocationChanges){
+		int allocations = ref.getMatchAllocations();
+		if (allocationChanges!=null&&allocationChanges.containsKey(ref)){
+			allocations += allocationChanges.get(ref);
+		}
+		return allocations;
+	}
+
 	/**
 	 * Method to allocate eligible and available officials to a match
 	 * @param suitableRefs an array of Referee objects eligible for the match
 	 * @param fixture a Match object containing the details of the match
 	 */
 	public void allocateOfficials(Referee[] suitableRefs, Match fixture){
-		int indexSuitableRef1 = 0;
-		int indexSuitableRef2 = 1;
-		int Ref1Allocation = suitableRefs[indexSuitableRef1].getMatchAllocations();
-		suitableRefs[indexSuitableRef1].setMatchAllocations(Ref1Allocation+1);
-		fixture.setReferee1(suitableRefs[indexSuitableRef1]);
-		// increment the match allocations of the first referee and add the official
-		// to the match
-		int Ref2Allocation = suitableRefs[indexSuitableRef2].getMatchAllocations();
-		suitableRefs[indexSuitableRef2].setMatchAllocations(Ref2Allocation+1);
-		fixture.setReferee2(suitableRefs[indexSuitableRef2]);
-		// increment the match allocations of the second referee and add the official
-		// to the match
+		// Every allocation of the crew is undone together
+		this.beginStep();
+		try{
+			for (int position = 0; position<fixture.getCrewSize(); position++){
+				// increment the match allocations of the referee and add the official
+				// to the match in the role of the position
+				this.changeMatchAllocations(suitableRefs[position], 1);
+				this.bookOfficial(suitableRefs[position], fixture.getWeekNo(), true);
+				this.assignOfficial(fixture, position, suitableRefs[position]);
+			}
+		}
+		finally{
+			this.endStep();
+		}
 	}
 
 	/**
@@ -542,8 +2552,20 @@ public class MatchSchedule{
 				return 0;
 			}	
 		};	
-		// Sort the list of officials by ID
-		Collections.sort(officials, idComparitor);
+		// Sort the list of officials by ID, unless they are already in order
+		boolean sorted = true;
+		for (int index = 1; index<officials.size()&&sorted; index++){
+			if (idComparitor.compare(officials.get(index-1), officials.get(index))>0){
+				sorted = false;
+			}
+		}
+		if (!sorted){
+			Collections.sort(officials, idComparitor);
+			// Referees with equal match allocations are ranked in the order of the list
+			// of officials, so every cached ranking may have changed
+			suitableRefsCache.clear();
+			refereePositions = null;
+		}
 		return officials;
 	}
 	
@@ -557,18 +2579,43 @@ public class MatchSchedule{
 		StringBuilder builder = new StringBuilder(refDescription);
 		// For each official available to officiate matches
 		for (Referee ref: officials){
-			// Generate a string details all the stored attributes
-			refDescription = String.format("%s %s %s %d %s %s%s%s\n", ref.getRefID(), ref.getFullName(),
-					ref.getQualification(), ref.getMatchAllocations(), ref.getHomeLocation(), ref.convertBooleanAvailability(ref.isAvailableNorth()),
-					ref.convertBooleanAvailability(ref.isAvailableCentral()), ref.convertBooleanAvailability(ref.isAvailableSouth()));
-			// Add the string to the StringBuilder
-			builder.append(refDescription);
+			this.appendReportLine(builder, ref);
 		}
 		// Generate the complete report as a String from the StringBuilder
 		String refReport = builder.toString();
 		return refReport;
 	}
 
+	/**
+	 * Method to add the line of a single referee to a report of the referees
+	 * @param builder a StringBuilder the line is appended to
+	 * @param ref a Referee object whose details are written
+	 */
+	void appendReportLine(StringBuilder builder, Referee ref){
+		// Write all the stored attributes straight into the report
+		REPORT_LAYOUT.appendField(builder, 0, ref.getRefID());
+		REPORT_LAYOUT.appendField(builder, 1, ref.getRefFirstName());
+		REPORT_LAYOUT.appendField(builder, 2, ref.getRefSurname());
+		REPORT_LAYOUT.appendField(builder, 3, ref.getQualification());
+		REPORT_LAYOUT.appendField(builder, 4, ref.getMatchAllocations());
+		REPORT_LAYOUT.appendField(builder, 5, ref.getHomeLocation());
+		REPORT_LAYOUT.appendEnd(builder);
+		// The availability in each region is written in the order the regions are defined
+		List<String> regionNames = regions.getRegionNames();
+		for (int region = 0; region<regionNames.size(); region++){
+			builder.append(ref.convertBooleanAvailability(ref.isAvailableIn(regionNames.get(region))));
+		}
+		// Unavailable weeks are only written for referees who have blocked any out
+		if (ref.getUnavailableWeeks()!=0){
+			builder.append(" ").append(Referee.formatWeeks(ref.getUnavailableWeeks()));
+		}
+		// as are the homes of referees whose position is known
+		if (ref.getHomeCoordinates()!=null){
+			builder.append(" @").append(ref.getHomeCoordinates());
+		}
+		builder.append("\n");
+	}
+
 	/**
 	 * Method to generate a report of the current matches scheduled for the season
 	 * in a String for writing to a file
@@ -579,10 +2626,8 @@ public class MatchSchedule{
 		StringBuilder builder = new StringBuilder(matchDescription);
 		// For each match scheduled by the user
 		for (Match fixture: matchSchedule){
-			// Generate a string providing the details of the match
-			matchDescription = fixture.toString();
-			// Add the string to the StringBuilder
-			builder.append(matchDescription);
+			// Write the details of the match straight into the report
+			fixture.appendRow(builder);
 		}
 		String matchReport = builder.toString();
 		return matchReport;
@@ -0,0 +1,521 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Saves the referees and matches of a MatchSchedule to the output files in the
+ * background, so that changes to the schedule never wait for the disk. Each submitted
+ * change is identified by the modification count of the schedule, which serves as its
+ * sequence number. The service listens to the schedule, so every completed operation is
+ * submitted without the caller having to do so, and only the lines of the referees and
+ * matches each operation changed are captured on the thread which made it. The writer
+ * thread keeps its own copy of every line, applies the captured lines to it and builds
+ * the reports from it. The lines are kept in the order of the schedule's lists of referees
+ * and matches, as written by refereeReportWriter and matchReportWriter: a referee or match
+ * added to the schedule is placed before the one which follows it in its list, so one
+ * restored by undo returns to its previous place. Sorting the list of referees alters no
+ * referee, so is reflected only in the lines of referees added afterwards.
+ *
+ * Changes are grouped and written together once a configured number have been submitted
+ * or a configured interval has passed. Each file is replaced in a single step, so a failed
+ * write never leaves a partly written file, but the two files are replaced one after the
+ * other: a failure between the two may leave a new report of matches beside the previous
+ * report of referees until the next group is written. Once both files of a group have
+ * been written its sequence number becomes durable and any thread waiting for it is released.
+ */
+public class PersistenceService {
+
+	private final MatchSchedule schedule; // the schedule being saved
+	private final Path matchFile; // the file the report of matches is written to
+	private final Path refereeFile; // the file the report of referees is written to
+	private final int groupSize; // the number of changes which cause a group to be written immediately
+	private final boolean forceToDisk; // whether each write waits for the data to reach the disk
+	private final ScheduledExecutorService writer; // the single thread which writes the files
+	private final ScheduleListener changeListener; // submits each change made to the schedule
+	private final ReportLines refereeLines; // the line of each referee in the order of the list, used on the writer thread
+	private final ReportLines matchLines; // the line of each match in the order of the list, used on the writer thread
+
+	private final Object lock = new Object(); // guards the fields below
+	private List<Line> pendingLines; // the lines changed since the last group was taken
+	private int pendingChanges; // the number of changes submitted since the last group was taken
+	private long submittedSequence; // the sequence number of the most recent submitted change
+	private long durableSequence; // the sequence number of the most recent change written
+	private long lastSaveTime; // the time in milliseconds the files were last written, or 0
+	private IOException lastError; // the failure of the most recent write, or null if it succeeded
+
+	/**
+	 * Defines the new line of a single referee or match in its report, captured on the
+	 * thread which altered the schedule and never altered afterwards
+	 */
+	private static class Line {
+
+		private final Object owner; // the Referee or Match object the line describes
+		private final boolean added; // whether the referee or match was added, so is placed before its successor
+		private final Object successor; // the referee or match following the owner in its list, or null if it is last
+		private final String text; // the line of the report, or null if the referee or match was removed
+
+		/**
+		 * Constructor for the Line
+		 * @param owner the Referee or Match object the line describes
+		 * @param added a boolean denoting whether the owner was added to its list
+		 * @param successor the object following an added owner in its list, or null if it is last
+		 * @param text a String containing the line, or null if the referee or match was removed
+		 */
+		private Line(Object owner, boolean added, Object successor, String text){
+			this.owner = owner;
+			this.added = added;
+			this.successor = successor;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * Defines the lines of a report in the order of the list of referees or matches they
+	 * describe, as a linked list in which the line of any referee or match is found by
+	 * identity, so a line is replaced, removed or placed before another in constant time
+	 */
+	private static class ReportLines {
+
+		private final Map<Object, Node> nodes; // the node of each line by the object it describes
+		private final Node start; // the node preceding the first line, holding no line
+		private final Node end; // the node following the last line, holding no line
+
+		/**
+		 * Defines a line of the report and its neighbours
+		 */
+		private static class Node {
+			private String text; // the line of the report
+			private Node previous; // the node of the previous line, or the start
+			private Node next; // the node of the next line, or the end
+		}
+
+		/**
+		 * Constructor for the ReportLines
+		 */
+		private ReportLines(){
+			nodes = new IdentityHashMap<Object, Node>();
+			start = new Node();
+			end = new Node();
+			start.next = end;
+			end.previous = start;
+		}
+
+		/**
+		 * Method to replace the line of a referee or match, adding it as the last line if it
+		 * has no line
+		 * @param owner the Referee or Match object the line describes
+		 * @param text a String containing the line
+		 */
+		private void replace(Object owner, String text){
+			Node node = nodes.get(owner);
+			if (node==null){
+				this.place(owner, null, text);
+			}
+			else{
+				node.text = text;
+			}
+		}
+
+		/**
+		 * Method to place the line of a referee or match before the line of another,
+		 * moving it if it already has a line
+		 * @param owner the Referee or Match object the line describes
+		 * @param successor the object whose line follows, or null to make it the last line
+		 * @param text a String containing the line
+		 */
+		private void place(Object owner, Object successor, String text){
+			this.remove(owner);
+			Node following = successor!=null ? nodes.get(successor) : null;
+			if (following==null){
+				following = end;
+			}
+			Node node = new Node();
+			node.text = text;
+			node.previous = following.previous;
+			node.next = following;
+			following.previous.next = node;
+			following.previous = node;
+			nodes.put(owner, node);
+		}
+
+		/**
+		 * Method to remove the line of a referee or match, if it has one
+		 * @param owner the Referee or Match object the line describes
+		 */
+		private void remove(Object owner){
+			Node node = nodes.remove(owner);
+			if (node!=null){
+				node.previous.next = node.next;
+				node.next.previous = node.previous;
+			}
+		}
+
+		/**
+		 * Method to join the lines of the report in order
+		 * @return a String containing the report
+		 */
+		private String join(){
+			StringBuilder report = new StringBuilder();
+			for (Node node = start.next; node!=end; node = node.next){
+				report.append(node.text);
+			}
+			return report.toString();
+		}
+	}
+
+	/**
+	 * Constructor for the PersistenceService
+	 * @param matchSchedule a MatchSchedule object to be saved
+	 * @param matchFileName a String containing the name of the file for the report of matches
+	 * @param refereeFileName a String containing the name of the file for the report of referees
+	 * @param intervalMillis a long containing the greatest number of milliseconds a change waits to be written
+	 * @param changesPerGroup an int containing the number of changes which are written without waiting
+	 * @param fsync a boolean denoting whether each write waits for the data to reach the disk
+	 */
+	public PersistenceService(MatchSchedule matchSchedule, String matchFileName, String refereeFileName,
+			long intervalMillis, int changesPerGroup, boolean fsync){
+		if (intervalMillis<=0||changesPerGroup<1){
+			throw new IllegalArgumentException("The interval and group size must be positive");
+		}
+		schedule = matchSchedule;
+		matchFile = Paths.get(matchFileName);
+		refereeFile = Paths.get(refereeFileName);
+		groupSize = changesPerGroup;
+		forceToDisk = fsync;
+		writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+			public Thread newThread(Runnable task){
+				Thread thread = new Thread(task, "PersistenceService");
+				// The program may exit without waiting for the writer
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		refereeLines = new ReportLines();
+		matchLines = new ReportLines();
+		// Nothing has been submitted or written, so the first submission is always saved
+		submittedSequence = -1;
+		durableSequence = -1;
+		// The current lines are captured once, in order, and only changed lines are captured afterwards
+		pendingLines = new ArrayList<Line>();
+		StringBuilder builder = new StringBuilder();
+		for (Referee ref: schedule.getOfficials()){
+			pendingLines.add(new Line(ref, false, null, this.captureText(builder, ref)));
+		}
+		for (Match fixture: schedule.getMatchSchedule()){
+			pendingLines.add(new Line(fixture, false, null, this.captureText(builder, fixture)));
+		}
+		writer.scheduleWithFixedDelay(new Runnable(){
+			public void run(){
+				writeGroup();
+			}
+		}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		// Each change is submitted on the thread which made it once the operation is complete
+		changeListener = new ScheduleListener(){
+			public void scheduleChanged(List<ScheduleEvent> events){
+				capture(events);
+			}
+		};
+		schedule.addScheduleListener(changeListener);
+	}
+
+	/**
+	 * Method to capture the lines of the referees and matches changed by a completed
+	 * operation and submit them. Called on the thread which alters the schedule. Only the
+	 * final line of each referee and match is captured. The lines of those added are captured
+	 * last, from the end of each list backwards, with the object following each in its list,
+	 * so that every line is placed before a line already present.
+	 * @param events a List of the ScheduleEvents describing the changes
+	 */
+	private void capture(List<ScheduleEvent> events){
+		// An addition or removal decides how the line is written, whatever else changed
+		Map<Object, ScheduleEvent.Type> changes = new LinkedHashMap<Object, ScheduleEvent.Type>();
+		for (ScheduleEvent event: events){
+			Object owner = event.getReferee()!=null ? event.getReferee() : event.getMatch();
+			ScheduleEvent.Type previous = changes.get(owner);
+			if (previous==null||isAddedOrRemoved(event.getType())||!isAddedOrRemoved(previous)){
+				changes.put(owner, event.getType());
+			}
+		}
+		List<Line> lines = new ArrayList<Line>(changes.size());
+		TreeMap<Integer, Line> addedReferees = new TreeMap<Integer, Line>(); // by position in the list
+		TreeMap<Integer, Line> addedMatches = new TreeMap<Integer, Line>();
+		StringBuilder builder = new StringBuilder();
+		for (Map.Entry<Object, ScheduleEvent.Type> change: changes.entrySet()){
+			Object owner = change.getKey();
+			boolean isReferee = owner instanceof Referee;
+			List<?> list = isReferee ? schedule.getOfficials() : schedule.getMatchSchedule();
+			if (change.getValue()==ScheduleEvent.Type.REFEREE_REMOVED||change.getValue()==ScheduleEvent.Type.MATCH_REMOVED){
+				lines.add(new Line(owner, false, null, null));
+			}
+			else if (change.getValue()==ScheduleEvent.Type.REFEREE_ADDED||change.getValue()==ScheduleEvent.Type.MATCH_ADDED){
+				// referees and matches are usually added at the end of their list, so are found at once
+				int position = list.lastIndexOf(owner);
+				Object successor = position+1<list.size() ? list.get(position+1) : null;
+				(isReferee ? addedReferees : addedMatches).put(position,
+						new Line(owner, true, successor, this.captureText(builder, owner)));
+			}
+			else{
+				lines.add(new Line(owner, false, null, this.captureText(builder, owner)));
+			}
+		}
+		lines.addAll(addedReferees.descendingMap().values());
+		lines.addAll(addedMatches.descendingMap().values());
+		this.submit(lines);
+	}
+
+	/**
+	 * Method to determine whether a change adds or removes a referee or match
+	 * @param type a ScheduleEvent.Type
+	 * @return a boolean denoting whether the change alters a list of the schedule
+	 */
+	private static boolean isAddedOrRemoved(ScheduleEvent.Type type){
+		return type==ScheduleEvent.Type.REFEREE_ADDED||type==ScheduleEvent.Type.REFEREE_REMOVED
+				||type==ScheduleEvent.Type.MATCH_ADDED||type==ScheduleEvent.Type.MATCH_REMOVED;
+	}
+
+	/**
+	 * Method to capture the line of a referee or match
+	 * @param builder a StringBuilder used to write the line
+	 * @param owner a Referee or Match object which changed
+	 * @return a String containing the line of its report
+	 */
+	private String captureText(StringBuilder builder, Object owner){
+		builder.setLength(0);
+		if (owner instanceof Referee){
+			schedule.appendReportLine(builder, (Referee) owner);
+		}
+		else{
+			((Match) owner).appendRow(builder);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Method to submit the current state of the schedule for saving. Must be called on the
+	 * thread which alters the schedule once an operation is complete. Only the sequence
+	 * number is recorded, as the lines changed are captured as each change is reported.
+	 * @return sequence a long containing the sequence number which becomes durable once the state is written
+	 */
+	public long submit(){
+		return this.submit(Collections.<Line>emptyList());
+	}
+
+	/**
+	 * Method to hand the lines captured for a change to the writer thread
+	 * @param lines a List of the Lines changed
+	 * @return sequence a long containing the sequence number which becomes durable once the lines are written
+	 */
+	private long submit(List<Line> lines){
+		long sequence = schedule.getModificationCount();
+		boolean groupFull;
+		synchronized (lock){
+			pendingLines.addAll(lines);
+			if (sequence==submittedSequence){
+				// nothing has changed since the last submission
+				return sequence;
+			}
+			submittedSequence = sequence;
+			pendingChanges++;
+			groupFull = pendingChanges>=groupSize;
+		}
+		if (groupFull){
+			writer.execute(new Runnable(){
+				public void run(){
+					writeGroup();
+				}
+			});
+		}
+		return sequence;
+	}
+
+	/**
+	 * Method to apply the lines submitted since the last group and write the reports if
+	 * any change has been submitted which is not yet durable. Called on the writer thread.
+	 */
+	private void writeGroup(){
+		List<Line> lines;
+		long sequence;
+		long written;
+		synchronized (lock){
+			lines = pendingLines;
+			pendingLines = new ArrayList<Line>();
+			sequence = submittedSequence;
+			written = durableSequence;
+			pendingChanges = 0;
+		}
+		for (Line line: lines){
+			ReportLines report = line.owner instanceof Referee ? refereeLines : matchLines;
+			if (line.text==null){
+				report.remove(line.owner);
+			}
+			else if (line.added){
+				report.place(line.owner, line.successor, line.text);
+			}
+			else{
+				report.replace(line.owner, line.text);
+			}
+		}
+		if (sequence<=written){
+			// A failed write is retried with the next group, as its sequence number is not durable
+			return;
+		}
+		try{
+			this.replaceFile(matchFile, matchLines.join());
+			this.replaceFile(refereeFile, refereeLines.join());
+			synchronized (lock){
+				durableSequence = Math.max(durableSequence, sequence);
+				lastSaveTime = System.currentTimeMillis();
+				lastError = null;
+				lock.notifyAll();
+			}
+		}
+		catch (IOException iox){
+			synchronized (lock){
+				lastError = iox;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Method to replace the contents of a file in a single step by writing a temporary file
+	 * alongside it and moving the temporary file over the original
+	 * @param file a Path to the file to replace
+	 * @param contents a String containing the new contents of the file
+	 * @throws IOException if the file cannot be written
+	 */
+	private void replaceFile(Path file, String contents) throws IOException{
+		Path directory = file.toAbsolutePath().getParent();
+		Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try{
+			FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			try{
+				ByteBuffer bytes = ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8));
+				while (bytes.hasRemaining()){
+					channel.write(bytes);
+				}
+				if (forceToDisk){
+					channel.force(true);
+				}
+			}
+			finally{
+				channel.close();
+			}
+			try{
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException amx){
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		finally{
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	/**
+	 * Method to wait until a submitted change has been written
+	 * @param sequence a long containing the sequence number returned by submit
+	 * @param timeoutMillis a long containing the greatest number of milliseconds to wait
+	 * @return a boolean denoting whether the change is durable
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean awaitDurable(long sequence, long timeoutMillis) throws InterruptedException{
+		long deadline = System.currentTimeMillis()+timeoutMillis;
+		synchronized (lock){
+			long remaining = timeoutMillis;
+			while (durableSequence<sequence&&remaining>0){
+				lock.wait(remaining);
+				remaining = deadline-System.currentTimeMillis();
+			}
+			return durableSequence>=sequence;
+		}
+	}
+
+	/**
+	 * Method to write any pending changes immediately and wait for the write to finish
+	 * @throws IOException if the changes cannot be written
+	 */
+	public void flush() throws IOException{
+		Future<?> written = writer.submit(new Runnable(){
+			public void run(){
+				writeGroup();
+			}
+		});
+		try{
+			written.get();
+		}
+		catch (InterruptedException ix){
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while saving");
+		}
+		catch (ExecutionException ex){
+			throw new IOException("Saving failed", ex.getCause());
+		}
+		synchronized (lock){
+			if (durableSequence<submittedSequence&&lastError!=null){
+				throw lastError;
+			}
+		}
+	}
+
+	/**
+	 * Method to submit and write the final state of the schedule and stop the service
+	 * @throws IOException if the final state cannot be written
+	 */
+	public void close() throws IOException{
+		schedule.removeScheduleListener(changeListener);
+		try{
+			this.submit();
+			this.flush();
+		}
+		finally{
+			writer.shutdown();
+		}
+	}
+
+	/**
+	 * Accessor method for the sequence number of the most recent submitted change
+	 * @return submittedSequence a long containing a modification count of the schedule
+	 */
+	public long getSubmittedSequence(){
+		synchronized (lock){
+			return submittedSequence;
+		}
+	}
+
+	/**
+	 * Accessor method for the sequence number of the most recent change written
+	 * @return durableSequence a long containing a modification count of the schedule
+	 */
+	public long getDurableSequence(){
+		synchronized (lock){
+			return durableSequence;
+		}
+	}
+
+	/**
+	 * Accessor method for the time the files were last written
+	 * @return lastSaveTime a long containing the time in milliseconds, or 0 if nothing has been written
+	 */
+	public long getLastSaveTime(){
+		synchronized (lock){
+			return lastSaveTime;
+		}
+	}
+
+	/**
+	 * Accessor method for the failure of the most recent write
+	 * @return lastError an IOException, or null if the most recent write succeeded
+	 */
+	public IOException getLastError(){
+		synchronized (lock){
+			return lastError;
+		}
+	}
+}
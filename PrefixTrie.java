@@ -0,0 +1,161 @@
+import java.util.*;
+
+/**
+ * Defines an index from text keys to values which finds every value with a key
+ * beginning with a given prefix. Each node of the trie records the values of all the
+ * keys passing through it, so a search takes time proportional to the length of the
+ * prefix and the results are available without examining any other key. Keys are
+ * compared without regard to case.
+ * @param <V> the type of the values indexed
+ */
+public class PrefixTrie<V> {
+
+	/**
+	 * Defines a single node of the trie, reached by the characters of a prefix
+	 */
+	private static class Node<V> {
+
+		private final Map<Character, Node<V>> children; // the nodes reached by one further character
+		private final Map<V, Integer> values; // the values of the keys passing through the node, with their number of keys
+		private final Map<V, Integer> endingValues; // the values of the keys ending at the node, with their number of keys
+
+		/**
+		 * Constructor for the Node
+		 */
+		private Node(){
+			children = new HashMap<Character, Node<V>>();
+			values = new LinkedHashMap<V, Integer>();
+			endingValues = new LinkedHashMap<V, Integer>();
+		}
+	}
+
+	private final Node<V> root; // the node reached by the empty prefix
+
+	/**
+	 * Constructor for the PrefixTrie
+	 */
+	public PrefixTrie(){
+		root = new Node<V>();
+	}
+
+	/**
+	 * Method to index a value under a key. A value may be indexed under several keys.
+	 * @param key a String containing the key
+	 * @param value the value to be found by prefixes of the key
+	 */
+	public void add(String key, V value){
+		String normalisedKey = normalise(key);
+		Node<V> node = root;
+		increment(node.values, value);
+		for (int index = 0; index<normalisedKey.length(); index++){
+			Node<V> child = node.children.get(normalisedKey.charAt(index));
+			if (child==null){
+				child = new Node<V>();
+				node.children.put(normalisedKey.charAt(index), child);
+			}
+			node = child;
+			increment(node.values, value);
+		}
+		increment(node.endingValues, value);
+	}
+
+	/**
+	 * Method to remove a value from under a key, discarding nodes no longer in use
+	 * @param key a String containing the key the value was indexed under
+	 * @param value the value to be removed
+	 */
+	public void remove(String key, V value){
+		String normalisedKey = normalise(key);
+		// Ensure the value is indexed under the key before altering any node
+		Node<V> end = this.locate(normalisedKey);
+		if (end==null||!end.endingValues.containsKey(value)){
+			return;
+		}
+		decrement(end.endingValues, value);
+		Node<V> node = root;
+		decrement(node.values, value);
+		for (int index = 0; index<normalisedKey.length(); index++){
+			Node<V> child = node.children.get(normalisedKey.charAt(index));
+			decrement(child.values, value);
+			if (child.values.isEmpty()){
+				// no key passes through the rest of the path
+				node.children.remove(normalisedKey.charAt(index));
+				break;
+			}
+			node = child;
+		}
+	}
+
+	/**
+	 * Method to find every value with a key beginning with a prefix
+	 * @param prefix a String containing the start of a key
+	 * @return an unmodifiable collection of the values, each listed once in the order first indexed
+	 */
+	public Collection<V> find(String prefix){
+		Node<V> node = this.locate(normalise(prefix));
+		if (node==null){
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(node.values.keySet());
+	}
+
+	/**
+	 * Method to find every value indexed under a key
+	 * @param key a String containing the key
+	 * @return an unmodifiable collection of the values, each listed once in the order first indexed
+	 */
+	public Collection<V> findExact(String key){
+		Node<V> node = this.locate(normalise(key));
+		if (node==null){
+			return Collections.emptySet();
+		}
+		return Collections.unmodifiableSet(node.endingValues.keySet());
+	}
+
+	/**
+	 * Method to follow the characters of a normalised prefix from the root
+	 * @param normalisedPrefix a String in the form the keys are stored
+	 * @return node the Node reached by the prefix, or null if no key begins with the prefix
+	 */
+	private Node<V> locate(String normalisedPrefix){
+		Node<V> node = root;
+		for (int index = 0; index<normalisedPrefix.length()&&node!=null; index++){
+			node = node.children.get(normalisedPrefix.charAt(index));
+		}
+		return node;
+	}
+
+	/**
+	 * Method to convert a key to the form in which it is stored
+	 * @param key a String
+	 * @return a String in lower case
+	 */
+	private static String normalise(String key){
+		return key.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Method to count one more key for a value
+	 * @param counts a Map from each value to its number of keys
+	 * @param value the value
+	 */
+	private static <V> void increment(Map<V, Integer> counts, V value){
+		Integer count = counts.get(value);
+		counts.put(value, count==null ? 1 : count+1);
+	}
+
+	/**
+	 * Method to count one fewer key for a value, forgetting the value when none remain
+	 * @param counts a Map from each value to its number of keys
+	 * @param value the value
+	 */
+	private static <V> void decrement(Map<V, Integer> counts, V value){
+		Integer count = counts.get(value);
+		if (count==null||count<=1){
+			counts.remove(value);
+		}
+		else{
+			counts.put(value, count-1);
+		}
+	}
+}
@@ -0,0 +1,1001 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Stores referee and match records outside of the Java heap. Each record
+ * occupies a fixed number of bytes so that a record can be located directly
+ * from its slot number. The records may be held in memory only or mapped
+ * from a file so that they persist between runs of the program.
+ *
+ * A MatchSchedule backed by a store reads and writes the details of its referees and
+ * matches in their records, so the heap holds only a small handle for each record and
+ * the indexes of the schedule. The records of each kind are divided between segments of
+ * at most a gigabyte, so the size of a store is not limited by that of a single buffer.
+ */
+public class RecordStore {
+
+	/** The layout of the header at the start of the store */
+	private static final int MAGIC_NUMBER = 0x4A42524D; // identifies a record store file ("JBRM")
+	private static final int LAYOUT_VERSION = 5; // incremented whenever the record layout changes
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 4;
+	private static final int REFEREE_CAPACITY_OFFSET = 8;
+	private static final int MATCH_CAPACITY_OFFSET = 12;
+	private static final int REFEREE_COUNT_OFFSET = 16;
+	private static final int MATCH_COUNT_OFFSET = 20;
+	private static final int MATCHES_PER_WEEK_OFFSET = 24;
+	private static final int STRATEGY_OFFSET = 28;
+	private static final int STRATEGY_SIZE = 24;
+	private static final int HEADER_SIZE = 64;
+
+	/** The layout of a single referee record */
+	private static final int REF_ID_OFFSET = 0;
+	private static final int REF_ID_SIZE = 8;
+	private static final int REF_FIRST_NAME_OFFSET = 8;
+	private static final int REF_FIRST_NAME_SIZE = 20;
+	private static final int REF_SURNAME_OFFSET = 28;
+	private static final int REF_SURNAME_SIZE = 20;
+	private static final int REF_QUALIFICATION_OFFSET = 48;
+	private static final int REF_QUALIFICATION_SIZE = 4;
+	private static final int REF_ALLOCATIONS_OFFSET = 52;
+	private static final int REF_HOME_OFFSET = 56;
+	private static final int REF_HOME_SIZE = 16;
+	private static final int REF_AVAILABILITY_OFFSET = 72;
+	private static final int REF_UNAVAILABLE_WEEKS_OFFSET = 80;
+	private static final int REF_HOME_EAST_OFFSET = 88; // NaN if the position of the referee's home is not known
+	private static final int REF_HOME_NORTH_OFFSET = 96;
+	private static final int REF_BOOKED_WEEKS_OFFSET = 104;
+	private static final int REFEREE_RECORD_SIZE = 112;
+	private static final int MAXIMUM_REGIONS = 32; // one bit of the availability field per region
+
+	/** The layout of a single match record */
+	private static final int MATCH_WEEK_OFFSET = 0;
+	private static final int MATCH_LEVEL_OFFSET = 4;
+	private static final int MATCH_LEVEL_SIZE = 8;
+	private static final int MATCH_LOCATION_OFFSET = 12;
+	private static final int MATCH_LOCATION_SIZE = 16;
+	private static final int MATCH_REF1_OFFSET = 28;
+	private static final int MATCH_REF2_OFFSET = 36;
+	private static final int MATCH_RECORD_SIZE = 48;
+	private static final int MATCH_OFFICIALS = 2; // the number of officials held by a match record
+
+	static final int MAXIMUM_SEGMENT_SIZE = 1<<30; // the largest number of bytes mapped as a single buffer
+
+	private final FileChannel channel; // the file backing the records, or null if held in memory only
+	private final ByteBuffer header; // the off-heap memory holding the header
+	private final ByteBuffer[] refereeSegments; // the off-heap memory holding the referee records
+	private final ByteBuffer[] matchSegments; // the off-heap memory holding the match records
+	private final int refereesPerSegment; // the number of referee records in each segment
+	private final int matchesPerSegment; // the number of match records in each segment
+	private final int refereeCapacity; // the maximum number of referee records
+	private final int matchCapacity; // the maximum number of match records
+
+	/**
+	 * Constructor for the RecordStore, allocating or mapping the header and every segment
+	 * @param channel a FileChannel backing the records, or null if the records are held in memory
+	 * @param refereeCapacity an int containing the maximum number of referee records
+	 * @param matchCapacity an int containing the maximum number of match records
+	 * @param segmentSize an int containing the largest number of bytes held by a single segment
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private RecordStore(FileChannel channel, int refereeCapacity, int matchCapacity, int segmentSize)
+			throws IOException{
+		this.channel = channel;
+		this.refereeCapacity = refereeCapacity;
+		this.matchCapacity = matchCapacity;
+		refereesPerSegment = segmentSize/REFEREE_RECORD_SIZE;
+		matchesPerSegment = segmentSize/MATCH_RECORD_SIZE;
+		header = this.allocate(0, HEADER_SIZE);
+		long matchRegionOffset = HEADER_SIZE+(long) refereeCapacity*REFEREE_RECORD_SIZE;
+		refereeSegments = this.allocateSegments(HEADER_SIZE, refereeCapacity, refereesPerSegment, REFEREE_RECORD_SIZE);
+		matchSegments = this.allocateSegments(matchRegionOffset, matchCapacity, matchesPerSegment, MATCH_RECORD_SIZE);
+	}
+
+	/**
+	 * Method to create a store held in off-heap memory which is discarded when the program ends
+	 * @param refereeCapacity an int containing the maximum number of referee records
+	 * @param matchCapacity an int containing the maximum number of match records
+	 * @return store an empty RecordStore
+	 * @throws IllegalArgumentException if either capacity is not positive
+	 */
+	public static RecordStore createInMemory(int refereeCapacity, int matchCapacity){
+		return createInMemory(refereeCapacity, matchCapacity, MAXIMUM_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Method to create a store held in off-heap memory, divided into segments of a given size
+	 * @param refereeCapacity an int containing the maximum number of referee records
+	 * @param matchCapacity an int containing the maximum number of match records
+	 * @param segmentSize an int containing the largest number of bytes held by a single segment
+	 * @return store an empty RecordStore
+	 * @throws IllegalArgumentException if either capacity is not positive or a segment cannot hold a record
+	 */
+	static RecordStore createInMemory(int refereeCapacity, int matchCapacity, int segmentSize){
+		checkCapacities(refereeCapacity, matchCapacity);
+		checkSegmentSize(segmentSize);
+		RecordStore store;
+		try{
+			store = new RecordStore(null, refereeCapacity, matchCapacity, segmentSize);
+		}
+		catch (IOException e){
+			// memory held outside the heap is allocated without any file
+			throw new UncheckedIOException(e);
+		}
+		store.writeHeader();
+		return store;
+	}
+
+	/**
+	 * Method to open a store mapped from a file. If the file does not exist or is empty
+	 * a new, empty store is created within it.
+	 * @param fileName a String containing the name of the file backing the store
+	 * @param refereeCapacity an int containing the maximum number of referee records for a new store
+	 * @param matchCapacity an int containing the maximum number of match records for a new store
+	 * @return store a RecordStore backed by the file
+	 * @throws IOException if the file cannot be accessed or does not contain a complete record store
+	 * @throws IllegalArgumentException if either capacity of a new store is not positive
+	 */
+	public static RecordStore openFile(String fileName, int refereeCapacity, int matchCapacity) throws IOException{
+		return openFile(fileName, refereeCapacity, matchCapacity, MAXIMUM_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Method to open a store mapped from a file in segments of a given size
+	 * @param fileName a String containing the name of the file backing the store
+	 * @param refereeCapacity an int containing the maximum number of referee records for a new store
+	 * @param matchCapacity an int containing the maximum number of match records for a new store
+	 * @param segmentSize an int containing the largest number of bytes mapped as a single segment
+	 * @return store a RecordStore backed by the file
+	 * @throws IOException if the file cannot be accessed or does not contain a complete record store
+	 * @throws IllegalArgumentException if either capacity of a new store is not positive or a
+	 * segment cannot hold a record
+	 */
+	static RecordStore openFile(String fileName, int refereeCapacity, int matchCapacity, int segmentSize)
+			throws IOException{
+		checkSegmentSize(segmentSize);
+		RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+		FileChannel channel = file.getChannel();
+		boolean newStore;
+		RecordStore store;
+		try{
+			newStore = channel.size()==0;
+			if (newStore){
+				checkCapacities(refereeCapacity, matchCapacity);
+			}
+			else{
+				// An existing store determines its own capacity from its header
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				channel.read(header, 0);
+				if (header.getInt(MAGIC_OFFSET)!=MAGIC_NUMBER||header.getInt(VERSION_OFFSET)!=LAYOUT_VERSION){
+					throw new IOException("Not a record store: "+fileName);
+				}
+				refereeCapacity = header.getInt(REFEREE_CAPACITY_OFFSET);
+				matchCapacity = header.getInt(MATCH_CAPACITY_OFFSET);
+				if (refereeCapacity<1||matchCapacity<1
+						||channel.size()<storeSize(refereeCapacity, matchCapacity)
+						||header.getInt(REFEREE_COUNT_OFFSET)<0||header.getInt(REFEREE_COUNT_OFFSET)>refereeCapacity
+						||header.getInt(MATCH_COUNT_OFFSET)<0||header.getInt(MATCH_COUNT_OFFSET)>matchCapacity){
+					throw new IOException("The record store "+fileName+" is truncated or its header is corrupt");
+				}
+			}
+			store = new RecordStore(channel, refereeCapacity, matchCapacity, segmentSize);
+		}
+		catch (IOException|RuntimeException e){
+			// The file is released whenever the store cannot be opened
+			file.close();
+			throw e;
+		}
+		if (newStore){
+			store.writeHeader();
+		}
+		return store;
+	}
+
+	/**
+	 * Method to ensure that the capacities of a new store can be used
+	 * @param refereeCapacity an int containing the maximum number of referee records
+	 * @param matchCapacity an int containing the maximum number of match records
+	 * @throws IllegalArgumentException if either capacity is not positive
+	 */
+	private static void checkCapacities(int refereeCapacity, int matchCapacity){
+		if (refereeCapacity<1||matchCapacity<1){
+			throw new IllegalArgumentException("A record store must hold at least one referee and one match, not "
+					+refereeCapacity+" referees and "+matchCapacity+" matches");
+		}
+	}
+
+	/**
+	 * Method to ensure that every segment can hold at least one record of each kind
+	 * @param segmentSize an int containing the largest number of bytes held by a single segment
+	 * @throws IllegalArgumentException if a segment would be too small or too large
+	 */
+	private static void checkSegmentSize(int segmentSize){
+		if (segmentSize<Math.max(REFEREE_RECORD_SIZE, MATCH_RECORD_SIZE)||segmentSize>MAXIMUM_SEGMENT_SIZE){
+			throw new IllegalArgumentException("Segments of "+segmentSize+" bytes cannot be used, as they must hold "
+					+"a single record and at most "+MAXIMUM_SEGMENT_SIZE+" bytes");
+		}
+	}
+
+	/**
+	 * Method to determine the number of bytes required for a store. The size is calculated
+	 * as a long, as a store of millions of records may exceed the range of an int.
+	 * @param refereeCapacity an int containing the maximum number of referee records
+	 * @param matchCapacity an int containing the maximum number of match records
+	 * @return size a long containing the number of bytes required
+	 */
+	private static long storeSize(int refereeCapacity, int matchCapacity){
+		return HEADER_SIZE+(long) refereeCapacity*REFEREE_RECORD_SIZE+(long) matchCapacity*MATCH_RECORD_SIZE;
+	}
+
+	/**
+	 * Method to divide the records of one kind between segments, each holding a whole number of records
+	 * @param regionOffset a long containing the position of the first record within the file
+	 * @param capacity an int containing the number of records of the kind
+	 * @param recordsPerSegment an int containing the largest number of records in a segment
+	 * @param recordSize an int containing the number of bytes in each record
+	 * @return segments an array of ByteBuffers holding the records in order
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private ByteBuffer[] allocateSegments(long regionOffset, int capacity, int recordsPerSegment, int recordSize)
+			throws IOException{
+		ByteBuffer[] segments = new ByteBuffer[(capacity+recordsPerSegment-1)/recordsPerSegment];
+		for (int segment = 0; segment<segments.length; segment++){
+			int records = Math.min(recordsPerSegment, capacity-segment*recordsPerSegment);
+			segments[segment] = this.allocate(regionOffset+(long) segment*recordsPerSegment*recordSize,
+					records*recordSize);
+		}
+		return segments;
+	}
+
+	/**
+	 * Method to allocate off-heap memory, or to map it from the file backing the store
+	 * @param position a long containing the position of the memory within the file
+	 * @param size an int containing the number of bytes required
+	 * @return a ByteBuffer holding the memory
+	 * @throws IOException if the file cannot be mapped
+	 */
+	private ByteBuffer allocate(long position, int size) throws IOException{
+		if (channel==null){
+			return ByteBuffer.allocateDirect(size);
+		}
+		return channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+	}
+
+	/**
+	 * Method to initialise the header of an empty store
+	 */
+	private void writeHeader(){
+		header.putInt(MAGIC_OFFSET, MAGIC_NUMBER);
+		header.putInt(VERSION_OFFSET, LAYOUT_VERSION);
+		header.putInt(REFEREE_CAPACITY_OFFSET, refereeCapacity);
+		header.putInt(MATCH_CAPACITY_OFFSET, matchCapacity);
+		header.putInt(REFEREE_COUNT_OFFSET, 0);
+		header.putInt(MATCH_COUNT_OFFSET, 0);
+		header.putInt(MATCHES_PER_WEEK_OFFSET, 1);
+		writeText(header, STRATEGY_OFFSET, STRATEGY_SIZE, "");
+	}
+
+	/**
+	 * Accessor method for the maximum number of referee records
+	 * @return refereeCapacity an int containing the maximum number of referee records
+	 */
+	public int getRefereeCapacity(){
+		return refereeCapacity;
+	}
+
+	/**
+	 * Accessor method for the maximum number of match records
+	 * @return matchCapacity an int containing the maximum number of match records
+	 */
+	public int getMatchCapacity(){
+		return matchCapacity;
+	}
+
+	/**
+	 * Accessor method for the number of referee records in use
+	 * @return an int containing the number of referee records stored
+	 */
+	public int getRefereeCount(){
+		return header.getInt(REFEREE_COUNT_OFFSET);
+	}
+
+	/**
+	 * Accessor method for the number of match records in use
+	 * @return an int containing the number of match records stored
+	 */
+	public int getMatchCount(){
+		return header.getInt(MATCH_COUNT_OFFSET);
+	}
+
+	/**
+	 * Mutator method for the number of referee records in use
+	 * @param count an int containing the number of referee records stored
+	 */
+	public void setRefereeCount(int count){
+		checkCount(count, refereeCapacity);
+		header.putInt(REFEREE_COUNT_OFFSET, count);
+	}
+
+	/**
+	 * Mutator method for the number of match records in use
+	 * @param count an int containing the number of match records stored
+	 */
+	public void setMatchCount(int count){
+		checkCount(count, matchCapacity);
+		header.putInt(MATCH_COUNT_OFFSET, count);
+	}
+
+	/**
+	 * Accessor method for the number of matches which may be scheduled in a single week
+	 * @return an int containing the number of matches per week of the stored schedule
+	 */
+	public int getMaximumMatchesPerWeek(){
+		return header.getInt(MATCHES_PER_WEEK_OFFSET);
+	}
+
+	/**
+	 * Mutator method for the number of matches which may be scheduled in a single week
+	 * @param matchesPerWeek an int containing the number of matches per week of the stored schedule
+	 */
+	public void setMaximumMatchesPerWeek(int matchesPerWeek){
+		header.putInt(MATCHES_PER_WEEK_OFFSET, matchesPerWeek);
+	}
+
+	/**
+	 * Accessor method for the name of the allocation strategy of the stored schedule
+	 * @return a String containing the name of the strategy, or an empty String for the default strategy
+	 */
+	public String getAllocationStrategyName(){
+		return readText(header, STRATEGY_OFFSET, STRATEGY_SIZE);
+	}
+
+	/**
+	 * Mutator method for the name of the allocation strategy of the stored schedule
+	 * @param strategyName a String containing the name of the strategy
+	 * @throws IllegalArgumentException if the name is too long to be stored
+	 */
+	public void setAllocationStrategyName(String strategyName){
+		writeText(header, STRATEGY_OFFSET, STRATEGY_SIZE, strategyName);
+	}
+
+	/**
+	 * Method to determine whether the name of an allocation strategy can be stored
+	 * @param strategyName a String containing the name of the strategy
+	 * @return a String describing why the name cannot be stored, or null if it can
+	 */
+	public String describeStrategyProblem(String strategyName){
+		return describeTextProblem(strategyName, STRATEGY_SIZE);
+	}
+
+	/**
+	 * Method to determine whether the details of a referee fit the fields of a referee record
+	 * @param ref a Referee object to be stored
+	 * @param regions a RegionTopology defining the regions the referee may be available in
+	 * @return problem a String describing the first detail which does not fit, or null if every detail fits
+	 */
+	public String describeRefereeProblem(Referee ref, RegionTopology regions){
+		String problem = describeTextProblem(ref.getRefID(), REF_ID_SIZE);
+		if (problem==null){
+			problem = describeTextProblem(ref.getRefFirstName(), REF_FIRST_NAME_SIZE);
+		}
+		if (problem==null){
+			problem = describeTextProblem(ref.getRefSurname(), REF_SURNAME_SIZE);
+		}
+		if (problem==null){
+			problem = this.describeEditProblem(ref.getQualification(), ref.getHomeLocation(), regions);
+		}
+		return problem;
+	}
+
+	/**
+	 * Method to determine whether the details of a referee which may be edited fit the fields
+	 * of a referee record
+	 * @param qualification a String containing the qualification of the referee
+	 * @param homeLocation a String containing the home region of the referee
+	 * @param regions a RegionTopology defining the regions the referee may be available in
+	 * @return problem a String describing the first detail which does not fit, or null if every detail fits
+	 */
+	public String describeEditProblem(String qualification, String homeLocation, RegionTopology regions){
+		String problem = describeTextProblem(qualification, REF_QUALIFICATION_SIZE);
+		if (problem==null){
+			problem = describeTextProblem(homeLocation, REF_HOME_SIZE);
+		}
+		if (problem==null&&regions.getNumberOfRegions()>MAXIMUM_REGIONS){
+			problem = "At most "+MAXIMUM_REGIONS+" regions can be stored";
+		}
+		return problem;
+	}
+
+	/**
+	 * Method to determine whether the details of a match fit the fields of a match record
+	 * @param fixture a Match object to be stored
+	 * @return problem a String describing the first detail which does not fit, or null if every detail fits
+	 */
+	public String describeMatchProblem(Match fixture){
+		String problem = null;
+		if (fixture.getCrewSize()!=MATCH_OFFICIALS){
+			problem = "A match record holds "+MATCH_OFFICIALS+" officials";
+		}
+		if (problem==null){
+			problem = describeTextProblem(fixture.getMatchLevel(), MATCH_LEVEL_SIZE);
+		}
+		if (problem==null){
+			problem = describeTextProblem(fixture.getLocation(), MATCH_LOCATION_SIZE);
+		}
+		for (int position = 0; position<fixture.getCrewSize()&&problem==null; position++){
+			problem = describeTextProblem(refIDOf(fixture.getOfficial(position)), REF_ID_SIZE);
+		}
+		return problem;
+	}
+
+	/**
+	 * Method to write the details of a referee to a slot in the store
+	 * @param slot an int containing the position of the referee record
+	 * @param ref a Referee object containing the details to be stored
+	 * @param regions a RegionTopology defining the regions the referee may be available in
+	 * @throws IllegalArgumentException if a detail of the referee does not fit its field
+	 */
+	public void writeReferee(int slot, Referee ref, RegionTopology regions){
+		ByteBuffer segment = this.refereeSegment(slot);
+		// Nothing is written unless every detail fits
+		String problem = this.describeRefereeProblem(ref, regions);
+		if (problem!=null){
+			throw new IllegalArgumentException(problem);
+		}
+		int position = this.refereePosition(slot);
+		writeText(segment, position+REF_ID_OFFSET, REF_ID_SIZE, ref.getRefID());
+		writeText(segment, position+REF_FIRST_NAME_OFFSET, REF_FIRST_NAME_SIZE, ref.getRefFirstName());
+		writeText(segment, position+REF_SURNAME_OFFSET, REF_SURNAME_SIZE, ref.getRefSurname());
+		writeText(segment, position+REF_QUALIFICATION_OFFSET, REF_QUALIFICATION_SIZE, ref.getQualification());
+		segment.putInt(position+REF_ALLOCATIONS_OFFSET, ref.getMatchAllocations());
+		writeText(segment, position+REF_HOME_OFFSET, REF_HOME_SIZE, ref.getHomeLocation());
+		segment.putInt(position+REF_AVAILABILITY_OFFSET, availabilityOf(ref.getAvailableAreas(), regions));
+		segment.putLong(position+REF_UNAVAILABLE_WEEKS_OFFSET, ref.getUnavailableWeeks());
+		segment.putLong(position+REF_BOOKED_WEEKS_OFFSET, ref.getBookedWeeks());
+		this.writeHomeCoordinates(slot, ref.getHomeCoordinates());
+	}
+
+	/**
+	 * Method to read the details of a referee from a slot in the store
+	 * @param slot an int containing the position of the referee record
+	 * @param regions a RegionTopology defining the regions the referee may be available in
+	 * @return ref a new Referee object containing the stored details
+	 */
+	public Referee readReferee(int slot, RegionTopology regions){
+		Referee ref = new Referee(this.readRefID(slot), this.readRefFirstName(slot), this.readRefSurname(slot),
+				this.readQualification(slot), this.readMatchAllocations(slot), this.readHomeLocation(slot),
+				areasOf(this.readAvailability(slot), regions));
+		ref.setUnavailableWeeks(this.readUnavailableWeeks(slot));
+		ref.setBookedWeeks(this.readBookedWeeks(slot));
+		ref.setHomeCoordinates(this.readHomeCoordinates(slot));
+		return ref;
+	}
+
+	/**
+	 * Method to read the ID of the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @return a String containing the ID of the referee
+	 */
+	String readRefID(int slot){
+		return readText(this.refereeSegment(slot), this.refereePosition(slot)+REF_ID_OFFSET, REF_ID_SIZE);
+	}
+
+	/**
+	 * Method to read the first name of the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @return a String containing the first name of the referee
+	 */
+	String readRefFirstName(int slot){
+		return readText(this.refereeSegment(slot), this.refereePosition(slot)+REF_FIRST_NAME_OFFSET,
+				REF_FIRST_NAME_SIZE);
+	}
+
+	/**
+	 * Method to read the surname of the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @return a String containing the surname of the referee
+	 */
+	String readRefSurname(int slot){
+		return readText(this.refereeSegment(slot), this.refereePosition(slot)+REF_SURNAME_OFFSET, REF_SURNAME_SIZE);
+	}
+
+	/**
+	 * Method to read the qualification of the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @return a String containing the qualification of the referee
+	 */
+	String readQualification(int slot){
+		return readText(this.refereeSegment(slot), this.refereePosition(slot)+REF_QUALIFICATION_OFFSET,
+				REF_QUALIFICATION_SIZE);
+	}
+
+	/**
+	 * Method to replace the qualification of the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @param qualification a String containing the new qualification of the referee
+	 * @throws IllegalArgumentException if the qualification does not fit its field
+	 */
+	void writeQualification(int slot, String qualification){
+		writeText(this.refereeSegment(slot), this.refereePosition(slot)+REF_QUALIFICATION_OFFSET,
+				REF_QUALIFICATION_SIZE, qualification);
+	}
+
+	/**
+	 * Method to read the number of matches allocated to the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @return an int containing the number of match allocations of the referee
+	 */
+	int readMatchAllocations(int slot){
+		return this.refereeSegment(slot).getInt(this.refereePosition(slot)+REF_ALLOCATIONS_OFFSET);
+	}
+
+	/**
+	 * Method to replace the number of matches allocated to the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @param matchAllocations an int containing the new number of match allocations of the referee
+	 */
+	void writeMatchAllocations(int slot, int matchAllocations){
+		this.refereeSegment(slot).putInt(this.refereePosition(slot)+REF_ALLOCATIONS_OFFSET, matchAllocations);
+	}
+
+	/**
+	 * Method to read the home region of the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @return a String containing the home region of the referee
+	 */
+	String readHomeLocation(int slot){
+		return readText(this.refereeSegment(slot), this.refereePosition(slot)+REF_HOME_OFFSET, REF_HOME_SIZE);
+	}
+
+	/**
+	 * Method to replace the home region of the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @param homeLocation a String containing the new home region of the referee
+	 * @throws IllegalArgumentException if the region does not fit its field
+	 */
+	void writeHomeLocation(int slot, String homeLocation){
+		writeText(this.refereeSegment(slot), this.refereePosition(slot)+REF_HOME_OFFSET, REF_HOME_SIZE, homeLocation);
+	}
+
+	/**
+	 * Method to read the regions the referee in a slot is available in
+	 * @param slot an int containing the position of the referee record
+	 * @return an int in which the bit for the index of each region the referee is available in is set
+	 */
+	int readAvailability(int slot){
+		return this.refereeSegment(slot).getInt(this.refereePosition(slot)+REF_AVAILABILITY_OFFSET);
+	}
+
+	/**
+	 * Method to replace the regions the referee in a slot is available in
+	 * @param slot an int containing the position of the referee record
+	 * @param availability an int in which the bit for the index of each region the referee is available in is set
+	 */
+	void writeAvailability(int slot, int availability){
+		this.refereeSegment(slot).putInt(this.refereePosition(slot)+REF_AVAILABILITY_OFFSET, availability);
+	}
+
+	/**
+	 * Method to read the weeks the referee in a slot has blocked out
+	 * @param slot an int containing the position of the referee record
+	 * @return a long in which the bit for each unavailable week is set
+	 */
+	long readUnavailableWeeks(int slot){
+		return this.refereeSegment(slot).getLong(this.refereePosition(slot)+REF_UNAVAILABLE_WEEKS_OFFSET);
+	}
+
+	/**
+	 * Method to replace the weeks the referee in a slot has blocked out
+	 * @param slot an int containing the position of the referee record
+	 * @param unavailableWeeks a long in which the bit for each unavailable week is set
+	 */
+	void writeUnavailableWeeks(int slot, long unavailableWeeks){
+		this.refereeSegment(slot).putLong(this.refereePosition(slot)+REF_UNAVAILABLE_WEEKS_OFFSET, unavailableWeeks);
+	}
+
+	/**
+	 * Method to read the weeks in which the referee in a slot officiates a match
+	 * @param slot an int containing the position of the referee record
+	 * @return a long in which the bit for each booked week is set
+	 */
+	long readBookedWeeks(int slot){
+		return this.refereeSegment(slot).getLong(this.refereePosition(slot)+REF_BOOKED_WEEKS_OFFSET);
+	}
+
+	/**
+	 * Method to replace the weeks in which the referee in a slot officiates a match
+	 * @param slot an int containing the position of the referee record
+	 * @param bookedWeeks a long in which the bit for each booked week is set
+	 */
+	void writeBookedWeeks(int slot, long bookedWeeks){
+		this.refereeSegment(slot).putLong(this.refereePosition(slot)+REF_BOOKED_WEEKS_OFFSET, bookedWeeks);
+	}
+
+	/**
+	 * Method to read the position of the home of the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @return a new Coordinates object, or null if only the home region of the referee is known
+	 */
+	Coordinates readHomeCoordinates(int slot){
+		ByteBuffer segment = this.refereeSegment(slot);
+		int position = this.refereePosition(slot);
+		double east = segment.getDouble(position+REF_HOME_EAST_OFFSET);
+		return Double.isNaN(east) ? null : new Coordinates(east, segment.getDouble(position+REF_HOME_NORTH_OFFSET));
+	}
+
+	/**
+	 * Method to replace the position of the home of the referee in a slot
+	 * @param slot an int containing the position of the referee record
+	 * @param home a Coordinates object, or null if only the home region of the referee is known
+	 */
+	void writeHomeCoordinates(int slot, Coordinates home){
+		ByteBuffer segment = this.refereeSegment(slot);
+		int position = this.refereePosition(slot);
+		segment.putDouble(position+REF_HOME_EAST_OFFSET, home!=null ? home.getEast() : Double.NaN);
+		segment.putDouble(position+REF_HOME_NORTH_OFFSET, home!=null ? home.getNorth() : Double.NaN);
+	}
+
+	/**
+	 * Method to write the details of a match to a slot in the store. The officials
+	 * allocated to the match are stored by their unique IDs.
+	 * @param slot an int containing the position of the match record
+	 * @param fixture a Match object containing the details to be stored
+	 * @throws IllegalArgumentException if the match does not have a crew of two officials or a
+	 * detail of the match does not fit its field
+	 */
+	public void writeMatch(int slot, Match fixture){
+		ByteBuffer segment = this.matchSegment(slot);
+		// Nothing is written unless every detail fits
+		String problem = this.describeMatchProblem(fixture);
+		if (problem!=null){
+			throw new IllegalArgumentException(problem);
+		}
+		int position = this.matchPosition(slot);
+		segment.putInt(position+MATCH_WEEK_OFFSET, fixture.getWeekNo());
+		writeText(segment, position+MATCH_LEVEL_OFFSET, MATCH_LEVEL_SIZE, fixture.getMatchLevel());
+		writeText(segment, position+MATCH_LOCATION_OFFSET, MATCH_LOCATION_SIZE, fixture.getLocation());
+		for (int official = 0; official<MATCH_OFFICIALS; official++){
+			this.writeMatchOfficial(slot, official, fixture.getOfficial(official));
+		}
+	}
+
+	/**
+	 * Method to read the details of a match from a slot in the store
+	 * @param slot an int containing the position of the match record
+	 * @param schedule a MatchSchedule object used to locate the officials allocated to the match
+	 * @return fixture a new Match object containing the stored details
+	 */
+	public Match readMatch(int slot, MatchSchedule schedule){
+		Match fixture = new Match(this.readMatchLocation(slot), this.readMatchLevel(slot), this.readMatchWeek(slot));
+		for (int official = 0; official<MATCH_OFFICIALS; official++){
+			fixture.setOfficial(official, schedule.getRefereeByID(this.readMatchOfficialID(slot, official)));
+		}
+		return fixture;
+	}
+
+	/**
+	 * Method to read the week of the match in a slot
+	 * @param slot an int containing the position of the match record
+	 * @return an int containing the week the match is scheduled for
+	 */
+	int readMatchWeek(int slot){
+		return this.matchSegment(slot).getInt(this.matchPosition(slot)+MATCH_WEEK_OFFSET);
+	}
+
+	/**
+	 * Method to read the level of the match in a slot
+	 * @param slot an int containing the position of the match record
+	 * @return a String containing the level of the match (i.e. Junior or Senior)
+	 */
+	String readMatchLevel(int slot){
+		return readText(this.matchSegment(slot), this.matchPosition(slot)+MATCH_LEVEL_OFFSET, MATCH_LEVEL_SIZE);
+	}
+
+	/**
+	 * Method to read the venue of the match in a slot
+	 * @param slot an int containing the position of the match record
+	 * @return a String containing the location of the match
+	 */
+	String readMatchLocation(int slot){
+		return readText(this.matchSegment(slot), this.matchPosition(slot)+MATCH_LOCATION_OFFSET, MATCH_LOCATION_SIZE);
+	}
+
+	/**
+	 * Method to read the ID of an official of the match in a slot
+	 * @param slot an int containing the position of the match record
+	 * @param official an int containing the position of the official in the crew, 0 or 1
+	 * @return a String containing the ID of the official, or an empty String if no official is allocated
+	 */
+	String readMatchOfficialID(int slot, int official){
+		return readText(this.matchSegment(slot), this.matchPosition(slot)+this.officialOffset(official), REF_ID_SIZE);
+	}
+
+	/**
+	 * Method to replace an official of the match in a slot
+	 * @param slot an int containing the position of the match record
+	 * @param official an int containing the position of the official in the crew, 0 or 1
+	 * @param ref a Referee object or null if no official is allocated
+	 * @throws IllegalArgumentException if the ID of the official does not fit its field
+	 */
+	void writeMatchOfficial(int slot, int official, Referee ref){
+		writeText(this.matchSegment(slot), this.matchPosition(slot)+this.officialOffset(official), REF_ID_SIZE,
+				refIDOf(ref));
+	}
+
+	/**
+	 * Method to determine the position of the field holding an official within a match record
+	 * @param official an int containing the position of the official in the crew, 0 or 1
+	 * @return an int containing the offset of the field
+	 */
+	private int officialOffset(int official){
+		if (official<0||official>=MATCH_OFFICIALS){
+			throw new IndexOutOfBoundsException("A match record holds "+MATCH_OFFICIALS+" officials");
+		}
+		return official==0 ? MATCH_REF1_OFFSET : MATCH_REF2_OFFSET;
+	}
+
+	/**
+	 * Method to copy the referee record in one slot over the record in another
+	 * @param fromSlot an int containing the position of the record to be copied
+	 * @param toSlot an int containing the position of the record to be replaced
+	 */
+	public void copyReferee(int fromSlot, int toSlot){
+		copyRecord(this.refereeSegment(fromSlot), this.refereePosition(fromSlot),
+				this.refereeSegment(toSlot), this.refereePosition(toSlot), REFEREE_RECORD_SIZE);
+	}
+
+	/**
+	 * Method to exchange the referee records in two slots
+	 * @param slot1 an int containing the position of the first record
+	 * @param slot2 an int containing the position of the second record
+	 */
+	public void swapReferees(int slot1, int slot2){
+		swapRecords(this.refereeSegment(slot1), this.refereePosition(slot1),
+				this.refereeSegment(slot2), this.refereePosition(slot2), REFEREE_RECORD_SIZE);
+	}
+
+	/**
+	 * Method to copy the match record in one slot over the record in another
+	 * @param fromSlot an int containing the position of the record to be copied
+	 * @param toSlot an int containing the position of the record to be replaced
+	 */
+	public void copyMatch(int fromSlot, int toSlot){
+		copyRecord(this.matchSegment(fromSlot), this.matchPosition(fromSlot),
+				this.matchSegment(toSlot), this.matchPosition(toSlot), MATCH_RECORD_SIZE);
+	}
+
+	/**
+	 * Method to exchange the match records in two slots
+	 * @param slot1 an int containing the position of the first record
+	 * @param slot2 an int containing the position of the second record
+	 */
+	public void swapMatches(int slot1, int slot2){
+		swapRecords(this.matchSegment(slot1), this.matchPosition(slot1),
+				this.matchSegment(slot2), this.matchPosition(slot2), MATCH_RECORD_SIZE);
+	}
+
+	/**
+	 * Method to ensure that all records written to a file backed store have reached the disk.
+	 * A store held in memory is unaffected.
+	 */
+	public void force(){
+		if (channel!=null){
+			((MappedByteBuffer) header).force();
+			for (ByteBuffer segment: refereeSegments){
+				((MappedByteBuffer) segment).force();
+			}
+			for (ByteBuffer segment: matchSegments){
+				((MappedByteBuffer) segment).force();
+			}
+		}
+	}
+
+	/**
+	 * Method to release the file backing the store. The store must not be used afterwards.
+	 * @throws IOException if the file cannot be closed
+	 */
+	public void close() throws IOException{
+		if (channel!=null){
+			force();
+			channel.close();
+		}
+	}
+
+	/**
+	 * Method to locate the segment holding a referee record
+	 * @param slot an int containing the position of the referee record
+	 * @return a ByteBuffer holding the record
+	 */
+	private ByteBuffer refereeSegment(int slot){
+		checkSlot(slot, refereeCapacity);
+		return refereeSegments[slot/refereesPerSegment];
+	}
+
+	/**
+	 * Method to determine the position of a referee record within its segment
+	 * @param slot an int containing the position of the referee record
+	 * @return an int containing the position of the first byte of the record
+	 */
+	private int refereePosition(int slot){
+		return (slot%refereesPerSegment)*REFEREE_RECORD_SIZE;
+	}
+
+	/**
+	 * Method to locate the segment holding a match record
+	 * @param slot an int containing the position of the match record
+	 * @return a ByteBuffer holding the record
+	 */
+	private ByteBuffer matchSegment(int slot){
+		checkSlot(slot, matchCapacity);
+		return matchSegments[slot/matchesPerSegment];
+	}
+
+	/**
+	 * Method to determine the position of a match record within its segment
+	 * @param slot an int containing the position of the match record
+	 * @return an int containing the position of the first byte of the record
+	 */
+	private int matchPosition(int slot){
+		return (slot%matchesPerSegment)*MATCH_RECORD_SIZE;
+	}
+
+	/**
+	 * Method to convert the regions a referee is available in to the bits of the availability field
+	 * @param availableAreas a Set of Strings containing the names of the regions
+	 * @param regions a RegionTopology defining the regions
+	 * @return availability an int in which the bit for the index of each region is set. Regions
+	 * which are not defined by the topology are not stored.
+	 */
+	static int availabilityOf(Set<String> availableAreas, RegionTopology regions){
+		int availability = 0;
+		for (String area: availableAreas){
+			int region = regions.getRegionIndex(area);
+			if (region>=0&&region<MAXIMUM_REGIONS){
+				availability |= 1<<region;
+			}
+		}
+		return availability;
+	}
+
+	/**
+	 * Method to convert the bits of the availability field to the names of the regions
+	 * @param availability an int in which the bit for the index of each region is set
+	 * @param regions a RegionTopology defining the regions
+	 * @return availableAreas a new Set of Strings containing the names of the regions
+	 */
+	static Set<String> areasOf(int availability, RegionTopology regions){
+		Set<String> availableAreas = new HashSet<String>();
+		for (int region = 0; region<regions.getNumberOfRegions()&&region<MAXIMUM_REGIONS; region++){
+			if ((availability&(1<<region))!=0){
+				availableAreas.add(regions.getRegionNames().get(region));
+			}
+		}
+		return availableAreas;
+	}
+
+	/**
+	 * Method to determine the ID of an official, allowing for no official being allocated
+	 * @param ref a Referee object or null
+	 * @return an empty String if there is no official, otherwise the ID of the official
+	 */
+	private static String refIDOf(Referee ref){
+		String refID = "";
+		if (ref!=null){
+			refID = ref.getRefID();
+		}
+		return refID;
+	}
+
+	/**
+	 * Method to determine whether a String fits a fixed width field
+	 * @param text a String to be stored
+	 * @param size an int containing the width of the field in bytes
+	 * @return a String describing why the text does not fit, or null if it fits
+	 */
+	private static String describeTextProblem(String text, int size){
+		if (text.getBytes(StandardCharsets.UTF_8).length>size){
+			return "\""+text+"\" exceeds the field width of "+size+" bytes";
+		}
+		return null;
+	}
+
+	/**
+	 * Method to write a String into a fixed width field, padding the remainder of the field with zeros
+	 * @param buffer a ByteBuffer holding the field
+	 * @param position an int containing the position of the field in the buffer
+	 * @param size an int containing the width of the field in bytes
+	 * @param text a String to be stored in the field
+	 * @throws IllegalArgumentException if the text does not fit the field
+	 */
+	private static void writeText(ByteBuffer buffer, int position, int size, String text){
+		String problem = describeTextProblem(text, size);
+		if (problem!=null){
+			throw new IllegalArgumentException(problem);
+		}
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		for (int index = 0; index<size; index++){
+			if (index<bytes.length){
+				buffer.put(position+index, bytes[index]);
+			}
+			else{
+				buffer.put(position+index, (byte) 0);
+			}
+		}
+	}
+
+	/**
+	 * Method to read a String from a fixed width field
+	 * @param buffer a ByteBuffer holding the field
+	 * @param position an int containing the position of the field in the buffer
+	 * @param size an int containing the width of the field in bytes
+	 * @return text a String containing the contents of the field without padding
+	 */
+	private static String readText(ByteBuffer buffer, int position, int size){
+		byte[] bytes = new byte[size];
+		int length = 0;
+		// The text ends at the first padding byte
+		while (length<size&&buffer.get(position+length)!=0){
+			bytes[length] = buffer.get(position+length);
+			length++;
+		}
+		String text = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		return text;
+	}
+
+	/**
+	 * Method to copy a record from one position to another
+	 * @param fromBuffer a ByteBuffer holding the record to be copied
+	 * @param fromPosition an int containing the position of the record in its buffer
+	 * @param toBuffer a ByteBuffer holding the record to be replaced
+	 * @param toPosition an int containing the position of the record in its buffer
+	 * @param size an int containing the number of bytes in the record
+	 */
+	private static void copyRecord(ByteBuffer fromBuffer, int fromPosition, ByteBuffer toBuffer, int toPosition,
+			int size){
+		for (int index = 0; index<size; index++){
+			toBuffer.put(toPosition+index, fromBuffer.get(fromPosition+index));
+		}
+	}
+
+	/**
+	 * Method to exchange two records
+	 * @param buffer1 a ByteBuffer holding the first record
+	 * @param position1 an int containing the position of the first record in its buffer
+	 * @param buffer2 a ByteBuffer holding the second record
+	 * @param position2 an int containing the position of the second record in its buffer
+	 * @param size an int containing the number of bytes in each record
+	 */
+	private static void swapRecords(ByteBuffer buffer1, int position1, ByteBuffer buffer2, int position2, int size){
+		for (int index = 0; index<size; index++){
+			byte swapped = buffer1.get(position1+index);
+			buffer1.put(position1+index, buffer2.get(position2+index));
+			buffer2.put(position2+index, swapped);
+		}
+	}
+
+	/**
+	 * Method to ensure that a slot lies within the capacity of the store
+	 * @param slot an int containing the position of a record
+	 * @param capacity an int containing the number of records of that type the store can hold
+	 */
+	private static void checkSlot(int slot, int capacity){
+		if (slot<0||slot>=capacity){
+			throw new IndexOutOfBoundsException("Slot "+slot+" lies outside the capacity of "+capacity+" records");
+		}
+	}
+
+	/**
+	 * Method to ensure that a number of records lies within the capacity of the store
+	 * @param count an int containing the number of records
+	 * @param capacity an int containing the number of records of that type the store can hold
+	 */
+	private static void checkCount(int count, int capacity){
+		if (count<0||count>capacity){
+			throw new IndexOutOfBoundsException(count+" records exceeds the capacity of "+capacity+" records");
+		}
+	}
+}
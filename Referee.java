@@ -1,6 +1,10 @@
+import java.util.*;
+
 /**
  * Defines an object defining a single instance of a referee
  * 
+ * The details of a referee of a schedule backed by a RecordStore are held in the
+ * referee's record rather than on the heap, and each accessor reads the record.
  */
 public class Referee{
 
@@ -10,9 +14,17 @@ public class Referee{
 	private String qualification; // the level of qualification of the official 
 	private int matchAllocations; // the number of matches the referee has been allocated in the season
 	private String homeLocation; // the geographical area the referee currently resides in
-	private boolean isAvailableNorth; // the availability of the referee to officiate matches in the northern region
-	private boolean isAvailableCentral; // the availability of the referee to officiate matches in the central region
-	private boolean isAvailableSouth; // the availability of the referee to officiate matches in the southern region
+	private Set<String> availableAreas; // the geographical areas in which the referee is available to officiate matches
+	private long bookedWeeks; // a bit for each week of the season in which the referee officiates a match
+	private long unavailableWeeks; // a bit for each week of the season the referee has blocked out
+	private Coordinates homeCoordinates; // the position of the referee's home, or null if only the home region is known
+	private RecordStore store; // the store holding the referee's details, or null if they are held in the fields above
+	private int storeSlot; // the position of the referee's record in the store
+	private RegionTopology storeRegions; // the regions the availability held in the record refers to
+	
+	public static final int MAXIMUM_WEEKS = 64; // the number of weeks which can be represented by a bit in a long
+	private static final List<String> DEFAULT_REGION_NAMES = Arrays.asList("North", "Central", "South"); // the regions of toString
+	private static final ColumnFormatter ROW_LAYOUT = rowLayout(DEFAULT_REGION_NAMES); // the columns of the referee's row in the display
 	
 	/**
 	 * Constructor for referees added from the user interface 
@@ -39,9 +51,10 @@ public class Referee{
 		this.qualification = qualification;
 		this.matchAllocations = matchAllocations;
 		this.homeLocation = homeLocation;
-		this.isAvailableNorth = isAvailableNorth;
-		this.isAvailableCentral = isAvailableCentral;
-		this.isAvailableSouth = isAvailableSouth;
+		this.availableAreas = new HashSet<String>();
+		this.setAvailableNorth(isAvailableNorth);
+		this.setAvailableCentral(isAvailableCentral);
+		this.setAvailableSouth(isAvailableSouth);
 	}
 	
 	/**
@@ -69,9 +82,105 @@ public class Referee{
 		this.qualification = qualification;
 		this.matchAllocations = matchAllocations;
 		this.homeLocation = homeLocation;
-		this.isAvailableNorth = this.convertCharAvailability(isAvailableNorth);
-		this.isAvailableCentral = this.convertCharAvailability(isAvailableCentral);
-		this.isAvailableSouth = this.convertCharAvailability(isAvailableSouth);
+		this.availableAreas = new HashSet<String>();
+		this.setAvailableNorth(this.convertCharAvailability(isAvailableNorth));
+		this.setAvailableCentral(this.convertCharAvailability(isAvailableCentral));
+		this.setAvailableSouth(this.convertCharAvailability(isAvailableSouth));
+	}
+
+	/**
+	 * Constructor for referees available in any number of geographical areas
+	 * @param refID a String representing the unique ID of he referee
+	 * @param refFirstName a String containing the first name of the official
+	 * @param refSurname a String containing the surname of the referee
+	 * @param qualification a String containing the level of qualification attained by the referee
+	 * @param matchAllocations an int containing the number of matches the referee has been allocated
+	 * @param homeLocation a String representing the geographical area the referee is based in
+	 * @param availableAreas a Set of Strings containing the names of the geographical areas in which
+	 * the referee is available to officiate matches
+	 */
+	public Referee(String refID, String refFirstName, String refSurname,
+			String qualification, int matchAllocations, String homeLocation,
+			Set<String> availableAreas){
+		this.refID = refID;
+		this.refFirstName = refFirstName;
+		this.refSurname = refSurname;
+		this.qualification = qualification;
+		this.matchAllocations = matchAllocations;
+		this.homeLocation = homeLocation;
+		this.availableAreas = new HashSet<String>(availableAreas);
+	}
+	
+	/**
+	 * Constructor for a referee whose details are already held in a record of a store
+	 * @param recordStore a RecordStore holding the referee's record
+	 * @param slot an int containing the position of the record
+	 * @param regions a RegionTopology defining the regions the referee may be available in
+	 */
+	Referee(RecordStore recordStore, int slot, RegionTopology regions){
+		store = recordStore;
+		storeSlot = slot;
+		storeRegions = regions;
+	}
+
+	/**
+	 * Method to move the details of the referee into a record of a store, after which they
+	 * are read from and written to the record rather than held on the heap
+	 * @param recordStore a RecordStore to hold the referee's record
+	 * @param slot an int containing the position of the record
+	 * @param regions a RegionTopology defining the regions the referee may be available in
+	 * @throws IllegalArgumentException if a detail of the referee does not fit the record
+	 */
+	void moveToStore(RecordStore recordStore, int slot, RegionTopology regions){
+		recordStore.writeReferee(slot, this, regions);
+		store = recordStore;
+		storeSlot = slot;
+		storeRegions = regions;
+		refID = null;
+		refFirstName = null;
+		refSurname = null;
+		qualification = null;
+		homeLocation = null;
+		availableAreas = null;
+		homeCoordinates = null;
+	}
+
+	/**
+	 * Method to move the details of the referee from their record back onto the heap, e.g.
+	 * when the referee is removed from a schedule backed by a store
+	 */
+	void moveFromStore(){
+		if (store!=null){
+			Referee copy = store.readReferee(storeSlot, storeRegions);
+			store = null;
+			storeRegions = null;
+			refID = copy.refID;
+			refFirstName = copy.refFirstName;
+			refSurname = copy.refSurname;
+			qualification = copy.qualification;
+			matchAllocations = copy.matchAllocations;
+			homeLocation = copy.homeLocation;
+			availableAreas = copy.availableAreas;
+			bookedWeeks = copy.bookedWeeks;
+			unavailableWeeks = copy.unavailableWeeks;
+			homeCoordinates = copy.homeCoordinates;
+		}
+	}
+
+	/**
+	 * Accessor method for the position of the referee's record in the store holding it
+	 * @return storeSlot an int containing the position of the record
+	 */
+	int getStoreSlot(){
+		return storeSlot;
+	}
+
+	/**
+	 * Mutator method for the position of the referee's record, once the store has moved it
+	 * @param slot an int containing the new position of the record
+	 */
+	void setStoreSlot(int slot){
+		storeSlot = slot;
 	}
 	
 	/**
@@ -79,7 +188,7 @@ public class Referee{
 	 * @return refID a String containing the unique identifier
 	 */
 	public String getRefID() {
-		return refID;
+		return store!=null ? store.readRefID(storeSlot) : refID;
 	}
 	
 	// Note no mutator method for refID as the unique identifier cannot be changed
@@ -90,7 +199,7 @@ public class Referee{
 	 * @return a String containing the first name of the referee
 	 */
 	public String getRefFirstName() {
-		return refFirstName;
+		return store!=null ? store.readRefFirstName(storeSlot) : refFirstName;
 	}
 	
 	// Note no mutator method for firstName as the name of the referee cannot be changed
@@ -101,7 +210,7 @@ public class Referee{
 	 * @return a String containing the surname of the referee
 	 */
 	public String getRefSurname() {
-		return refSurname;
+		return store!=null ? store.readRefSurname(storeSlot) : refSurname;
 	}
 	
 	// Note no mutator method for surname as the referees do not change
@@ -112,16 +221,31 @@ public class Referee{
 	 * @return name a String containing the full name of the official
 	 */
 	public String getFullName(){
-		String name = refFirstName+" "+refSurname;
+		String name = this.getRefFirstName()+" "+this.getRefSurname();
 		return name;
 	}
 	
+	/**
+	 * Method to determine whether the referee has a given full name without building
+	 * the full name of the referee
+	 * @param name a String containing a first name and surname separated by a single space
+	 * @return a boolean denoting whether the name is the referee's full name
+	 */
+	public boolean hasFullName(String name){
+		String firstName = this.getRefFirstName();
+		String surname = this.getRefSurname();
+		int firstNameLength = firstName.length();
+		return name.length()==firstNameLength+1+surname.length()
+				&&name.startsWith(firstName)&&name.charAt(firstNameLength)==' '
+				&&name.endsWith(surname);
+	}
+	
 	/**
 	 * Accessor method for the referee's qualification
 	 * @return a String representing the level of qualification achieved by the official
 	 */
 	public String getQualification() {
-		return qualification;
+		return store!=null ? store.readQualification(storeSlot) : qualification;
 	}
 	
 	/**
@@ -129,7 +253,12 @@ public class Referee{
 	 * @param qualification a String containing the new qualification level of the official
 	 */
 	public void setQualification(String qualification) {
-		this.qualification = qualification;
+		if (store!=null){
+			store.writeQualification(storeSlot, qualification);
+		}
+		else{
+			this.qualification = qualification;
+		}
 	}
 	
 	/**
@@ -137,7 +266,7 @@ public class Referee{
 	 * @return matchAllocations an int containing the number of match allocations associated with the referee
 	 */
 	public int getMatchAllocations() {
-		return matchAllocations;
+		return store!=null ? store.readMatchAllocations(storeSlot) : matchAllocations;
 	}
 	
 	/**
@@ -146,7 +275,12 @@ public class Referee{
 	 * to the referee
 	 */
 	public void setMatchAllocations(int matchAllocations) {
-		this.matchAllocations = matchAllocations;
+		if (store!=null){
+			store.writeMatchAllocations(storeSlot, matchAllocations);
+		}
+		else{
+			this.matchAllocations = matchAllocations;
+		}
 	}
 	
 	/**
@@ -155,7 +289,7 @@ public class Referee{
 	 * referee's home
 	 */
 	public String getHomeLocation() {
-		return homeLocation;
+		return store!=null ? store.readHomeLocation(storeSlot) : homeLocation;
 	}
 	
 	/**
@@ -163,7 +297,33 @@ public class Referee{
 	 * @param homeLocation a String representing the new home location of the referee
 	 */
 	public void setHomeLocation(String homeLocation) {
-		this.homeLocation = homeLocation;
+		if (store!=null){
+			store.writeHomeLocation(storeSlot, homeLocation);
+		}
+		else{
+			this.homeLocation = homeLocation;
+		}
+	}
+	
+	/**
+	 * Accessor method for the position of the referee's home
+	 * @return homeCoordinates a Coordinates object, or null if only the home region is known
+	 */
+	public Coordinates getHomeCoordinates() {
+		return store!=null ? store.readHomeCoordinates(storeSlot) : homeCoordinates;
+	}
+	
+	/**
+	 * Mutator method for the position of the referee's home
+	 * @param homeCoordinates a Coordinates object, or null if only the home region is known
+	 */
+	public void setHomeCoordinates(Coordinates homeCoordinates) {
+		if (store!=null){
+			store.writeHomeCoordinates(storeSlot, homeCoordinates);
+		}
+		else{
+			this.homeCoordinates = homeCoordinates;
+		}
 	}
 	
 	/**
@@ -173,7 +333,7 @@ public class Referee{
 	 * matches in the northern area.
 	 */
 	public boolean isAvailableNorth() {
-		return isAvailableNorth;
+		return isAvailableIn("North");
 	}
 	
 	/**
@@ -182,7 +342,7 @@ public class Referee{
 	 * in the northern area.
 	 */
 	public void setAvailableNorth(boolean isAvailableNorth) {
-		this.isAvailableNorth = isAvailableNorth;
+		setAvailableIn("North", isAvailableNorth);
 	}
 	
 	/**
@@ -191,7 +351,7 @@ public class Referee{
 	 * referee in the central area.
 	 */
 	public boolean isAvailableCentral() {
-		return isAvailableCentral;
+		return isAvailableIn("Central");
 	}
 	
 	/**
@@ -200,7 +360,7 @@ public class Referee{
 	 * in the central area.
 	 */
 	public void setAvailableCentral(boolean isAvailableCentral) {
-		this.isAvailableCentral = isAvailableCentral;
+		setAvailableIn("Central", isAvailableCentral);
 	}
 	
 	/**
@@ -209,7 +369,7 @@ public class Referee{
 	 * referee in the southern area.
 	 */
 	public boolean isAvailableSouth() {
-		return isAvailableSouth;
+		return isAvailableIn("South");
 	}
 	
 	/**
@@ -218,7 +378,246 @@ public class Referee{
 	 * in the southern area.
 	 */
 	public void setAvailableSouth(boolean isAvailableSouth) {
-		this.isAvailableSouth = isAvailableSouth;
+		setAvailableIn("South", isAvailableSouth);
+	}
+
+	/**
+	 * Accessor method for the availability of the referee in any geographical area
+	 * @param area a String containing the name of the geographical area
+	 * @return a boolean representing the availability of the referee in the area
+	 */
+	public boolean isAvailableIn(String area) {
+		if (store!=null){
+			int region = storeRegions.getRegionIndex(area);
+			return region>=0&&region<Integer.SIZE&&(store.readAvailability(storeSlot)&(1<<region))!=0;
+		}
+		return availableAreas.contains(area);
+	}
+
+	/**
+	 * Mutator method for the availability of the referee in any geographical area. A referee
+	 * held in a store may only be available in the regions of the store's topology.
+	 * @param area a String containing the name of the geographical area
+	 * @param isAvailable a boolean representing the new availability of the referee in the area
+	 */
+	public void setAvailableIn(String area, boolean isAvailable) {
+		if (store!=null){
+			Set<String> areas = RecordStore.areasOf(store.readAvailability(storeSlot), storeRegions);
+			if (isAvailable){
+				areas.add(area);
+			}
+			else{
+				areas.remove(area);
+			}
+			this.setAvailableAreas(areas);
+		}
+		else if (isAvailable){
+			availableAreas.add(area);
+		}
+		else{
+			availableAreas.remove(area);
+		}
+	}
+
+	/**
+	 * Accessor method for all of the geographical areas the referee is available in
+	 * @return an unmodifiable Set of Strings containing the names of the areas
+	 */
+	public Set<String> getAvailableAreas() {
+		if (store!=null){
+			return Collections.unmodifiableSet(RecordStore.areasOf(store.readAvailability(storeSlot), storeRegions));
+		}
+		return Collections.unmodifiableSet(availableAreas);
+	}
+
+	/**
+	 * Mutator method to replace the geographical areas the referee is available in
+	 * @param availableAreas a Set of Strings containing the names of the areas
+	 */
+	public void setAvailableAreas(Set<String> availableAreas) {
+		if (store!=null){
+			store.writeAvailability(storeSlot, RecordStore.availabilityOf(availableAreas, storeRegions));
+		}
+		else{
+			this.availableAreas = new HashSet<String>(availableAreas);
+		}
+	}
+	
+	/**
+	 * Method to determine the bit representing a week of the season
+	 * @param week an int containing the week of the season, starting from 1
+	 * @return a long with only the bit for the week set
+	 */
+	public static long weekBit(int week) {
+		if (week<1||week>MAXIMUM_WEEKS){
+			throw new IllegalArgumentException("Week "+week+" lies outside of the season");
+		}
+		return 1L<<(week-1);
+	}
+	
+	/**
+	 * Accessor method for the weeks in which the referee officiates a match
+	 * @return bookedWeeks a long in which the bit for each booked week is set
+	 */
+	public long getBookedWeeks() {
+		return store!=null ? store.readBookedWeeks(storeSlot) : bookedWeeks;
+	}
+
+	/**
+	 * Mutator method to replace the weeks in which the referee officiates a match
+	 * @param bookedWeeks a long in which the bit for each booked week is set
+	 */
+	void setBookedWeeks(long bookedWeeks) {
+		if (store!=null){
+			store.writeBookedWeeks(storeSlot, bookedWeeks);
+		}
+		else{
+			this.bookedWeeks = bookedWeeks;
+		}
+	}
+	
+	/**
+	 * Method to determine whether the referee already officiates a match in a given week
+	 * @param week an int containing the week of the season
+	 * @return a boolean denoting whether the referee is booked in the week
+	 */
+	public boolean isBookedInWeek(int week) {
+		return (this.getBookedWeeks()&weekBit(week))!=0;
+	}
+	
+	/**
+	 * Mutator method for whether the referee officiates a match in a given week
+	 * @param week an int containing the week of the season
+	 * @param booked a boolean denoting whether the referee is booked in the week
+	 */
+	public void setBookedInWeek(int week, boolean booked) {
+		if (booked){
+			this.setBookedWeeks(this.getBookedWeeks()|weekBit(week));
+		}
+		else{
+			this.setBookedWeeks(this.getBookedWeeks()&~weekBit(week));
+		}
+	}
+	
+	/**
+	 * Accessor method for the weeks the referee has blocked out, e.g. for holidays or injuries
+	 * @return unavailableWeeks a long in which the bit for each unavailable week is set
+	 */
+	public long getUnavailableWeeks() {
+		return store!=null ? store.readUnavailableWeeks(storeSlot) : unavailableWeeks;
+	}
+	
+	/**
+	 * Mutator method to replace the weeks the referee has blocked out
+	 * @param unavailableWeeks a long in which the bit for each unavailable week is set
+	 */
+	public void setUnavailableWeeks(long unavailableWeeks) {
+		if (store!=null){
+			store.writeUnavailableWeeks(storeSlot, unavailableWeeks);
+		}
+		else{
+			this.unavailableWeeks = unavailableWeeks;
+		}
+	}
+	
+	/**
+	 * Method to determine whether the referee has blocked out a given week
+	 * @param week an int containing the week of the season
+	 * @return a boolean denoting whether the referee is available in the week
+	 */
+	public boolean isAvailableInWeek(int week) {
+		return (this.getUnavailableWeeks()&weekBit(week))==0;
+	}
+	
+	/**
+	 * Mutator method for whether the referee has blocked out a given week
+	 * @param week an int containing the week of the season
+	 * @param available a boolean denoting whether the referee is available in the week
+	 */
+	public void setAvailableInWeek(int week, boolean available) {
+		if (available){
+			this.setUnavailableWeeks(this.getUnavailableWeeks()&~weekBit(week));
+		}
+		else{
+			this.setUnavailableWeeks(this.getUnavailableWeeks()|weekBit(week));
+		}
+	}
+	
+	/**
+	 * Accessor method for the weeks in which the referee cannot be given a match, either
+	 * because they already officiate a match or because they have blocked the week out
+	 * @return a long in which the bit for each ineligible week is set
+	 */
+	public long getIneligibleWeeks() {
+		return this.getBookedWeeks()|this.getUnavailableWeeks();
+	}
+	
+	/**
+	 * Method to convert a list of weeks in the input file format (e.g. "3,4,10-12")
+	 * to a set of bits
+	 * @param weekList a String containing week numbers and inclusive ranges separated by commas
+	 * @param weeksInSeason an int containing the number of weeks in the season
+	 * @return weeks a long in which the bit for each listed week is set
+	 * @throws IllegalArgumentException if a week lies outside of the season or a range is incomplete
+	 */
+	public static long parseWeeks(String weekList, int weeksInSeason) {
+		long weeks = 0;
+		for (String entry: weekList.split(",", -1)){
+			// A negative limit keeps the empty end of an incomplete range such as "3-"
+			String[] range = entry.trim().split("-", -1);
+			try{
+				int firstWeek = Integer.parseInt(range[0].trim());
+				int lastWeek = range.length>1 ? Integer.parseInt(range[1].trim()) : firstWeek;
+				if (range.length>2||lastWeek<firstWeek){
+					throw new IllegalArgumentException("Invalid range of weeks "+entry+" in "+weekList);
+				}
+				if (firstWeek<1||lastWeek>weeksInSeason){
+					throw new IllegalArgumentException("Week range "+entry+" in "+weekList
+							+" lies outside of the season of "+weeksInSeason+" weeks");
+				}
+				for (int week = firstWeek; week<=lastWeek; week++){
+					weeks |= weekBit(week);
+				}
+			}
+			catch (NumberFormatException nfx){
+				throw new IllegalArgumentException("Invalid week "+entry+" in "+weekList);
+			}
+		}
+		return weeks;
+	}
+	
+	/**
+	 * Method to convert a set of weeks to the input file format, collapsing consecutive
+	 * weeks to a range (e.g. "3,4,10-12")
+	 * @param weeks a long in which the bit for each week is set
+	 * @return weekList a String containing the weeks, or an empty String if no bit is set
+	 */
+	public static String formatWeeks(long weeks) {
+		StringBuilder weekList = new StringBuilder();
+		int week = 1;
+		while (week<=MAXIMUM_WEEKS){
+			if ((weeks&weekBit(week))==0){
+				week++;
+				continue;
+			}
+			// Find the last week of the run of consecutive weeks
+			int lastWeek = week;
+			while (lastWeek<MAXIMUM_WEEKS&&(weeks&weekBit(lastWeek+1))!=0){
+				lastWeek++;
+			}
+			if (weekList.length()>0){
+				weekList.append(',');
+			}
+			weekList.append(week);
+			if (lastWeek==week+1){
+				weekList.append(',').append(lastWeek);
+			}
+			else if (lastWeek>week){
+				weekList.append('-').append(lastWeek);
+			}
+			week = lastWeek+1;
+		}
+		return weekList.toString();
 	}
 	
 	/**
@@ -229,6 +628,7 @@ public class Referee{
 	 */
 	public boolean canRefereeSeniors (){
 		boolean canRefSeniors = false;
+		String qualification = this.getQualification();
 		char qualificationLevel = qualification.charAt(qualification.length()-1);
 		if (qualificationLevel>'1'){
 			canRefSeniors = true;
@@ -269,10 +669,78 @@ public class Referee{
 	 * @return refDescription a String containing the values of the instance variables for the referee object
 	 */
 	public String toString (){
-		String refDescription = String.format(" %-7s%-12s%-14s%-13s%4s%6s%-7s%5s%10s%10s\n", refID, refFirstName,
-				refSurname, qualification, matchAllocations,"", homeLocation, convertBooleanAvailability(this.isAvailableNorth),
-				convertBooleanAvailability(this.isAvailableCentral), convertBooleanAvailability(this.isAvailableSouth));
+		StringBuilder row = new StringBuilder();
+		this.appendRow(row);
+		String refDescription = row.toString();
 		return refDescription;
 	}
+
+	/**
+	 * Method to write the referee's row of the display, as returned by toString, without
+	 * creating any intermediate String. The row shows the availability in the North,
+	 * Central and South regions.
+	 * @param out a StringBuilder the row is appended to
+	 */
+	public void appendRow(StringBuilder out){
+		this.appendRow(out, ROW_LAYOUT, DEFAULT_REGION_NAMES);
+	}
+
+	/**
+	 * Method to write the referee's row of the display with a column for the availability
+	 * in each of the regions given
+	 * @param out a StringBuilder the row is appended to
+	 * @param layout a ColumnFormatter returned by rowLayout for the regions
+	 * @param regionNames a List of the names of the regions, in the order of their columns
+	 */
+	public void appendRow(StringBuilder out, ColumnFormatter layout, List<String> regionNames){
+		int column = 0;
+		layout.appendField(out, column++, this.getRefID());
+		layout.appendField(out, column++, this.getRefFirstName());
+		layout.appendField(out, column++, this.getRefSurname());
+		layout.appendField(out, column++, this.getQualification());
+		layout.appendField(out, column++, this.getMatchAllocations());
+		layout.appendField(out, column++, "");
+		layout.appendField(out, column++, this.getHomeLocation());
+		for (String region: regionNames){
+			layout.appendField(out, column++, convertBooleanAvailability(this.isAvailableIn(region)));
+		}
+		layout.appendEnd(out);
+	}
+
+	/**
+	 * Method to build the layout of the referees' rows of the display, with a column for
+	 * the availability in each region wide enough for the name of the region. For the
+	 * North, Central and South regions the rows are those returned by toString.
+	 * @param regionNames a List of the names of the regions, in the order of their columns
+	 * @return a ColumnFormatter for the rows written by appendRow
+	 */
+	public static ColumnFormatter rowLayout(List<String> regionNames){
+		StringBuilder layout = new StringBuilder(" %-7s%-12s%-14s%-13s%4s%6s%-7s");
+		for (int region = 0; region<regionNames.size(); region++){
+			int width = region==0 ? Math.max(5, regionNames.get(region).length())
+					: Math.max(10, regionNames.get(region).length()+3);
+			layout.append('%').append(width).append('s');
+		}
+		return new ColumnFormatter(layout.append('\n').toString());
+	}
+
+	/**
+	 * Method to format the headings of the columns of the referees' rows of the display,
+	 * naming each region above its column of availability
+	 * @param regionNames a List of the names of the regions, in the order of their columns
+	 * @return a String containing the line of headings
+	 */
+	public static String formatHeadings(List<String> regionNames){
+		StringBuilder layout = new StringBuilder(" %-5s%-13s%-10s%-15s%-14s%-8s");
+		String[] attributes = {"ID", "First Name", "Surname", "Qualification", "Allocations", "Home"};
+		String[] headings = new String[attributes.length+regionNames.size()];
+		System.arraycopy(attributes, 0, headings, 0, attributes.length);
+		for (int region = 0; region<regionNames.size(); region++){
+			String name = regionNames.get(region);
+			layout.append('%').append(region==0 ? name.length() : name.length()+4).append('s');
+			headings[attributes.length+region] = name;
+		}
+		return new ColumnFormatter(layout.append('\n').toString()).format(headings);
+	}
 }	
 	
\ No newline at end of file
@@ -0,0 +1,178 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Watches the referees input file while the application runs and applies each new
+ * version of the file to a MatchSchedule as it is received. The file is read and parsed
+ * on the watcher's own thread and the differences are then applied through
+ * MatchSchedule.reloadReferees on the thread supplied by the caller, e.g. the Swing
+ * event dispatch thread, so the schedule is only ever altered on one thread and its
+ * indexes and caches are updated in place rather than rebuilt. A version containing
+ * any invalid line is ignored in full, so a partly written or mistaken file never
+ * causes referees to be removed.
+ */
+public class RefereeFileWatcher {
+
+	public static final long SETTLE_MILLIS = 250; // the time the file must go unchanged before it is read
+
+	/**
+	 * Defines the notification of the outcome of each reload
+	 */
+	public interface ReloadListener {
+
+		/**
+		 * Method called on the applying thread once a new version of the file has been applied
+		 * @param problems a List of Strings describing each change which could not be applied
+		 */
+		void refereesReloaded(List<String> problems);
+
+		/**
+		 * Method called on the applying thread when a new version of the file cannot be read
+		 * @param errors a List of Strings describing each line which could not be read
+		 */
+		void reloadFailed(List<String> errors);
+	}
+
+	private final MatchSchedule schedule; // the schedule the file is applied to
+	private final Path file; // the referees input file
+	private final Executor applier; // runs each reload on the thread which alters the schedule
+	private final ReloadListener listener; // notified of the outcome of each reload
+	private final WatchService watchService; // reports changes to the directory of the file
+	private final Thread watcher; // the thread waiting for changes
+
+	/**
+	 * Constructor for the RefereeFileWatcher. Watching begins once start is called.
+	 * @param matchSchedule a MatchSchedule object the file is applied to
+	 * @param fileName a String containing the name of the referees input file
+	 * @param applyExecutor an Executor running tasks on the thread which alters the schedule
+	 * @param reloadListener a ReloadListener notified of the outcome of each reload
+	 * @throws IOException if the directory of the file cannot be watched
+	 */
+	public RefereeFileWatcher(MatchSchedule matchSchedule, String fileName, Executor applyExecutor,
+			ReloadListener reloadListener) throws IOException{
+		schedule = matchSchedule;
+		file = Paths.get(fileName).toAbsolutePath();
+		applier = applyExecutor;
+		listener = reloadListener;
+		watchService = file.getFileSystem().newWatchService();
+		// Files are commonly replaced rather than rewritten, so the whole directory is watched
+		file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		watcher = new Thread(new Runnable(){
+			public void run(){
+				watch();
+			}
+		}, "RefereeFileWatcher");
+		// The program may exit without waiting for the watcher
+		watcher.setDaemon(true);
+	}
+
+	/**
+	 * Method to begin watching the file
+	 */
+	public void start(){
+		watcher.start();
+	}
+
+	/**
+	 * Method to stop watching the file
+	 * @throws IOException if the watch service cannot be closed
+	 */
+	public void close() throws IOException{
+		watcher.interrupt();
+		watchService.close();
+	}
+
+	/**
+	 * Method run by the watcher thread to wait for changes to the file
+	 */
+	private void watch(){
+		try{
+			while (true){
+				WatchKey key = watchService.take();
+				boolean changed = this.concernsFile(key);
+				key.reset();
+				if (changed){
+					// Writers often alter a file in several steps, so wait until the changes stop
+					WatchKey further = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+					while (further!=null){
+						further.pollEvents();
+						further.reset();
+						further = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS);
+					}
+					this.reload();
+				}
+			}
+		}
+		catch (InterruptedException ix){
+			// watching has been stopped
+		}
+		catch (ClosedWatchServiceException cwx){
+			// watching has been stopped
+		}
+	}
+
+	/**
+	 * Method to determine whether the events of a watch key include a change to the file
+	 * @param key a WatchKey for the directory of the file
+	 * @return changed a boolean denoting whether the file was created or modified
+	 */
+	private boolean concernsFile(WatchKey key){
+		boolean changed = false;
+		for (WatchEvent<?> event: key.pollEvents()){
+			if (event.kind()==StandardWatchEventKinds.OVERFLOW
+					||file.getFileName().equals(event.context())){
+				// after an overflow it is unknown which files changed
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Method to read the current version of the file and apply it to the schedule
+	 */
+	private void reload(){
+		final List<Referee> latestRefs = new ArrayList<Referee>();
+		final List<String> errors = new ArrayList<String>();
+		try{
+			BufferedReader reader = Files.newBufferedReader(file);
+			try{
+				int lineNumber = 0;
+				String line = reader.readLine();
+				while (line!=null){
+					lineNumber++;
+					if (!line.trim().isEmpty()){
+						try{
+							// parsing only reads the regions of the schedule
+							latestRefs.add(schedule.parseReferee(line));
+						}
+						catch (IllegalArgumentException iax){
+							errors.add("Line "+lineNumber+": "+iax.getMessage());
+						}
+					}
+					line = reader.readLine();
+				}
+			}
+			finally{
+				reader.close();
+			}
+		}
+		catch (IOException iox){
+			// e.g. the file has been deleted
+			errors.add("Error Accessing Referees Input File: "+iox.getMessage());
+		}
+		applier.execute(new Runnable(){
+			public void run(){
+				if (errors.isEmpty()){
+					listener.refereesReloaded(schedule.reloadReferees(latestRefs));
+				}
+				else{
+					listener.reloadFailed(errors);
+				}
+			}
+		});
+	}
+}
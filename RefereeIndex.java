@@ -0,0 +1,258 @@
+import java.util.*;
+
+/**
+ * Maintains indexes of the referees of a MatchSchedule by qualification, home region,
+ * availability and match allocations. Each referee occupies a fixed slot for as long as
+ * they remain in the schedule, and each index holds a bitset of the slots with a given
+ * value, so that queries combine indexes with bitwise operations rather than examining
+ * every referee.
+ */
+class RefereeIndex {
+
+	private final List<Referee> slotReferees; // the referee occupying each slot, or null if the slot is free
+	private final Map<Referee, Integer> slots; // the slot occupied by each referee
+	private final BitSet occupiedSlots; // the slots occupied by a referee
+	private final BitSet seniorRefs; // the referees qualified to officiate senior matches
+	private final Map<String, BitSet> refsByQualification; // the referees holding each qualification
+	private final Map<String, BitSet> refsByHome; // the referees residing in each region
+	private final Map<String, BitSet> refsByArea; // the referees available in each region
+	private final TreeMap<Integer, BitSet> refsByAllocations; // the referees with each number of match allocations
+
+	/**
+	 * Constructor for the RefereeIndex
+	 */
+	RefereeIndex(){
+		slotReferees = new ArrayList<Referee>();
+		slots = new HashMap<Referee, Integer>();
+		occupiedSlots = new BitSet();
+		seniorRefs = new BitSet();
+		refsByQualification = new HashMap<String, BitSet>();
+		refsByHome = new HashMap<String, BitSet>();
+		refsByArea = new HashMap<String, BitSet>();
+		refsByAllocations = new TreeMap<Integer, BitSet>();
+	}
+
+	/**
+	 * Method to give a referee a slot and index their details
+	 * @param ref a Referee object added to the schedule
+	 */
+	void add(Referee ref){
+		int slot = occupiedSlots.nextClearBit(0);
+		if (slot==slotReferees.size()){
+			slotReferees.add(ref);
+		}
+		else{
+			slotReferees.set(slot, ref);
+		}
+		occupiedSlots.set(slot);
+		slots.put(ref, slot);
+		this.indexDetails(ref);
+	}
+
+	/**
+	 * Method to forget a referee and free their slot
+	 * @param ref a Referee object removed from the schedule
+	 */
+	void remove(Referee ref){
+		if (slots.containsKey(ref)){
+			this.unindexDetails(ref);
+			int slot = slots.remove(ref);
+			occupiedSlots.clear(slot);
+			slotReferees.set(slot, null);
+		}
+	}
+
+	/**
+	 * Method to determine whether a referee is indexed
+	 * @param ref a Referee object
+	 * @return a boolean denoting whether the referee occupies a slot
+	 */
+	boolean contains(Referee ref){
+		return slots.containsKey(ref);
+	}
+
+	/**
+	 * Method to index the current details of a referee. Must be called after the details of
+	 * an indexed referee are altered.
+	 * @param ref a Referee object
+	 */
+	void indexDetails(Referee ref){
+		Integer slot = slots.get(ref);
+		if (slot!=null){
+			seniorRefs.set(slot, ref.canRefereeSeniors());
+			bitsFor(refsByQualification, ref.getQualification()).set(slot);
+			bitsFor(refsByHome, ref.getHomeLocation()).set(slot);
+			for (String area: ref.getAvailableAreas()){
+				bitsFor(refsByArea, area).set(slot);
+			}
+			bitsFor(refsByAllocations, ref.getMatchAllocations()).set(slot);
+		}
+	}
+
+	/**
+	 * Method to remove the details of a referee from the indexes. Must be called before the
+	 * details of an indexed referee are altered.
+	 * @param ref a Referee object
+	 */
+	void unindexDetails(Referee ref){
+		Integer slot = slots.get(ref);
+		if (slot!=null){
+			seniorRefs.clear(slot);
+			clearBit(refsByQualification, ref.getQualification(), slot);
+			clearBit(refsByHome, ref.getHomeLocation(), slot);
+			for (String area: ref.getAvailableAreas()){
+				clearBit(refsByArea, area, slot);
+			}
+			clearBit(refsByAllocations, ref.getMatchAllocations(), slot);
+		}
+	}
+
+	/**
+	 * Method to locate the bitset for a value of an index, creating it if necessary
+	 * @param index a Map from each value to the slots of the referees with that value
+	 * @param value the value whose bitset is required
+	 * @return bits a BitSet of the slots with the value
+	 */
+	private static <K> BitSet bitsFor(Map<K, BitSet> index, K value){
+		BitSet bits = index.get(value);
+		if (bits==null){
+			bits = new BitSet();
+			index.put(value, bits);
+		}
+		return bits;
+	}
+
+	/**
+	 * Method to clear the bit of a slot for a value of an index, forgetting the value once
+	 * no referee has it
+	 * @param index a Map from each value to the slots of the referees with that value
+	 * @param value the value whose bitset is altered
+	 * @param slot an int containing the slot to clear
+	 */
+	private static <K> void clearBit(Map<K, BitSet> index, K value, int slot){
+		BitSet bits = index.get(value);
+		if (bits!=null){
+			bits.clear(slot);
+			if (bits.isEmpty()){
+				index.remove(value);
+			}
+		}
+	}
+
+	/**
+	 * Method to release the free slots following the last occupied slot
+	 */
+	void compact(){
+		int usedSlots = occupiedSlots.length();
+		while (slotReferees.size()>usedSlots){
+			slotReferees.remove(slotReferees.size()-1);
+		}
+		((ArrayList<Referee>) slotReferees).trimToSize();
+	}
+
+	/**
+	 * Accessor method for the number of referees indexed
+	 * @return an int containing the number of occupied slots
+	 */
+	int size(){
+		return slots.size();
+	}
+
+	/**
+	 * Accessor method for the number of slots, including those freed by removed referees
+	 * @return an int containing the number of slots
+	 */
+	int getNumberOfSlots(){
+		return slotReferees.size();
+	}
+
+	/**
+	 * Accessor method for the number of distinct match allocations held by the referees
+	 * @return an int containing the number of values in the index of match allocations
+	 */
+	int getNumberOfAllocationLevels(){
+		return refsByAllocations.size();
+	}
+
+	/**
+	 * Accessor method for the referee occupying a slot
+	 * @param slot an int containing the slot
+	 * @return a Referee object, or null if the slot is free
+	 */
+	Referee getReferee(int slot){
+		return slot<slotReferees.size() ? slotReferees.get(slot) : null;
+	}
+
+	/**
+	 * Method to return the slots of every referee. The returned BitSet must not be altered.
+	 * @return occupiedSlots a BitSet of the occupied slots
+	 */
+	BitSet allReferees(){
+		return occupiedSlots;
+	}
+
+	/**
+	 * Method to return the slots of the referees qualified to officiate senior matches.
+	 * The returned BitSet must not be altered.
+	 * @return seniorRefs a BitSet of slots
+	 */
+	BitSet seniorReferees(){
+		return seniorRefs;
+	}
+
+	/**
+	 * Method to return the slots of the referees holding a qualification.
+	 * The returned BitSet must not be altered.
+	 * @param qualification a String containing the qualification, e.g. "NJB2"
+	 * @return a BitSet of slots
+	 */
+	BitSet refereesWithQualification(String qualification){
+		return valueOrEmpty(refsByQualification.get(qualification));
+	}
+
+	/**
+	 * Method to return the slots of the referees residing in a region.
+	 * The returned BitSet must not be altered.
+	 * @param region a String containing the name of the region
+	 * @return a BitSet of slots
+	 */
+	BitSet refereesLivingIn(String region){
+		return valueOrEmpty(refsByHome.get(region));
+	}
+
+	/**
+	 * Method to return the slots of the referees available in a region.
+	 * The returned BitSet must not be altered.
+	 * @param region a String containing the name of the region
+	 * @return a BitSet of slots
+	 */
+	BitSet refereesAvailableIn(String region){
+		return valueOrEmpty(refsByArea.get(region));
+	}
+
+	/**
+	 * Method to return the slots of the referees whose match allocations lie within a range.
+	 * Only the distinct numbers of allocations within the range are examined.
+	 * @param minimum an int containing the fewest allocations, inclusive
+	 * @param maximum an int containing the most allocations, inclusive
+	 * @return inRange a new BitSet of slots
+	 */
+	BitSet refereesWithAllocations(int minimum, int maximum){
+		BitSet inRange = new BitSet();
+		if (minimum<=maximum){
+			for (BitSet bits: refsByAllocations.subMap(minimum, true, maximum, true).values()){
+				inRange.or(bits);
+			}
+		}
+		return inRange;
+	}
+
+	/**
+	 * Method to substitute an empty BitSet for a value no referee has
+	 * @param bits a BitSet or null
+	 * @return a BitSet
+	 */
+	private static BitSet valueOrEmpty(BitSet bits){
+		return bits==null ? new BitSet() : bits;
+	}
+}
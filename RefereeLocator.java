@@ -0,0 +1,334 @@
+import java.util.*;
+
+/**
+ * A two dimensional k-d tree of the homes of the referees of a schedule, answering
+ * nearest referee queries without measuring the distance from a venue to every referee.
+ * The tree is balanced when it is built. Referees added afterwards are held beside the
+ * tree and examined by every search, and referees removed are passed over where they
+ * lie, so the schedule keeps the locator up to date as referees are added, removed or
+ * move home. Once the referees added and removed since the tree was built outnumber the
+ * square root of its size, the tree is rebuilt from the referees still located.
+ *
+ * A search visits the referees in order of increasing distance from the venue, one at
+ * a time, examining only the parts of the tree which may hold the next nearest referee.
+ * The caller stops the search once it has found the referees it requires, so finding
+ * the few nearest eligible referees in a large pool touches only a small part of it.
+ */
+class RefereeLocator {
+
+	/**
+	 * Defines the referees nearest a venue, visited in order of increasing distance. A
+	 * search must not be continued once the locator has been altered.
+	 */
+	class NearestSearch {
+
+		private final Coordinates venue; // the position distances are measured from
+		private final PriorityQueue<double[]> frontier; // the referees and subtrees yet to be visited, nearest first
+		private final Referee[] added; // the referees added since the tree was built
+		private int current; // the position in the tree, or after it among those added, of the referee last visited
+		private double currentDistance; // the distance to the referee last visited
+
+		/**
+		 * Constructor for the NearestSearch
+		 * @param from a Coordinates object the distances are measured from
+		 */
+		private NearestSearch(Coordinates from){
+			venue = from;
+			// Each entry holds the lower bound of its distance, whether it is a single
+			// referee, the range of the subtree and its bounding box
+			frontier = new PriorityQueue<double[]>(16, new Comparator<double[]>(){
+				public int compare(double[] entry1, double[] entry2){
+					int order = Double.compare(entry1[0], entry2[0]);
+					if (order==0){
+						// referees come before subtrees at the same distance
+						order = Double.compare(entry1[1], entry2[1]);
+					}
+					if (order==0){
+						order = Double.compare(entry1[2], entry2[2]);
+					}
+					return order;
+				}
+			});
+			if (refs.length>0){
+				frontier.add(new double[]{0, 1, 0, 0, refs.length, -Double.MAX_VALUE, Double.MAX_VALUE,
+						-Double.MAX_VALUE, Double.MAX_VALUE});
+			}
+			// The referees added since the tree was built are placed after it
+			added = additions.keySet().toArray(new Referee[additions.size()]);
+			for (int index = 0; index<added.length; index++){
+				double distance = additions.get(added[index]).distanceTo(venue);
+				frontier.add(new double[]{distance, 0, refs.length+index, refs.length+index});
+			}
+			current = -1;
+		}
+
+		/**
+		 * Method to move to the next nearest referee
+		 * @return a boolean denoting whether another referee was found
+		 */
+		boolean next(){
+			while (!frontier.isEmpty()){
+				double[] entry = frontier.poll();
+				if (entry[1]==0){
+					int position = (int) entry[3];
+					// referees removed from the tree are passed over
+					if (position>=refs.length||Integer.valueOf(position).equals(treePositions.get(refs[position]))){
+						current = position;
+						currentDistance = entry[0];
+						return true;
+					}
+				}
+				else{
+					this.expand(entry);
+				}
+			}
+			current = -1;
+			return false;
+		}
+
+		/**
+		 * Method to replace a subtree in the frontier by the referee at its root and its two halves
+		 * @param entry an array describing the subtree
+		 */
+		private void expand(double[] entry){
+			int low = (int) entry[3];
+			int high = (int) entry[4];
+			int middle = (low+high)>>>1;
+			boolean splitEast = ((int) entry[2])%2==0;
+			double split = splitEast ? east[middle] : north[middle];
+			double distance = Math.hypot(east[middle]-venue.getEast(), north[middle]-venue.getNorth());
+			frontier.add(new double[]{distance, 0, middle, middle});
+			int depth = (int) entry[2]+1;
+			if (low<middle){
+				double[] box = {entry[5], entry[6], entry[7], entry[8]};
+				box[splitEast ? 1 : 3] = split;
+				this.addSubtree(low, middle, depth, box);
+			}
+			if (middle+1<high){
+				double[] box = {entry[5], entry[6], entry[7], entry[8]};
+				box[splitEast ? 0 : 2] = split;
+				this.addSubtree(middle+1, high, depth, box);
+			}
+		}
+
+		/**
+		 * Method to add a subtree to the frontier at the distance of its bounding box
+		 * @param low an int containing the first position of the subtree
+		 * @param high an int containing the position after the last of the subtree
+		 * @param depth an int containing the depth of the root of the subtree
+		 * @param box an array containing the least and greatest distance east and north of the subtree
+		 */
+		private void addSubtree(int low, int high, int depth, double[] box){
+			double eastGap = Math.max(0, Math.max(box[0]-venue.getEast(), venue.getEast()-box[1]));
+			double northGap = Math.max(0, Math.max(box[2]-venue.getNorth(), venue.getNorth()-box[3]));
+			frontier.add(new double[]{Math.hypot(eastGap, northGap), 1, depth, low, high,
+					box[0], box[1], box[2], box[3]});
+		}
+
+		/**
+		 * Accessor method for the referee last visited
+		 * @return a Referee object
+		 */
+		Referee getReferee(){
+			return current<refs.length ? refs[current] : added[current-refs.length];
+		}
+
+		/**
+		 * Accessor method for the distance to the referee last visited
+		 * @return a double containing the distance in kilometres
+		 */
+		double getDistance(){
+			return currentDistance;
+		}
+	}
+
+	private static final int MINIMUM_REBUILD_CHANGES = 16; // the changes always allowed before the tree is rebuilt
+
+	private Referee[] refs; // the referees in the order of the tree
+	private double[] east; // the distance east of the origin of each referee's home
+	private double[] north; // the distance north of the origin of each referee's home
+	private final Map<Referee, Integer> treePositions; // the position in the tree of each referee located by it
+	private final Map<Referee, Coordinates> additions; // the home of each referee added since the tree was built
+	private int removals; // the number of referees in the tree who have since been removed
+
+	/**
+	 * Constructor for the RefereeLocator
+	 * @param referees a List of the Referee objects to be located
+	 * @param homes a List of the Coordinates of the home of each referee, in the same order
+	 */
+	RefereeLocator(List<Referee> referees, List<Coordinates> homes){
+		treePositions = new HashMap<Referee, Integer>();
+		additions = new LinkedHashMap<Referee, Coordinates>();
+		double[] eastOfHomes = new double[homes.size()];
+		double[] northOfHomes = new double[homes.size()];
+		for (int index = 0; index<homes.size(); index++){
+			eastOfHomes[index] = homes.get(index).getEast();
+			northOfHomes[index] = homes.get(index).getNorth();
+		}
+		this.plant(referees.toArray(new Referee[referees.size()]), eastOfHomes, northOfHomes);
+	}
+
+	/**
+	 * Method to replace the tree by a balanced tree of the given referees, forgetting the
+	 * referees added and removed since the last tree was built
+	 * @param referees an array of the Referee objects to be located
+	 * @param eastOfHomes an array containing the distance east of the origin of each referee's home
+	 * @param northOfHomes an array containing the distance north of the origin of each referee's home
+	 */
+	private void plant(Referee[] referees, double[] eastOfHomes, double[] northOfHomes){
+		refs = referees;
+		east = eastOfHomes;
+		north = northOfHomes;
+		this.build(0, refs.length, 0);
+		treePositions.clear();
+		for (int index = 0; index<refs.length; index++){
+			treePositions.put(refs[index], index);
+		}
+		additions.clear();
+		removals = 0;
+	}
+
+	/**
+	 * Method to arrange a range of the referees into a balanced subtree, the median of the
+	 * range by the coordinate the depth divides on placed in the middle
+	 * @param low an int containing the first position of the range
+	 * @param high an int containing the position after the last of the range
+	 * @param depth an int containing the depth of the subtree, even depths dividing east from west
+	 */
+	private void build(int low, int high, int depth){
+		if (high-low<2){
+			return;
+		}
+		int middle = (low+high)>>>1;
+		this.select(low, high-1, middle, depth%2==0 ? east : north);
+		this.build(low, middle, depth+1);
+		this.build(middle+1, high, depth+1);
+	}
+
+	/**
+	 * Method to partially sort a range so that the referee at a position is the one which
+	 * would be there were the range sorted by a coordinate, with no greater coordinate
+	 * before it and no smaller coordinate after it
+	 * @param low an int containing the first position of the range
+	 * @param high an int containing the last position of the range
+	 * @param target an int containing the position to be placed
+	 * @param key an array containing the coordinate the range is ordered by
+	 */
+	private void select(int low, int high, int target, double[] key){
+		while (low<high){
+			double pivot = key[(low+high)>>>1];
+			int left = low;
+			int right = high;
+			while (left<=right){
+				while (key[left]<pivot){
+					left++;
+				}
+				while (key[right]>pivot){
+					right--;
+				}
+				if (left<=right){
+					this.swap(left++, right--);
+				}
+			}
+			if (target<=right){
+				high = right;
+			}
+			else if (target>=left){
+				low = left;
+			}
+			else{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Method to exchange the positions of two referees in the tree
+	 * @param first an int containing the position of the first referee
+	 * @param second an int containing the position of the second referee
+	 */
+	private void swap(int first, int second){
+		Referee ref = refs[first];
+		refs[first] = refs[second];
+		refs[second] = ref;
+		double coordinate = east[first];
+		east[first] = east[second];
+		east[second] = coordinate;
+		coordinate = north[first];
+		north[first] = north[second];
+		north[second] = coordinate;
+	}
+
+	/**
+	 * Method to locate a referee at their home, replacing any position they were located at
+	 * @param ref a Referee object
+	 * @param home a Coordinates object containing the position of the referee's home
+	 */
+	void add(Referee ref, Coordinates home){
+		if (treePositions.remove(ref)!=null){
+			removals++;
+		}
+		additions.put(ref, home);
+		this.rebuildIfUnbalanced();
+	}
+
+	/**
+	 * Method to stop locating a referee
+	 * @param ref a Referee object, which need not be located
+	 */
+	void remove(Referee ref){
+		if (treePositions.remove(ref)!=null){
+			removals++;
+			this.rebuildIfUnbalanced();
+		}
+		else{
+			additions.remove(ref);
+		}
+	}
+
+	/**
+	 * Method to rebuild the tree from the referees still located once enough referees have
+	 * been added and removed since it was built that searches would be slowed by them
+	 */
+	private void rebuildIfUnbalanced(){
+		int changes = additions.size()+removals;
+		if (changes<=Math.max(MINIMUM_REBUILD_CHANGES, (int) Math.sqrt(refs.length))){
+			return;
+		}
+		int total = this.size();
+		Referee[] referees = new Referee[total];
+		double[] eastOfHomes = new double[total];
+		double[] northOfHomes = new double[total];
+		int next = 0;
+		for (int index = 0; index<refs.length; index++){
+			if (treePositions.containsKey(refs[index])){
+				referees[next] = refs[index];
+				eastOfHomes[next] = east[index];
+				northOfHomes[next++] = north[index];
+			}
+		}
+		for (Map.Entry<Referee, Coordinates> addition: additions.entrySet()){
+			referees[next] = addition.getKey();
+			eastOfHomes[next] = addition.getValue().getEast();
+			northOfHomes[next++] = addition.getValue().getNorth();
+		}
+		this.plant(referees, eastOfHomes, northOfHomes);
+	}
+
+	/**
+	 * Method to begin a search for the referees nearest a venue
+	 * @param venue a Coordinates object the distances are measured from
+	 * @return a NearestSearch positioned before the nearest referee
+	 */
+	NearestSearch nearest(Coordinates venue){
+		return new NearestSearch(venue);
+	}
+
+	/**
+	 * Accessor method for the number of referees located
+	 * @return an int containing the number of referees
+	 */
+	int size(){
+		return treePositions.size()+additions.size();
+	}
+}
@@ -0,0 +1,213 @@
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Defines a query for the referees of a MatchSchedule matching a combination of
+ * conditions, e.g. senior-qualified referees living in the Central region with fewer
+ * than five allocations who are available in the South:
+ *
+ *     schedule.queryReferees().qualifiedFor("Senior").livingIn("Central")
+ *             .allocationsBetween(0, 4).availableIn("South").stream()
+ *
+ * Conditions on qualification, home region, availability and allocations are answered
+ * from the schedule's indexes by combining bitsets, so only the matching referees are
+ * ever examined. Conditions on individual weeks are tested against each matching
+ * referee's calendar as the results are produced. Results are produced lazily and the
+ * schedule must not be altered while they are being read.
+ */
+public class RefereeQuery implements Iterable<Referee> {
+
+	private final MatchSchedule schedule; // the schedule whose referees are queried
+	private final List<Condition> conditions; // the conditions answered from the indexes
+	private long requiredFreeWeeks; // the weeks in which matching referees must be free to officiate
+
+	/**
+	 * Defines a condition answered by a bitset of the slots of the matching referees
+	 */
+	private interface Condition {
+
+		/**
+		 * Method to determine the referees satisfying the condition
+		 * @param index the RefereeIndex of the schedule
+		 * @return a BitSet of the slots of the matching referees, which must not be altered
+		 */
+		BitSet matching(RefereeIndex index);
+	}
+
+	/**
+	 * Constructor for the RefereeQuery
+	 * @param matchSchedule a MatchSchedule object whose referees are queried
+	 */
+	RefereeQuery(MatchSchedule matchSchedule){
+		schedule = matchSchedule;
+		conditions = new ArrayList<Condition>();
+		requiredFreeWeeks = 0;
+	}
+
+	/**
+	 * Method to restrict the query to referees qualified for a level of match
+	 * @param matchLevel a String containing the level of match (Junior or Senior)
+	 * @return this RefereeQuery
+	 */
+	public RefereeQuery qualifiedFor(String matchLevel){
+		if (matchLevel.equals("Senior")){
+			conditions.add(new Condition(){
+				public BitSet matching(RefereeIndex index){
+					return index.seniorReferees();
+				}
+			});
+		}
+		// every referee may officiate junior matches
+		return this;
+	}
+
+	/**
+	 * Method to restrict the query to referees holding a qualification
+	 * @param qualification a String containing the qualification, e.g. "NJB2"
+	 * @return this RefereeQuery
+	 */
+	public RefereeQuery withQualification(final String qualification){
+		conditions.add(new Condition(){
+			public BitSet matching(RefereeIndex index){
+				return index.refereesWithQualification(qualification);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Method to restrict the query to referees residing in a region
+	 * @param region a String containing the name of the region
+	 * @return this RefereeQuery
+	 */
+	public RefereeQuery livingIn(final String region){
+		conditions.add(new Condition(){
+			public BitSet matching(RefereeIndex index){
+				return index.refereesLivingIn(region);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Method to restrict the query to referees available to officiate in a region
+	 * @param region a String containing the name of the region
+	 * @return this RefereeQuery
+	 */
+	public RefereeQuery availableIn(final String region){
+		conditions.add(new Condition(){
+			public BitSet matching(RefereeIndex index){
+				return index.refereesAvailableIn(region);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Method to restrict the query to referees with a number of match allocations in a range
+	 * @param minimum an int containing the fewest allocations, inclusive
+	 * @param maximum an int containing the most allocations, inclusive
+	 * @return this RefereeQuery
+	 */
+	public RefereeQuery allocationsBetween(final int minimum, final int maximum){
+		conditions.add(new Condition(){
+			public BitSet matching(RefereeIndex index){
+				return index.refereesWithAllocations(minimum, maximum);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Method to restrict the query to referees who neither officiate a match in a week nor
+	 * have blocked the week out
+	 * @param week an int containing the week of the season
+	 * @return this RefereeQuery
+	 */
+	public RefereeQuery freeInWeek(int week){
+		requiredFreeWeeks |= Referee.weekBit(week);
+		return this;
+	}
+
+	/**
+	 * Method to combine the indexed conditions into the slots of the matching referees
+	 * @return candidates a new BitSet of slots
+	 */
+	private BitSet matchingSlots(){
+		RefereeIndex index = schedule.getRefereeIndex();
+		BitSet candidates = (BitSet) index.allReferees().clone();
+		for (Condition condition: conditions){
+			candidates.and(condition.matching(index));
+			if (candidates.isEmpty()){
+				// no further condition can add a referee
+				break;
+			}
+		}
+		return candidates;
+	}
+
+	/**
+	 * Method to produce the matching referees one at a time
+	 * @return an Iterator over the matching referees
+	 */
+	public Iterator<Referee> iterator(){
+		final BitSet candidates = this.matchingSlots();
+		final RefereeIndex index = schedule.getRefereeIndex();
+		final long modificationCount = schedule.getModificationCount();
+		final long freeWeeks = requiredFreeWeeks;
+		return new Iterator<Referee>(){
+			private int slot = this.advance(candidates.nextSetBit(0)); // the slot of the next result, or -1
+
+			/**
+			 * Method to find the first slot from a position whose referee is free in every required week
+			 * @param from an int containing the first slot to consider, or -1
+			 * @return an int containing the slot of the next result, or -1
+			 */
+			private int advance(int from){
+				int next = from;
+				while (next>=0&&(index.getReferee(next).getIneligibleWeeks()&freeWeeks)!=0){
+					next = candidates.nextSetBit(next+1);
+				}
+				return next;
+			}
+
+			public boolean hasNext(){
+				return slot>=0;
+			}
+
+			public Referee next(){
+				if (schedule.getModificationCount()!=modificationCount){
+					throw new ConcurrentModificationException("The schedule was altered during the query");
+				}
+				if (slot<0){
+					throw new NoSuchElementException();
+				}
+				Referee ref = index.getReferee(slot);
+				slot = this.advance(candidates.nextSetBit(slot+1));
+				return ref;
+			}
+		};
+	}
+
+	/**
+	 * Method to produce the matching referees as a sequential stream
+	 * @return a Stream of the matching referees
+	 */
+	public Stream<Referee> stream(){
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this.iterator(),
+				Spliterator.DISTINCT|Spliterator.NONNULL), false);
+	}
+
+	/**
+	 * Method to count the matching referees
+	 * @return count an int containing the number of matching referees
+	 */
+	public int count(){
+		int count = 0;
+		for (Iterator<Referee> results = this.iterator(); results.hasNext(); results.next()){
+			count++;
+		}
+		return count;
+	}
+}
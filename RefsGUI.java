@@ -3,24 +3,36 @@ import java.awt.event.*;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.io.*;
+import javax.management.JMException;
 
 /**
  * Defines a GUI that displays details of all current referees and contains
- * buttons to search for a referee by name. 
+ * buttons to search for a referee by name. The display listens to the schedule
+ * and only the rows of referees which change are rewritten.
  */
-public class RefsGUI extends JFrame implements ActionListener, WindowFocusListener{
+public class RefsGUI extends JFrame implements ActionListener, ScheduleListener{
 	
 	/** GUI JButtons */
-	private JButton detailsButton, addRefButton, barChartButton, allocateButton, saveExitButton;
+	private JButton detailsButton, addRefButton, barChartButton, allocateButton, saveExitButton,
+			undoButton, redoButton;
 
 	/** GUI JTextFields */
 	private JTextField nameField;
 
 	/** Display of existing referees */
 	private JTextArea refDisplay;
+
+	/** The referees displayed, in the order of their rows */
+	private ArrayList<Referee> displayedRefs;
+
+	/** Layout of the rows of referees, with a column for each region of the schedule */
+	private ColumnFormatter refereeRowLayout;
 	
 	/** IndividualRefGUI for displaying the details of an individual referee**/
 	private IndividualRefGUI individualRefGUI;
@@ -28,8 +40,25 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 	/**MatchSchedule class to manipulate a list of referees and matches**/
 	private MatchSchedule schedule;
 
+	/**PersistenceService saving the referees and matches in the background**/
+	private PersistenceService persistence;
+
+	/**RefereeFileWatcher applying updated referees input files while running**/
+	private RefereeFileWatcher refereeWatcher;
+
+	/**ScheduleMonitor publishing the statistics of the schedule to JMX consoles**/
+	private ScheduleMonitor monitor;
+
+	/**Executor running tasks which alter the schedule on the event dispatch thread**/
+	private final Executor dispatchThread = new Executor(){
+		public void execute(Runnable task){
+			SwingUtilities.invokeLater(task);
+		}
+	};
+
 	/** Names of input text files */
 	private final String refereesInFile = "RefereesIn.txt";
+	private final String regionsFile = "Regions.txt";
 	private final String matchAllocs = "MatchAllocs.txt";
 	private final String refereesOutFile = "RefereesOut.txt";
 	
@@ -42,6 +71,12 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 	private final int SQUARE_GRID_LAYOUT_SIZE = 2;
 	private final int FONT_SIZE = 14;
 	private final int VALID_NUMBER_NAMES =2;
+	private final int HEADING_LINES = 3;
+	private static final ColumnFormatter AVAILABILITY_HEADING = new ColumnFormatter("%84s\n");
+	
+	/** Frequency of saving changes in the background **/
+	private final long AUTOSAVE_INTERVAL = 5000;
+	private final int AUTOSAVE_GROUP_SIZE = 20;
 	
 	/**
 	 * Constructor for Referees user interface
@@ -54,12 +89,98 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 		// Layout the components of the display
 		layoutTop();
 		layoutBottom();
-		addWindowFocusListener(this);
-		schedule = new MatchSchedule();
+		schedule = new MatchSchedule(loadRegions());
+		refereeRowLayout = Referee.rowLayout(schedule.getRegionTopology().getRegionNames());
 		// Determine an initial list of referees from file
 		initRefereeList();
+		// Changes are saved to the output files in the background from now on
+		persistence = new PersistenceService(schedule, matchAllocs, refereesOutFile,
+				AUTOSAVE_INTERVAL, AUTOSAVE_GROUP_SIZE, false);
+		// Updated referees input files are applied without restarting
+		watchRefereeList();
+		// The running schedule can be inspected from a JMX console
+		monitorSchedule();
 		// Update the display to reflect addition of officials
 		displayRefs();
+		// From now on the display is updated as changes are made
+		schedule.addScheduleListener(this);
+	}
+
+	/**
+	 * Begins watching the referees input file, applying each updated version to the
+	 * schedule on the event dispatch thread and reporting any change which could not be made
+	 */
+	public void watchRefereeList(){
+		try{
+			refereeWatcher = new RefereeFileWatcher(schedule, refereesInFile, dispatchThread,
+					new RefereeFileWatcher.ReloadListener(){
+				public void refereesReloaded(java.util.List<String> problems){
+					// The display has already been updated as each referee changed
+					if (!problems.isEmpty()){
+						showProblems("The updated referees file could not be applied in full:", problems);
+					}
+				}
+				public void reloadFailed(java.util.List<String> errors){
+					showProblems("The updated referees file was ignored:", errors);
+				}
+			});
+			refereeWatcher.start();
+		}
+		catch (IOException e){
+			// The application still runs, but updated files require a restart
+			JOptionPane.showMessageDialog(null, "Unable to Watch Referees Input File: "+e.getMessage(), 
+					"File Error", JOptionPane.WARNING_MESSAGE);
+		}
+	}
+
+	/**
+	 * Publishes the statistics of the schedule as a JMX MBean. Maintenance triggered from
+	 * a JMX console is carried out on the event dispatch thread.
+	 */
+	public void monitorSchedule(){
+		monitor = new ScheduleMonitor(schedule, dispatchThread, persistence);
+		try{
+			monitor.register(refereesInFile);
+		}
+		catch (JMException e){
+			// The application still runs, but cannot be inspected
+			JOptionPane.showMessageDialog(null, "Unable to Publish Schedule Statistics: "+e.getMessage(), 
+					"Monitoring Error", JOptionPane.WARNING_MESSAGE);
+		}
+	}
+
+	/**
+	 * Displays a list of problems to the user
+	 * @param heading a String describing the problems
+	 * @param problems a Collection of Strings describing each problem
+	 */
+	private void showProblems(String heading, Collection<String> problems){
+		StringBuilder message = new StringBuilder(heading+"\n");
+		for (String problem: problems){
+			message.append(problem+"\n");
+		}
+		JOptionPane.showMessageDialog(null, message.toString(), 
+				"File Error", JOptionPane.WARNING_MESSAGE);
+	}
+
+	/**
+	 * Reads in the regions matches are played in from the regions file. If no regions
+	 * file is present, the North, Central and South regions are used.
+	 * @return regions a RegionTopology defining the regions and the distances between them
+	 */
+	public RegionTopology loadRegions(){
+		RegionTopology regions = RegionTopology.defaultTopology();
+		if (new File(regionsFile).exists()){
+			try{
+				regions = RegionTopology.fromFile(regionsFile);
+			}
+			catch (IOException e){
+				// In the event that the file is inaccessible or invalid
+				JOptionPane.showMessageDialog(null, "Error Reading Regions File: "+e.getMessage(), 
+						"File Error", JOptionPane.ERROR_MESSAGE);
+			}
+		}
+		return regions;
 	}
 
 	/**
@@ -67,26 +188,13 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 	 */
 
 	public void initRefereeList(){
-		FileReader reader = null;
-		Scanner in = null;
-		try{	
-			try {
-				reader = new FileReader(refereesInFile);
-				in = new Scanner(reader);
-				// Read the lines of the file individually
-				while (in.hasNextLine()){
-					// while there are more lines
-					String line = in.nextLine();
-					// each line of the file corresponds to one referee
-					schedule.addReferee(line.trim());
-				}
-			}	
-			finally{
-				if (reader!=null)
-					reader.close();
-				if (in!=null)
-					in.close();
-			}	
+		try{
+			// The lines of the file are parsed in parallel and added in order
+			ImportPipeline.Report report = new ScheduleImporter(schedule).importReferees(refereesInFile);
+			if (report.getNumberOfErrors()>0){
+				// Describe each line which could not be read
+				showProblems(report.getNumberOfErrors()+" referee(s) could not be read:", report.getErrors());
+			}
 		}
 		catch (IOException e) {
 			// In the event that the file is inaccessible
@@ -105,13 +213,11 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 		
 		// Generate headings for the columns displaying the referees attributes
 		// The first line of headings simply contains "Availability"
-		heading = String.format("%84s\n", "Availability");
+		heading = AVAILABILITY_HEADING.format("Availability");
 		refDisplay.append(heading);
 		// The second line consists of the names of the attributes stored
-		// about each referee
-		heading = String.format(" %-5s%-13s%-10s%-15s%-14s%-8s%5s%11s%9s\n", 
-				"ID", "First Name", "Surname", "Qualification", "Allocations", 
-				"Home", "North", "Central", "South");
+		// about each referee and the regions of the schedule
+		heading = Referee.formatHeadings(schedule.getRegionTopology().getRegionNames());
 		refDisplay.append(heading);
 		// To distinguish the headings, the third line of the heading is a border
 		for (int index = 0; index<TEXTAREA_WIDTH; index++){
@@ -121,12 +227,69 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 		refDisplay.append("\n");
 		
 		// A collection of referee objects are returned for display to the user in
-		// order of ID
-		Collection<Referee> currentRefs = schedule.sortRefsByID();
+		// order of ID. While a name is being entered only the referees whose names or
+		// ID begin with the text entered so far are displayed.
+		Collection<Referee> currentRefs;
+		String prefix = nameField.getText().trim().replaceAll(" +", " ");
+		if (prefix.isEmpty()){
+			currentRefs = schedule.sortRefsByID();
+		}
+		else{
+			// Only the matching referees are sorted
+			ArrayList<Referee> matchingRefs = new ArrayList<Referee>(schedule.findRefereesByPrefix(prefix));
+			Collections.sort(matchingRefs, new Comparator<Referee>(){
+				public int compare(Referee ref1, Referee ref2){
+					return ref1.getRefID().compareTo(ref2.getRefID());
+				}
+			});
+			currentRefs = matchingRefs;
+		}
+		displayedRefs = new ArrayList<Referee>(currentRefs);
+		StringBuilder rows = new StringBuilder();
+		java.util.List<String> regionNames = schedule.getRegionTopology().getRegionNames();
 		for (Referee official: currentRefs) {
-			// the toString() method display the referee's attributes in distinct columns
-			String ref = official.toString();
-			this.refDisplay.append(ref);
+			// each row displays the referee's attributes in distinct columns
+			official.appendRow(rows, refereeRowLayout, regionNames);
+		}
+		this.refDisplay.append(rows.toString());
+	}
+
+	/**
+	 * Method to update the display following changes to the schedule. Added or removed
+	 * referees alter the order of the rows, so the whole display is redrawn, otherwise only
+	 * the rows of the referees changed are rewritten.
+	 * @param events a List of the ScheduleEvents describing the changes
+	 */
+	public void scheduleChanged(java.util.List<ScheduleEvent> events) {
+		ArrayList<Referee> changedRefs = new ArrayList<Referee>();
+		for (ScheduleEvent event: events){
+			if (event.getType()==ScheduleEvent.Type.REFEREE_ADDED
+					||event.getType()==ScheduleEvent.Type.REFEREE_REMOVED){
+				displayRefs();
+				return;
+			}
+			if (event.getReferee()!=null){
+				// matches are not displayed
+				changedRefs.add(event.getReferee());
+			}
+		}
+		try{
+			StringBuilder text = new StringBuilder();
+			for (Referee ref: changedRefs){
+				int row = displayedRefs.indexOf(ref);
+				if (row>=0){
+					// the row ends with a newline, which is kept
+					int start = refDisplay.getLineStartOffset(HEADING_LINES+row);
+					int end = refDisplay.getLineEndOffset(HEADING_LINES+row);
+					text.setLength(0);
+					ref.appendRow(text, refereeRowLayout, schedule.getRegionTopology().getRegionNames());
+					refDisplay.replaceRange(text.toString(), start, end);
+				}
+			}
+		}
+		catch (javax.swing.text.BadLocationException e){
+			// The rows no longer match the referees, so the display is redrawn
+			displayRefs();
 		}
 	}
 	
@@ -174,6 +337,18 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 		// Or provide a name for the addition of a new referee
 		nameField = new JTextField("", TEXTFIELD_WIDTH);
 		detailsPanel.add(nameField, BorderLayout.WEST);
+		// The referees displayed are narrowed down as the name is typed
+		nameField.getDocument().addDocumentListener(new DocumentListener(){
+			public void insertUpdate(DocumentEvent e){
+				displayRefs();
+			}
+			public void removeUpdate(DocumentEvent e){
+				displayRefs();
+			}
+			public void changedUpdate(DocumentEvent e){
+				// attribute changes do not alter the text entered
+			}
+		});
 		
 		detailsButton = new JButton("View Referee's Details");
 		detailsButton.addActionListener(this);
@@ -201,6 +376,14 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 		allocateButton.addActionListener(this);
 		functionsPanel.add(allocateButton);
 
+		// JButtons to allow the user to reverse and reapply changes to the referees and matches
+		undoButton = new JButton("Undo");
+		undoButton.addActionListener(this);
+		functionsPanel.add(undoButton);
+		redoButton = new JButton("Redo");
+		redoButton.addActionListener(this);
+		functionsPanel.add(redoButton);
+
 		saveExitButton = new JButton("Save and Exit");
 		saveExitButton.addActionListener(this);
 		functionsPanel.add(saveExitButton);
@@ -223,7 +406,7 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 			JOptionPane.showMessageDialog(null, "Please enter a valid name");
 		}
 		// Ensure that the maximum number of referees has not been exceeded
-		else if (schedule.getNumberOfReferees()>=schedule.MAXIMUM_NUMBER_OF_OFFICIALS) {
+		else if (schedule.getNumberOfReferees()>=schedule.getMaximumNumberOfReferees()) {
 			// Notify the user that no more referees may be added
 			JOptionPane.showMessageDialog(null, "The max number of referees has been reached");
 		}
@@ -278,37 +461,44 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 		matchGUI.setVisible(true);
 	}
 	
+	/**
+	 * Method to undo or redo the most recent change to the referees and matches
+	 * @param undo a boolean denoting whether the change is to be undone rather than redone
+	 */
+	public void processUndoOrRedo(boolean undo) {
+		boolean applied;
+		if (undo){
+			applied = schedule.undo();
+		}
+		else{
+			applied = schedule.redo();
+		}
+		// The display is updated as the restored referees change
+		if (!applied){
+			JOptionPane.showMessageDialog(null, "There are no changes to "+(undo ? "undo" : "redo"));
+		}
+	}
+
 	/**
 	 * Method to generate an output file for the matches and referees, respectively.
 	 * Upon completion, the program terminates.
 	 */
 	public void processSaveAndClose() {
-	    FileWriter writeRefs = null;
-	    FileWriter writeMatches = null;
 		try{
-			try{
-				writeMatches = new FileWriter (matchAllocs);
-				writeRefs = new FileWriter (refereesOutFile);
-				// The matchSchedule class generates the output reports
-				// as a String
-				writeMatches.write(schedule.matchReportWriter());
-				writeRefs.write(schedule.refereeReportWriter());
-			}	
-			finally{// Close FileWriter objects if open
-				if (writeMatches!=null){
-					writeMatches.close();
-				}
-				if (writeRefs!=null){
-					writeRefs.close();
-				}
-				System.exit(0);
-				// Terminate the program
+			// No further referees input files are applied once saving begins
+			if (refereeWatcher!=null){
+				refereeWatcher.close();
 			}
+			monitor.close();
+			// The final state of the schedule is written before the program ends
+			persistence.close();
 		}	
 		catch (IOException e){
 			JOptionPane.showMessageDialog(null, "Could not write to output file", 
 					"Save File Error", JOptionPane.ERROR_MESSAGE);
 		}
+		// Terminate the program
+		System.exit(0);
 	}
 
 	/**
@@ -358,25 +548,20 @@ public class RefsGUI extends JFrame implements ActionListener, WindowFocusListen
 			//if add button is pressed MatchGUI is shown
 		}
 		
+		if (ae.getSource()== undoButton){
+			processUndoOrRedo(true);
+			//if undo button is pressed the most recent change is reversed
+		}
+		
+		if (ae.getSource()== redoButton){
+			processUndoOrRedo(false);
+			//if redo button is pressed the most recently undone change is reapplied
+		}
+		
 		if (ae.getSource()== saveExitButton){
 			processSaveAndClose();
 			//if save and exit button is pressed MatchGUI is shown
 		}
 	}
 
-	/**
-	 * Method to update the referees displayed when the window gains
-	 * focus.
-	 */
-	public void windowGainedFocus(WindowEvent e) {
-		this.updateDisplay();
-	}
-
-	/**
-	 * Method required to implement WindowFocusListener interface
-	 */
-	public void windowLostFocus(WindowEvent e) {
-		// No action is to be performed in the event of the window losing focus
-	}
-
 }
\ No newline at end of file
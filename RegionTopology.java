@@ -0,0 +1,234 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Defines the geographical regions in which matches are played and referees
+ * reside, together with the distance between each pair of regions. For every
+ * venue the regions are grouped once into tiers of equal distance so that
+ * referees can be ranked by proximity without recomputing the ordering.
+ *
+ * The venue of each region may also be given coordinates. When every region has
+ * coordinates, referees are ranked by the distance they would travel from their home
+ * to the venue rather than by the tiers of the regions.
+ */
+public class RegionTopology {
+
+	private final List<String> regionNames; // the names of the regions in the order they were defined
+	private final Map<String, Integer> regionIndexes; // the position of each region name in regionNames
+	private final int[][] distances; // the distance between each pair of regions
+	private final int[][][] proximityTiers; // for each venue, the regions grouped by increasing distance
+	private final Coordinates[] venueCoordinates; // the position of the venue of each region, or null
+
+	/**
+	 * Constructor for the RegionTopology
+	 * @param names a list of Strings containing the names of the regions
+	 * @param regionDistances a square array of ints containing the distance between each pair of regions
+	 */
+	public RegionTopology(List<String> names, int[][] regionDistances){
+		this(names, regionDistances, new Coordinates[names.size()]);
+	}
+
+	/**
+	 * Constructor for a RegionTopology whose venues have coordinates
+	 * @param names a list of Strings containing the names of the regions
+	 * @param regionDistances a square array of ints containing the distance between each pair of regions
+	 * @param coordinates an array containing the position of the venue of each region, any of which may be null
+	 */
+	public RegionTopology(List<String> names, int[][] regionDistances, Coordinates[] coordinates){
+		if (names.isEmpty()||regionDistances.length!=names.size()||coordinates.length!=names.size()){
+			throw new IllegalArgumentException("A distance must be supplied for every pair of regions");
+		}
+		regionNames = Collections.unmodifiableList(new ArrayList<String>(names));
+		regionIndexes = new HashMap<String, Integer>();
+		for (int index = 0; index<regionNames.size(); index++){
+			if (regionIndexes.put(regionNames.get(index), index)!=null){
+				throw new IllegalArgumentException("Region "+regionNames.get(index)+" is defined twice");
+			}
+		}
+		distances = new int[names.size()][];
+		for (int index = 0; index<names.size(); index++){
+			if (regionDistances[index].length!=names.size()){
+				throw new IllegalArgumentException("A distance must be supplied for every pair of regions");
+			}
+			distances[index] = regionDistances[index].clone();
+		}
+		proximityTiers = new int[names.size()][][];
+		for (int venue = 0; venue<names.size(); venue++){
+			proximityTiers[venue] = this.generateProximityTiers(venue);
+		}
+		venueCoordinates = coordinates.clone();
+	}
+
+	/**
+	 * Method to generate the topology of the three regions of Hibernia, in which the
+	 * Central region lies between the North and the South.
+	 * @return topology a RegionTopology containing the North, Central and South regions
+	 */
+	public static RegionTopology defaultTopology(){
+		List<String> names = Arrays.asList("North", "Central", "South");
+		int[][] regionDistances = {{0, 1, 2}, {1, 0, 1}, {2, 1, 0}};
+		return new RegionTopology(names, regionDistances);
+	}
+
+	/**
+	 * Method to read a topology from a file. Each line of the file defines one region
+	 * as its name followed by its distance to every region in the order they are defined,
+	 * e.g. "North 0 1 2", optionally followed by '@' and the coordinates of its venue,
+	 * e.g. "North 0 1 2 @12.5,140".
+	 * @param fileName a String containing the name of the file defining the regions
+	 * @return topology a RegionTopology containing the regions defined in the file
+	 * @throws IOException if the file cannot be read or does not define a valid topology
+	 */
+	public static RegionTopology fromFile(String fileName) throws IOException{
+		List<String> names = new ArrayList<String>();
+		List<int[]> rows = new ArrayList<int[]>();
+		List<Coordinates> coordinates = new ArrayList<Coordinates>();
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		try{
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine())!=null){
+				lineNumber++;
+				if (line.trim().isEmpty()){
+					// blank lines are ignored
+					continue;
+				}
+				String[] tokens = line.trim().split(" +");
+				int numberOfDistances = tokens.length-1;
+				Coordinates venue = null;
+				if (tokens[tokens.length-1].startsWith("@")){
+					numberOfDistances--;
+					try{
+						venue = Coordinates.parse(tokens[tokens.length-1].substring(1));
+					}
+					catch (IllegalArgumentException iax){
+						throw new IOException(iax.getMessage()+" on line "+lineNumber+" of "+fileName);
+					}
+				}
+				int[] row = new int[Math.max(numberOfDistances, 0)];
+				try{
+					for (int index = 0; index<row.length; index++){
+						row[index] = Integer.parseInt(tokens[index+1]);
+					}
+				}
+				catch (NumberFormatException nfx){
+					throw new IOException("Invalid distance on line "+lineNumber+" of "+fileName);
+				}
+				names.add(tokens[0]);
+				rows.add(row);
+				coordinates.add(venue);
+			}
+		}
+		finally{
+			reader.close();
+		}
+		try{
+			return new RegionTopology(names, rows.toArray(new int[rows.size()][]),
+					coordinates.toArray(new Coordinates[coordinates.size()]));
+		}
+		catch (IllegalArgumentException iax){
+			throw new IOException(iax.getMessage()+" in "+fileName);
+		}
+	}
+
+	/**
+	 * Method to group the regions into tiers of equal distance from a venue. Regions within
+	 * a tier retain the order in which they were defined.
+	 * @param venue an int containing the index of the venue region
+	 * @return tiers an array of tiers, nearest first, each containing the indexes of its regions
+	 */
+	private int[][] generateProximityTiers(int venue){
+		// Determine each of the distinct distances from the venue in increasing order
+		TreeMap<Integer, List<Integer>> regionsByDistance = new TreeMap<Integer, List<Integer>>();
+		for (int region = 0; region<regionNames.size(); region++){
+			List<Integer> tier = regionsByDistance.get(distances[venue][region]);
+			if (tier==null){
+				tier = new ArrayList<Integer>();
+				regionsByDistance.put(distances[venue][region], tier);
+			}
+			tier.add(region);
+		}
+		int[][] tiers = new int[regionsByDistance.size()][];
+		int tierIndex = 0;
+		for (List<Integer> tier: regionsByDistance.values()){
+			tiers[tierIndex] = new int[tier.size()];
+			for (int index = 0; index<tier.size(); index++){
+				tiers[tierIndex][index] = tier.get(index);
+			}
+			tierIndex++;
+		}
+		return tiers;
+	}
+
+	/**
+	 * Accessor method for the number of regions
+	 * @return an int containing the number of regions
+	 */
+	public int getNumberOfRegions(){
+		return regionNames.size();
+	}
+
+	/**
+	 * Accessor method for the names of the regions
+	 * @return regionNames an unmodifiable list of the region names in the order they were defined
+	 */
+	public List<String> getRegionNames(){
+		return regionNames;
+	}
+
+	/**
+	 * Method to determine the position of a region
+	 * @param regionName a String containing the name of the region
+	 * @return index an int containing the position of the region or -1 if no such region exists
+	 */
+	public int getRegionIndex(String regionName){
+		Integer index = regionIndexes.get(regionName);
+		if (index==null){
+			return -1;
+		}
+		return index;
+	}
+
+	/**
+	 * Method to determine the distance between two regions
+	 * @param fromRegion an int containing the index of the first region
+	 * @param toRegion an int containing the index of the second region
+	 * @return an int containing the distance between the regions
+	 */
+	public int getDistance(int fromRegion, int toRegion){
+		return distances[fromRegion][toRegion];
+	}
+
+	/**
+	 * Accessor method for the regions grouped by proximity to a venue. The returned
+	 * array is shared and must not be modified.
+	 * @param venue an int containing the index of the venue region
+	 * @return an array of tiers, nearest first, each containing the indexes of its regions
+	 */
+	public int[][] getProximityTiers(int venue){
+		return proximityTiers[venue];
+	}
+
+	/**
+	 * Accessor method for the coordinates of the venue of a region
+	 * @param region an int containing the index of the region
+	 * @return a Coordinates object, or null if the venue has no coordinates
+	 */
+	public Coordinates getCoordinates(int region){
+		return venueCoordinates[region];
+	}
+
+	/**
+	 * Method to determine whether the venue of every region has coordinates, so that
+	 * referees may be ranked by the distance they travel
+	 * @return a boolean denoting whether every region has coordinates
+	 */
+	public boolean hasCoordinates(){
+		for (Coordinates venue: venueCoordinates){
+			if (venue==null){
+				return false;
+			}
+		}
+		return true;
+	}
+}
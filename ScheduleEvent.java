@@ -0,0 +1,108 @@
+/**
+ * Defines a single change to the referees or matches of a MatchSchedule, delivered to
+ * each ScheduleListener once the operation making the change is complete. Each event
+ * concerns either a referee or a match, whose current state is read from the object itself.
+ */
+public class ScheduleEvent {
+
+	/**
+	 * Defines the kinds of change
+	 */
+	public enum Type {
+		REFEREE_ADDED, // a referee was added to the schedule
+		REFEREE_EDITED, // the qualification, home region, availability or calendar of a referee changed
+		REFEREE_REMOVED, // a referee was removed from the schedule
+		ALLOCATIONS_CHANGED, // the number of matches allocated to a referee changed
+		MATCH_ADDED, // a match was scheduled with its officials
+		OFFICIALS_CHANGED, // an official of a scheduled match was replaced
+		MATCH_REMOVED // a match was removed from the schedule
+	}
+
+	private final Type type; // the kind of change
+	private final Referee referee; // the referee changed, or null if a match changed
+	private final Match match; // the match changed, or null if a referee changed
+
+	/**
+	 * Constructor for an event concerning a referee
+	 * @param eventType a Type of change to a referee
+	 * @param ref a Referee object which changed
+	 */
+	ScheduleEvent(Type eventType, Referee ref){
+		type = eventType;
+		referee = ref;
+		match = null;
+	}
+
+	/**
+	 * Constructor for an event concerning a match
+	 * @param eventType a Type of change to a match
+	 * @param fixture a Match object which changed
+	 */
+	ScheduleEvent(Type eventType, Match fixture){
+		type = eventType;
+		referee = null;
+		match = fixture;
+	}
+
+	/**
+	 * Accessor method for the kind of change
+	 * @return type a Type
+	 */
+	public Type getType(){
+		return type;
+	}
+
+	/**
+	 * Accessor method for the referee changed
+	 * @return referee a Referee object, or null if the event concerns a match
+	 */
+	public Referee getReferee(){
+		return referee;
+	}
+
+	/**
+	 * Accessor method for the match changed
+	 * @return match a Match object, or null if the event concerns a referee
+	 */
+	public Match getMatch(){
+		return match;
+	}
+
+	/**
+	 * Accessor method for the referee or match the event concerns
+	 * @return the Referee or Match object changed
+	 */
+	Object getSubject(){
+		return referee!=null ? referee : match;
+	}
+
+	/**
+	 * Method to determine whether two events are of the same kind and concern the same referee
+	 * or match, in which case one may replace the other
+	 * @param other an Object to compare with
+	 * @return a boolean denoting whether the events are equivalent
+	 */
+	public boolean equals(Object other){
+		if (!(other instanceof ScheduleEvent)){
+			return false;
+		}
+		ScheduleEvent event = (ScheduleEvent) other;
+		return type==event.type&&this.getSubject()==event.getSubject();
+	}
+
+	/**
+	 * Method to generate a hash code consistent with equals
+	 * @return an int containing the hash code
+	 */
+	public int hashCode(){
+		return 31*type.hashCode()+System.identityHashCode(this.getSubject());
+	}
+
+	/**
+	 * Method to describe the event
+	 * @return a String containing the kind of change and the referee ID or match week
+	 */
+	public String toString(){
+		return type+" "+(referee!=null ? referee.getRefID() : "week "+match.getWeekNo());
+	}
+}
@@ -0,0 +1,148 @@
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Collects the changes made to a MatchSchedule and delivers them to its listeners once
+ * the outermost batch of operations is complete. Changes are coalesced as they are
+ * collected: only the first event of each kind for a referee or match is kept, changes
+ * to a referee or match made before or as it is removed are discarded, and a referee or
+ * match added and removed within the same batch is forgotten entirely.
+ */
+class ScheduleEventDispatcher {
+
+	private final List<ScheduleListener> listeners; // the listeners notified of each batch
+	private final LinkedHashSet<ScheduleEvent> pendingEvents; // the coalesced events of the current batch
+	private int batchDepth; // the number of batches begun but not yet ended
+
+	/**
+	 * Constructor for the ScheduleEventDispatcher
+	 */
+	ScheduleEventDispatcher(){
+		listeners = new CopyOnWriteArrayList<ScheduleListener>();
+		pendingEvents = new LinkedHashSet<ScheduleEvent>();
+		batchDepth = 0;
+	}
+
+	/**
+	 * Method to register a listener
+	 * @param listener a ScheduleListener to be notified of changes
+	 */
+	void addListener(ScheduleListener listener){
+		listeners.add(listener);
+	}
+
+	/**
+	 * Method to deregister a listener
+	 * @param listener a ScheduleListener no longer to be notified
+	 */
+	void removeListener(ScheduleListener listener){
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Method to begin a batch. Events are held until every batch begun has ended.
+	 */
+	void beginBatch(){
+		batchDepth++;
+	}
+
+	/**
+	 * Method to end a batch, delivering the events collected once the outermost batch ends
+	 */
+	void endBatch(){
+		batchDepth--;
+		if (batchDepth==0){
+			this.deliver();
+		}
+	}
+
+	/**
+	 * Method to record a change to a referee
+	 * @param type a Type of change to a referee
+	 * @param ref a Referee object which changed
+	 */
+	void refereeChanged(ScheduleEvent.Type type, Referee ref){
+		this.collect(new ScheduleEvent(type, ref), ScheduleEvent.Type.REFEREE_ADDED,
+				ScheduleEvent.Type.REFEREE_REMOVED, ScheduleEvent.Type.REFEREE_EDITED,
+				ScheduleEvent.Type.ALLOCATIONS_CHANGED);
+	}
+
+	/**
+	 * Method to record a change to a match
+	 * @param type a Type of change to a match
+	 * @param fixture a Match object which changed
+	 */
+	void matchChanged(ScheduleEvent.Type type, Match fixture){
+		this.collect(new ScheduleEvent(type, fixture), ScheduleEvent.Type.MATCH_ADDED,
+				ScheduleEvent.Type.MATCH_REMOVED, ScheduleEvent.Type.OFFICIALS_CHANGED);
+	}
+
+	/**
+	 * Method to coalesce a change with the changes already collected for the same referee or
+	 * match, delivering it immediately if no batch is in progress
+	 * @param event a ScheduleEvent describing the change
+	 * @param added the Type denoting the referee or match was added
+	 * @param removed the Type denoting the referee or match was removed
+	 * @param alterations the Types denoting the referee or match was altered
+	 */
+	private void collect(ScheduleEvent event, ScheduleEvent.Type added, ScheduleEvent.Type removed,
+			ScheduleEvent.Type... alterations){
+		if (listeners.isEmpty()){
+			// nobody is interested in the change
+			return;
+		}
+		Object subject = event.getSubject();
+		if (event.getType()==removed){
+			// Earlier alterations no longer matter once the subject has gone
+			for (ScheduleEvent.Type alteration: alterations){
+				pendingEvents.remove(this.eventFor(alteration, subject));
+			}
+			if (!pendingEvents.remove(this.eventFor(added, subject))){
+				// the subject existed before the batch began
+				pendingEvents.add(event);
+			}
+		}
+		else if (event.getType()==added&&pendingEvents.remove(this.eventFor(removed, subject))){
+			// The subject was removed and restored within the batch, e.g. when an operation
+			// is abandoned, so it is reported as altered
+			pendingEvents.add(this.eventFor(alterations[0], subject));
+		}
+		else if (event.getType()==added||(!pendingEvents.contains(this.eventFor(added, subject))
+				&&!pendingEvents.contains(this.eventFor(removed, subject)))){
+			// alterations to a subject added within the batch are covered by its addition, and
+			// those made as a subject is removed, e.g. releasing its matches, are of no interest
+			pendingEvents.add(event);
+		}
+		if (batchDepth==0){
+			this.deliver();
+		}
+	}
+
+	/**
+	 * Method to create an event for comparison with the events collected
+	 * @param type a Type of change
+	 * @param subject the Referee or Match object changed
+	 * @return a ScheduleEvent
+	 */
+	private ScheduleEvent eventFor(ScheduleEvent.Type type, Object subject){
+		if (subject instanceof Referee){
+			return new ScheduleEvent(type, (Referee) subject);
+		}
+		return new ScheduleEvent(type, (Match) subject);
+	}
+
+	/**
+	 * Method to deliver the events collected to every listener
+	 */
+	private void deliver(){
+		if (pendingEvents.isEmpty()){
+			return;
+		}
+		List<ScheduleEvent> events = Collections.unmodifiableList(new ArrayList<ScheduleEvent>(pendingEvents));
+		// Listeners may alter the schedule, starting a new batch
+		pendingEvents.clear();
+		for (ScheduleListener listener: listeners){
+			listener.scheduleChanged(events);
+		}
+	}
+}
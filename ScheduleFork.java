@@ -0,0 +1,297 @@
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Defines an independent what-if version of a MatchSchedule. A fork shares every
+ * referee and match of the schedule it was created from and records only the
+ * matches it adds or removes and the resulting changes to match allocations.
+ * Creating a fork is therefore a constant time operation and many forks may be
+ * explored at once. A fork is either committed back to its schedule or discarded.
+ *
+ * Forks only read their schedule, so several forks may be explored on separate
+ * threads provided the schedule itself is not altered in the meantime.
+ */
+public class ScheduleFork {
+
+	private final MatchSchedule parent; // the schedule the fork was created from
+	private final long parentModificationCount; // the modification count of the schedule when forked
+	private final List<Match> addedMatches; // the matches scheduled in the fork only
+	private final Set<Match> removedMatches; // the matches of the schedule removed in the fork
+	private final Map<Referee, Integer> allocationChanges; // the change to each referee's allocations in the fork
+	private boolean finished; // whether the fork has been committed or discarded
+
+	/**
+	 * Constructor for the ScheduleFork
+	 * @param schedule a MatchSchedule object from which the fork is created
+	 */
+	ScheduleFork(MatchSchedule schedule){
+		parent = schedule;
+		parentModificationCount = schedule.getModificationCount();
+		addedMatches = new ArrayList<Match>();
+		removedMatches = new HashSet<Match>();
+		allocationChanges = new HashMap<Referee, Integer>();
+		finished = false;
+	}
+
+	/**
+	 * Accessor method for the schedule the fork was created from
+	 * @return parent a MatchSchedule object
+	 */
+	public MatchSchedule getParent(){
+		return parent;
+	}
+
+	/**
+	 * Accessor method for the number of matches scheduled in the fork
+	 * @return an int containing the number of matches scheduled
+	 */
+	public int getNumberOfMatches(){
+		return parent.getNumberOfMatches()-removedMatches.size()+addedMatches.size();
+	}
+
+	/**
+	 * Accessor method for the matches scheduled in the fork
+	 * @return fixtures a new list containing the matches of the schedule which remain in the fork,
+	 * followed by the matches added to the fork
+	 */
+	public List<Match> getMatchSchedule(){
+		List<Match> fixtures = new ArrayList<Match>();
+		for (Match fixture: parent.getMatchSchedule()){
+			if (!removedMatches.contains(fixture)){
+				fixtures.add(fixture);
+			}
+		}
+		fixtures.addAll(addedMatches);
+		return fixtures;
+	}
+
+	/**
+	 * Method to return a Match object scheduled in the fork for a given week. Where several
+	 * matches are scheduled in the week only the most recently scheduled is returned.
+	 * @param week an integer containing the week the match has been scheduled for
+	 * @return fixture a Match object corresponding to the week searched for, or null
+	 */
+	public Match getMatchByWeek(int week){
+		Match fixture = null;
+		List<Match> weekMatches = this.getMatchesByWeek(week);
+		if (!weekMatches.isEmpty()){
+			fixture = weekMatches.get(weekMatches.size()-1);
+		}
+		return fixture;
+	}
+
+	/**
+	 * Method to return every Match object scheduled in the fork for a given week
+	 * @param week an integer containing the week searched for
+	 * @return weekMatches a new list containing the matches of the schedule in the week which remain
+	 * in the fork, followed by the matches of the week added to the fork
+	 */
+	public List<Match> getMatchesByWeek(int week){
+		List<Match> weekMatches = new ArrayList<Match>();
+		for (Match fixture: parent.getMatchesByWeek(week)){
+			if (!removedMatches.contains(fixture)){
+				weekMatches.add(fixture);
+			}
+		}
+		for (Match fixture: addedMatches){
+			if (fixture.getWeekNo()==week){
+				weekMatches.add(fixture);
+			}
+		}
+		return weekMatches;
+	}
+
+	/**
+	 * Method to determine the number of matches allocated to a referee in the fork
+	 * @param ref a Referee object
+	 * @return allocations an int containing the number of match allocations of the referee
+	 */
+	public int getMatchAllocations(Referee ref){
+		int allocations = ref.getMatchAllocations();
+		Integer change = allocationChanges.get(ref);
+		if (change!=null){
+			allocations += change;
+		}
+		return allocations;
+	}
+
+	/**
+	 * Method to create an ordered array of referees suitable for a match, ranked by
+	 * their match allocations within the fork
+	 * @param matchVenue a String containing the location of the match to be scheduled
+	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
+	 * @return an array of referees ordered by suitability for a given match
+	 */
+	public Referee[] determineSuitableRefs(String matchVenue, String matchLevel){
+		return parent.rankSuitableRefs(matchVenue, matchLevel, allocationChanges);
+	}
+
+	/**
+	 * Method to create an ordered array of referees suitable for a match in a given week,
+	 * excluding the referees officiating another match of the week within the fork and
+	 * those who have blocked the week out
+	 * @param matchVenue a String containing the location of the match to be scheduled
+	 * @param matchLevel a String containing the level of the match to be scheduled (i.e. Junior or Senior)
+	 * @param matchWeek an int containing the week of the match to be scheduled
+	 * @return freeRefs an array of unbooked referees ordered by suitability for the match
+	 */
+	public Referee[] determineSuitableRefs(String matchVenue, String matchLevel, int matchWeek){
+		Predicate<Referee> free = this.freeInWeek(matchWeek);
+		List<Referee> freeRefs = new ArrayList<Referee>();
+		for (Referee ref: this.determineSuitableRefs(matchVenue, matchLevel)){
+			if (free.test(ref)){
+				freeRefs.add(ref);
+			}
+		}
+		return freeRefs.toArray(new Referee[freeRefs.size()]);
+	}
+
+	/**
+	 * Method to determine which referees are free in a given week within the fork, i.e. those
+	 * who neither officiate another match of the week in the fork nor have blocked the week out
+	 * @param matchWeek an int containing the week
+	 * @return a Predicate denoting whether a referee is free in the week
+	 */
+	private Predicate<Referee> freeInWeek(int matchWeek){
+		final Set<Referee> bookedRefs = new HashSet<Referee>();
+		for (Match fixture: this.getMatchesByWeek(matchWeek)){
+			bookedRefs.addAll(Arrays.asList(fixture.getOfficials()));
+		}
+		final long weekBit = Referee.weekBit(matchWeek);
+		return new Predicate<Referee>(){
+			public boolean test(Referee ref){
+				return (ref.getUnavailableWeeks()&weekBit)==0&&!bookedRefs.contains(ref);
+			}
+		};
+	}
+
+	/**
+	 * Method to add a new match to the fork, following the same rules as the schedule
+	 * @param matchLocation a String corresponding to the venue of the match
+	 * @param matchLevel a String corresponding to the level of the match (Junior/Senior)
+	 * @param matchWeek an int corresponding to the week the match is scheduled for
+	 * @return matchAddedSuccessfully a boolean denoting whether the match was added successfully
+	 */
+	public boolean addMatchToSchedule(String matchLocation, String matchLevel, int matchWeek){
+		checkActive();
+		boolean matchAddedSuccessfully = false;
+		int matchesPerWeek = parent.getMaximumMatchesPerWeek();
+		if (matchWeek>=1&&matchWeek<=parent.WEEKS_IN_A_SEASON
+				&&this.getNumberOfMatches()<parent.WEEKS_IN_A_SEASON*matchesPerWeek
+				&&this.getMatchesByWeek(matchWeek).size()<matchesPerWeek){
+			// Only as many referees as the crew requires are selected
+			String[] roles = parent.getCrewRoles(matchLevel);
+			Referee[] suitableRefs = parent.selectSuitableRefs(matchLocation, matchLevel, roles.length,
+					allocationChanges, this.freeInWeek(matchWeek));
+			if (suitableRefs.length==roles.length){
+				// The most suitable referees are allocated within the fork only
+				Match fixture = new Match(matchLocation, matchLevel, matchWeek, roles);
+				for (int position = 0; position<roles.length; position++){
+					fixture.setOfficial(position, suitableRefs[position]);
+				}
+				addedMatches.add(fixture);
+				this.changeMatchAllocations(fixture, 1);
+				matchAddedSuccessfully = true;
+			}
+		}
+		return matchAddedSuccessfully;
+	}
+
+	/**
+	 * Method to remove a match from the fork. Where several matches are scheduled in the
+	 * week only the most recently scheduled is removed, so removeMatch should be used to
+	 * remove any other match of the week.
+	 * @param week an integer denoting the week the match is scheduled for
+	 * @return matchRemovedSuccessfully a boolean denoting whether the match was removed successfully
+	 */
+	public boolean removeMatchFromSchedule(int week){
+		return this.removeMatch(this.getMatchByWeek(week));
+	}
+
+	/**
+	 * Method to remove a given match from the fork, e.g. one of several matches scheduled
+	 * in the same week
+	 * @param fixture a Match object, as returned by getMatchesByWeek
+	 * @return matchRemovedSuccessfully a boolean denoting whether the match was scheduled in the fork and has been removed
+	 */
+	public boolean removeMatch(Match fixture){
+		checkActive();
+		boolean matchRemovedSuccessfully = false;
+		if (fixture!=null&&this.getMatchesByWeek(fixture.getWeekNo()).contains(fixture)){
+			// A match added in the fork is simply forgotten, whereas a match of the
+			// schedule is hidden from the fork
+			if (!addedMatches.remove(fixture)){
+				removedMatches.add(fixture);
+			}
+			this.changeMatchAllocations(fixture, -1);
+			matchRemovedSuccessfully = true;
+		}
+		return matchRemovedSuccessfully;
+	}
+
+	/**
+	 * Method to record a change to the match allocations of every official of a match
+	 * @param fixture a Match object with its whole crew allocated
+	 * @param change an int containing the number of matches to add to each official's allocations
+	 */
+	private void changeMatchAllocations(Match fixture, int change){
+		for (Referee ref: fixture.getOfficials()){
+			int total = change;
+			if (allocationChanges.containsKey(ref)){
+				total += allocationChanges.get(ref);
+			}
+			if (total==0){
+				// the referee's allocations no longer differ from the schedule
+				allocationChanges.remove(ref);
+			}
+			else{
+				allocationChanges.put(ref, total);
+			}
+		}
+	}
+
+	/**
+	 * Method to determine whether the schedule has been altered since the fork was created
+	 * @return a boolean denoting whether the fork can still be committed
+	 */
+	public boolean isCurrent(){
+		return !finished&&parent.getModificationCount()==parentModificationCount;
+	}
+
+	/**
+	 * Method to apply the changes made in the fork to the schedule it was created from.
+	 * A fork cannot be committed if the schedule has been altered since the fork was
+	 * created, as the fork's choice of officials may no longer be valid, nor if the matches
+	 * added in the fork do not fit the record store backing the schedule.
+	 * @return committed a boolean denoting whether the changes were applied to the schedule
+	 */
+	public boolean commit(){
+		boolean committed = false;
+		if (this.isCurrent()&&parent.canStore(addedMatches, removedMatches.size())){
+			// The changes are applied as a single operation which may be undone
+			parent.applyFork(removedMatches, addedMatches);
+			finished = true;
+			committed = true;
+		}
+		return committed;
+	}
+
+	/**
+	 * Method to abandon the fork, leaving the schedule unaltered
+	 */
+	public void discard(){
+		finished = true;
+		addedMatches.clear();
+		removedMatches.clear();
+		allocationChanges.clear();
+	}
+
+	/**
+	 * Method to ensure that the fork may still be altered
+	 */
+	private void checkActive(){
+		if (finished){
+			throw new IllegalStateException("The fork has already been committed or discarded");
+		}
+	}
+}
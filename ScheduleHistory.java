@@ -0,0 +1,221 @@
+import java.util.*;
+
+/**
+ * Records the changes made to a MatchSchedule so that they can be undone and
+ * redone. Rather than copying the schedule, each change is recorded together
+ * with the means of reversing it. The changes made by a single operation on the
+ * schedule are grouped into one step, so that undoing a step restores the exact
+ * state of the schedule before the operation.
+ */
+public class ScheduleHistory {
+
+	/**
+	 * Defines a single recorded change which can be reversed and reapplied
+	 */
+	interface Change {
+
+		/**
+		 * Method to reverse the change
+		 */
+		void undo();
+
+		/**
+		 * Method to reapply the change after it has been reversed
+		 */
+		void redo();
+	}
+
+	public final int MAXIMUM_STEPS = 500; // the number of steps retained for undoing
+
+	private Deque<List<Change>> undoSteps; // the steps which may be undone, most recent first
+	private Deque<List<Change>> redoSteps; // the steps which have been undone, most recent first
+	private List<Change> currentStep; // the changes of the step being recorded, or null
+	private int stepDepth; // the number of operations currently recording the step
+	private boolean replaying; // whether changes are being undone or redone
+
+	/**
+	 * Constructor for the ScheduleHistory
+	 */
+	public ScheduleHistory(){
+		undoSteps = new ArrayDeque<List<Change>>();
+		redoSteps = new ArrayDeque<List<Change>>();
+		currentStep = null;
+		stepDepth = 0;
+		replaying = false;
+	}
+
+	/**
+	 * Method to begin recording a step. Steps begun while another is being recorded
+	 * form part of the outer step.
+	 */
+	void beginStep(){
+		if (stepDepth==0){
+			currentStep = new ArrayList<Change>();
+		}
+		stepDepth++;
+	}
+
+	/**
+	 * Method to finish recording a step. A step in which nothing changed is not retained.
+	 */
+	void endStep(){
+		stepDepth--;
+		if (stepDepth==0){
+			if (!currentStep.isEmpty()){
+				undoSteps.push(currentStep);
+				if (undoSteps.size()>MAXIMUM_STEPS){
+					// the oldest step can no longer be undone
+					undoSteps.removeLast();
+				}
+				// A new change replaces anything which had been undone
+				redoSteps.clear();
+			}
+			currentStep = null;
+		}
+	}
+
+	/**
+	 * Method to record a change that has been made to the schedule. Changes made while
+	 * undoing or redoing are not recorded again.
+	 * @param change a Change which reverses and reapplies the change made
+	 */
+	void record(Change change){
+		if (!replaying){
+			if (currentStep==null){
+				// a change made outside of any operation forms a step of its own
+				beginStep();
+				currentStep.add(change);
+				endStep();
+			}
+			else{
+				currentStep.add(change);
+			}
+		}
+	}
+
+	/**
+	 * Method to determine the number of changes recorded so far in the step being recorded,
+	 * so that the changes made after this point can later be abandoned
+	 * @return an int containing the number of changes in the current step
+	 */
+	int getStepSize(){
+		if (currentStep==null){
+			throw new IllegalStateException("No step is being recorded");
+		}
+		return currentStep.size();
+	}
+
+	/**
+	 * Method to reverse and forget the changes recorded in the current step after a given
+	 * point, for an operation which cannot be completed
+	 * @param stepSize an int containing the number of changes in the step to retain
+	 */
+	void rollbackStep(int stepSize){
+		replaying = true;
+		try{
+			for (int index = currentStep.size()-1; index>=stepSize; index--){
+				currentStep.remove(index).undo();
+			}
+		}
+		finally{
+			replaying = false;
+		}
+	}
+
+	/**
+	 * Method to determine whether there is a step to undo
+	 * @return a boolean denoting whether a step can be undone
+	 */
+	public boolean canUndo(){
+		return !undoSteps.isEmpty();
+	}
+
+	/**
+	 * Method to determine whether there is a step to redo
+	 * @return a boolean denoting whether a step can be redone
+	 */
+	public boolean canRedo(){
+		return !redoSteps.isEmpty();
+	}
+
+	/**
+	 * Method to reverse the most recent step, reversing its changes in the opposite
+	 * order to which they were made
+	 * @return undone a boolean denoting whether a step was undone
+	 */
+	boolean undo(){
+		boolean undone = false;
+		if (stepDepth==0&&canUndo()){
+			List<Change> step = undoSteps.pop();
+			int index = step.size()-1;
+			replaying = true;
+			try{
+				for (; index>=0; index--){
+					step.get(index).undo();
+				}
+			}
+			catch (RuntimeException e){
+				// The changes already reversed are reapplied so that the step may be undone again
+				for (int reversed = index+1; reversed<step.size(); reversed++){
+					step.get(reversed).redo();
+				}
+				undoSteps.push(step);
+				throw e;
+			}
+			finally{
+				replaying = false;
+			}
+			redoSteps.push(step);
+			undone = true;
+		}
+		return undone;
+	}
+
+	/**
+	 * Method to reapply the most recently undone step
+	 * @return redone a boolean denoting whether a step was redone
+	 */
+	boolean redo(){
+		boolean redone = false;
+		if (stepDepth==0&&canRedo()){
+			List<Change> step = redoSteps.pop();
+			int index = 0;
+			replaying = true;
+			try{
+				for (; index<step.size(); index++){
+					step.get(index).redo();
+				}
+			}
+			catch (RuntimeException e){
+				// The changes already reapplied are reversed so that the step may be redone again
+				for (int reapplied = index-1; reapplied>=0; reapplied--){
+					step.get(reapplied).undo();
+				}
+				redoSteps.push(step);
+				throw e;
+			}
+			finally{
+				replaying = false;
+			}
+			undoSteps.push(step);
+			redone = true;
+		}
+		return redone;
+	}
+
+	/**
+	 * Method to discard every recorded step
+	 */
+	public void clear(){
+		undoSteps.clear();
+		redoSteps.clear();
+	}
+
+	/**
+	 * Accessor method for the number of steps which may be undone
+	 * @return an int containing the number of steps retained
+	 */
+	public int getNumberOfSteps(){
+		return undoSteps.size();
+	}
+}
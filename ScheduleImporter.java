@@ -0,0 +1,202 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Imports referees and fixtures into a MatchSchedule from text files through an
+ * ImportPipeline, so that the lines of a large file are parsed on several threads while
+ * the schedule itself is only ever altered on the thread running the import.
+ *
+ * Referee files use the format of the referees input file. Fixture files hold one match
+ * per line in the form
+ *
+ *     week level location [ref1FirstName ref1Surname ref2FirstName ref2Surname ...]
+ *
+ * e.g. "12 Senior North" or "12 Senior North John Smith Jane Doe". Matches without
+ * officials are allocated officials by the schedule, while the remaining matches name
+ * one official for each role of the crew, in order, who must be referees of the
+ * schedule eligible for the match.
+ *
+ * Referees are only added while the schedule holds fewer than its maximum number of
+ * referees, so a caller importing more referees than the user interface manages raises
+ * the limit with setMaximumNumberOfReferees first.
+ */
+public class ScheduleImporter {
+
+	/**
+	 * Defines one line of a fixtures file
+	 */
+	private static class FixtureRecord {
+
+		private final int week; // the week the match is scheduled for
+		private final String level; // the level of the match (Junior/Senior)
+		private final String location; // the venue of the match
+		private final String[] refNames; // the full name of each official of the crew, or null
+
+		/**
+		 * Constructor for the FixtureRecord
+		 * @param week an int containing the week the match is scheduled for
+		 * @param level a String containing the level of the match
+		 * @param location a String containing the venue of the match
+		 * @param refNames an array containing the full name of each official, or null
+		 */
+		private FixtureRecord(int week, String level, String location, String[] refNames){
+			this.week = week;
+			this.level = level;
+			this.location = location;
+			this.refNames = refNames;
+		}
+	}
+
+	private final MatchSchedule schedule; // the schedule the records are imported into
+
+	/**
+	 * Constructor for the ScheduleImporter
+	 * @param matchSchedule a MatchSchedule object the records are imported into
+	 */
+	public ScheduleImporter(MatchSchedule matchSchedule){
+		schedule = matchSchedule;
+	}
+
+	/**
+	 * Method to import the referees of a file in the format of the referees input file
+	 * @param fileName a String containing the name of the file
+	 * @return a Report of the referees added and the lines which could not be imported
+	 * @throws IOException if the file cannot be read
+	 */
+	public ImportPipeline.Report importReferees(String fileName) throws IOException{
+		ImportPipeline<Referee> pipeline = new ImportPipeline<Referee>(
+				new ImportPipeline.Parser<Referee>(){
+					public Referee parse(String line){
+						// parsing only reads the regions of the schedule
+						return schedule.parseReferee(line);
+					}
+				},
+				new ImportPipeline.Inserter<Referee>(){
+					public void insert(Referee ref){
+						if (schedule.getRefereeByID(ref.getRefID())!=null){
+							throw new IllegalArgumentException("Duplicate referee ID "+ref.getRefID());
+						}
+						// A schedule backed by a store only holds referees fitting its records
+						RecordStore store = schedule.getRecordStore();
+						String problem = store!=null ? store.describeRefereeProblem(ref, schedule.getRegionTopology()) : null;
+						if (problem!=null){
+							throw new IllegalArgumentException(problem);
+						}
+						if (!schedule.addReferee(ref)){
+							throw new IllegalArgumentException("The maximum number of referees has been reached");
+						}
+					}
+				});
+		return this.importInBatch(pipeline, fileName);
+	}
+
+	/**
+	 * Method to import the matches of a fixtures file
+	 * @param fileName a String containing the name of the file
+	 * @return a Report of the matches added and the lines which could not be imported
+	 * @throws IOException if the file cannot be read
+	 */
+	public ImportPipeline.Report importFixtures(String fileName) throws IOException{
+		ImportPipeline<FixtureRecord> pipeline = new ImportPipeline<FixtureRecord>(
+				new ImportPipeline.Parser<FixtureRecord>(){
+					public FixtureRecord parse(String line){
+						return parseFixture(line);
+					}
+				},
+				new ImportPipeline.Inserter<FixtureRecord>(){
+					public void insert(FixtureRecord fixture){
+						insertFixture(fixture);
+					}
+				});
+		return this.importInBatch(pipeline, fileName);
+	}
+
+	/**
+	 * Method to run an import as a single batch, so that the listeners of the schedule are
+	 * notified of the records added once the whole file has been imported
+	 * @param pipeline an ImportPipeline for the records of the file
+	 * @param fileName a String containing the name of the file
+	 * @return a Report of the records added and the lines which could not be imported
+	 * @throws IOException if the file cannot be read
+	 */
+	private ImportPipeline.Report importInBatch(ImportPipeline<?> pipeline, String fileName) throws IOException{
+		schedule.beginBatch();
+		try{
+			return pipeline.importFile(fileName);
+		}
+		finally{
+			schedule.endBatch();
+		}
+	}
+
+	/**
+	 * Method to create a fixture record from one line of a fixtures file
+	 * @param line a String containing the details of one match
+	 * @return a FixtureRecord containing the details
+	 * @throws IllegalArgumentException describing the first detail which is missing or invalid
+	 */
+	private FixtureRecord parseFixture(String line){
+		String[] tokens = line.trim().split(" +");
+		if (tokens.length<3||(tokens.length>3&&tokens.length<7)||tokens.length%2==0){
+			throw new IllegalArgumentException("Expected 3 details, or a first name and surname for each official, but found "
+					+tokens.length);
+		}
+		int week;
+		try{
+			week = Integer.parseInt(tokens[0]);
+		}
+		catch (NumberFormatException nfx){
+			throw new IllegalArgumentException("Invalid week "+tokens[0]);
+		}
+		if (week<1||week>schedule.WEEKS_IN_A_SEASON){
+			throw new IllegalArgumentException("Week "+week+" is outside the season");
+		}
+		String level = tokens[1];
+		if (!level.equals("Junior")&&!level.equals("Senior")){
+			throw new IllegalArgumentException("Invalid match level "+level);
+		}
+		String location = tokens[2];
+		if (schedule.getRegionTopology().getRegionIndex(location)<0){
+			throw new IllegalArgumentException("Unknown region "+location);
+		}
+		String[] refNames = null;
+		if (tokens.length>3){
+			refNames = new String[(tokens.length-3)/2];
+			for (int official = 0; official<refNames.length; official++){
+				refNames[official] = tokens[3+2*official]+" "+tokens[4+2*official];
+			}
+		}
+		return new FixtureRecord(week, level, location, refNames);
+	}
+
+	/**
+	 * Method to add an imported match to the schedule
+	 * @param fixture a FixtureRecord containing the details of the match
+	 * @throws IllegalArgumentException if the match cannot be added
+	 */
+	private void insertFixture(FixtureRecord fixture){
+		if (fixture.refNames==null){
+			if (!schedule.addMatchToSchedule(fixture.location, fixture.level, fixture.week)){
+				throw new IllegalArgumentException("No officials could be allocated in week "+fixture.week);
+			}
+		}
+		else{
+			int crewSize = schedule.getCrewRoles(fixture.level).length;
+			if (fixture.refNames.length!=crewSize){
+				throw new IllegalArgumentException("A "+fixture.level+" match requires "+crewSize
+						+" officials but "+fixture.refNames.length+" are named");
+			}
+			Referee[] crew = new Referee[crewSize];
+			for (int official = 0; official<crewSize; official++){
+				crew[official] = schedule.getRefereeByName(fixture.refNames[official]);
+				if (crew[official]==null){
+					throw new IllegalArgumentException("Unknown referee "+fixture.refNames[official]);
+				}
+			}
+			if (!schedule.addAllocatedMatch(fixture.location, fixture.level, fixture.week, crew)){
+				throw new IllegalArgumentException("The officials cannot officiate a "+fixture.level
+						+" match in "+fixture.location+" in week "+fixture.week);
+			}
+		}
+	}
+}
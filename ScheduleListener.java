@@ -0,0 +1,17 @@
+import java.util.List;
+
+/**
+ * Defines an object notified of the changes made to the referees and matches of a
+ * MatchSchedule, so that views, caches and exporters update only what changed.
+ */
+public interface ScheduleListener {
+
+	/**
+	 * Method called on the thread which altered the schedule once an operation, or a batch
+	 * of operations, is complete. Repeated changes to the same referee or match within the
+	 * batch are coalesced into a single event, and a referee or match both added and removed
+	 * within the batch is not reported at all.
+	 * @param events an unmodifiable List of ScheduleEvents in the order the changes were first made
+	 */
+	void scheduleChanged(List<ScheduleEvent> events);
+}
@@ -0,0 +1,418 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+
+/**
+ * Publishes the statistics of a running MatchSchedule as a JMX MBean, so that the
+ * counts of referees and matches, the distribution of match allocations, the state of
+ * the caches and indexes and the progress of saving can be inspected from a standard
+ * JMX console, and compaction or rebalancing triggered from it.
+ *
+ * The schedule may only be read on the thread which alters it, so the statistics are
+ * captured on that thread each time an operation on the schedule completes and held in
+ * an immutable snapshot. A console reads the latest snapshot without waiting for the
+ * schedule. Operations are passed to the thread which alters the schedule through the
+ * executor supplied by the caller, e.g. the Swing event dispatch thread.
+ */
+public class ScheduleMonitor implements ScheduleMonitorMBean {
+
+	public static final long OPERATION_TIMEOUT_MILLIS = 30000; // the time an operation waits for the schedule, in addition to any time budget
+
+	/**
+	 * Defines the statistics of the schedule captured at one moment
+	 */
+	private static class Statistics {
+
+		private final long time; // the time in milliseconds the statistics were captured
+		private final long modificationCount; // the modification count of the schedule
+		private final int numberOfReferees; // the number of referees
+		private final int numberOfMatches; // the number of matches
+		private final int minimumAllocations; // the fewest match allocations of any referee
+		private final int maximumAllocations; // the most match allocations of any referee
+		private final double meanAllocations; // the mean match allocations
+		private final double allocationVariance; // the variance of the match allocations
+		private final int medianAllocations; // the median match allocations
+		private final int allocations90thPercentile; // the 90th percentile of the match allocations
+		private final int allocations99thPercentile; // the 99th percentile of the match allocations
+		private final int cachedRankings; // the number of cached rankings
+		private final int indexedReferees; // the number of referees indexed by their details
+		private final int indexSlots; // the number of slots of the indexes of details
+		private final int allocationLevels; // the number of distinct match allocations indexed
+		private final int locatedReferees; // the number of referees in the spatial index
+		private final int scheduledWeeks; // the number of weeks with a match scheduled
+		private final int undoSteps; // the number of steps which may be undone
+
+		/**
+		 * Constructor for the Statistics. Must be called on the thread which alters the schedule.
+		 * @param schedule a MatchSchedule object
+		 */
+		private Statistics(MatchSchedule schedule){
+			time = System.currentTimeMillis();
+			modificationCount = schedule.getModificationCount();
+			numberOfReferees = schedule.getNumberOfReferees();
+			numberOfMatches = schedule.getNumberOfMatches();
+			// the distribution is maintained by the schedule, so no referee is examined
+			AllocationHistogram histogram = schedule.getAllocationHistogram();
+			minimumAllocations = histogram.getMinimum();
+			maximumAllocations = histogram.getMaximum();
+			meanAllocations = histogram.getMean();
+			allocationVariance = histogram.getVariance();
+			medianAllocations = histogram.getPercentile(50);
+			allocations90thPercentile = histogram.getPercentile(90);
+			allocations99thPercentile = histogram.getPercentile(99);
+			cachedRankings = schedule.getNumberOfCachedRankings();
+			indexedReferees = schedule.getRefereeIndex().size();
+			indexSlots = schedule.getRefereeIndex().getNumberOfSlots();
+			allocationLevels = schedule.getRefereeIndex().getNumberOfAllocationLevels();
+			locatedReferees = schedule.getNumberOfLocatedReferees();
+			scheduledWeeks = schedule.getNumberOfScheduledWeeks();
+			undoSteps = schedule.getNumberOfUndoSteps();
+		}
+	}
+
+	private final MatchSchedule schedule; // the schedule being monitored
+	private final Executor scheduleExecutor; // runs tasks on the thread which alters the schedule
+	private final PersistenceService persistence; // saves the schedule in the background, or null
+	private final ScheduleListener changeListener; // captures the statistics after each change
+	private volatile Statistics statistics; // the most recently captured statistics
+	private ObjectName registeredName; // the name the MBean is registered under, or null
+
+	/**
+	 * Constructor for the ScheduleMonitor. Must be called on the thread which alters the schedule.
+	 * @param matchSchedule a MatchSchedule object to be monitored
+	 * @param executor an Executor running tasks on the thread which alters the schedule
+	 * @param persistenceService a PersistenceService saving the schedule, or null if it is not saved in the background
+	 */
+	public ScheduleMonitor(MatchSchedule matchSchedule, Executor executor, PersistenceService persistenceService){
+		schedule = matchSchedule;
+		scheduleExecutor = executor;
+		persistence = persistenceService;
+		statistics = new Statistics(schedule);
+		changeListener = new ScheduleListener(){
+			public void scheduleChanged(List<ScheduleEvent> events){
+				statistics = new Statistics(schedule);
+			}
+		};
+		schedule.addScheduleListener(changeListener);
+		registeredName = null;
+	}
+
+	/**
+	 * Method to register the MBean with the platform MBean server, so that it is visible to JMX consoles
+	 * @param scheduleName a String distinguishing the schedule from others in the same process
+	 * @return registeredName the ObjectName the MBean is registered under
+	 * @throws JMException if the MBean cannot be registered, e.g. the name is already in use
+	 */
+	public ObjectName register(String scheduleName) throws JMException{
+		ObjectName name = new ObjectName("JavaBall:type=MatchSchedule,name="+ObjectName.quote(scheduleName));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		registeredName = name;
+		return registeredName;
+	}
+
+	/**
+	 * Method to stop monitoring the schedule and unregister the MBean if it was registered
+	 */
+	public void close(){
+		schedule.removeScheduleListener(changeListener);
+		if (registeredName!=null){
+			try{
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+			}
+			catch (JMException jmx){
+				// the MBean has already been unregistered
+			}
+			registeredName = null;
+		}
+	}
+
+	/**
+	 * Accessor method for the time the statistics were last captured
+	 * @return a long containing the time in milliseconds
+	 */
+	public long getStatisticsTime(){
+		return statistics.time;
+	}
+
+	/**
+	 * Accessor method for the number of changes made to the schedule when the statistics were captured
+	 * @return a long containing the modification count of the schedule
+	 */
+	public long getModificationCount(){
+		return statistics.modificationCount;
+	}
+
+	/**
+	 * Accessor method for the number of referees
+	 * @return an int containing the number of referees in the schedule
+	 */
+	public int getNumberOfReferees(){
+		return statistics.numberOfReferees;
+	}
+
+	/**
+	 * Accessor method for the number of matches
+	 * @return an int containing the number of matches scheduled
+	 */
+	public int getNumberOfMatches(){
+		return statistics.numberOfMatches;
+	}
+
+	/**
+	 * Accessor method for the fewest match allocations of any referee
+	 * @return an int containing the number of allocations, or 0 if there are no referees
+	 */
+	public int getMinimumAllocations(){
+		return statistics.minimumAllocations;
+	}
+
+	/**
+	 * Accessor method for the most match allocations of any referee
+	 * @return an int containing the number of allocations, or 0 if there are no referees
+	 */
+	public int getMaximumAllocations(){
+		return statistics.maximumAllocations;
+	}
+
+	/**
+	 * Accessor method for the mean match allocations of the referees
+	 * @return a double containing the mean number of allocations, or 0 if there are no referees
+	 */
+	public double getMeanAllocations(){
+		return statistics.meanAllocations;
+	}
+
+	/**
+	 * Accessor method for the variance of the match allocations of the referees
+	 * @return a double containing the population variance, or 0 if there are no referees
+	 */
+	public double getAllocationVariance(){
+		return statistics.allocationVariance;
+	}
+
+	/**
+	 * Accessor method for the median match allocations of the referees
+	 * @return an int containing the number of allocations of the middle referee
+	 */
+	public int getMedianAllocations(){
+		return statistics.medianAllocations;
+	}
+
+	/**
+	 * Accessor method for the 90th percentile of the match allocations of the referees
+	 * @return an int containing the number of allocations no more than a tenth of referees exceed
+	 */
+	public int getAllocations90thPercentile(){
+		return statistics.allocations90thPercentile;
+	}
+
+	/**
+	 * Accessor method for the 99th percentile of the match allocations of the referees
+	 * @return an int containing the number of allocations no more than a hundredth of referees exceed
+	 */
+	public int getAllocations99thPercentile(){
+		return statistics.allocations99thPercentile;
+	}
+
+	/**
+	 * Accessor method for the number of selections of referees served from a cached ranking
+	 * @return a long containing the number of cache hits
+	 */
+	public long getRankingCacheHits(){
+		return schedule.getRankingCacheHits();
+	}
+
+	/**
+	 * Accessor method for the number of selections of referees for which no ranking was cached
+	 * @return a long containing the number of cache misses
+	 */
+	public long getRankingCacheMisses(){
+		return schedule.getRankingCacheMisses();
+	}
+
+	/**
+	 * Accessor method for the proportion of selections served from a cached ranking
+	 * @return a double between 0 and 1, or 0 if no selection has been made
+	 */
+	public double getRankingCacheHitRate(){
+		// the misses are read first so that a selection made in between never lowers the rate
+		long misses = schedule.getRankingCacheMisses();
+		long hits = schedule.getRankingCacheHits();
+		return hits+misses>0 ? (double) hits/(hits+misses) : 0;
+	}
+
+	/**
+	 * Accessor method for the number of rankings of suitable referees cached
+	 * @return an int containing the number of venue and level pairs ranked
+	 */
+	public int getCachedRankings(){
+		return statistics.cachedRankings;
+	}
+
+	/**
+	 * Accessor method for the number of referees in the indexes of their details
+	 * @return an int containing the number of referees indexed
+	 */
+	public int getIndexedReferees(){
+		return statistics.indexedReferees;
+	}
+
+	/**
+	 * Accessor method for the number of slots of the indexes of the referees' details
+	 * @return an int containing the number of slots, including those freed by removed referees
+	 */
+	public int getIndexSlots(){
+		return statistics.indexSlots;
+	}
+
+	/**
+	 * Accessor method for the number of distinct match allocations in the index of allocations
+	 * @return an int containing the number of values indexed
+	 */
+	public int getIndexedAllocationLevels(){
+		return statistics.allocationLevels;
+	}
+
+	/**
+	 * Accessor method for the number of referees in the spatial index of their homes
+	 * @return an int containing the number of referees located, or 0 if the index is not built
+	 */
+	public int getLocatedReferees(){
+		return statistics.locatedReferees;
+	}
+
+	/**
+	 * Accessor method for the number of weeks in the index of matches by week
+	 * @return an int containing the number of weeks with a match scheduled
+	 */
+	public int getScheduledWeeks(){
+		return statistics.scheduledWeeks;
+	}
+
+	/**
+	 * Accessor method for the number of operations which may be undone
+	 * @return an int containing the number of steps in the history
+	 */
+	public int getUndoSteps(){
+		return statistics.undoSteps;
+	}
+
+	/**
+	 * Accessor method for the number of changes submitted for saving but not yet written
+	 * @return a long containing the number of changes, or 0 if the schedule is not saved in the background
+	 */
+	public long getJournalLag(){
+		if (persistence==null){
+			return 0;
+		}
+		// the durable sequence is read first so that the lag is never negative
+		long durableSequence = persistence.getDurableSequence();
+		return Math.max(0, persistence.getSubmittedSequence()-durableSequence);
+	}
+
+	/**
+	 * Accessor method for the time the output files were last written
+	 * @return a long containing the time in milliseconds, or 0 if nothing has been written
+	 */
+	public long getLastSaveTime(){
+		return persistence!=null ? persistence.getLastSaveTime() : 0;
+	}
+
+	/**
+	 * Accessor method for the failure of the most recent write of the output files
+	 * @return a String describing the failure, or null if the most recent write succeeded
+	 */
+	public String getLastSaveError(){
+		IOException lastError = persistence!=null ? persistence.getLastError() : null;
+		return lastError!=null ? lastError.getMessage() : null;
+	}
+
+	/**
+	 * Method to release the caches and indexes of the schedule which can be rebuilt and
+	 * write any changes waiting to be saved
+	 * @return a String describing the outcome
+	 */
+	public String compact(){
+		String outcome = this.runOnSchedule(new Callable<String>(){
+			public String call(){
+				int cachedRankings = schedule.getNumberOfCachedRankings();
+				schedule.compact();
+				statistics = new Statistics(schedule);
+				return "Discarded "+cachedRankings+" cached rankings";
+			}
+		}, OPERATION_TIMEOUT_MILLIS);
+		if (persistence!=null){
+			try{
+				persistence.flush();
+				outcome += "; saved to change "+persistence.getDurableSequence();
+			}
+			catch (IOException iox){
+				outcome += "; saving failed: "+iox.getMessage();
+			}
+		}
+		return outcome;
+	}
+
+	/**
+	 * Method to search for a better balanced allocation of officials and apply it
+	 * @param timeBudgetMillis a long containing the number of milliseconds the search may take
+	 * @return a String describing the outcome
+	 */
+	public String rebalance(final long timeBudgetMillis){
+		if (timeBudgetMillis<=0){
+			return "The time budget must be positive";
+		}
+		final ScheduleRebalancer rebalancer = new ScheduleRebalancer(schedule);
+		// Only capturing and applying the allocation wait for the thread which alters the schedule
+		String failure = this.runOnSchedule(new Callable<String>(){
+			public String call(){
+				rebalancer.prepare();
+				return null;
+			}
+		}, OPERATION_TIMEOUT_MILLIS);
+		// Capturing the allocation describes no outcome, so any description is a failure
+		if (failure!=null){
+			return failure;
+		}
+		if (!rebalancer.search(timeBudgetMillis)){
+			return "No better allocation found, cost "+rebalancer.getInitialCost();
+		}
+		return this.runOnSchedule(new Callable<String>(){
+			public String call(){
+				boolean rebalanced = rebalancer.apply();
+				statistics = new Statistics(schedule);
+				if (!rebalanced){
+					return "The schedule changed during the search, cost "+rebalancer.getInitialCost();
+				}
+				return "Cost reduced from "+rebalancer.getInitialCost()+" to "+rebalancer.getBestCost();
+			}
+		}, OPERATION_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Method to run a task on the thread which alters the schedule and wait for its outcome.
+	 * Must not be called on that thread.
+	 * @param task a Callable returning a description of its outcome
+	 * @param timeoutMillis a long containing the number of milliseconds to wait for the task
+	 * @return a String describing the outcome of the task, or why it is not known
+	 */
+	private String runOnSchedule(Callable<String> task, long timeoutMillis){
+		FutureTask<String> result = new FutureTask<String>(task);
+		scheduleExecutor.execute(result);
+		try{
+			return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException tx){
+			return "Still waiting for the schedule, the operation continues in the background";
+		}
+		catch (InterruptedException ix){
+			Thread.currentThread().interrupt();
+			return "Interrupted while waiting for the schedule";
+		}
+		catch (ExecutionException ex){
+			return "Failed: "+ex.getCause();
+		}
+	}
+}
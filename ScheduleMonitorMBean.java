@@ -0,0 +1,166 @@
+/**
+ * Defines the management interface of a ScheduleMonitor, through which a standard JMX
+ * console reads the statistics of a running MatchSchedule and triggers maintenance.
+ * Every attribute is read from the most recent snapshot of the schedule, so reading an
+ * attribute never waits for the thread which alters the schedule.
+ */
+public interface ScheduleMonitorMBean {
+
+	/**
+	 * Accessor method for the time the statistics were last captured
+	 * @return a long containing the time in milliseconds
+	 */
+	long getStatisticsTime();
+
+	/**
+	 * Accessor method for the number of changes made to the schedule when the statistics were captured
+	 * @return a long containing the modification count of the schedule
+	 */
+	long getModificationCount();
+
+	/**
+	 * Accessor method for the number of referees
+	 * @return an int containing the number of referees in the schedule
+	 */
+	int getNumberOfReferees();
+
+	/**
+	 * Accessor method for the number of matches
+	 * @return an int containing the number of matches scheduled
+	 */
+	int getNumberOfMatches();
+
+	/**
+	 * Accessor method for the fewest match allocations of any referee
+	 * @return an int containing the number of allocations, or 0 if there are no referees
+	 */
+	int getMinimumAllocations();
+
+	/**
+	 * Accessor method for the most match allocations of any referee
+	 * @return an int containing the number of allocations, or 0 if there are no referees
+	 */
+	int getMaximumAllocations();
+
+	/**
+	 * Accessor method for the mean match allocations of the referees
+	 * @return a double containing the mean number of allocations, or 0 if there are no referees
+	 */
+	double getMeanAllocations();
+
+	/**
+	 * Accessor method for the variance of the match allocations of the referees
+	 * @return a double containing the population variance, or 0 if there are no referees
+	 */
+	double getAllocationVariance();
+
+	/**
+	 * Accessor method for the median match allocations of the referees
+	 * @return an int containing the number of allocations of the middle referee
+	 */
+	int getMedianAllocations();
+
+	/**
+	 * Accessor method for the 90th percentile of the match allocations of the referees
+	 * @return an int containing the number of allocations no more than a tenth of referees exceed
+	 */
+	int getAllocations90thPercentile();
+
+	/**
+	 * Accessor method for the 99th percentile of the match allocations of the referees
+	 * @return an int containing the number of allocations no more than a hundredth of referees exceed
+	 */
+	int getAllocations99thPercentile();
+
+	/**
+	 * Accessor method for the number of selections of referees served from a cached ranking
+	 * @return a long containing the number of cache hits
+	 */
+	long getRankingCacheHits();
+
+	/**
+	 * Accessor method for the number of selections of referees for which no ranking was cached
+	 * @return a long containing the number of cache misses
+	 */
+	long getRankingCacheMisses();
+
+	/**
+	 * Accessor method for the proportion of selections served from a cached ranking
+	 * @return a double between 0 and 1, or 0 if no selection has been made
+	 */
+	double getRankingCacheHitRate();
+
+	/**
+	 * Accessor method for the number of rankings of suitable referees cached
+	 * @return an int containing the number of venue and level pairs ranked
+	 */
+	int getCachedRankings();
+
+	/**
+	 * Accessor method for the number of referees in the indexes of their details
+	 * @return an int containing the number of referees indexed
+	 */
+	int getIndexedReferees();
+
+	/**
+	 * Accessor method for the number of slots of the indexes of the referees' details
+	 * @return an int containing the number of slots, including those freed by removed referees
+	 */
+	int getIndexSlots();
+
+	/**
+	 * Accessor method for the number of distinct match allocations in the index of allocations
+	 * @return an int containing the number of values indexed
+	 */
+	int getIndexedAllocationLevels();
+
+	/**
+	 * Accessor method for the number of referees in the spatial index of their homes
+	 * @return an int containing the number of referees located, or 0 if the index is not built
+	 */
+	int getLocatedReferees();
+
+	/**
+	 * Accessor method for the number of weeks in the index of matches by week
+	 * @return an int containing the number of weeks with a match scheduled
+	 */
+	int getScheduledWeeks();
+
+	/**
+	 * Accessor method for the number of operations which may be undone
+	 * @return an int containing the number of steps in the history
+	 */
+	int getUndoSteps();
+
+	/**
+	 * Accessor method for the number of changes submitted for saving but not yet written
+	 * @return a long containing the number of changes, or 0 if the schedule is not saved in the background
+	 */
+	long getJournalLag();
+
+	/**
+	 * Accessor method for the time the output files were last written
+	 * @return a long containing the time in milliseconds, or 0 if nothing has been written
+	 */
+	long getLastSaveTime();
+
+	/**
+	 * Accessor method for the failure of the most recent write of the output files
+	 * @return a String describing the failure, or null if the most recent write succeeded
+	 */
+	String getLastSaveError();
+
+	/**
+	 * Method to release the caches and indexes of the schedule which can be rebuilt and
+	 * write any changes waiting to be saved
+	 * @return a String describing the outcome
+	 */
+	String compact();
+
+	/**
+	 * Method to search for a better balanced allocation of officials and apply it
+	 * @param timeBudgetMillis a long containing the number of milliseconds the search may take
+	 * @return a String describing the outcome
+	 */
+	String rebalance(long timeBudgetMillis);
+}
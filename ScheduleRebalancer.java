@@ -0,0 +1,467 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Evens out the match allocations of the referees once matches have been scheduled.
+ * Allocating officials greedily as each match is added favours nearby referees, which
+ * can leave some referees with many more matches than others. The rebalancer moves
+ * officials between the scheduled matches by simulated annealing, only ever choosing
+ * referees who are qualified for the level of a match, available in its region and
+ * free in its week. The search may be stopped at any time: when the time budget
+ * expires the best allocation found is applied to the schedule as a single change
+ * which may be undone. Large seasons are searched by independent chains on every core.
+ * The allocation is captured and applied on the thread which alters the schedule, while
+ * the search between them may run on any thread so that it never holds up that thread.
+ */
+public class ScheduleRebalancer {
+
+	public final int PARALLEL_MATCH_THRESHOLD = 16; // the number of matches from which several chains are searched
+	private static final int ITERATIONS_PER_CLOCK_CHECK = 1024; // how often a chain checks the time remaining
+	private static final double INITIAL_TEMPERATURE = 2.0; // the temperature of a chain, in units of the load weight
+	private static final double FINAL_TEMPERATURE = 0.01;
+
+	private final MatchSchedule schedule; // the schedule whose allocations are rebalanced
+	private long seed; // the seed of the random moves of the first chain
+	private long initialCost; // the cost of the allocation before the most recent rebalance
+	private long bestCost; // the cost of the best allocation found by the most recent rebalance
+	private Problem problem; // the allocation captured by prepare, or null
+	private long preparedModificationCount; // the modification count of the schedule when prepared
+	private int[] bestCrews; // the best allocation found by the most recent search
+
+	/**
+	 * Constructor for the ScheduleRebalancer
+	 * @param matchSchedule a MatchSchedule object whose allocations are to be rebalanced
+	 */
+	public ScheduleRebalancer(MatchSchedule matchSchedule){
+		schedule = matchSchedule;
+		seed = System.nanoTime();
+		problem = null;
+		bestCrews = null;
+	}
+
+	/**
+	 * Mutator method for the seed of the random moves, so that a search can be repeated
+	 * @param randomSeed a long containing the seed of the first chain
+	 */
+	public void setSeed(long randomSeed){
+		seed = randomSeed;
+	}
+
+	/**
+	 * Accessor method for the cost of the allocation before the most recent rebalance
+	 * @return initialCost a long combining the spread of match allocations and the distance travelled
+	 */
+	public long getInitialCost(){
+		return initialCost;
+	}
+
+	/**
+	 * Accessor method for the cost of the best allocation found by the most recent rebalance
+	 * @return bestCost a long combining the spread of match allocations and the distance travelled
+	 */
+	public long getBestCost(){
+		return bestCost;
+	}
+
+	/**
+	 * Method to search for a better balanced allocation of officials until the time budget
+	 * expires and apply the best allocation found, all on the thread which alters the
+	 * schedule. The allocation is not applied if the schedule is altered while the search
+	 * is in progress.
+	 * @param timeBudgetMillis a long containing the number of milliseconds the search may take
+	 * @return rebalanced a boolean denoting whether an improved allocation was applied
+	 */
+	public boolean rebalance(long timeBudgetMillis){
+		this.prepare();
+		return this.search(timeBudgetMillis)&&this.apply();
+	}
+
+	/**
+	 * Method to capture the current allocation of officials for a search. Called on the
+	 * thread which alters the schedule, so that search may then run on any other thread
+	 * while the schedule remains in use.
+	 */
+	public void prepare(){
+		problem = new Problem(schedule);
+		preparedModificationCount = schedule.getModificationCount();
+		initialCost = problem.cost(problem.initialCrews);
+		bestCost = initialCost;
+		bestCrews = problem.initialCrews;
+	}
+
+	/**
+	 * Method to search the allocation captured by prepare until the time budget expires.
+	 * The schedule is not read or altered, so the search may run on any thread.
+	 * @param timeBudgetMillis a long containing the number of milliseconds the search may take
+	 * @return improved a boolean denoting whether a better allocation was found
+	 * @throws IllegalStateException if no allocation has been prepared
+	 */
+	public boolean search(long timeBudgetMillis){
+		if (problem==null){
+			throw new IllegalStateException("No allocation has been prepared");
+		}
+		final long deadline = System.nanoTime()+TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+		if (problem.fixtures.length==0){
+			return false;
+		}
+		// Small seasons are searched by a single chain, large seasons by one chain per core
+		int numberOfChains = 1;
+		if (problem.fixtures.length>=PARALLEL_MATCH_THRESHOLD){
+			numberOfChains = Runtime.getRuntime().availableProcessors();
+		}
+		List<Chain> chains = new ArrayList<Chain>();
+		for (int index = 0; index<numberOfChains; index++){
+			chains.add(new Chain(problem, seed+index, deadline));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfChains);
+		try{
+			for (Future<Chain> result: executor.invokeAll(chains)){
+				Chain chain = result.get();
+				if (chain.bestCost<bestCost){
+					bestCost = chain.bestCost;
+					bestCrews = chain.bestCrews;
+				}
+			}
+		}
+		catch (InterruptedException ix){
+			// The search is abandoned, leaving the schedule unaltered
+			Thread.currentThread().interrupt();
+			bestCost = initialCost;
+			bestCrews = problem.initialCrews;
+			return false;
+		}
+		catch (ExecutionException ex){
+			throw new IllegalStateException("Rebalancing failed", ex.getCause());
+		}
+		finally{
+			executor.shutdownNow();
+		}
+		return bestCost<initialCost;
+	}
+
+	/**
+	 * Method to apply the best allocation found by search as a single change which may be
+	 * undone. Called on the thread which alters the schedule. The allocation is not applied
+	 * if the schedule has been altered since it was prepared.
+	 * @return rebalanced a boolean denoting whether an improved allocation was applied
+	 */
+	public boolean apply(){
+		if (problem==null||bestCost>=initialCost||schedule.getModificationCount()!=preparedModificationCount){
+			return false;
+		}
+		// Only the matches whose officials have changed are altered
+		List<Match> changedFixtures = new ArrayList<Match>();
+		List<Referee[]> changedCrews = new ArrayList<Referee[]>();
+		for (int fixture = 0; fixture<problem.fixtures.length; fixture++){
+			int firstSlot = problem.crewStarts[fixture];
+			Referee[] crew = new Referee[problem.crewStarts[fixture+1]-firstSlot];
+			boolean changed = false;
+			for (int position = 0; position<crew.length; position++){
+				crew[position] = problem.refs[bestCrews[firstSlot+position]];
+				changed |= bestCrews[firstSlot+position]!=problem.initialCrews[firstSlot+position];
+			}
+			if (changed){
+				changedFixtures.add(problem.fixtures[fixture]);
+				changedCrews.add(crew);
+			}
+		}
+		// The allocation is applied at most once
+		problem = null;
+		schedule.reassignOfficials(changedFixtures, changedCrews.toArray(new Referee[changedCrews.size()][]));
+		return true;
+	}
+
+	/**
+	 * Defines the allocation problem as arrays of indexes so that chains can search it
+	 * without touching the schedule. A problem is never altered once created, so it is
+	 * shared between chains.
+	 */
+	private static class Problem {
+
+		private final Referee[] refs; // every referee who is or may be allocated a match
+		private final Match[] fixtures; // the scheduled matches
+		private final long[] weekBits; // the bit of the week of each match
+		private final boolean[][] eligible; // whether each referee may officiate each match
+		private final int[][] eligibleRefs; // the indexes of the referees eligible for each match
+		private final int[][] distances; // the distance each referee travels to each match
+		private final int[] initialLoads; // the match allocations of each referee
+		private final int[] initialCrews; // the index of each official of each match, one slot per position in its crew
+		private final int[] crewStarts; // the first slot of each match, followed by the total number of slots
+		private final int[] slotFixtures; // the match each slot belongs to
+		private final long loadWeight; // the cost of each unit of the sum of squared allocations
+
+		/**
+		 * Constructor for the Problem
+		 * @param schedule a MatchSchedule object containing the matches to be rebalanced
+		 */
+		private Problem(MatchSchedule schedule){
+			RegionTopology regions = schedule.getRegionTopology();
+			// Referees removed since a match was scheduled may still officiate it, but
+			// cannot be given any other match
+			Map<Referee, Integer> refIndexes = new LinkedHashMap<Referee, Integer>();
+			for (Referee ref: schedule.getOfficials()){
+				refIndexes.put(ref, refIndexes.size());
+			}
+			List<Match> scheduledMatches = schedule.getMatchSchedule();
+			for (Match fixture: scheduledMatches){
+				for (Referee ref: fixture.getOfficials()){
+					if (!refIndexes.containsKey(ref)){
+						refIndexes.put(ref, refIndexes.size());
+					}
+				}
+			}
+			int numberOfOfficials = schedule.getOfficials().size();
+			refs = refIndexes.keySet().toArray(new Referee[refIndexes.size()]);
+			fixtures = scheduledMatches.toArray(new Match[scheduledMatches.size()]);
+			weekBits = new long[fixtures.length];
+			eligible = new boolean[fixtures.length][refs.length];
+			eligibleRefs = new int[fixtures.length][];
+			distances = new int[fixtures.length][refs.length];
+			crewStarts = new int[fixtures.length+1];
+			for (int fixture = 0; fixture<fixtures.length; fixture++){
+				crewStarts[fixture+1] = crewStarts[fixture]+fixtures[fixture].getCrewSize();
+			}
+			initialCrews = new int[crewStarts[fixtures.length]];
+			slotFixtures = new int[initialCrews.length];
+			int maximumDistance = 0;
+			for (int fixture = 0; fixture<fixtures.length; fixture++){
+				Match match = fixtures[fixture];
+				weekBits[fixture] = Referee.weekBit(match.getWeekNo());
+				boolean seniorMatch = match.getMatchLevel().equals("Senior");
+				int venue = regions.getRegionIndex(match.getLocation());
+				List<Integer> eligibleForMatch = new ArrayList<Integer>();
+				for (int ref = 0; ref<refs.length; ref++){
+					// The same rules apply as when the match was first allocated officials
+					eligible[fixture][ref] = ref<numberOfOfficials
+							&&(!seniorMatch||refs[ref].canRefereeSeniors())
+							&&refs[ref].isAvailableIn(match.getLocation())
+							&&(refs[ref].getUnavailableWeeks()&weekBits[fixture])==0;
+					if (eligible[fixture][ref]){
+						eligibleForMatch.add(ref);
+					}
+					int home = regions.getRegionIndex(refs[ref].getHomeLocation());
+					if (venue>=0&&regions.hasCoordinates()){
+						// the distance travelled to the nearest kilometre
+						Coordinates origin = schedule.getTravelOrigin(refs[ref]);
+						if (origin!=null){
+							distances[fixture][ref] = (int) Math.round(origin.distanceTo(regions.getCoordinates(venue)));
+						}
+					}
+					else if (venue>=0&&home>=0){
+						distances[fixture][ref] = regions.getDistance(home, venue);
+					}
+					maximumDistance = Math.max(maximumDistance, distances[fixture][ref]);
+				}
+				eligibleRefs[fixture] = new int[eligibleForMatch.size()];
+				for (int index = 0; index<eligibleForMatch.size(); index++){
+					eligibleRefs[fixture][index] = eligibleForMatch.get(index);
+				}
+				for (int position = 0; position<match.getCrewSize(); position++){
+					initialCrews[crewStarts[fixture]+position] = refIndexes.get(match.getOfficial(position));
+					slotFixtures[crewStarts[fixture]+position] = fixture;
+				}
+			}
+			initialLoads = new int[refs.length];
+			for (int ref = 0; ref<refs.length; ref++){
+				initialLoads[ref] = refs[ref].getMatchAllocations();
+			}
+			// The total travel of any allocation lies between 0 and the number of officials
+			// times the longest journey, so weighting each unit of the sum of squares above
+			// that range makes the smallest improvement in balance outweigh any saving in
+			// travel and the distance travelled only decides between equally balanced allocations
+			loadWeight = (long) initialCrews.length*maximumDistance+1;
+		}
+
+		/**
+		 * Method to determine the cost of an allocation of officials. The sum of the squared
+		 * match allocations is lowest when the allocations are spread evenly.
+		 * @param crews an array containing the index of each official of each match
+		 * @return cost a long combining the spread of match allocations and the distance travelled
+		 */
+		private long cost(int[] crews){
+			int[] loads = initialLoads.clone();
+			long distance = 0;
+			for (int slot = 0; slot<crews.length; slot++){
+				// the allocations of the initial officials are already counted
+				loads[initialCrews[slot]]--;
+				loads[crews[slot]]++;
+				distance += distances[slotFixtures[slot]][crews[slot]];
+			}
+			long sumOfSquares = 0;
+			for (int load: loads){
+				sumOfSquares += (long) load*load;
+			}
+			return loadWeight*sumOfSquares+distance;
+		}
+	}
+
+	/**
+	 * Defines a single annealing search over a copy of the allocation
+	 */
+	private static class Chain implements Callable<Chain> {
+
+		private final Problem problem; // the allocation problem being searched
+		private final Random random; // the source of random moves
+		private final long deadline; // the value of System.nanoTime() at which the search stops
+		private final int[] crews; // the current index of each official of each match
+		private final int[] loads; // the current match allocations of each referee
+		private final long[] bookedWeeks; // the weeks in which each referee currently officiates
+		private long cost; // the cost of the current allocation
+		private int[] bestCrews; // the best allocation found
+		private long bestCost; // the cost of the best allocation found
+
+		/**
+		 * Constructor for the Chain
+		 * @param allocationProblem a Problem to be searched
+		 * @param randomSeed a long containing the seed of the random moves
+		 * @param stopTime a long containing the value of System.nanoTime() at which to stop
+		 */
+		private Chain(Problem allocationProblem, long randomSeed, long stopTime){
+			problem = allocationProblem;
+			random = new Random(randomSeed);
+			deadline = stopTime;
+			crews = problem.initialCrews.clone();
+			loads = problem.initialLoads.clone();
+			bookedWeeks = new long[problem.refs.length];
+			for (int slot = 0; slot<crews.length; slot++){
+				bookedWeeks[crews[slot]] |= problem.weekBits[problem.slotFixtures[slot]];
+			}
+			cost = problem.cost(crews);
+			bestCrews = crews.clone();
+			bestCost = cost;
+		}
+
+		/**
+		 * Method to search until the deadline, cooling geometrically as time passes
+		 * @return this Chain, holding the best allocation found
+		 */
+		public Chain call(){
+			long startTime = System.nanoTime();
+			double initialTemperature = INITIAL_TEMPERATURE*problem.loadWeight;
+			double temperature = initialTemperature;
+			int iteration = 0;
+			while (true){
+				if (iteration++%ITERATIONS_PER_CLOCK_CHECK==0){
+					long now = System.nanoTime();
+					if (now>=deadline||Thread.currentThread().isInterrupted()){
+						break;
+					}
+					double elapsed = (double) (now-startTime)/Math.max(1, deadline-startTime);
+					temperature = initialTemperature*Math.pow(FINAL_TEMPERATURE/INITIAL_TEMPERATURE, elapsed);
+				}
+				if (random.nextBoolean()){
+					this.tryReplacement(temperature);
+				}
+				else{
+					this.trySwap(temperature);
+				}
+			}
+			return this;
+		}
+
+		/**
+		 * Method to attempt to replace one official of a match with another eligible referee
+		 * @param temperature a double controlling the likelihood of accepting a worse allocation
+		 */
+		private void tryReplacement(double temperature){
+			int slot = random.nextInt(crews.length);
+			int fixture = problem.slotFixtures[slot];
+			int[] candidates = problem.eligibleRefs[fixture];
+			if (candidates.length==0){
+				return;
+			}
+			int current = crews[slot];
+			int replacement = candidates[random.nextInt(candidates.length)];
+			long weekBit = problem.weekBits[fixture];
+			if (replacement==current||(bookedWeeks[replacement]&weekBit)!=0){
+				// the replacement already officiates this match or another in the same week
+				return;
+			}
+			long delta = problem.loadWeight*(2L*loads[replacement]+1-(2L*loads[current]-1))
+					+problem.distances[fixture][replacement]-problem.distances[fixture][current];
+			if (this.accept(delta, temperature)){
+				crews[slot] = replacement;
+				loads[current]--;
+				loads[replacement]++;
+				bookedWeeks[current] &= ~weekBit;
+				bookedWeeks[replacement] |= weekBit;
+				this.moved(delta);
+			}
+		}
+
+		/**
+		 * Method to attempt to exchange officials between two matches. The allocations of each
+		 * referee are unchanged, so only the distance travelled differs.
+		 * @param temperature a double controlling the likelihood of accepting a worse allocation
+		 */
+		private void trySwap(double temperature){
+			int firstSlot = random.nextInt(crews.length);
+			int secondSlot = random.nextInt(crews.length);
+			int firstFixture = problem.slotFixtures[firstSlot];
+			int secondFixture = problem.slotFixtures[secondSlot];
+			int firstRef = crews[firstSlot];
+			int secondRef = crews[secondSlot];
+			if (firstFixture==secondFixture||firstRef==secondRef
+					||!problem.eligible[firstFixture][secondRef]||!problem.eligible[secondFixture][firstRef]
+					||this.officiates(firstFixture, secondRef)||this.officiates(secondFixture, firstRef)){
+				return;
+			}
+			long firstWeek = problem.weekBits[firstFixture];
+			long secondWeek = problem.weekBits[secondFixture];
+			if (firstWeek!=secondWeek
+					&&((bookedWeeks[secondRef]&firstWeek)!=0||(bookedWeeks[firstRef]&secondWeek)!=0)){
+				// one of the referees already officiates another match in the new week
+				return;
+			}
+			long delta = problem.distances[firstFixture][secondRef]+problem.distances[secondFixture][firstRef]
+					-problem.distances[firstFixture][firstRef]-problem.distances[secondFixture][secondRef];
+			if (this.accept(delta, temperature)){
+				crews[firstSlot] = secondRef;
+				crews[secondSlot] = firstRef;
+				if (firstWeek!=secondWeek){
+					bookedWeeks[firstRef] = (bookedWeeks[firstRef]&~firstWeek)|secondWeek;
+					bookedWeeks[secondRef] = (bookedWeeks[secondRef]&~secondWeek)|firstWeek;
+				}
+				this.moved(delta);
+			}
+		}
+
+		/**
+		 * Method to determine whether a referee is currently one of the officials of a match
+		 * @param fixture an int containing the index of the match
+		 * @param ref an int containing the index of the referee
+		 * @return a boolean denoting whether the referee officiates the match
+		 */
+		private boolean officiates(int fixture, int ref){
+			for (int slot = problem.crewStarts[fixture]; slot<problem.crewStarts[fixture+1]; slot++){
+				if (crews[slot]==ref){
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Method to decide whether a move is made. Moves which do not worsen the allocation are
+		 * always made, whereas worse moves become less likely as the chain cools.
+		 * @param delta a long containing the change in cost of the move
+		 * @param temperature a double controlling the likelihood of accepting a worse allocation
+		 * @return a boolean denoting whether the move is made
+		 */
+		private boolean accept(long delta, double temperature){
+			return delta<=0||random.nextDouble()<Math.exp(-delta/temperature);
+		}
+
+		/**
+		 * Method to update the cost after a move, retaining the allocation if it is the best found
+		 * @param delta a long containing the change in cost of the move
+		 */
+		private void moved(long delta){
+			cost += delta;
+			if (cost<bestCost){
+				bestCost = cost;
+				System.arraycopy(crews, 0, bestCrews, 0, crews.length);
+			}
+		}
+	}
+}
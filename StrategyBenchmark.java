@@ -0,0 +1,315 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Replays the same season through several allocation strategies so that a policy can be
+ * chosen by measurement. Each replay starts from a new schedule holding the same referees
+ * and adds the matches of the season in order, timing every addition. The report of each
+ * strategy gives the throughput and latency of adding matches, the number of matches
+ * which could not be given a full crew, the fairness of the resulting match allocations
+ * and the distance travelled by the officials.
+ *
+ * Run from the command line as
+ *
+ *     java StrategyBenchmark [refereesFile [regionsFile [fixturesFile [repetitions]]]]
+ *
+ * The referees and regions files default to the input files of the application. The
+ * fixtures file holds one match per line in the form "week level location", as in the
+ * fixtures files of ScheduleImporter; without one a random season is generated.
+ */
+public class StrategyBenchmark {
+
+	public static final int DEFAULT_REPETITIONS = 200; // the number of replays of each strategy from the command line
+	public static final int DEFAULT_MATCHES_PER_WEEK = 2; // the matches each week of a generated season
+	private static final ColumnFormatter REPORT_LAYOUT =
+			new ColumnFormatter("%-16s%8s%8s%14s%10s%10s%10s%8s%10s%12s\n"); // the columns of the report
+
+	/**
+	 * Defines the measurements of one strategy
+	 */
+	public static class Result {
+
+		private final String strategyName; // the name of the strategy measured
+		private final int matchesAdded; // the matches of the season given a full crew
+		private final int matchesRefused; // the matches of the season which could not be added
+		private final long[] latencies; // the time of each addition in nanoseconds, in ascending order
+		private final long totalNanos; // the total time of every addition
+		private final int allocationSpread; // the difference between the most and fewest allocations
+		private final double allocationDeviation; // the standard deviation of the allocations
+		private final double meanTravel; // the mean distance travelled by each official allocated
+
+		/**
+		 * Constructor for the Result
+		 * @param strategyName a String containing the name of the strategy
+		 * @param matchesAdded an int containing the matches given a full crew in each replay
+		 * @param matchesRefused an int containing the matches which could not be added in each replay
+		 * @param latencies an array containing the time of each addition in nanoseconds
+		 * @param histogram the AllocationHistogram of the schedule after the last replay
+		 * @param meanTravel a double containing the mean distance travelled by each official
+		 */
+		private Result(String strategyName, int matchesAdded, int matchesRefused, long[] latencies,
+				AllocationHistogram histogram, double meanTravel){
+			this.strategyName = strategyName;
+			this.matchesAdded = matchesAdded;
+			this.matchesRefused = matchesRefused;
+			this.latencies = latencies;
+			Arrays.sort(this.latencies);
+			long total = 0;
+			for (long latency: latencies){
+				total += latency;
+			}
+			totalNanos = total;
+			allocationSpread = histogram.getSpread();
+			allocationDeviation = Math.sqrt(histogram.getVariance());
+			this.meanTravel = meanTravel;
+		}
+
+		/**
+		 * Accessor method for the name of the strategy measured
+		 * @return strategyName a String containing the name of the strategy
+		 */
+		public String getStrategyName(){
+			return strategyName;
+		}
+
+		/**
+		 * Accessor method for the number of matches given a full crew
+		 * @return matchesAdded an int containing the number of matches added in each replay
+		 */
+		public int getMatchesAdded(){
+			return matchesAdded;
+		}
+
+		/**
+		 * Accessor method for the number of matches which could not be added
+		 * @return matchesRefused an int containing the number of matches refused in each replay
+		 */
+		public int getMatchesRefused(){
+			return matchesRefused;
+		}
+
+		/**
+		 * Accessor method for the rate at which matches were added
+		 * @return a double containing the number of additions per second, or 0 if none were timed
+		 */
+		public double getThroughput(){
+			return totalNanos>0 ? latencies.length*1e9/totalNanos : 0;
+		}
+
+		/**
+		 * Method to determine a percentile of the time taken to add a match, by the nearest rank
+		 * @param percentile an int between 1 and 100
+		 * @return a double containing the time in microseconds, or 0 if no addition was timed
+		 */
+		public double getLatencyMicros(int percentile){
+			if (latencies.length==0){
+				return 0;
+			}
+			int rank = (int) Math.ceil(percentile*latencies.length/100.0);
+			return latencies[Math.max(rank, 1)-1]/1e3;
+		}
+
+		/**
+		 * Accessor method for the difference between the most and fewest match allocations
+		 * @return allocationSpread an int containing the spread once the season is allocated
+		 */
+		public int getAllocationSpread(){
+			return allocationSpread;
+		}
+
+		/**
+		 * Accessor method for the standard deviation of the match allocations
+		 * @return allocationDeviation a double containing the deviation once the season is allocated
+		 */
+		public double getAllocationDeviation(){
+			return allocationDeviation;
+		}
+
+		/**
+		 * Accessor method for the mean distance travelled by each official allocated, in
+		 * kilometres where the regions have coordinates and otherwise in region distances
+		 * @return meanTravel a double containing the mean distance
+		 */
+		public double getMeanTravel(){
+			return meanTravel;
+		}
+	}
+
+	private final RegionTopology regions; // the regions of each replayed schedule
+	private final List<String> refereeLines; // the details of each referee in the format of the referees input file
+	private final List<Match> season; // the matches of the season in the order they are added
+	private final int matchesPerWeek; // the most matches of the season in any week
+
+	/**
+	 * Constructor for the StrategyBenchmark
+	 * @param topology a RegionTopology defining the regions of the season
+	 * @param refereeDetails a List of Strings describing each referee in the format of the referees input file
+	 * @param seasonMatches a List of Match objects giving the venue, level and week of each match, in order
+	 */
+	public StrategyBenchmark(RegionTopology topology, List<String> refereeDetails, List<Match> seasonMatches){
+		regions = topology;
+		refereeLines = new ArrayList<String>(refereeDetails);
+		season = new ArrayList<Match>(seasonMatches);
+		Map<Integer, Integer> weekCounts = new HashMap<Integer, Integer>();
+		int mostInAWeek = 1;
+		for (Match fixture: season){
+			Integer count = weekCounts.get(fixture.getWeekNo());
+			count = count==null ? 1 : count+1;
+			weekCounts.put(fixture.getWeekNo(), count);
+			mostInAWeek = Math.max(mostInAWeek, count);
+		}
+		matchesPerWeek = mostInAWeek;
+	}
+
+	/**
+	 * Method to generate a season of matches at random venues and levels
+	 * @param topology a RegionTopology defining the regions matches are played in
+	 * @param matchesPerWeek an int containing the number of matches each week
+	 * @param seed a long containing the seed of the random choices, so a season can be repeated
+	 * @return season a List of Match objects without officials
+	 */
+	public static List<Match> randomSeason(RegionTopology topology, int matchesPerWeek, long seed){
+		Random random = new Random(seed);
+		List<String> venues = topology.getRegionNames();
+		List<Match> season = new ArrayList<Match>();
+		// the length of the season is a constant of every schedule
+		int weeksInASeason = new MatchSchedule(topology).WEEKS_IN_A_SEASON;
+		for (int week = 1; week<=weeksInASeason; week++){
+			for (int match = 0; match<matchesPerWeek; match++){
+				season.add(new Match(venues.get(random.nextInt(venues.size())),
+						random.nextBoolean() ? "Senior" : "Junior", week));
+			}
+		}
+		return season;
+	}
+
+	/**
+	 * Method to replay the season through a strategy
+	 * @param strategy an AllocationStrategy to be measured
+	 * @param repetitions an int containing the number of times the season is replayed
+	 * @return a Result describing the measurements
+	 * @throws IllegalArgumentException if a referee cannot be read or the repetitions are not positive
+	 */
+	public Result run(AllocationStrategy strategy, int repetitions){
+		if (repetitions<1){
+			throw new IllegalArgumentException("At least one repetition is required");
+		}
+		long[] latencies = new long[repetitions*season.size()];
+		int timed = 0;
+		int matchesAdded = 0;
+		MatchSchedule schedule = null;
+		for (int repetition = 0; repetition<repetitions; repetition++){
+			schedule = this.createSchedule(strategy);
+			matchesAdded = 0;
+			for (Match fixture: season){
+				long start = System.nanoTime();
+				boolean added = schedule.addMatchToSchedule(fixture.getLocation(), fixture.getMatchLevel(),
+						fixture.getWeekNo());
+				latencies[timed++] = System.nanoTime()-start;
+				if (added){
+					matchesAdded++;
+				}
+			}
+		}
+		// Every replay allocates the same officials, so the last is measured
+		double totalTravel = 0;
+		int officialsAllocated = 0;
+		for (Match fixture: schedule.getMatchSchedule()){
+			for (Referee ref: fixture.getOfficials()){
+				totalTravel += Math.max(0, schedule.getTravelDistance(ref, fixture.getLocation()));
+				officialsAllocated++;
+			}
+		}
+		return new Result(strategy.getName(), matchesAdded, season.size()-matchesAdded, latencies,
+				schedule.getAllocationHistogram(), officialsAllocated>0 ? totalTravel/officialsAllocated : 0);
+	}
+
+	/**
+	 * Method to create a schedule holding the referees, with no matches scheduled
+	 * @param strategy an AllocationStrategy choosing the officials of each match
+	 * @return schedule a new MatchSchedule
+	 */
+	private MatchSchedule createSchedule(AllocationStrategy strategy){
+		MatchSchedule schedule = new MatchSchedule(regions);
+		schedule.setMaximumMatchesPerWeek(matchesPerWeek);
+		schedule.setAllocationStrategy(strategy);
+		for (String line: refereeLines){
+			schedule.addReferee(schedule.parseReferee(line));
+		}
+		return schedule;
+	}
+
+	/**
+	 * Method to format the measurements of several strategies as a table
+	 * @param results a List of Result objects
+	 * @return a String containing a heading and one row for each strategy
+	 */
+	public static String report(List<Result> results){
+		StringBuilder builder = new StringBuilder(REPORT_LAYOUT.format("Strategy", "Added", "Refused",
+				"Matches/sec", "p50 us", "p99 us", "Max us", "Spread", "Std dev", "Mean travel"));
+		for (Result result: results){
+			builder.append(REPORT_LAYOUT.format(result.getStrategyName(),
+					Integer.toString(result.getMatchesAdded()), Integer.toString(result.getMatchesRefused()),
+					String.format("%.0f", result.getThroughput()), String.format("%.2f", result.getLatencyMicros(50)),
+					String.format("%.2f", result.getLatencyMicros(99)), String.format("%.2f", result.getLatencyMicros(100)),
+					Integer.toString(result.getAllocationSpread()), String.format("%.3f", result.getAllocationDeviation()),
+					String.format("%.3f", result.getMeanTravel())));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Method to read the lines of a file which are not blank
+	 * @param fileName a String containing the name of the file
+	 * @return lines a List of Strings
+	 * @throws IOException if the file cannot be read
+	 */
+	private static List<String> readLines(String fileName) throws IOException{
+		List<String> lines = new ArrayList<String>();
+		for (String line: Files.readAllLines(Paths.get(fileName))){
+			if (!line.trim().isEmpty()){
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * The main method, replaying a season through every strategy provided
+	 * @param args the optional names of the referees, regions and fixtures files and the number of repetitions
+	 * @throws IOException if a file cannot be read
+	 */
+	public static void main(String[] args) throws IOException{
+		String refereesFile = args.length>0 ? args[0] : "RefereesIn.txt";
+		String regionsFile = args.length>1 ? args[1] : "Regions.txt";
+		RegionTopology topology = new java.io.File(regionsFile).exists()
+				? RegionTopology.fromFile(regionsFile) : RegionTopology.defaultTopology();
+		List<Match> season = new ArrayList<Match>();
+		if (args.length>2){
+			for (String line: readLines(args[2])){
+				// the week, level and location of each match, any named officials being ignored
+				String[] tokens = line.trim().split(" +");
+				if (tokens.length<3){
+					throw new IllegalArgumentException("Invalid fixture "+line);
+				}
+				season.add(new Match(tokens[2], tokens[1], Integer.parseInt(tokens[0])));
+			}
+		}
+		else{
+			season = randomSeason(topology, DEFAULT_MATCHES_PER_WEEK, 0);
+		}
+		int repetitions = args.length>3 ? Integer.parseInt(args[3]) : DEFAULT_REPETITIONS;
+		StrategyBenchmark benchmark = new StrategyBenchmark(topology, readLines(refereesFile), season);
+		// Replaying every strategy first lets the virtual machine compile the schedule and
+		// strategies before any is timed, so the first strategy measured is not penalised
+		for (AllocationStrategy strategy: AllocationStrategies.all()){
+			benchmark.run(strategy, Math.max(1, repetitions/10));
+		}
+		List<Result> results = new ArrayList<Result>();
+		for (AllocationStrategy strategy: AllocationStrategies.all()){
+			results.add(benchmark.run(strategy, repetitions));
+		}
+		System.out.print(report(results));
+	}
+}